@@ -0,0 +1,122 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.lucene.search.vectorhighlight;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link FieldTermStack} that is built from the postings of a field indexed with offsets
+ * (<tt>index_options</tt> set to <tt>offsets</tt>) instead of from its term vectors. This allows
+ * to use the fast vector highlighter phrase and fragment building on fields that don't store
+ * term vectors, without re-analyzing the text of each hit.
+ */
+// LUCENE MONITOR
+public class PostingsFieldTermStack extends FieldTermStack {
+
+    public static final BytesRef[] EMPTY_TERMS = new BytesRef[0];
+
+    // a field query with no terms for any field, so the term vectors based super constructor bails early
+    private static final FieldQuery NO_TERMS_FIELD_QUERY;
+
+    static {
+        try {
+            NO_TERMS_FIELD_QUERY = new FieldQuery(new BooleanQuery(), null, false, true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the (sorted) terms of the field query for the provided field, meant to be computed once
+     * per request and then used for every hit.
+     */
+    public static BytesRef[] queryTerms(FieldQuery fieldQuery, String fieldName) {
+        Set<String> termSet = fieldQuery.getTermSet(fieldName);
+        if (termSet == null || termSet.isEmpty()) {
+            return EMPTY_TERMS;
+        }
+        BytesRef[] terms = new BytesRef[termSet.size()];
+        int i = 0;
+        for (String term : termSet) {
+            terms[i++] = new BytesRef(term);
+        }
+        // seek the terms in order, so the terms enum can move forward
+        Arrays.sort(terms);
+        return terms;
+    }
+
+    /**
+     * @param reader     the segment reader the doc belongs to
+     * @param docId      the segment level doc id
+     * @param fieldName  the field to highlight
+     * @param queryTerms the sorted query terms, see {@link #queryTerms(FieldQuery, String)}
+     */
+    public PostingsFieldTermStack(AtomicReader reader, int docId, String fieldName, BytesRef[] queryTerms) throws IOException {
+        super(reader, docId, fieldName, NO_TERMS_FIELD_QUERY);
+        if (queryTerms.length == 0) {
+            return;
+        }
+        Terms terms = reader.terms(fieldName);
+        if (terms == null) {
+            return;
+        }
+        TermsEnum termsEnum = terms.iterator(null);
+        DocsAndPositionsEnum dpEnum = null;
+        int numDocs = reader.maxDoc();
+        List<TermInfo> termInfos = new ArrayList<TermInfo>();
+        for (BytesRef queryTerm : queryTerms) {
+            if (!termsEnum.seekExact(queryTerm, false)) {
+                continue;
+            }
+            dpEnum = termsEnum.docsAndPositions(null, dpEnum, DocsAndPositionsEnum.FLAG_OFFSETS);
+            if (dpEnum == null) {
+                return; // no positions indexed, null snippet
+            }
+            if (dpEnum.advance(docId) != docId) {
+                continue;
+            }
+            // same weight as the term vectors based stack
+            final float weight = (float) (Math.log(numDocs / (double) (termsEnum.docFreq() + 1)) + 1.0);
+            final String text = queryTerm.utf8ToString();
+            final int freq = dpEnum.freq();
+            for (int i = 0; i < freq; i++) {
+                int pos = dpEnum.nextPosition();
+                if (dpEnum.startOffset() < 0) {
+                    return; // no offsets indexed, null snippet
+                }
+                termInfos.add(new TermInfo(text, dpEnum.startOffset(), dpEnum.endOffset(), pos, weight));
+            }
+        }
+        // sort by position, and push in reverse so pop returns them in position order
+        Collections.sort(termInfos);
+        for (int i = termInfos.size() - 1; i >= 0; i--) {
+            push(termInfos.get(i));
+        }
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.indices.rollover;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.ElasticSearchGenerationException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.ElasticSearchParseException;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.master.MasterNodeOperationRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
+import static org.elasticsearch.common.settings.ImmutableSettings.readSettingsFromStream;
+import static org.elasticsearch.common.settings.ImmutableSettings.writeSettingsToStream;
+import static org.elasticsearch.common.unit.TimeValue.readTimeValue;
+
+/**
+ * A request to roll an alias over to a new index. The alias must point to exactly one index. When no
+ * conditions are set the rollover always happens, otherwise it only happens once at least one of the
+ * conditions ({@link #maxDocs(long)}, {@link #maxSize(ByteSizeValue)}, {@link #maxAge(TimeValue)}) is met
+ * by the index the alias currently points to. A rollover whose conditions are not met is a no-op, which
+ * makes it safe to issue the same request periodically (for example from cron).
+ *
+ * @see org.elasticsearch.client.IndicesAdminClient#rollover(RolloverRequest)
+ * @see RolloverResponse
+ */
+public class RolloverRequest extends MasterNodeOperationRequest<RolloverRequest> {
+
+    private String alias;
+
+    private String newIndex;
+
+    private long maxDocs = -1;
+
+    private ByteSizeValue maxSize;
+
+    private TimeValue maxAge;
+
+    private boolean dryRun;
+
+    private Settings settings = EMPTY_SETTINGS;
+
+    private Map<String, String> mappings = newHashMap();
+
+    private TimeValue timeout = new TimeValue(10, TimeUnit.SECONDS);
+
+    // the primaries stats of the index the alias points to, gathered before getting to the master operation
+    private String statsIndex;
+    private long statsDocs;
+    private long statsSizeInBytes;
+
+    RolloverRequest() {
+    }
+
+    /**
+     * Constructs a new request to roll over the given alias.
+     */
+    public RolloverRequest(String alias) {
+        this.alias = alias;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (alias == null) {
+            validationException = addValidationError("alias is missing", validationException);
+        }
+        return validationException;
+    }
+
+    /**
+     * The alias to roll over.
+     */
+    public String alias() {
+        return alias;
+    }
+
+    public RolloverRequest alias(String alias) {
+        this.alias = alias;
+        return this;
+    }
+
+    /**
+     * The name of the index to roll over to, <tt>null</tt> to derive it from the current index name by
+     * incrementing its trailing <tt>-N</tt> counter.
+     */
+    @Nullable
+    public String newIndex() {
+        return newIndex;
+    }
+
+    public RolloverRequest newIndex(String newIndex) {
+        this.newIndex = newIndex;
+        return this;
+    }
+
+    /**
+     * Roll over once the current index holds at least this many (primary) docs. Defaults to <tt>-1</tt> (not set).
+     */
+    public long maxDocs() {
+        return maxDocs;
+    }
+
+    public RolloverRequest maxDocs(long maxDocs) {
+        this.maxDocs = maxDocs;
+        return this;
+    }
+
+    /**
+     * Roll over once the primaries of the current index use at least this much store size.
+     */
+    @Nullable
+    public ByteSizeValue maxSize() {
+        return maxSize;
+    }
+
+    public RolloverRequest maxSize(ByteSizeValue maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public RolloverRequest maxSize(String maxSize) {
+        return maxSize(ByteSizeValue.parseBytesSizeValue(maxSize));
+    }
+
+    /**
+     * Roll over once the current index is at least this old, based on its creation date.
+     */
+    @Nullable
+    public TimeValue maxAge() {
+        return maxAge;
+    }
+
+    public RolloverRequest maxAge(TimeValue maxAge) {
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    public RolloverRequest maxAge(String maxAge) {
+        return maxAge(TimeValue.parseTimeValue(maxAge, null));
+    }
+
+    /**
+     * Are any conditions set on this request.
+     */
+    public boolean hasConditions() {
+        return maxDocs >= 0 || maxSize != null || maxAge != null;
+    }
+
+    /**
+     * Do the conditions need the stats of the index the alias points to.
+     */
+    boolean needsStats() {
+        return maxDocs >= 0 || maxSize != null;
+    }
+
+    void stats(String index, long docs, long sizeInBytes) {
+        this.statsIndex = index;
+        this.statsDocs = docs;
+        this.statsSizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * The index the stats were gathered for, <tt>null</tt> if they were not gathered.
+     */
+    @Nullable
+    String statsIndex() {
+        return statsIndex;
+    }
+
+    long statsDocs() {
+        return statsDocs;
+    }
+
+    long statsSizeInBytes() {
+        return statsSizeInBytes;
+    }
+
+    /**
+     * Only evaluate the conditions, without creating the new index or moving the alias.
+     */
+    public boolean dryRun() {
+        return dryRun;
+    }
+
+    public RolloverRequest dryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+        return this;
+    }
+
+    /**
+     * The settings to create the new index with.
+     */
+    Settings settings() {
+        return settings;
+    }
+
+    /**
+     * The settings to create the new index with.
+     */
+    public RolloverRequest settings(Settings settings) {
+        this.settings = settings;
+        return this;
+    }
+
+    /**
+     * The settings to create the new index with.
+     */
+    public RolloverRequest settings(Settings.Builder settings) {
+        this.settings = settings.build();
+        return this;
+    }
+
+    /**
+     * The settings to create the new index with (either json/yaml/properties format)
+     */
+    public RolloverRequest settings(String source) {
+        this.settings = ImmutableSettings.settingsBuilder().loadFromSource(source).build();
+        return this;
+    }
+
+    /**
+     * The settings to create the new index with (either json/yaml/properties format)
+     */
+    public RolloverRequest settings(Map source) {
+        try {
+            XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON);
+            builder.map(source);
+            settings(builder.string());
+        } catch (IOException e) {
+            throw new ElasticSearchGenerationException("Failed to generate [" + source + "]", e);
+        }
+        return this;
+    }
+
+    /**
+     * Adds mapping that will be added when the new index gets created.
+     *
+     * @param type   The mapping type
+     * @param source The mapping source
+     */
+    public RolloverRequest mapping(String type, String source) {
+        mappings.put(type, source);
+        return this;
+    }
+
+    /**
+     * Adds mapping that will be added when the new index gets created.
+     *
+     * @param type   The mapping type
+     * @param source The mapping source
+     */
+    public RolloverRequest mapping(String type, XContentBuilder source) {
+        try {
+            mappings.put(type, source.string());
+        } catch (IOException e) {
+            throw new ElasticSearchIllegalArgumentException("Failed to build json for mapping request", e);
+        }
+        return this;
+    }
+
+    /**
+     * Adds mapping that will be added when the new index gets created.
+     *
+     * @param type   The mapping type
+     * @param source The mapping source
+     */
+    public RolloverRequest mapping(String type, Map source) {
+        // wrap it in a type map if its not
+        if (source.size() != 1 || !source.containsKey(type)) {
+            source = MapBuilder.<String, Object>newMapBuilder().put(type, source).map();
+        }
+        try {
+            XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON);
+            builder.map(source);
+            return mapping(type, builder.string());
+        } catch (IOException e) {
+            throw new ElasticSearchGenerationException("Failed to generate [" + source + "]", e);
+        }
+    }
+
+    Map<String, String> mappings() {
+        return this.mappings;
+    }
+
+    /**
+     * Sets the conditions, settings and mappings as a single source.
+     */
+    public RolloverRequest source(String source) {
+        return source(source.getBytes(Charsets.UTF_8));
+    }
+
+    /**
+     * Sets the conditions, settings and mappings as a single source.
+     */
+    public RolloverRequest source(XContentBuilder source) {
+        return source(source.bytes());
+    }
+
+    /**
+     * Sets the conditions, settings and mappings as a single source.
+     */
+    public RolloverRequest source(byte[] source) {
+        return source(new BytesArray(source, 0, source.length));
+    }
+
+    /**
+     * Sets the conditions, settings and mappings as a single source.
+     */
+    public RolloverRequest source(BytesReference source) {
+        try {
+            source(XContentFactory.xContent(source).createParser(source).mapAndClose());
+        } catch (IOException e) {
+            throw new ElasticSearchParseException("failed to parse source for rollover", e);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the conditions, settings and mappings as a single source.
+     */
+    @SuppressWarnings({"unchecked"})
+    public RolloverRequest source(Map<String, Object> source) {
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            String name = entry.getKey();
+            if (name.equals("conditions")) {
+                Map<String, Object> conditions = (Map<String, Object>) entry.getValue();
+                for (Map.Entry<String, Object> condition : conditions.entrySet()) {
+                    String conditionName = condition.getKey();
+                    if ("max_docs".equals(conditionName) || "maxDocs".equals(conditionName)) {
+                        Object value = condition.getValue();
+                        maxDocs(value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString()));
+                    } else if ("max_size".equals(conditionName) || "maxSize".equals(conditionName)) {
+                        maxSize(condition.getValue().toString());
+                    } else if ("max_age".equals(conditionName) || "maxAge".equals(conditionName)) {
+                        maxAge(condition.getValue().toString());
+                    } else {
+                        throw new ElasticSearchParseException("unknown rollover condition [" + conditionName + "]");
+                    }
+                }
+            } else if (name.equals("settings")) {
+                settings((Map<String, Object>) entry.getValue());
+            } else if (name.equals("mappings")) {
+                Map<String, Object> mappings = (Map<String, Object>) entry.getValue();
+                for (Map.Entry<String, Object> entry1 : mappings.entrySet()) {
+                    mapping(entry1.getKey(), (Map<String, Object>) entry1.getValue());
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Timeout to wait for the index creation and alias swap to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    TimeValue timeout() {
+        return timeout;
+    }
+
+    /**
+     * Timeout to wait for the index creation and alias swap to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    public RolloverRequest timeout(TimeValue timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Timeout to wait for the index creation and alias swap to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    public RolloverRequest timeout(String timeout) {
+        return timeout(TimeValue.parseTimeValue(timeout, null));
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        alias = in.readString();
+        newIndex = in.readOptionalString();
+        maxDocs = in.readLong();
+        if (in.readBoolean()) {
+            maxSize = ByteSizeValue.readBytesSizeValue(in);
+        }
+        if (in.readBoolean()) {
+            maxAge = readTimeValue(in);
+        }
+        dryRun = in.readBoolean();
+        settings = readSettingsFromStream(in);
+        timeout = readTimeValue(in);
+        int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            mappings.put(in.readString(), in.readString());
+        }
+        statsIndex = in.readOptionalString();
+        if (statsIndex != null) {
+            statsDocs = in.readVLong();
+            statsSizeInBytes = in.readVLong();
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(alias);
+        out.writeOptionalString(newIndex);
+        out.writeLong(maxDocs);
+        if (maxSize == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            maxSize.writeTo(out);
+        }
+        if (maxAge == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            maxAge.writeTo(out);
+        }
+        out.writeBoolean(dryRun);
+        writeSettingsToStream(settings, out);
+        timeout.writeTo(out);
+        out.writeVInt(mappings.size());
+        for (Map.Entry<String, String> entry : mappings.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeString(entry.getValue());
+        }
+        out.writeOptionalString(statsIndex);
+        if (statsIndex != null) {
+            out.writeVLong(statsDocs);
+            out.writeVLong(statsSizeInBytes);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.indices.rollover;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.master.MasterNodeOperationRequestBuilder;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.client.internal.InternalIndicesAdminClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.util.Map;
+
+/**
+ *
+ */
+public class RolloverRequestBuilder extends MasterNodeOperationRequestBuilder<RolloverRequest, RolloverResponse, RolloverRequestBuilder> {
+
+    public RolloverRequestBuilder(IndicesAdminClient indicesClient) {
+        super((InternalIndicesAdminClient) indicesClient, new RolloverRequest());
+    }
+
+    public RolloverRequestBuilder(IndicesAdminClient indicesClient, String alias) {
+        super((InternalIndicesAdminClient) indicesClient, new RolloverRequest(alias));
+    }
+
+    /**
+     * The alias to roll over.
+     */
+    public RolloverRequestBuilder setAlias(String alias) {
+        request.alias(alias);
+        return this;
+    }
+
+    /**
+     * The name of the index to roll over to, by default derived from the current index name.
+     */
+    public RolloverRequestBuilder setNewIndex(String newIndex) {
+        request.newIndex(newIndex);
+        return this;
+    }
+
+    /**
+     * Roll over once the current index holds at least this many docs.
+     */
+    public RolloverRequestBuilder setMaxDocs(long maxDocs) {
+        request.maxDocs(maxDocs);
+        return this;
+    }
+
+    /**
+     * Roll over once the primaries of the current index use at least this much store size.
+     */
+    public RolloverRequestBuilder setMaxSize(ByteSizeValue maxSize) {
+        request.maxSize(maxSize);
+        return this;
+    }
+
+    /**
+     * Roll over once the current index is at least this old.
+     */
+    public RolloverRequestBuilder setMaxAge(TimeValue maxAge) {
+        request.maxAge(maxAge);
+        return this;
+    }
+
+    /**
+     * Only evaluate the conditions, without rolling over.
+     */
+    public RolloverRequestBuilder setDryRun(boolean dryRun) {
+        request.dryRun(dryRun);
+        return this;
+    }
+
+    /**
+     * The settings to create the new index with.
+     */
+    public RolloverRequestBuilder setSettings(Settings settings) {
+        request.settings(settings);
+        return this;
+    }
+
+    /**
+     * The settings to create the new index with.
+     */
+    public RolloverRequestBuilder setSettings(Settings.Builder settings) {
+        request.settings(settings);
+        return this;
+    }
+
+    /**
+     * Adds mapping that will be added when the new index gets created.
+     */
+    public RolloverRequestBuilder addMapping(String type, String source) {
+        request.mapping(type, source);
+        return this;
+    }
+
+    /**
+     * Adds mapping that will be added when the new index gets created.
+     */
+    public RolloverRequestBuilder addMapping(String type, XContentBuilder source) {
+        request.mapping(type, source);
+        return this;
+    }
+
+    /**
+     * Adds mapping that will be added when the new index gets created.
+     */
+    public RolloverRequestBuilder addMapping(String type, Map<String, Object> source) {
+        request.mapping(type, source);
+        return this;
+    }
+
+    /**
+     * Sets the conditions, settings and mappings as a single source.
+     */
+    public RolloverRequestBuilder setSource(String source) {
+        request.source(source);
+        return this;
+    }
+
+    /**
+     * Timeout to wait for the index creation and alias swap to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    public RolloverRequestBuilder setTimeout(TimeValue timeout) {
+        request.timeout(timeout);
+        return this;
+    }
+
+    /**
+     * Timeout to wait for the index creation and alias swap to be acknowledged by current cluster nodes. Defaults
+     * to <tt>10s</tt>.
+     */
+    public RolloverRequestBuilder setTimeout(String timeout) {
+        request.timeout(timeout);
+        return this;
+    }
+
+    @Override
+    protected void doExecute(ActionListener<RolloverResponse> listener) {
+        ((IndicesAdminClient) client).rollover(request, listener);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.indices.rollover;
+
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newLinkedHashMap;
+
+/**
+ * A response for a rollover action.
+ */
+public class RolloverResponse extends ActionResponse {
+
+    private String oldIndex;
+
+    private String newIndex;
+
+    private Map<String, Boolean> conditions = newLinkedHashMap();
+
+    private boolean dryRun;
+
+    private boolean rolledOver;
+
+    private boolean acknowledged;
+
+    RolloverResponse() {
+    }
+
+    RolloverResponse(String oldIndex, String newIndex, Map<String, Boolean> conditions, boolean dryRun, boolean rolledOver, boolean acknowledged) {
+        this.oldIndex = oldIndex;
+        this.newIndex = newIndex;
+        this.conditions = conditions;
+        this.dryRun = dryRun;
+        this.rolledOver = rolledOver;
+        this.acknowledged = acknowledged;
+    }
+
+    /**
+     * The index the alias pointed to before the rollover.
+     */
+    public String getOldIndex() {
+        return oldIndex;
+    }
+
+    /**
+     * The index the alias points to after a rollover (or would point to, if it did not happen).
+     */
+    public String getNewIndex() {
+        return newIndex;
+    }
+
+    /**
+     * The evaluated conditions, keyed by a description of the condition, with whether each was met.
+     */
+    public Map<String, Boolean> getConditions() {
+        return conditions;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * Was the new index created and the alias moved over to it.
+     */
+    public boolean isRolledOver() {
+        return rolledOver;
+    }
+
+    public boolean isAcknowledged() {
+        return acknowledged;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        oldIndex = in.readString();
+        newIndex = in.readString();
+        int size = in.readVInt();
+        conditions = newLinkedHashMap();
+        for (int i = 0; i < size; i++) {
+            conditions.put(in.readString(), in.readBoolean());
+        }
+        dryRun = in.readBoolean();
+        rolledOver = in.readBoolean();
+        acknowledged = in.readBoolean();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(oldIndex);
+        out.writeString(newIndex);
+        out.writeVInt(conditions.size());
+        for (Map.Entry<String, Boolean> entry : conditions.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeBoolean(entry.getValue());
+        }
+        out.writeBoolean(dryRun);
+        out.writeBoolean(rolledOver);
+        out.writeBoolean(acknowledged);
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.indices.rollover;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.indices.stats.CommonStats;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsRequest;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.action.admin.indices.stats.TransportIndicesStatsAction;
+import org.elasticsearch.action.support.master.TransportMasterNodeOperationAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.AliasAction;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaDataCreateIndexService;
+import org.elasticsearch.cluster.metadata.MetaDataIndexAliasesService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.collect.Maps.newLinkedHashMap;
+
+/**
+ * Rolls an alias over to a new index: evaluates the conditions against the index the alias points to, and
+ * when met (or when there are none) creates the new index and moves the alias to it in a single, atomic
+ * aliases update.
+ * <p/>
+ * The index is created with {@link #SETTING_ROLLOVER_ALIAS} set to the alias. If creating it succeeded but moving
+ * the alias did not, retrying the same rollover reuses the created index instead of failing because it exists.
+ */
+public class TransportRolloverAction extends TransportMasterNodeOperationAction<RolloverRequest, RolloverResponse> {
+
+    /**
+     * The alias an index got created by a rollover for.
+     */
+    public static final String SETTING_ROLLOVER_ALIAS = "index.rollover.alias";
+
+    private static final Pattern INDEX_COUNTER = Pattern.compile("^(.*-)(\\d+)$");
+
+    private final MetaDataCreateIndexService createIndexService;
+
+    private final MetaDataIndexAliasesService indexAliasesService;
+
+    private final TransportIndicesStatsAction indicesStatsAction;
+
+    @Inject
+    public TransportRolloverAction(Settings settings, TransportService transportService, ClusterService clusterService,
+                                   ThreadPool threadPool, MetaDataCreateIndexService createIndexService,
+                                   MetaDataIndexAliasesService indexAliasesService, TransportIndicesStatsAction indicesStatsAction) {
+        super(settings, transportService, clusterService, threadPool);
+        this.createIndexService = createIndexService;
+        this.indexAliasesService = indexAliasesService;
+        this.indicesStatsAction = indicesStatsAction;
+    }
+
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.MANAGEMENT;
+    }
+
+    @Override
+    protected String transportAction() {
+        return RolloverAction.NAME;
+    }
+
+    @Override
+    protected RolloverRequest newRequest() {
+        return new RolloverRequest();
+    }
+
+    @Override
+    protected RolloverResponse newResponse() {
+        return new RolloverResponse();
+    }
+
+    @Override
+    protected void doExecute(final RolloverRequest request, final ActionListener<RolloverResponse> listener) {
+        ImmutableMap<String, AliasMetaData> indices = clusterService.state().metaData().aliases().get(request.alias());
+        if (!request.needsStats() || indices == null || indices.size() != 1) {
+            // nothing to gather, or the master operation fails on the alias
+            super.doExecute(request, listener);
+            return;
+        }
+        final String index = indices.keySet().iterator().next();
+        if (index.equals(request.statsIndex())) {
+            // already gathered by the node that forwarded the request to us
+            super.doExecute(request, listener);
+            return;
+        }
+        // gather the stats up front, so the master operation does not block on them
+        indicesStatsAction.execute(new IndicesStatsRequest().indices(index).clear().docs(true).store(true), new ActionListener<IndicesStatsResponse>() {
+            @Override
+            public void onResponse(IndicesStatsResponse response) {
+                CommonStats primaries = response.getPrimaries();
+                long docs = primaries.getDocs() == null ? 0 : primaries.getDocs().getCount();
+                long size = primaries.getStore() == null ? 0 : primaries.getStore().getSizeInBytes();
+                request.stats(index, docs, size);
+                TransportRolloverAction.super.doExecute(request, listener);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    @Override
+    protected ClusterBlockException checkBlock(RolloverRequest request, ClusterState state) {
+        ImmutableMap<String, AliasMetaData> indices = state.metaData().aliases().get(request.alias());
+        if (indices == null) {
+            return null;
+        }
+        return state.blocks().indicesBlockedException(ClusterBlockLevel.METADATA, indices.keySet().toArray(new String[indices.size()]));
+    }
+
+    @Override
+    protected RolloverResponse masterOperation(RolloverRequest request, ClusterState state) throws ElasticSearchException {
+        ImmutableMap<String, AliasMetaData> indices = state.metaData().aliases().get(request.alias());
+        if (indices == null || indices.isEmpty()) {
+            throw new ElasticSearchIllegalArgumentException("alias [" + request.alias() + "] does not exist");
+        }
+        if (indices.size() > 1) {
+            throw new ElasticSearchIllegalArgumentException("alias [" + request.alias() + "] points to more than one index " + indices.keySet() + ", can only roll over an alias pointing to a single index");
+        }
+        Map.Entry<String, AliasMetaData> entry = indices.entrySet().iterator().next();
+        String oldIndex = entry.getKey();
+        AliasMetaData aliasMetaData = entry.getValue();
+        String newIndex = request.newIndex() != null ? request.newIndex() : nextIndexName(oldIndex);
+
+        Map<String, Boolean> conditions = evaluateConditions(request, state.metaData().index(oldIndex));
+        boolean conditionsMet = !request.hasConditions() || conditions.containsValue(Boolean.TRUE);
+        if (request.dryRun() || !conditionsMet) {
+            return new RolloverResponse(oldIndex, newIndex, conditions, request.dryRun(), false, false);
+        }
+
+        IndexMetaData newIndexMetaData = state.metaData().index(newIndex);
+        if (newIndexMetaData == null) {
+            createIndex(newIndex, request);
+        } else if (request.alias().equals(newIndexMetaData.settings().get(SETTING_ROLLOVER_ALIAS))) {
+            // created by a previous rollover of the alias that failed to move the alias, reuse it
+            logger.debug("[{}] already created by a previous rollover of [{}], moving the alias to it", newIndex, request.alias());
+        } else {
+            throw new IndexAlreadyExistsException(new Index(newIndex));
+        }
+
+        AliasAction removeAction = AliasAction.newRemoveAliasAction(oldIndex, request.alias());
+        AliasAction addAction = AliasAction.newAddAliasAction(newIndex, request.alias())
+                .indexRouting(aliasMetaData.indexRouting())
+                .searchRouting(aliasMetaData.searchRouting());
+        if (aliasMetaData.filter() != null) {
+            try {
+                addAction.filter(aliasMetaData.filter().string());
+            } catch (IOException e) {
+                throw new ElasticSearchException("failed to read filter of alias [" + request.alias() + "]", e);
+            }
+        }
+        boolean acknowledged = swapAlias(new AliasAction[]{removeAction, addAction}, request.timeout());
+        return new RolloverResponse(oldIndex, newIndex, conditions, false, true, acknowledged);
+    }
+
+    private Map<String, Boolean> evaluateConditions(RolloverRequest request, IndexMetaData indexMetaData) {
+        Map<String, Boolean> conditions = newLinkedHashMap();
+        if (!request.hasConditions()) {
+            return conditions;
+        }
+        if (request.needsStats()) {
+            if (!indexMetaData.index().equals(request.statsIndex())) {
+                throw new ElasticSearchIllegalStateException("alias [" + request.alias() + "] moved to [" + indexMetaData.index() + "] while gathering the stats of [" + request.statsIndex() + "], retry the rollover");
+            }
+            if (request.maxDocs() >= 0) {
+                conditions.put("[max_docs: " + request.maxDocs() + "]", request.statsDocs() >= request.maxDocs());
+            }
+            if (request.maxSize() != null) {
+                conditions.put("[max_size: " + request.maxSize() + "]", request.statsSizeInBytes() >= request.maxSize().bytes());
+            }
+        }
+        if (request.maxAge() != null) {
+            // indices created before the creation date was recorded never meet the age condition
+            long creationDate = indexMetaData.settings().getAsLong(IndexMetaData.SETTING_CREATION_DATE, -1l);
+            boolean met = creationDate != -1 && (System.currentTimeMillis() - creationDate) >= request.maxAge().millis();
+            conditions.put("[max_age: " + request.maxAge() + "]", met);
+        }
+        return conditions;
+    }
+
+    static String nextIndexName(String index) {
+        Matcher matcher = INDEX_COUNTER.matcher(index);
+        if (!matcher.matches()) {
+            throw new ElasticSearchIllegalArgumentException("index name [" + index + "] does not end with [-N], a new index name must be provided");
+        }
+        String counter = matcher.group(2);
+        String next = Long.toString(Long.parseLong(counter) + 1);
+        StringBuilder sb = new StringBuilder(matcher.group(1));
+        for (int i = next.length(); i < counter.length(); i++) {
+            sb.append('0');
+        }
+        return sb.append(next).toString();
+    }
+
+    private void createIndex(String index, RolloverRequest request) throws ElasticSearchException {
+        final AtomicReference<Throwable> failureRef = new AtomicReference<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Settings settings = ImmutableSettings.settingsBuilder().put(request.settings()).put(SETTING_ROLLOVER_ALIAS, request.alias()).build();
+        createIndexService.createIndex(new MetaDataCreateIndexService.Request("rollover_index", index).settings(settings)
+                .mappings(request.mappings())
+                .timeout(request.timeout()),
+                new MetaDataCreateIndexService.Listener() {
+                    @Override
+                    public void onResponse(MetaDataCreateIndexService.Response response) {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        failureRef.set(t);
+                        latch.countDown();
+                    }
+                });
+        await(latch, failureRef);
+    }
+
+    private boolean swapAlias(AliasAction[] actions, TimeValue timeout) throws ElasticSearchException {
+        final AtomicReference<Boolean> acknowledgedRef = new AtomicReference<Boolean>();
+        final AtomicReference<Throwable> failureRef = new AtomicReference<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        indexAliasesService.indicesAliases(new MetaDataIndexAliasesService.Request(actions, timeout), new MetaDataIndexAliasesService.Listener() {
+            @Override
+            public void onResponse(MetaDataIndexAliasesService.Response response) {
+                acknowledgedRef.set(response.acknowledged());
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                failureRef.set(t);
+                latch.countDown();
+            }
+        });
+        await(latch, failureRef);
+        return acknowledgedRef.get();
+    }
+
+    private void await(CountDownLatch latch, AtomicReference<Throwable> failureRef) throws ElasticSearchException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            failureRef.set(e);
+        }
+
+        if (failureRef.get() != null) {
+            if (failureRef.get() instanceof ElasticSearchException) {
+                throw (ElasticSearchException) failureRef.get();
+            } else {
+                throw new ElasticSearchException(failureRef.get().getMessage(), failureRef.get());
+            }
+        }
+    }
+}
@@ -36,6 +36,8 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContent;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.smile.SmileXContentParser;
 import org.elasticsearch.index.VersionType;
 
 import java.io.IOException;
@@ -212,7 +214,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
         int length = data.length();
         byte marker = xContent.streamSeparator();
         while (true) {
-            int nextMarker = findNextMarker(marker, from, data, length);
+            int nextMarker = findNextItemEnd(xContent, marker, from, data, length);
             if (nextMarker == -1) {
                 break;
             }
@@ -221,7 +223,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
 
             try {
                 // move pointers
-                from = nextMarker + 1;
+                from = nextItemStart(xContent, marker, nextMarker, data, length);
 
                 // Move to START_OBJECT
                 XContentParser.Token token = parser.nextToken();
@@ -287,7 +289,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
                 if ("delete".equals(action)) {
                     add(new DeleteRequest(index, type, id).parent(parent).version(version).versionType(versionType).routing(routing), payload);
                 } else {
-                    nextMarker = findNextMarker(marker, from, data, length);
+                    nextMarker = findNextItemEnd(xContent, marker, from, data, length);
                     if (nextMarker == -1) {
                         break;
                     }
@@ -312,7 +314,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
                                 .percolate(percolate), payload);
                     }
                     // move pointers
-                    from = nextMarker + 1;
+                    from = nextItemStart(xContent, marker, nextMarker, data, length);
                 }
             } finally {
                 parser.close();
@@ -359,6 +361,44 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
         return this.replicationType;
     }
 
+    /**
+     * Finds the end (exclusive) of the item starting at <tt>from</tt>, or <tt>-1</tt> if there is none. Items are
+     * delimited by the stream separator, except for smile where the separator byte might show up within raw binary
+     * values, so smile items are streamed instead, and end where their root object ends.
+     */
+    private int findNextItemEnd(XContent xContent, byte marker, int from, BytesReference data, int length) throws IOException {
+        if (xContent.type() != XContentType.SMILE) {
+            return findNextMarker(marker, from, data, length);
+        }
+        if (from >= length) {
+            return -1;
+        }
+        SmileXContentParser parser = (SmileXContentParser) xContent.createParser(data.slice(from, length - from).streamInput());
+        try {
+            if (parser.nextToken() == null) {
+                return -1;
+            }
+            parser.skipChildren();
+            return from + (int) parser.currentByteOffset();
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Returns where the item following the one ending at <tt>end</tt> starts, skipping the separator. Smile items
+     * don't have to be separated, and might be separated by more than one separator (end of content marker).
+     */
+    private int nextItemStart(XContent xContent, byte marker, int end, BytesReference data, int length) {
+        if (xContent.type() != XContentType.SMILE) {
+            return end + 1;
+        }
+        while (end < length && data.get(end) == marker) {
+            end++;
+        }
+        return end;
+    }
+
     private int findNextMarker(byte marker, int from, BytesReference data, int length) {
         for (int i = from; i < length; i++) {
             if (data.get(i) == marker) {
@@ -21,6 +21,7 @@ package org.elasticsearch.action.bulk;
 
 import com.google.common.collect.Sets;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchInterruptedException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.RoutingMissingException;
@@ -57,6 +58,11 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Performs the index operation.
@@ -65,12 +71,16 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
     private final MappingUpdatedAction mappingUpdatedAction;
 
+    private final int parseAhead;
+
     @Inject
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
                                     IndicesService indicesService, ThreadPool threadPool, ShardStateAction shardStateAction,
                                     MappingUpdatedAction mappingUpdatedAction) {
         super(settings, transportService, clusterService, indicesService, threadPool, shardStateAction);
         this.mappingUpdatedAction = mappingUpdatedAction;
+        // the number of index items parsed ahead on the parse thread pool while the current item is executed, 0 to parse inline
+        this.parseAhead = componentSettings.getAsInt("parse_ahead", 0);
     }
 
     @Override
@@ -134,109 +144,111 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         long[] versions = new long[request.items().length];
-        for (int i = 0; i < request.items().length; i++) {
-            BulkItemRequest item = request.items()[i];
-            if (item.request() instanceof IndexRequest) {
-                IndexRequest indexRequest = (IndexRequest) item.request();
-                try {
+        ItemsParser itemsParser = new ItemsParser(indexShard, request.items());
+        try {
+            for (int i = 0; i < request.items().length; i++) {
+                BulkItemRequest item = request.items()[i];
+                if (item.request() instanceof IndexRequest) {
+                    IndexRequest indexRequest = (IndexRequest) item.request();
+                    try {
 
-                    // validate, if routing is required, that we got routing
-                    MappingMetaData mappingMd = clusterState.metaData().index(request.index()).mappingOrDefault(indexRequest.type());
-                    if (mappingMd != null && mappingMd.routing().required()) {
-                        if (indexRequest.routing() == null) {
-                            throw new RoutingMissingException(indexRequest.index(), indexRequest.type(), indexRequest.id());
+                        // validate, if routing is required, that we got routing
+                        MappingMetaData mappingMd = clusterState.metaData().index(request.index()).mappingOrDefault(indexRequest.type());
+                        if (mappingMd != null && mappingMd.routing().required()) {
+                            if (indexRequest.routing() == null) {
+                                throw new RoutingMissingException(indexRequest.index(), indexRequest.type(), indexRequest.id());
+                            }
                         }
-                    }
 
-                    SourceToParse sourceToParse = SourceToParse.source(indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
-                            .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
-
-                    long version;
-                    Engine.IndexingOperation op;
-                    if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-                        Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
-                        indexShard.index(index);
-                        version = index.version();
-                        op = index;
-                    } else {
-                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
-                        indexShard.create(create);
-                        version = create.version();
-                        op = create;
-                    }
-                    versions[i] = indexRequest.version();
-                    // update the version on request so it will happen on the replicas
-                    indexRequest.version(version);
-
-                    // update mapping on master if needed, we won't update changes to the same type, since once its changed, it won't have mappers added
-                    if (op.parsedDoc().mappingsModified()) {
-                        if (mappingsToUpdate == null) {
-                            mappingsToUpdate = Sets.newHashSet();
+                        long version;
+                        Engine.IndexingOperation op;
+                        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+                            Engine.Index index = ((Engine.Index) itemsParser.prepare(i)).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+                            indexShard.index(index);
+                            version = index.version();
+                            op = index;
+                        } else {
+                            Engine.Create create = ((Engine.Create) itemsParser.prepare(i)).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+                            indexShard.create(create);
+                            version = create.version();
+                            op = create;
+                        }
+                        versions[i] = indexRequest.version();
+                        // update the version on request so it will happen on the replicas
+                        indexRequest.version(version);
+
+                        // update mapping on master if needed, we won't update changes to the same type, since once its changed, it won't have mappers added
+                        if (op.parsedDoc().mappingsModified()) {
+                            if (mappingsToUpdate == null) {
+                                mappingsToUpdate = Sets.newHashSet();
+                            }
+                            mappingsToUpdate.add(Tuple.tuple(indexRequest.index(), indexRequest.type()));
                         }
-                        mappingsToUpdate.add(Tuple.tuple(indexRequest.index(), indexRequest.type()));
-                    }
 
-                    // if we are going to percolate, then we need to keep this op for the postPrimary operation
-                    if (Strings.hasLength(indexRequest.percolate())) {
-                        if (ops == null) {
-                            ops = new Engine.IndexingOperation[request.items().length];
+                        // if we are going to percolate, then we need to keep this op for the postPrimary operation
+                        if (Strings.hasLength(indexRequest.percolate())) {
+                            if (ops == null) {
+                                ops = new Engine.IndexingOperation[request.items().length];
+                            }
+                            ops[i] = op;
                         }
-                        ops[i] = op;
-                    }
 
-                    // add the response
-                    responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
-                            new IndexResponse(indexRequest.index(), indexRequest.type(), indexRequest.id(), version));
-                } catch (Exception e) {
-                    // rethrow the failure if we are going to retry on primary and let parent failure to handle it
-                    if (retryPrimaryException(e)) {
-                        // restore updated versions...
-                        for (int j = 0; j < i; j++) {
-                            applyVersion(request.items()[j], versions[j]);
+                        // add the response
+                        responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
+                                new IndexResponse(indexRequest.index(), indexRequest.type(), indexRequest.id(), version));
+                    } catch (Exception e) {
+                        // rethrow the failure if we are going to retry on primary and let parent failure to handle it
+                        if (retryPrimaryException(e)) {
+                            // restore updated versions...
+                            for (int j = 0; j < i; j++) {
+                                applyVersion(request.items()[j], versions[j]);
+                            }
+                            throw (ElasticSearchException) e;
                         }
-                        throw (ElasticSearchException) e;
-                    }
-                    if (e instanceof ElasticSearchException && ((ElasticSearchException) e).status() == RestStatus.CONFLICT) {
-                        logger.trace("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
-                    } else {
-                        logger.debug("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
-                    }
-                    responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
-                            new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(e)));
-                    // nullify the request so it won't execute on the replicas
-                    request.items()[i] = null;
-                }
-            } else if (item.request() instanceof DeleteRequest) {
-                DeleteRequest deleteRequest = (DeleteRequest) item.request();
-                try {
-                    Engine.Delete delete = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version()).versionType(deleteRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
-                    indexShard.delete(delete);
-                    // update the request with teh version so it will go to the replicas
-                    deleteRequest.version(delete.version());
-
-                    // add the response
-                    responses[i] = new BulkItemResponse(item.id(), "delete",
-                            new DeleteResponse(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), delete.version(), delete.notFound()));
-                } catch (Exception e) {
-                    // rethrow the failure if we are going to retry on primary and let parent failure to handle it
-                    if (retryPrimaryException(e)) {
-                        // restore updated versions...
-                        for (int j = 0; j < i; j++) {
-                            applyVersion(request.items()[j], versions[j]);
+                        if (e instanceof ElasticSearchException && ((ElasticSearchException) e).status() == RestStatus.CONFLICT) {
+                            logger.trace("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
+                        } else {
+                            logger.debug("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
                         }
-                        throw (ElasticSearchException) e;
+                        responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
+                                new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(e)));
+                        // nullify the request so it won't execute on the replicas
+                        request.items()[i] = null;
                     }
-                    if (e instanceof ElasticSearchException && ((ElasticSearchException) e).status() == RestStatus.CONFLICT) {
-                        logger.trace("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
-                    } else {
-                        logger.debug("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
+                } else if (item.request() instanceof DeleteRequest) {
+                    DeleteRequest deleteRequest = (DeleteRequest) item.request();
+                    try {
+                        Engine.Delete delete = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version()).versionType(deleteRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+                        indexShard.delete(delete);
+                        // update the request with teh version so it will go to the replicas
+                        deleteRequest.version(delete.version());
+
+                        // add the response
+                        responses[i] = new BulkItemResponse(item.id(), "delete",
+                                new DeleteResponse(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), delete.version(), delete.notFound()));
+                    } catch (Exception e) {
+                        // rethrow the failure if we are going to retry on primary and let parent failure to handle it
+                        if (retryPrimaryException(e)) {
+                            // restore updated versions...
+                            for (int j = 0; j < i; j++) {
+                                applyVersion(request.items()[j], versions[j]);
+                            }
+                            throw (ElasticSearchException) e;
+                        }
+                        if (e instanceof ElasticSearchException && ((ElasticSearchException) e).status() == RestStatus.CONFLICT) {
+                            logger.trace("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
+                        } else {
+                            logger.debug("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
+                        }
+                        responses[i] = new BulkItemResponse(item.id(), "delete",
+                                new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(e)));
+                        // nullify the request so it won't execute on the replicas
+                        request.items()[i] = null;
                     }
-                    responses[i] = new BulkItemResponse(item.id(), "delete",
-                            new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(e)));
-                    // nullify the request so it won't execute on the replicas
-                    request.items()[i] = null;
                 }
             }
+        } finally {
+            itemsParser.close();
         }
 
         if (mappingsToUpdate != null) {
@@ -293,36 +305,38 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     protected void shardOperationOnReplica(ReplicaOperationRequest shardRequest) {
         IndexShard indexShard = indicesService.indexServiceSafe(shardRequest.request.index()).shardSafe(shardRequest.shardId);
         final BulkShardRequest request = shardRequest.request;
-        for (int i = 0; i < request.items().length; i++) {
-            BulkItemRequest item = request.items()[i];
-            if (item == null) {
-                continue;
-            }
-            if (item.request() instanceof IndexRequest) {
-                IndexRequest indexRequest = (IndexRequest) item.request();
-                try {
-                    SourceToParse sourceToParse = SourceToParse.source(indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
-                            .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
-
-                    if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-                        Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
-                        indexShard.index(index);
-                    } else {
-                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
-                        indexShard.create(create);
-                    }
-                } catch (Exception e) {
-                    // ignore, we are on backup
+        ItemsParser itemsParser = new ItemsParser(indexShard, request.items());
+        try {
+            for (int i = 0; i < request.items().length; i++) {
+                BulkItemRequest item = request.items()[i];
+                if (item == null) {
+                    continue;
                 }
-            } else if (item.request() instanceof DeleteRequest) {
-                DeleteRequest deleteRequest = (DeleteRequest) item.request();
-                try {
-                    Engine.Delete delete = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version()).origin(Engine.Operation.Origin.REPLICA);
-                    indexShard.delete(delete);
-                } catch (Exception e) {
-                    // ignore, we are on backup
+                if (item.request() instanceof IndexRequest) {
+                    IndexRequest indexRequest = (IndexRequest) item.request();
+                    try {
+                        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+                            Engine.Index index = ((Engine.Index) itemsParser.prepare(i)).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
+                            indexShard.index(index);
+                        } else {
+                            Engine.Create create = ((Engine.Create) itemsParser.prepare(i)).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
+                            indexShard.create(create);
+                        }
+                    } catch (Exception e) {
+                        // ignore, we are on backup
+                    }
+                } else if (item.request() instanceof DeleteRequest) {
+                    DeleteRequest deleteRequest = (DeleteRequest) item.request();
+                    try {
+                        Engine.Delete delete = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version()).origin(Engine.Operation.Origin.REPLICA);
+                        indexShard.delete(delete);
+                    } catch (Exception e) {
+                        // ignore, we are on backup
+                    }
                 }
             }
+        } finally {
+            itemsParser.close();
         }
 
         if (request.refresh()) {
@@ -363,6 +377,133 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         }
     }
 
+    private static Engine.IndexingOperation prepareOperation(IndexShard indexShard, IndexRequest indexRequest) throws ElasticSearchException {
+        SourceToParse sourceToParse = SourceToParse.source(indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
+                .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
+        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+            return indexShard.prepareIndex(sourceToParse);
+        } else {
+            return indexShard.prepareCreate(sourceToParse);
+        }
+    }
+
+    /**
+     * Prepares (parses) the index items of a bulk shard request. When parsing ahead is enabled, the next
+     * <tt>parse_ahead</tt> index items are parsed on the parse thread pool while the current item is executed,
+     * so parsing the next documents overlaps with the engine operations.
+     */
+    private class ItemsParser {
+
+        private final IndexShard indexShard;
+
+        private final BulkItemRequest[] items;
+
+        private final ParseTask[] tasks;
+
+        // the items up to this one were already considered for parsing ahead
+        private int submitted;
+
+        ItemsParser(IndexShard indexShard, BulkItemRequest[] items) {
+            this.indexShard = indexShard;
+            this.items = items;
+            this.tasks = parseAhead > 0 && items.length > 1 ? new ParseTask[items.length] : null;
+        }
+
+        Engine.IndexingOperation prepare(int index) throws Exception {
+            if (tasks == null) {
+                return prepareOperation(indexShard, (IndexRequest) items[index].request());
+            }
+            int upTo = Math.min(items.length, index + 1 + parseAhead);
+            for (; submitted < upTo; submitted++) {
+                if (submitted <= index) {
+                    continue;
+                }
+                BulkItemRequest item = items[submitted];
+                if (item == null || !(item.request() instanceof IndexRequest)) {
+                    continue;
+                }
+                ParseTask task = new ParseTask(indexShard, (IndexRequest) item.request());
+                try {
+                    task.future = threadPool.executor(ThreadPool.Names.PARSE).submit(task);
+                    tasks[submitted] = task;
+                } catch (RejectedExecutionException e) {
+                    // parsed inline when its turn comes
+                }
+            }
+            ParseTask task = tasks[index];
+            tasks[index] = null;
+            // not started yet (it might be queued behind other bulks), so don't wait for it and parse it here
+            if (task == null || task.claim()) {
+                if (task != null) {
+                    task.future.cancel(false);
+                }
+                return prepareOperation(indexShard, (IndexRequest) items[index].request());
+            }
+            try {
+                return task.future.get();
+            } catch (InterruptedException e) {
+                throw new ElasticSearchInterruptedException(e.getMessage(), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new ElasticSearchException(cause.getMessage(), cause);
+            }
+        }
+
+        /**
+         * Cancels the items still parsing, in case not all items got executed.
+         */
+        void close() {
+            if (tasks == null) {
+                return;
+            }
+            for (ParseTask task : tasks) {
+                if (task != null) {
+                    task.claim();
+                    task.future.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses an item on the parse pool, unless the bulk thread claimed it first to parse it inline.
+     */
+    private static class ParseTask implements Callable<Engine.IndexingOperation> {
+
+        private final IndexShard indexShard;
+
+        private final IndexRequest request;
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Future<Engine.IndexingOperation> future;
+
+        ParseTask(IndexShard indexShard, IndexRequest request) {
+            this.indexShard = indexShard;
+            this.request = request;
+        }
+
+        /**
+         * Returns <tt>true</tt> if the caller got to run the parsing, <tt>false</tt> if it already started.
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        @Override
+        public Engine.IndexingOperation call() throws Exception {
+            if (!claim()) {
+                return null;
+            }
+            return prepareOperation(indexShard, request);
+        }
+    }
+
     private void applyVersion(BulkItemRequest item, long version) {
         if (item.request() instanceof IndexRequest) {
             ((IndexRequest) item.request()).version(version);
@@ -37,6 +37,8 @@ import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.Arrays;
+
 public class TransportShardMultiGetAction extends TransportShardSingleOperationAction<MultiGetShardRequest, MultiGetShardResponse> {
 
     private final IndicesService indicesService;
@@ -106,18 +108,26 @@ public class TransportShardMultiGetAction extends TransportShardSingleOperationA
             indexShard.refresh(new Engine.Refresh(false));
         }
 
+        int size = request.locations.size();
+        String[] types = request.types.toArray(new String[size]);
+        String[] ids = request.ids.toArray(new String[size]);
+        String[][] fields = request.fields.toArray(new String[size][]);
+        GetResult[] getResults = null;
+        Throwable[] failures = new Throwable[size];
+        try {
+            getResults = indexShard.getService().multiGet(types, ids, fields, request.realtime(), failures);
+        } catch (Exception e) {
+            // the whole batch failed, fail each item with it
+            Arrays.fill(failures, e);
+        }
+
         MultiGetShardResponse response = new MultiGetShardResponse();
-        for (int i = 0; i < request.locations.size(); i++) {
-            String type = request.types.get(i);
-            String id = request.ids.get(i);
-            String[] fields = request.fields.get(i);
-
-            try {
-                GetResult getResult = indexShard.getService().get(type, id, fields, request.realtime());
-                response.add(request.locations.get(i), new GetResponse(getResult));
-            } catch (Exception e) {
-                logger.debug("[{}][{}] failed to execute multi_get for [{}]/[{}]", e, request.index(), shardId, type, id);
-                response.add(request.locations.get(i), new MultiGetResponse.Failure(request.index(), type, id, ExceptionsHelper.detailedMessage(e)));
+        for (int i = 0; i < size; i++) {
+            if (failures[i] != null) {
+                logger.debug("[{}][{}] failed to execute multi_get for [{}]/[{}]", failures[i], request.index(), shardId, types[i], ids[i]);
+                response.add(request.locations.get(i), new MultiGetResponse.Failure(request.index(), types[i], ids[i], ExceptionsHelper.detailedMessage(failures[i])));
+            } else {
+                response.add(request.locations.get(i), new GetResponse(getResults[i]));
             }
         }
 
@@ -560,10 +560,8 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
             MappingMetaData.ParseContext parseContext = mappingMd.createParseContext(id, routing, timestamp);
 
             if (parseContext.shouldParse()) {
-                XContentParser parser = null;
                 try {
-                    parser = XContentHelper.createParser(source);
-                    mappingMd.parse(parser, parseContext);
+                    mappingMd.parse(source, parseContext);
                     if (parseContext.shouldParseId()) {
                         id = parseContext.id();
                     }
@@ -576,10 +574,6 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
                     }
                 } catch (Exception e) {
                     throw new ElasticSearchParseException("failed to parse doc to extract routing/timestamp", e);
-                } finally {
-                    if (parser != null) {
-                        parser.close();
-                    }
                 }
             }
 
@@ -632,7 +626,8 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         out.writeOptionalString(parent);
         out.writeOptionalString(timestamp);
         out.writeLong(ttl);
-        out.writeBytesReference(source);
+        // the source might be sent by reference, after this call returns
+        out.writeBytesReference(safeSource());
         out.writeByte(opType.id());
         out.writeBoolean(refresh);
         out.writeLong(version);
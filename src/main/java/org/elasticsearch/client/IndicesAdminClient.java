@@ -66,6 +66,9 @@ import org.elasticsearch.action.admin.indices.optimize.OptimizeResponse;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.admin.indices.rollover.RolloverRequest;
+import org.elasticsearch.action.admin.indices.rollover.RolloverRequestBuilder;
+import org.elasticsearch.action.admin.indices.rollover.RolloverResponse;
 import org.elasticsearch.action.admin.indices.segments.IndicesSegmentResponse;
 import org.elasticsearch.action.admin.indices.segments.IndicesSegmentsRequest;
 import org.elasticsearch.action.admin.indices.segments.IndicesSegmentsRequestBuilder;
@@ -476,6 +479,31 @@ public interface IndicesAdminClient {
      */
     IndicesAliasesRequestBuilder prepareAliases();
 
+    /**
+     * Rolls an alias over to a new index, optionally only when the index it points to meets one of the
+     * request conditions.
+     *
+     * @param request The rollover request
+     * @return The result future
+     */
+    ActionFuture<RolloverResponse> rollover(RolloverRequest request);
+
+    /**
+     * Rolls an alias over to a new index, optionally only when the index it points to meets one of the
+     * request conditions.
+     *
+     * @param request  The rollover request
+     * @param listener A listener to be notified with a result
+     */
+    void rollover(RolloverRequest request, ActionListener<RolloverResponse> listener);
+
+    /**
+     * Rolls an alias over to a new index.
+     *
+     * @param alias The alias to roll over
+     */
+    RolloverRequestBuilder prepareRollover(String alias);
+
     /**
      * Clear indices cache.
      *
@@ -81,6 +81,10 @@ import org.elasticsearch.action.admin.indices.refresh.RefreshAction;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.admin.indices.rollover.RolloverAction;
+import org.elasticsearch.action.admin.indices.rollover.RolloverRequest;
+import org.elasticsearch.action.admin.indices.rollover.RolloverRequestBuilder;
+import org.elasticsearch.action.admin.indices.rollover.RolloverResponse;
 import org.elasticsearch.action.admin.indices.segments.IndicesSegmentResponse;
 import org.elasticsearch.action.admin.indices.segments.IndicesSegmentsAction;
 import org.elasticsearch.action.admin.indices.segments.IndicesSegmentsRequest;
@@ -175,6 +179,21 @@ public abstract class AbstractIndicesAdminClient implements InternalIndicesAdmin
         return new IndicesAliasesRequestBuilder(this);
     }
 
+    @Override
+    public ActionFuture<RolloverResponse> rollover(final RolloverRequest request) {
+        return execute(RolloverAction.INSTANCE, request);
+    }
+
+    @Override
+    public void rollover(final RolloverRequest request, final ActionListener<RolloverResponse> listener) {
+        execute(RolloverAction.INSTANCE, request, listener);
+    }
+
+    @Override
+    public RolloverRequestBuilder prepareRollover(String alias) {
+        return new RolloverRequestBuilder(this, alias);
+    }
+
     @Override
     public ActionFuture<ClearIndicesCacheResponse> clearCache(final ClearIndicesCacheRequest request) {
         return execute(ClearIndicesCacheAction.INSTANCE, request);
@@ -23,7 +23,9 @@ import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.action.TimestampParsingException;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.compress.CompressedString;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.joda.FormatDateTimeFormatter;
@@ -32,6 +34,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonPathExtractor;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.mapper.internal.TimestampFieldMapper;
@@ -259,6 +262,9 @@ public class MappingMetaData {
     private Routing routing;
     private Timestamp timestamp;
 
+    // scans json sources for the id, routing and timestamp paths, built lazily since the paths can change
+    private volatile JsonPathExtractor pathExtractor;
+
     public MappingMetaData(DocumentMapper docMapper) {
         this.type = docMapper.type();
         this.source = docMapper.mappingSource();
@@ -364,6 +370,7 @@ public class MappingMetaData {
         if (timestamp == Timestamp.EMPTY) {
             timestamp = defaultMapping.timestamp();
         }
+        pathExtractor = null;
     }
 
     public String type() {
@@ -417,6 +424,53 @@ public class MappingMetaData {
         innerParse(parser, parseContext);
     }
 
+    /**
+     * Resolves the id, routing and timestamp from the source. Json sources are first scanned for just the
+     * mapped paths, and only parsed if the scan can't handle them (escapes, objects as values, ...).
+     */
+    public void parse(BytesReference source, ParseContext parseContext) throws IOException {
+        if (!parseContext.parsingStillNeeded()) {
+            return;
+        }
+        if (source.hasArray() && !CompressorFactory.isCompressed(source)) {
+            int wanted = (parseContext.idParsingStillNeeded() ? 1 : 0)
+                    | (parseContext.routingParsingStillNeeded() ? 2 : 0)
+                    | (parseContext.timestampParsingStillNeeded() ? 4 : 0);
+            String[] values = new String[3];
+            int found = pathExtractor().extract(source.array(), source.arrayOffset(), source.length(), wanted, values);
+            if (found != JsonPathExtractor.UNSUPPORTED) {
+                if ((found & 1) != 0) {
+                    parseContext.id = values[0];
+                    parseContext.idResolved = true;
+                }
+                if ((found & 2) != 0) {
+                    parseContext.routing = values[1];
+                    parseContext.routingResolved = true;
+                }
+                if ((found & 4) != 0) {
+                    parseContext.timestamp = values[2];
+                    parseContext.timestampResolved = true;
+                }
+                return;
+            }
+        }
+        XContentParser parser = XContentHelper.createParser(source);
+        try {
+            innerParse(parser, parseContext);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private JsonPathExtractor pathExtractor() {
+        JsonPathExtractor pathExtractor = this.pathExtractor;
+        if (pathExtractor == null) {
+            pathExtractor = new JsonPathExtractor(id.pathElements(), routing.pathElements(), timestamp.pathElements());
+            this.pathExtractor = pathExtractor;
+        }
+        return pathExtractor;
+    }
+
     private void innerParse(XContentParser parser, ParseContext context) throws IOException {
         if (!context.parsingStillNeeded()) {
             return;
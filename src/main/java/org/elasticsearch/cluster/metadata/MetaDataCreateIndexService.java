@@ -254,6 +254,9 @@ public class MetaDataCreateIndexService extends AbstractComponent {
                     }
 
                     indexSettingsBuilder.put(SETTING_VERSION_CREATED, Version.CURRENT);
+                    if (indexSettingsBuilder.get(SETTING_CREATION_DATE) == null) {
+                        indexSettingsBuilder.put(SETTING_CREATION_DATE, System.currentTimeMillis());
+                    }
 
                     Settings actualIndexSettings = indexSettingsBuilder.build();
 
@@ -63,7 +63,9 @@ public class ClusterDynamicSettingsModule extends AbstractModule {
                 RecoverySettings.INDICES_RECOVERY_TRANSLOG_OPS,
                 RecoverySettings.INDICES_RECOVERY_TRANSLOG_SIZE,
                 RecoverySettings.INDICES_RECOVERY_COMPRESS,
+                RecoverySettings.INDICES_RECOVERY_COMPRESS_TYPE,
                 RecoverySettings.INDICES_RECOVERY_CONCURRENT_STREAMS,
+                RecoverySettings.INDICES_RECOVERY_CONCURRENT_CHUNKS,
                 RecoverySettings.INDICES_RECOVERY_MAX_SIZE_PER_SEC,
                 ThreadPool.THREADPOOL_GROUP + "*",
                 ThrottlingAllocationDecider.CLUSTER_ROUTING_ALLOCATION_NODE_INITIAL_PRIMARIES_RECOVERIES,
@@ -22,10 +22,12 @@ package org.elasticsearch.common.compress;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.apache.lucene.store.IndexInput;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
 import org.elasticsearch.common.compress.lzf.LZFCompressor;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
@@ -44,6 +46,8 @@ public class CompressorFactory {
 
     private static final LZFCompressor LZF = new LZFCompressor();
 
+    private static final LZ4Compressor LZ4 = new LZ4Compressor();
+
     private static final Compressor[] compressors;
     private static final ImmutableMap<String, Compressor> compressorsByType;
     private static Compressor defaultCompressor;
@@ -51,6 +55,7 @@ public class CompressorFactory {
     static {
         List<Compressor> compressorsX = Lists.newArrayList();
         compressorsX.add(LZF);
+        compressorsX.add(LZ4);
 
         compressors = compressorsX.toArray(new Compressor[compressorsX.size()]);
         MapBuilder<String, Compressor> compressorsByTypeX = MapBuilder.newMapBuilder();
@@ -153,6 +158,30 @@ public class CompressorFactory {
         return compressorsByType.get(type);
     }
 
+    /**
+     * Normalizes a configured compressor type, done once when the setting or mapping is parsed since
+     * types are looked up in lower case.
+     */
+    @Nullable
+    public static String normalizeType(@Nullable String type) {
+        return type == null ? null : type.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Returns the compressor for the provided (normalized, see {@link #normalizeType(String)}) type, or the
+     * default compressor if the type is <tt>null</tt>, allowing each use site to configure its own compressor.
+     */
+    public static Compressor compressorOrDefault(@Nullable String type) throws ElasticSearchIllegalArgumentException {
+        if (type == null) {
+            return defaultCompressor();
+        }
+        Compressor compressor = compressorsByType.get(type);
+        if (compressor == null) {
+            throw new ElasticSearchIllegalArgumentException("failed to find compressor type [" + type + "]");
+        }
+        return compressor;
+    }
+
     /**
      * Uncompress the provided data, data can be detected as compressed using {@link #isCompressed(byte[], int, int)}.
      */
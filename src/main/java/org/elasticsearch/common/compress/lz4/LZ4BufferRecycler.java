@@ -0,0 +1,143 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Per thread recycling of the buffers, compressor and decompressor used by the LZ4 streams, same as the
+ * LZF streams do with the ning <tt>BufferRecycler</tt>. Allocating takes the cached instance (if any) out of
+ * the recycler, so nested streams on the same thread each get their own, and releasing puts it back.
+ */
+public class LZ4BufferRecycler {
+
+    private static final ThreadLocal<SoftReference<LZ4BufferRecycler>> recyclerRef = new ThreadLocal<SoftReference<LZ4BufferRecycler>>();
+
+    public static LZ4BufferRecycler instance() {
+        SoftReference<LZ4BufferRecycler> ref = recyclerRef.get();
+        LZ4BufferRecycler recycler = ref == null ? null : ref.get();
+        if (recycler == null) {
+            recycler = new LZ4BufferRecycler();
+            recyclerRef.set(new SoftReference<LZ4BufferRecycler>(recycler));
+        }
+        return recycler;
+    }
+
+    private byte[] uncompressedBuffer;
+    private byte[] compressedBuffer;
+    private byte[] decodeBuffer;
+    private byte[] inputBuffer;
+    private Compressor compressor;
+    private Decompressor decompressor;
+
+    public byte[] allocUncompressedBuffer(int minSize) {
+        byte[] buf = uncompressedBuffer;
+        if (buf == null || buf.length < minSize) {
+            buf = new byte[minSize];
+        } else {
+            uncompressedBuffer = null;
+        }
+        return buf;
+    }
+
+    public void releaseUncompressedBuffer(byte[] buf) {
+        if (uncompressedBuffer == null || buf.length > uncompressedBuffer.length) {
+            uncompressedBuffer = buf;
+        }
+    }
+
+    public byte[] allocCompressedBuffer(int minSize) {
+        byte[] buf = compressedBuffer;
+        if (buf == null || buf.length < minSize) {
+            buf = new byte[minSize];
+        } else {
+            compressedBuffer = null;
+        }
+        return buf;
+    }
+
+    public void releaseCompressedBuffer(byte[] buf) {
+        if (compressedBuffer == null || buf.length > compressedBuffer.length) {
+            compressedBuffer = buf;
+        }
+    }
+
+    public byte[] allocDecodeBuffer(int minSize) {
+        byte[] buf = decodeBuffer;
+        if (buf == null || buf.length < minSize) {
+            buf = new byte[minSize];
+        } else {
+            decodeBuffer = null;
+        }
+        return buf;
+    }
+
+    public void releaseDecodeBuffer(byte[] buf) {
+        if (decodeBuffer == null || buf.length > decodeBuffer.length) {
+            decodeBuffer = buf;
+        }
+    }
+
+    public byte[] allocInputBuffer(int minSize) {
+        byte[] buf = inputBuffer;
+        if (buf == null || buf.length < minSize) {
+            buf = new byte[minSize];
+        } else {
+            inputBuffer = null;
+        }
+        return buf;
+    }
+
+    public void releaseInputBuffer(byte[] buf) {
+        if (inputBuffer == null || buf.length > inputBuffer.length) {
+            inputBuffer = buf;
+        }
+    }
+
+    public Compressor allocCompressor() {
+        Compressor compressor = this.compressor;
+        if (compressor == null) {
+            return CompressionMode.FAST.newCompressor();
+        }
+        this.compressor = null;
+        return compressor;
+    }
+
+    public void releaseCompressor(Compressor compressor) {
+        this.compressor = compressor;
+    }
+
+    public Decompressor allocDecompressor() {
+        Decompressor decompressor = this.decompressor;
+        if (decompressor == null) {
+            return CompressionMode.FAST.newDecompressor();
+        }
+        this.decompressor = null;
+        return decompressor;
+    }
+
+    public void releaseDecompressor(Decompressor decompressor) {
+        this.decompressor = decompressor;
+    }
+}
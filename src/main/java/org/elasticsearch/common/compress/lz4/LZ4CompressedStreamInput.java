@@ -0,0 +1,98 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.compress.lz4;
+
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.elasticsearch.common.compress.CompressedStreamInput;
+import org.elasticsearch.common.io.stream.StreamInput;
+
+import java.io.IOException;
+
+/**
+ */
+public class LZ4CompressedStreamInput extends CompressedStreamInput<LZ4CompressorContext> {
+
+    private final StreamInput in;
+
+    private final LZ4BufferRecycler recycler;
+
+    private Decompressor decompressor;
+
+    // scratch area buffer
+    private byte[] inputBuffer;
+
+    public LZ4CompressedStreamInput(StreamInput in) throws IOException {
+        super(in, LZ4CompressorContext.INSTANCE);
+        this.in = in;
+        this.recycler = LZ4BufferRecycler.instance();
+        this.decompressor = recycler.allocDecompressor();
+        this.uncompressed = recycler.allocDecodeBuffer(LZ4Compressor.CHUNK_SIZE + LZ4Compressor.DECOMPRESS_SLACK);
+        this.inputBuffer = recycler.allocInputBuffer(LZ4Compressor.maxCompressedLength(LZ4Compressor.CHUNK_SIZE));
+    }
+
+    @Override
+    public void readHeader(StreamInput in) throws IOException {
+        LZ4Compressor.readHeader(in);
+    }
+
+    @Override
+    public int uncompress(StreamInput in, byte[] out) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            return -1;
+        }
+        // the compressed length, the first byte was read to check for the end of the stream
+        int compressedLength = (b << 24) | ((in.readByte() & 0xFF) << 16) | ((in.readByte() & 0xFF) << 8) | (in.readByte() & 0xFF);
+        int uncompressedLength = in.readInt();
+        // both come from the stream, check them before allocating or reading anything based on them
+        if (uncompressedLength < 0 || uncompressedLength > LZ4Compressor.CHUNK_SIZE) {
+            throw new IOException("corrupted lz4 stream, invalid uncompressed chunk length [" + uncompressedLength + "]");
+        }
+        if (compressedLength < 0 || compressedLength > LZ4Compressor.maxCompressedLength(uncompressedLength)) {
+            throw new IOException("corrupted lz4 stream, invalid compressed chunk length [" + compressedLength + "] for uncompressed length [" + uncompressedLength + "]");
+        }
+        in.readBytes(inputBuffer, 0, compressedLength);
+        return LZ4Compressor.decompress(decompressor, inputBuffer, compressedLength, uncompressedLength, out);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        // the header is only written once at the beginning of the stream
+        LZ4Compressor.readHeader(in);
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        byte[] buf = inputBuffer;
+        if (buf != null) {
+            inputBuffer = null;
+            recycler.releaseInputBuffer(buf);
+        }
+        buf = uncompressed;
+        if (buf != null) {
+            uncompressed = null;
+            recycler.releaseDecodeBuffer(buf);
+        }
+        if (decompressor != null) {
+            recycler.releaseDecompressor(decompressor);
+            decompressor = null;
+        }
+    }
+}
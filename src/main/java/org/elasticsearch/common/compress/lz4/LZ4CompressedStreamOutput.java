@@ -0,0 +1,79 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.compress.lz4;
+
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.elasticsearch.common.compress.CompressedStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ */
+public class LZ4CompressedStreamOutput extends CompressedStreamOutput<LZ4CompressorContext> {
+
+    private final LZ4BufferRecycler recycler;
+
+    private org.apache.lucene.codecs.compressing.Compressor compressor;
+
+    // scratch area buffer
+    private byte[] compressed;
+
+    public LZ4CompressedStreamOutput(StreamOutput out) throws IOException {
+        super(out, LZ4CompressorContext.INSTANCE);
+        this.recycler = LZ4BufferRecycler.instance();
+        this.compressor = recycler.allocCompressor();
+        this.uncompressed = recycler.allocUncompressedBuffer(LZ4Compressor.CHUNK_SIZE);
+        this.uncompressedLength = LZ4Compressor.CHUNK_SIZE;
+        this.compressed = recycler.allocCompressedBuffer(LZ4Compressor.maxCompressedLength(LZ4Compressor.CHUNK_SIZE));
+    }
+
+    @Override
+    public void writeHeader(StreamOutput out) throws IOException {
+        out.writeBytes(LZ4Compressor.HEADER);
+    }
+
+    @Override
+    protected void compress(byte[] data, int offset, int len, StreamOutput out) throws IOException {
+        ByteArrayDataOutput compressedOut = new ByteArrayDataOutput(compressed);
+        compressor.compress(data, offset, len, compressedOut);
+        int compressedLength = compressedOut.getPosition();
+        out.writeInt(compressedLength);
+        out.writeInt(len);
+        out.writeBytes(compressed, 0, compressedLength);
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        byte[] buf = uncompressed;
+        if (buf != null) {
+            uncompressed = null;
+            recycler.releaseUncompressedBuffer(buf);
+        }
+        buf = compressed;
+        if (buf != null) {
+            compressed = null;
+            recycler.releaseCompressedBuffer(buf);
+        }
+        if (compressor != null) {
+            recycler.releaseCompressor(compressor);
+            compressor = null;
+        }
+    }
+}
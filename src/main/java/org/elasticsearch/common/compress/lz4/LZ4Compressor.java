@@ -0,0 +1,179 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.compress.lz4;
+
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedIndexInput;
+import org.elasticsearch.common.compress.CompressedStreamInput;
+import org.elasticsearch.common.compress.CompressedStreamOutput;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import java.io.IOException;
+
+/**
+ * A compressor using LZ4 (through the Lucene implementation also used by the stored fields), which
+ * decompresses considerably faster than LZF with a similar compression ratio.
+ * <p/>
+ * The compressed stream starts with a header, used to detect it from LZF or non compressed data, followed
+ * by chunks of (compressed length, uncompressed length, compressed bytes). Compressed index files are not
+ * supported, those are only read from stores compressed with LZF.
+ */
+public class LZ4Compressor implements Compressor {
+
+    static final byte[] HEADER = {'L', 'Z', '4', 0};
+
+    public static final String TYPE = "lz4";
+
+    static final int CHUNK_SIZE = 1 << 16;
+
+    // the lucene lz4 decompressor might write a few bytes past the decompressed length
+    static final int DECOMPRESS_SLACK = 8;
+
+    static int maxCompressedLength(int length) {
+        return length + (length / 255) + 16;
+    }
+
+    static void readHeader(StreamInput in) throws IOException {
+        for (int i = 0; i < HEADER.length; i++) {
+            if (in.readByte() != HEADER[i]) {
+                throw new IOException("wrong lz4 compressed header");
+            }
+        }
+    }
+
+    static int decompress(Decompressor decompressor, byte[] compressed, int compressedLength, int uncompressedLength, byte[] out) throws IOException {
+        BytesRef result = new BytesRef(out);
+        try {
+            decompressor.decompress(new ByteArrayDataInput(compressed, 0, compressedLength), uncompressedLength, 0, uncompressedLength, result);
+        } catch (IndexOutOfBoundsException e) {
+            // the compressed bytes reference data outside of the chunk
+            throw new IOException("corrupted lz4 stream, failed to decompress chunk", e);
+        }
+        if (result.bytes != out || result.offset != 0) {
+            // the decompressor needed a bigger buffer, should not happen given the slack
+            System.arraycopy(result.bytes, result.offset, out, 0, result.length);
+        }
+        return result.length;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void configure(Settings settings) {
+    }
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCompressed(byte[] data, int offset, int length) {
+        if (length < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (data[offset + i] != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCompressed(ChannelBuffer buffer) {
+        if (buffer.readableBytes() < HEADER.length) {
+            return false;
+        }
+        int offset = buffer.readerIndex();
+        for (int i = 0; i < HEADER.length; i++) {
+            if (buffer.getByte(offset + i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Always <tt>false</tt>: compressed index files are a legacy format only ever written with LZF, so
+     * lz4 never takes part in the index file paths (see {@link CompressorFactory#compressor(IndexInput)}).
+     */
+    @Override
+    public boolean isCompressed(IndexInput in) throws IOException {
+        return false;
+    }
+
+    @Override
+    public byte[] uncompress(byte[] data, int offset, int length) throws IOException {
+        StreamInput compressed = streamInput(new BytesStreamInput(data, offset, length, false));
+        BytesStreamOutput uncompressed = new BytesStreamOutput(length * 2);
+        Streams.copy(compressed, uncompressed);
+        return uncompressed.bytes().toBytes();
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) throws IOException {
+        BytesStreamOutput compressed = new BytesStreamOutput(HEADER.length + 8 + maxCompressedLength(length));
+        StreamOutput out = streamOutput(compressed);
+        out.writeBytes(data, offset, length);
+        out.close();
+        return compressed.bytes().toBytes();
+    }
+
+    @Override
+    public CompressedStreamInput streamInput(StreamInput in) throws IOException {
+        return new LZ4CompressedStreamInput(in);
+    }
+
+    @Override
+    public CompressedStreamOutput streamOutput(StreamOutput out) throws IOException {
+        return new LZ4CompressedStreamOutput(out);
+    }
+
+    /**
+     * Not supported, lz4 is never detected on index files (see {@link #isCompressed(IndexInput)}).
+     */
+    @Override
+    public CompressedIndexInput indexInput(IndexInput in) throws IOException {
+        throw new UnsupportedOperationException("lz4 is not used for compressed index files");
+    }
+}
@@ -45,7 +45,7 @@ public class DocIdSets {
      * For example, it does not ends up iterating one doc at a time check for its "value".
      */
     public static boolean isFastIterator(DocIdSet set) {
-        return set instanceof FixedBitSet;
+        return set instanceof FixedBitSet || set instanceof EliasFanoDocIdSet;
     }
 
     /**
@@ -54,7 +54,7 @@ public class DocIdSets {
      */
     public static boolean isFastIterator(DocIdSetIterator iterator) {
         // this is the iterator in the FixedBitSet.
-        return iterator instanceof OpenBitSetIterator;
+        return iterator instanceof OpenBitSetIterator || iterator instanceof EliasFanoDocIdSet.Iterator;
     }
 
     /**
@@ -90,6 +90,24 @@ public class DocIdSets {
         return fixedBitSet;
     }
 
+    /**
+     * Converts to a cacheable {@link DocIdSet} like {@link #toCacheable(AtomicReader, DocIdSet)}, but picks the
+     * more compact representation: a compressed {@link EliasFanoDocIdSet} for sparse sets when it takes less than
+     * half the memory of a {@link FixedBitSet}, and the {@link FixedBitSet} otherwise (it iterates faster).
+     */
+    public static DocIdSet toCompactCacheable(AtomicReader reader, @Nullable DocIdSet set) throws IOException {
+        DocIdSet cacheable = toCacheable(reader, set);
+        if (!(cacheable instanceof FixedBitSet)) {
+            return cacheable;
+        }
+        FixedBitSet bitSet = (FixedBitSet) cacheable;
+        int cardinality = bitSet.cardinality();
+        if (EliasFanoDocIdSet.estimateSizeInBytes(cardinality, reader.maxDoc()) * 2 >= bitSet.getBits().length * 8l) {
+            return bitSet;
+        }
+        return EliasFanoDocIdSet.build(bitSet.iterator(), cardinality, reader.maxDoc());
+    }
+
     /**
      * Gets a set to bits.
      */
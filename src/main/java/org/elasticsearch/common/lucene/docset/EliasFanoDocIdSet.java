@@ -0,0 +1,213 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * A compressed {@link DocIdSet} using the Elias-Fano encoding of the sorted doc ids: each doc is split into
+ * {@code numLowBits} low bits, stored packed, and the remaining high bits, stored unary coded in a bitmap of
+ * about {@code 2 * cardinality} bits. It takes {@code 2 + log2(maxDoc / cardinality)} bits per doc, which is
+ * much less than a {@link org.apache.lucene.util.FixedBitSet} for sparse sets. Advancing uses a skip index
+ * over the high bits, random access {@link #bits()} is not supported.
+ */
+public class EliasFanoDocIdSet extends DocIdSet {
+
+    private static final int SKIP_INTERVAL_SHIFT = 8; // a skip entry every 256 high values
+
+    private final int cardinality;
+    private final int numLowBits;
+    private final long lowMask;
+    private final long[] lowBits;
+    private final long[] highBits;
+    private final int[] skips;
+
+    private EliasFanoDocIdSet(int cardinality, int numLowBits, long[] lowBits, long[] highBits, int[] skips) {
+        this.cardinality = cardinality;
+        this.numLowBits = numLowBits;
+        this.lowMask = (1L << numLowBits) - 1;
+        this.lowBits = lowBits;
+        this.highBits = highBits;
+        this.skips = skips;
+    }
+
+    /**
+     * The number of low bits stored per doc for the given cardinality and number of docs.
+     */
+    static int numLowBits(int cardinality, int maxDoc) {
+        if (cardinality == 0 || maxDoc <= cardinality) {
+            return 0;
+        }
+        return 31 - Integer.numberOfLeadingZeros(maxDoc / cardinality);
+    }
+
+    /**
+     * Estimates the size in bytes of a set with the given cardinality over the given number of docs.
+     */
+    public static long estimateSizeInBytes(int cardinality, int maxDoc) {
+        int numLowBits = numLowBits(cardinality, maxDoc);
+        long bits = (long) cardinality * numLowBits + cardinality + (maxDoc >>> numLowBits) + 1;
+        return (bits >>> 3) + ((maxDoc >>> numLowBits) >>> SKIP_INTERVAL_SHIFT) * RamUsageEstimator.NUM_BYTES_INT + 64;
+    }
+
+    /**
+     * Encodes the docs returned by the iterator, which must return exactly {@code cardinality} docs, all
+     * lower than {@code maxDoc}.
+     */
+    public static EliasFanoDocIdSet build(DocIdSetIterator iterator, int cardinality, int maxDoc) throws IOException {
+        int numLowBits = numLowBits(cardinality, maxDoc);
+        long lowMask = (1L << numLowBits) - 1;
+        long[] lowBits = new long[(int) (((long) cardinality * numLowBits + 63) >>> 6)];
+        int numHighBits = cardinality + (maxDoc >>> numLowBits) + 1;
+        long[] highBits = new long[(numHighBits + 63) >>> 6];
+
+        int index = 0;
+        for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+            if (numLowBits != 0) {
+                long bitIndex = (long) index * numLowBits;
+                int word = (int) (bitIndex >>> 6);
+                int shift = (int) (bitIndex & 63);
+                long low = doc & lowMask;
+                lowBits[word] |= low << shift;
+                if (shift + numLowBits > 64) {
+                    lowBits[word + 1] |= low >>> (64 - shift);
+                }
+            }
+            int highIndex = (doc >>> numLowBits) + index;
+            highBits[highIndex >>> 6] |= 1L << highIndex;
+            index++;
+        }
+        assert index == cardinality;
+
+        // the position in the high bits at which each 256th bucket starts, right after its preceding zero
+        int[] skips = new int[((maxDoc >>> numLowBits) >>> SKIP_INTERVAL_SHIFT) + 1];
+        int zeros = 0;
+        for (int position = 0; position < numHighBits; position++) {
+            if ((highBits[position >>> 6] & (1L << position)) == 0) {
+                zeros++;
+                if ((zeros & ((1 << SKIP_INTERVAL_SHIFT) - 1)) == 0) {
+                    int skip = zeros >>> SKIP_INTERVAL_SHIFT;
+                    if (skip < skips.length) {
+                        skips[skip] = position + 1;
+                    }
+                }
+            }
+        }
+        return new EliasFanoDocIdSet(cardinality, numLowBits, lowBits, highBits, skips);
+    }
+
+    /**
+     * Does not go to the reader and ask for data, so can be cached.
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() throws IOException {
+        return new Iterator();
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public long sizeInBytes() {
+        return 3 * RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + lowBits.length * RamUsageEstimator.NUM_BYTES_LONG
+                + highBits.length * RamUsageEstimator.NUM_BYTES_LONG + skips.length * RamUsageEstimator.NUM_BYTES_INT + 32;
+    }
+
+    public final class Iterator extends DocIdSetIterator {
+
+        private int index = -1;
+        private int highPosition = -1;
+        private int doc = -1;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            if (++index >= cardinality) {
+                return doc = NO_MORE_DOCS;
+            }
+            highPosition = nextHighBit(highPosition + 1);
+            long high = highPosition - index;
+            return doc = (int) ((high << numLowBits) | lowBits(index));
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            int skip = (target >>> numLowBits) >>> SKIP_INTERVAL_SHIFT;
+            if (skip > 0) {
+                if (skip >= skips.length) {
+                    skip = skips.length - 1;
+                }
+                int position = skips[skip];
+                if (position > highPosition + 1) {
+                    // all the ones before the position are docs of earlier buckets
+                    index = position - (skip << SKIP_INTERVAL_SHIFT) - 1;
+                    highPosition = position - 1;
+                }
+            }
+            int doc;
+            do {
+                doc = nextDoc();
+            } while (doc < target);
+            return doc;
+        }
+
+        private long lowBits(int index) {
+            if (numLowBits == 0) {
+                return 0;
+            }
+            long bitIndex = (long) index * numLowBits;
+            int word = (int) (bitIndex >>> 6);
+            int shift = (int) (bitIndex & 63);
+            long low = lowBits[word] >>> shift;
+            if (shift + numLowBits > 64) {
+                low |= lowBits[word + 1] << (64 - shift);
+            }
+            return low & lowMask;
+        }
+
+        private int nextHighBit(int from) {
+            int word = from >>> 6;
+            long bits = highBits[word] >>> from;
+            if (bits != 0) {
+                return from + Long.numberOfTrailingZeros(bits);
+            }
+            while (++word < highBits.length) {
+                if (highBits[word] != 0) {
+                    return (word << 6) + Long.numberOfTrailingZeros(highBits[word]);
+                }
+            }
+            // can't happen, we never go beyond the last doc
+            return -1;
+        }
+    }
+}
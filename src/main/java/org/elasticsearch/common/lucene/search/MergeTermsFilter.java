@@ -0,0 +1,214 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.search;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.index.codec.postingsformat.BloomFilterPostingsFormat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A terms filter meant for a large number of terms. The terms are sorted once, and each segment's
+ * {@link TermsEnum} is intersected with them in a single, merge style, forward pass (moving to the next
+ * term when it is close, and seeking forward when it is not), instead of an independent seek per term.
+ * <p/>
+ * When the field has a bloom filter (see {@link BloomFilterPostingsFormat}) and there are much fewer terms
+ * than the segment holds, most of them are likely not in the segment at all, and per term seeks that are
+ * rejected by the bloom filter without touching the terms dictionary are used instead.
+ */
+public class MergeTermsFilter extends Filter {
+
+    /**
+     * Bloom filter assisted seeks are used when the segment has more than this times the number of terms
+     * of the filter.
+     */
+    static final int BLOOM_SEEKS_RATIO = 16;
+
+    private final String field;
+    private final BytesRef[] terms;
+    private final int hashCode;
+
+    public MergeTermsFilter(String field, BytesRef[] terms) {
+        this.field = field;
+        BytesRef[] sorted = terms.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || !sorted[i].bytesEquals(sorted[size - 1])) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        this.terms = size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+        this.hashCode = field.hashCode() + 31 * Arrays.hashCode(this.terms);
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public BytesRef[] getTerms() {
+        return terms;
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+        if (terms.length == 0) {
+            return null;
+        }
+        Terms fieldTerms = context.reader().terms(field);
+        if (fieldTerms == null) {
+            return null;
+        }
+        FixedBitSet result;
+        long segmentTerms = fieldTerms.size();
+        if (fieldTerms instanceof BloomFilterPostingsFormat.BloomFilteredFieldsProducer.BloomFilteredTerms
+                && segmentTerms > (long) terms.length * BLOOM_SEEKS_RATIO) {
+            result = seekTerms(context.reader(), fieldTerms, acceptDocs);
+        } else {
+            result = mergeTerms(context.reader(), fieldTerms, acceptDocs);
+        }
+        return result;
+    }
+
+    private FixedBitSet seekTerms(AtomicReader reader, Terms fieldTerms, Bits acceptDocs) throws IOException {
+        // the bloom filtered terms enum checks the bloom filter before seeking
+        TermsEnum termsEnum = fieldTerms.iterator(null);
+        FixedBitSet result = null;
+        DocsEnum docsEnum = null;
+        for (BytesRef term : terms) {
+            if (termsEnum.seekExact(term, false)) {
+                docsEnum = termsEnum.docs(acceptDocs, docsEnum, 0);
+                result = collect(reader, docsEnum, result);
+            }
+        }
+        return result;
+    }
+
+    private FixedBitSet mergeTerms(AtomicReader reader, Terms fieldTerms, Bits acceptDocs) throws IOException {
+        Comparator<BytesRef> comparator = fieldTerms.getComparator();
+        TermsEnum termsEnum = fieldTerms.iterator(null);
+        FixedBitSet result = null;
+        DocsEnum docsEnum = null;
+
+        int index = 0;
+        if (termsEnum.seekCeil(terms[0], false) == TermsEnum.SeekStatus.END) {
+            return null;
+        }
+        BytesRef current = termsEnum.term();
+        while (true) {
+            int cmp = comparator.compare(current, terms[index]);
+            if (cmp == 0) {
+                docsEnum = termsEnum.docs(acceptDocs, docsEnum, 0);
+                result = collect(reader, docsEnum, result);
+                if (++index == terms.length) {
+                    break;
+                }
+                // the next term of the segment is often the next one we look for
+                current = termsEnum.next();
+                if (current == null) {
+                    break;
+                }
+            } else if (cmp > 0) {
+                // the segment does not have the term, skip to the first one we look for that it might have
+                index = advance(comparator, current, index + 1);
+                if (index == terms.length) {
+                    break;
+                }
+            } else {
+                if (termsEnum.seekCeil(terms[index], false) == TermsEnum.SeekStatus.END) {
+                    break;
+                }
+                current = termsEnum.term();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the first term, starting at <tt>from</tt>, that is greater or equal to the target.
+     */
+    private int advance(Comparator<BytesRef> comparator, BytesRef target, int from) {
+        int lo = from;
+        int hi = from;
+        int step = 1;
+        while (hi < terms.length && comparator.compare(terms[hi], target) < 0) {
+            lo = hi + 1;
+            hi = lo + step;
+            step <<= 1;
+        }
+        hi = Math.min(hi, terms.length);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparator.compare(terms[mid], target) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static FixedBitSet collect(AtomicReader reader, DocsEnum docsEnum, FixedBitSet result) throws IOException {
+        int doc;
+        while ((doc = docsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+            if (result == null) {
+                result = new FixedBitSet(reader.maxDoc());
+            }
+            result.set(doc);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        MergeTermsFilter that = (MergeTermsFilter) o;
+        if (!field.equals(that.field)) return false;
+        if (hashCode != that.hashCode) return false;
+        return Arrays.equals(terms, that.terms);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (BytesRef term : terms) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(field).append(':').append(term.utf8ToString());
+        }
+        return sb.toString();
+    }
+}
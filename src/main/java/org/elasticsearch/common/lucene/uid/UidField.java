@@ -56,7 +56,7 @@ public class UidField extends Field {
     // this works fine for nested docs since they don't have the payload which has the version
     // so we iterate till we find the one with the payload
     public static DocIdAndVersion loadDocIdAndVersion(AtomicReaderContext context, Term term) {
-        int docId = Lucene.NO_DOC;
+        TermsEnum termsEnum;
         try {
             Terms terms = context.reader().terms(term.field());
             if (terms == null) {
@@ -68,13 +68,25 @@ public class UidField extends Field {
                     return null;
                 }
             }
-            TermsEnum termsEnum = terms.iterator(null);
+            termsEnum = terms.iterator(null);
             if (termsEnum == null) {
                 return null;
             }
             if (!termsEnum.seekExact(term.bytes(), true)) {
                 return null;
             }
+        } catch (Exception e) {
+            return new DocIdAndVersion(Lucene.NO_DOC, -2, context);
+        }
+        return loadDocIdAndVersion(context, termsEnum);
+    }
+
+    /**
+     * Loads the doc id and version of the uid the provided terms enum is positioned on.
+     */
+    public static DocIdAndVersion loadDocIdAndVersion(AtomicReaderContext context, TermsEnum termsEnum) {
+        int docId = Lucene.NO_DOC;
+        try {
             DocsAndPositionsEnum uid = termsEnum.docsAndPositions(context.reader().getLiveDocs(), null, DocsAndPositionsEnum.FLAG_PAYLOADS);
             if (uid == null || uid.nextDoc() == DocIdSetIterator.NO_MORE_DOCS) {
                 return null; // no doc
@@ -105,6 +117,7 @@ public class UidField extends Field {
      * no version is available (for backward comp.)
      */
     public static long loadVersion(AtomicReaderContext context, Term term) {
+        TermsEnum termsEnum;
         try {
             Terms terms = context.reader().terms(term.field());
             if (terms == null) {
@@ -116,13 +129,25 @@ public class UidField extends Field {
                     return -1;
                 }
             }
-            TermsEnum termsEnum = terms.iterator(null);
+            termsEnum = terms.iterator(null);
             if (termsEnum == null) {
                 return -1;
             }
             if (!termsEnum.seekExact(term.bytes(), true)) {
                 return -1;
             }
+        } catch (Exception e) {
+            return -2;
+        }
+        return loadVersion(context, termsEnum);
+    }
+
+    /**
+     * Load the version for the uid the provided terms enum is positioned on, returning -1 if no
+     * live doc exists, or -2 if no version is available (for backward comp.)
+     */
+    public static long loadVersion(AtomicReaderContext context, TermsEnum termsEnum) {
+        try {
             DocsAndPositionsEnum uid = termsEnum.docsAndPositions(context.reader().getLiveDocs(), null, DocsAndPositionsEnum.FLAG_PAYLOADS);
             if (uid == null || uid.nextDoc() == DocIdSetIterator.NO_MORE_DOCS) {
                 return -1;
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.common.xcontent;
 
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.common.xcontent.smile.SmileXContent;
 import org.elasticsearch.common.xcontent.yaml.YamlXContent;
@@ -90,21 +91,67 @@ public enum XContentType {
         if (contentType == null) {
             return null;
         }
-        if ("application/json".equals(contentType) || "json".equalsIgnoreCase(contentType)) {
+        // ignore media type parameters, like the charset
+        int paramsIndex = contentType.indexOf(';');
+        if (paramsIndex != -1) {
+            contentType = contentType.substring(0, paramsIndex);
+        }
+        contentType = contentType.trim();
+        if ("application/json".equalsIgnoreCase(contentType) || "json".equalsIgnoreCase(contentType)) {
             return JSON;
         }
 
-        if ("application/smile".equals(contentType) || "smile".equalsIgnoreCase(contentType)) {
+        if ("application/smile".equalsIgnoreCase(contentType) || "application/x-jackson-smile".equalsIgnoreCase(contentType) || "smile".equalsIgnoreCase(contentType)) {
             return SMILE;
         }
 
-        if ("application/yaml".equals(contentType) || "yaml".equalsIgnoreCase(contentType)) {
+        if ("application/yaml".equalsIgnoreCase(contentType) || "yaml".equalsIgnoreCase(contentType)) {
             return YAML;
         }
 
         return null;
     }
 
+    /**
+     * Returns the content type preferred by an HTTP <tt>Accept</tt> header, taking the quality (<tt>q</tt>)
+     * of each media range into account, or <tt>null</tt> if none of the accepted media types is supported
+     * (for example <tt>*&#47;*</tt>).
+     */
+    public static XContentType fromAcceptHeader(String accept) {
+        if (accept == null) {
+            return null;
+        }
+        XContentType preferred = null;
+        float preferredQuality = 0;
+        for (String mediaRange : Strings.splitStringToArray(accept, ',')) {
+            String[] parts = Strings.splitStringToArray(mediaRange, ';');
+            if (parts.length == 0) {
+                continue;
+            }
+            XContentType contentType = fromRestContentType(parts[0]);
+            if (contentType == null) {
+                continue;
+            }
+            float quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        // ignore, keep the default quality
+                    }
+                }
+            }
+            // on the same quality, the first one wins
+            if (quality > preferredQuality) {
+                preferred = contentType;
+                preferredQuality = quality;
+            }
+        }
+        return preferred;
+    }
+
     private int index;
 
     XContentType(int index) {
@@ -0,0 +1,368 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.xcontent.json;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Extracts the values of a few (dot delimited) paths out of a json object by scanning its bytes, without
+ * tokenizing or creating objects for anything that is not on one of the paths. Scanning stops as soon as
+ * all the wanted paths are found.
+ * <p/>
+ * Only the simple cases are handled: a value at a path is a string without escapes, a number, a boolean
+ * or <tt>null</tt>, and field names on the paths are not escaped. Anything else, including malformed literals,
+ * makes {@link #extract} return {@link #UNSUPPORTED}, and the caller should parse the source instead (which
+ * fails on malformed sources the way it always did). The text of the extracted
+ * values is the same the json parser returns for them.
+ */
+public class JsonPathExtractor {
+
+    /**
+     * Returned by {@link #extract} when the source can't be scanned, and should be parsed instead.
+     */
+    public static final int UNSUPPORTED = -1;
+
+    private static final int CONTINUE = 0;
+    private static final int DONE = 1;
+
+    // the utf8 bytes of each element of each path
+    private final byte[][][] paths;
+
+    /**
+     * @param paths the elements of each path, at most 31 paths
+     */
+    public JsonPathExtractor(String[]... paths) {
+        assert paths.length < 32;
+        this.paths = new byte[paths.length][][];
+        for (int i = 0; i < paths.length; i++) {
+            this.paths[i] = new byte[paths[i].length][];
+            for (int j = 0; j < paths[i].length; j++) {
+                this.paths[i][j] = paths[i][j].getBytes(Charsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Scans the json object for the wanted paths.
+     *
+     * @param wanted the paths to look for, a bit per path index
+     * @param values filled with the text of the value of each path found, which might be <tt>null</tt>
+     * @return the paths found, a bit per path index, or {@link #UNSUPPORTED}
+     */
+    public int extract(byte[] bytes, int offset, int length, int wanted, String[] values) {
+        if (wanted == 0) {
+            return 0;
+        }
+        // the scanning state is per call, so the extractor can be shared
+        Scanner scanner = new Scanner(paths, bytes, offset, offset + length, wanted, values);
+        if (!scanner.skipWhitespace() || scanner.bytes[scanner.pos] != '{') {
+            return UNSUPPORTED;
+        }
+        scanner.pos++;
+        if (scanner.scanObject(0, wanted) == UNSUPPORTED) {
+            return UNSUPPORTED;
+        }
+        return scanner.found;
+    }
+
+    private static class Scanner {
+
+        private final byte[][][] paths;
+        private final byte[] bytes;
+        private final int end;
+        private final int wanted;
+        private final String[] values;
+        private int pos;
+        private int found;
+
+        Scanner(byte[][][] paths, byte[] bytes, int pos, int end, int wanted, String[] values) {
+            this.paths = paths;
+            this.bytes = bytes;
+            this.pos = pos;
+            this.end = end;
+            this.wanted = wanted;
+            this.values = values;
+        }
+
+        private int scanObject(int depth, int onPath) {
+            if (!skipWhitespace()) {
+                return UNSUPPORTED;
+            }
+            if (bytes[pos] == '}') {
+                pos++;
+                return CONTINUE;
+            }
+            while (true) {
+                if (!skipWhitespace() || bytes[pos] != '"') {
+                    return UNSUPPORTED;
+                }
+                int nameStart = ++pos;
+                while (pos < end && bytes[pos] != '"') {
+                    if (bytes[pos] == '\\') {
+                        return UNSUPPORTED;
+                    }
+                    pos++;
+                }
+                if (pos == end) {
+                    return UNSUPPORTED;
+                }
+                int nameEnd = pos++;
+                if (!skipWhitespace() || bytes[pos] != ':') {
+                    return UNSUPPORTED;
+                }
+                pos++;
+                if (!skipWhitespace()) {
+                    return UNSUPPORTED;
+                }
+
+                int leaves = 0;
+                int descend = 0;
+                for (int i = 0; i < paths.length; i++) {
+                    int bit = 1 << i;
+                    if ((onPath & bit) == 0 || (found & bit) != 0 || depth >= paths[i].length) {
+                        continue;
+                    }
+                    if (nameEquals(paths[i][depth], nameStart, nameEnd)) {
+                        if (depth + 1 == paths[i].length) {
+                            leaves |= bit;
+                        } else {
+                            descend |= bit;
+                        }
+                    }
+                }
+
+                if (leaves != 0) {
+                    if (readValue(leaves) == UNSUPPORTED) {
+                        return UNSUPPORTED;
+                    }
+                    if ((found & wanted) == wanted) {
+                        return DONE;
+                    }
+                } else if (descend != 0 && bytes[pos] == '{') {
+                    pos++;
+                    int result = scanObject(depth + 1, descend);
+                    if (result != CONTINUE) {
+                        return result;
+                    }
+                } else if (!skipValue()) {
+                    return UNSUPPORTED;
+                }
+
+                if (!skipWhitespace()) {
+                    return UNSUPPORTED;
+                }
+                if (bytes[pos] == ',') {
+                    pos++;
+                } else if (bytes[pos] == '}') {
+                    pos++;
+                    return CONTINUE;
+                } else {
+                    return UNSUPPORTED;
+                }
+            }
+        }
+
+        private boolean nameEquals(byte[] name, int start, int end) {
+            if (name.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (name[i] != bytes[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int readValue(int leaves) {
+            String value;
+            byte b = bytes[pos];
+            if (b == '"') {
+                int start = ++pos;
+                while (pos < end && bytes[pos] != '"') {
+                    if (bytes[pos] == '\\') {
+                        return UNSUPPORTED;
+                    }
+                    pos++;
+                }
+                if (pos == end) {
+                    return UNSUPPORTED;
+                }
+                value = new String(bytes, start, pos - start, Charsets.UTF_8);
+                pos++;
+            } else if (b == '{' || b == '[') {
+                return UNSUPPORTED;
+            } else {
+                int start = pos;
+                if (!skipLiteral()) {
+                    return UNSUPPORTED;
+                }
+                if (pos - start == 4 && bytes[start] == 'n' && bytes[start + 1] == 'u' && bytes[start + 2] == 'l' && bytes[start + 3] == 'l') {
+                    value = null;
+                } else {
+                    value = new String(bytes, start, pos - start, Charsets.US_ASCII);
+                }
+            }
+            for (int i = 0; i < paths.length; i++) {
+                if ((leaves & (1 << i)) != 0) {
+                    values[i] = value;
+                }
+            }
+            found |= leaves;
+            return CONTINUE;
+        }
+
+        private boolean skipValue() {
+            byte b = bytes[pos];
+            if (b == '"') {
+                return skipString();
+            }
+            if (b != '{' && b != '[') {
+                return skipLiteral();
+            }
+            // skip the whole object or array, only strings can hide brackets
+            int level = 0;
+            while (pos < end) {
+                b = bytes[pos];
+                if (b == '"') {
+                    if (!skipString()) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    level++;
+                } else if (b == '}' || b == ']') {
+                    if (--level == 0) {
+                        pos++;
+                        return true;
+                    }
+                }
+                pos++;
+            }
+            return false;
+        }
+
+        private boolean skipString() {
+            pos++;
+            while (pos < end) {
+                byte b = bytes[pos];
+                if (b == '\\') {
+                    pos += 2;
+                } else if (b == '"') {
+                    pos++;
+                    return true;
+                } else {
+                    pos++;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Skips a <tt>true</tt>, <tt>false</tt>, <tt>null</tt> or number literal, returns <tt>false</tt> if it
+         * is not a valid one.
+         */
+        private boolean skipLiteral() {
+            int start = pos;
+            while (pos < end) {
+                byte b = bytes[pos];
+                if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                    break;
+                }
+                pos++;
+            }
+            return literalEquals(start, "true") || literalEquals(start, "false") || literalEquals(start, "null") || isNumber(start);
+        }
+
+        private boolean literalEquals(int start, String literal) {
+            if (pos - start != literal.length()) {
+                return false;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                if (bytes[start + i] != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Is the literal a json number: <tt>-?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?</tt>
+         */
+        private boolean isNumber(int start) {
+            int i = start;
+            if (i < pos && bytes[i] == '-') {
+                i++;
+            }
+            if (i == pos) {
+                return false;
+            }
+            if (bytes[i] == '0') {
+                i++;
+            } else {
+                int digits = i;
+                i = skipDigits(i);
+                if (i == digits) {
+                    return false;
+                }
+            }
+            if (i < pos && bytes[i] == '.') {
+                int digits = ++i;
+                i = skipDigits(i);
+                if (i == digits) {
+                    return false;
+                }
+            }
+            if (i < pos && (bytes[i] == 'e' || bytes[i] == 'E')) {
+                i++;
+                if (i < pos && (bytes[i] == '+' || bytes[i] == '-')) {
+                    i++;
+                }
+                int digits = i;
+                i = skipDigits(i);
+                if (i == digits) {
+                    return false;
+                }
+            }
+            return i == pos;
+        }
+
+        private int skipDigits(int i) {
+            while (i < pos && bytes[i] >= '0' && bytes[i] <= '9') {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Skips whitespace, returns <tt>false</tt> if there are no more bytes.
+         */
+        private boolean skipWhitespace() {
+            while (pos < end) {
+                byte b = bytes[pos];
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    return true;
+                }
+                pos++;
+            }
+            return false;
+        }
+    }
+}
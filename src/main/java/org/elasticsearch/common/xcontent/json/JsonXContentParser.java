@@ -34,7 +34,7 @@ import java.io.IOException;
  */
 public class JsonXContentParser extends AbstractXContentParser {
 
-    final JsonParser parser;
+    protected final JsonParser parser;
 
     public JsonXContentParser(JsonParser parser) {
         this.parser = parser;
@@ -36,4 +36,12 @@ public class SmileXContentParser extends JsonXContentParser {
     public XContentType contentType() {
         return XContentType.SMILE;
     }
+
+    /**
+     * The number of bytes consumed from the input so far. Right after the end of the root object, this is
+     * the length of the document, which allows to read a stream of smile documents one by one.
+     */
+    public long currentByteOffset() {
+        return parser.getCurrentLocation().getByteOffset();
+    }
 }
@@ -21,10 +21,17 @@ package org.elasticsearch.common.xcontent.support;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.elasticsearch.ElasticSearchParseException;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -148,34 +155,10 @@ public class XContentMapValues {
                 sb.append('.');
             }
             sb.append(key);
-            String path = sb.toString();
-            boolean excluded = false;
-            for (String exclude : excludes) {
-                if (Regex.simpleMatch(exclude, path)) {
-                    excluded = true;
-                    break;
-                }
-            }
-            if (excluded) {
+            if (!included(sb.toString(), includes, excludes)) {
                 sb.setLength(mark);
                 continue;
             }
-            if (includes.length > 0) {
-                boolean atLeastOnOneIncludeMatched = false;
-                for (String include : includes) {
-                    // check for prefix as well, something like: obj1.arr1.*
-                    // note, this does not work well with middle matches, like obj1.*.obj3
-                    if (include.startsWith(path) || Regex.simpleMatch(include, path)) {
-                        atLeastOnOneIncludeMatched = true;
-                        break;
-                    }
-                }
-                if (!atLeastOnOneIncludeMatched) {
-                    sb.setLength(mark);
-                    continue;
-                }
-            }
-
 
             if (entry.getValue() instanceof Map) {
                 Map<String, Object> innerInto = Maps.newHashMap();
@@ -206,12 +189,174 @@ public class XContentMapValues {
             } else if (o instanceof List) {
                 List<Object> innerInto = new ArrayList<Object>();
                 filter((List<Object>) o, innerInto, includes, excludes, sb);
+                to.add(innerInto);
             } else {
                 to.add(o);
             }
         }
     }
 
+    /**
+     * The includes to filter a source with before extracting the given fields out of it with
+     * {@link #extractValue(String, java.util.Map)}: the fields themselves and everything within them, so a
+     * field that is an object is extracted whole.
+     */
+    public static String[] extractIncludes(String[] fields) {
+        String[] includes = new String[fields.length * 2];
+        for (int i = 0; i < fields.length; i++) {
+            includes[i * 2] = fields[i];
+            includes[i * 2 + 1] = fields[i] + ".*";
+        }
+        return includes;
+    }
+
+    private static boolean included(String path, String[] includes, String[] excludes) {
+        for (String exclude : excludes) {
+            if (Regex.simpleMatch(exclude, path)) {
+                return false;
+            }
+        }
+        if (includes.length == 0) {
+            return true;
+        }
+        for (String include : includes) {
+            // check for prefix as well, something like: obj1.arr1.*
+            // note, this does not work well with middle matches, like obj1.*.obj3
+            if (include.startsWith(path) || Regex.simpleMatch(include, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Filters the source into a map, same as {@link #filter(java.util.Map, String[], String[])}, but without
+     * parsing the whole source into a map first, see {@link #filter(XContentParser, XContentBuilder, String[], String[])}.
+     */
+    public static Map<String, Object> filter(BytesReference source, String[] includes, String[] excludes) throws IOException {
+        XContentParser parser = XContentHelper.createParser(source);
+        try {
+            XContentBuilder builder = XContentFactory.contentBuilder(parser.contentType());
+            filter(parser, builder, includes, excludes);
+            return XContentHelper.convertToMap(builder.bytes(), false).v2();
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Streams the object the parser is on (or the next one if it is not positioned yet) into the builder,
+     * copying only the paths matching the includes / excludes, with the same semantics as
+     * {@link #filter(java.util.Map, String[], String[])}. Parts of the source that are not included are
+     * skipped by the parser without being materialized.
+     */
+    public static void filter(XContentParser parser, XContentBuilder builder, String[] includes, String[] excludes) throws IOException {
+        XContentParser.Token token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new ElasticSearchParseException("expected an object to filter, got [" + token + "]");
+        }
+        StreamFilter filter = new StreamFilter(parser, builder, includes, excludes);
+        builder.startObject();
+        filter.filterObject();
+        builder.endObject();
+    }
+
+    private static class StreamFilter {
+
+        private final XContentParser parser;
+        private final XContentBuilder builder;
+        private final String[] includes;
+        private final String[] excludes;
+        private final StringBuilder sb = new StringBuilder();
+
+        // objects opened in the source but not yet written to the builder, since empty objects are
+        // omitted from the result, a null name marks an object within an array
+        private final List<String> pendingObjects = new ArrayList<String>();
+
+        StreamFilter(XContentParser parser, XContentBuilder builder, String[] includes, String[] excludes) {
+            this.parser = parser;
+            this.builder = builder;
+            this.includes = includes;
+            this.excludes = excludes;
+        }
+
+        void filterObject() throws IOException {
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                // we are on a field name
+                String key = parser.currentName();
+                token = parser.nextToken();
+                int mark = sb.length();
+                if (sb.length() > 0) {
+                    sb.append('.');
+                }
+                sb.append(key);
+                if (!included(sb.toString(), includes, excludes)) {
+                    parser.skipChildren();
+                    sb.setLength(mark);
+                    continue;
+                }
+                if (token == XContentParser.Token.START_OBJECT) {
+                    pendingObjects.add(key);
+                    filterObject();
+                    endObject();
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    writePendingObjects();
+                    builder.startArray(key);
+                    filterArray();
+                    builder.endArray();
+                } else {
+                    writePendingObjects();
+                    builder.field(key);
+                    builder.copyCurrentStructure(parser);
+                }
+                sb.setLength(mark);
+            }
+        }
+
+        void filterArray() throws IOException {
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                if (token == XContentParser.Token.START_OBJECT) {
+                    pendingObjects.add(null);
+                    filterObject();
+                    endObject();
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    builder.startArray();
+                    filterArray();
+                    builder.endArray();
+                } else {
+                    builder.copyCurrentStructure(parser);
+                }
+            }
+        }
+
+        private void endObject() throws IOException {
+            if (pendingObjects.isEmpty()) {
+                // it was written, close it
+                builder.endObject();
+            } else {
+                // nothing was included from it, drop it
+                pendingObjects.remove(pendingObjects.size() - 1);
+            }
+        }
+
+        private void writePendingObjects() throws IOException {
+            for (int i = 0; i < pendingObjects.size(); i++) {
+                String name = pendingObjects.get(i);
+                if (name == null) {
+                    builder.startObject();
+                } else {
+                    builder.startObject(name);
+                }
+            }
+            pendingObjects.clear();
+        }
+    }
+
     public static boolean isObject(Object node) {
         return node instanceof Map;
     }
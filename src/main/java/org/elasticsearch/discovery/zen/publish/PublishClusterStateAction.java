@@ -20,6 +20,7 @@
 package org.elasticsearch.discovery.zen.publish;
 
 import com.google.common.collect.Maps;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.node.DiscoveryNode;
@@ -54,12 +55,19 @@ public class PublishClusterStateAction extends AbstractComponent {
 
     private final NewClusterStateListener listener;
 
+    // the compressor type used for the published cluster state, null for the default compressor
+    private final String compressType;
+
     public PublishClusterStateAction(Settings settings, TransportService transportService, DiscoveryNodesProvider nodesProvider,
                                      NewClusterStateListener listener) {
         super(settings);
         this.transportService = transportService;
         this.nodesProvider = nodesProvider;
         this.listener = listener;
+        this.compressType = CompressorFactory.normalizeType(componentSettings.get("compress_type"));
+        if (compressType != null && CompressorFactory.compressor(compressType) == null) {
+            throw new ElasticSearchIllegalArgumentException("failed to find compressor type [" + compressType + "] for [discovery.zen.publish.compress_type]");
+        }
 
         transportService.registerHandler(PublishClusterStateRequestHandler.ACTION, new PublishClusterStateRequestHandler());
     }
@@ -84,7 +92,7 @@ public class PublishClusterStateAction extends AbstractComponent {
                 if (entry == null) {
                     try {
                         entry = CachedStreamOutput.popEntry();
-                        StreamOutput stream = entry.handles(CompressorFactory.defaultCompressor());
+                        StreamOutput stream = entry.handles(CompressorFactory.compressorOrDefault(compressType));
                         stream.setVersion(node.version());
                         ClusterState.Builder.writeTo(clusterState, stream);
                         stream.close();
@@ -44,6 +44,8 @@ public class AnalysisService extends AbstractIndexComponent implements Closeable
 
     private final ImmutableMap<String, NamedAnalyzer> analyzers;
 
+    private final ImmutableMap<String, TokenStreamCache> tokenStreamCaches;
+
     private final ImmutableMap<String, TokenizerFactory> tokenizers;
 
     private final ImmutableMap<String, CharFilterFactory> charFilters;
@@ -173,8 +175,8 @@ public class AnalysisService extends AbstractIndexComponent implements Closeable
         this.tokenFilters = ImmutableMap.copyOf(tokenFilters);
 
         Map<String, AnalyzerProvider> analyzerProviders = newHashMap();
+        Map<String, Settings> analyzersSettings = indexSettings.getGroups("index.analysis.analyzer");
         if (analyzerFactoryFactories != null) {
-            Map<String, Settings> analyzersSettings = indexSettings.getGroups("index.analysis.analyzer");
             for (Map.Entry<String, AnalyzerProviderFactory> entry : analyzerFactoryFactories.entrySet()) {
                 String analyzerName = entry.getKey();
                 AnalyzerProviderFactory analyzerFactoryFactory = entry.getValue();
@@ -217,6 +219,7 @@ public class AnalysisService extends AbstractIndexComponent implements Closeable
         }
 
         Map<String, NamedAnalyzer> analyzers = newHashMap();
+        Map<String, TokenStreamCache> tokenStreamCaches = newHashMap();
         for (AnalyzerProvider analyzerFactory : analyzerProviders.values()) {
             if (analyzerFactory instanceof CustomAnalyzerProvider) {
                 ((CustomAnalyzerProvider) analyzerFactory).build(this);
@@ -225,7 +228,18 @@ public class AnalysisService extends AbstractIndexComponent implements Closeable
             if (analyzerF == null) {
                 throw new ElasticSearchIllegalArgumentException("analyzer [" + analyzerFactory.name() + "] created null analyzer");
             }
-            NamedAnalyzer analyzer = new NamedAnalyzer(analyzerFactory.name(), analyzerFactory.scope(), analyzerF);
+            TokenStreamCache tokenStreamCache = null;
+            Settings analyzerSettings = analyzersSettings.get(analyzerFactory.name());
+            if (analyzerSettings != null) {
+                tokenStreamCache = tokenStreamCaches.get(analyzerFactory.name());
+                if (tokenStreamCache == null) {
+                    tokenStreamCache = TokenStreamCache.create(analyzerFactory.name(), analyzerSettings);
+                    if (tokenStreamCache != null) {
+                        tokenStreamCaches.put(analyzerFactory.name(), tokenStreamCache);
+                    }
+                }
+            }
+            NamedAnalyzer analyzer = new NamedAnalyzer(analyzerFactory.name(), analyzerFactory.scope(), analyzerF, tokenStreamCache);
             analyzers.put(analyzerFactory.name(), analyzer);
             analyzers.put(Strings.toCamelCase(analyzerFactory.name()), analyzer);
             String strAliases = indexSettings.get("index.analysis.analyzer." + analyzerFactory.name() + ".alias");
@@ -249,9 +263,13 @@ public class AnalysisService extends AbstractIndexComponent implements Closeable
         defaultSearchQuoteAnalyzer = analyzers.containsKey("default_search_quote") ? analyzers.get("default_search_quote") : defaultSearchAnalyzer;
 
         this.analyzers = ImmutableMap.copyOf(analyzers);
+        this.tokenStreamCaches = ImmutableMap.copyOf(tokenStreamCaches);
     }
 
     public void close() {
+        for (TokenStreamCache tokenStreamCache : tokenStreamCaches.values()) {
+            tokenStreamCache.clear();
+        }
         for (NamedAnalyzer analyzer : analyzers.values()) {
             if (analyzer.scope() == AnalyzerScope.INDEX) {
                 try {
@@ -270,6 +288,14 @@ public class AnalysisService extends AbstractIndexComponent implements Closeable
         return analyzers.get(name);
     }
 
+    /**
+     * The token stream caches of the analyzers that have one enabled, keyed by analyzer name, exposing
+     * the cache hit / miss counts per analyzer.
+     */
+    public ImmutableMap<String, TokenStreamCache> tokenStreamCaches() {
+        return tokenStreamCaches;
+    }
+
     public NamedAnalyzer defaultAnalyzer() {
         return defaultAnalyzer;
     }
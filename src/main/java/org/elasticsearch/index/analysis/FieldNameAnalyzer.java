@@ -57,7 +57,10 @@ public final class FieldNameAnalyzer extends AnalyzerWrapper {
         return components;
     }
 
-    private Analyzer getAnalyzer(String name) {
+    /**
+     * The analyzer used for the provided field name.
+     */
+    public Analyzer getAnalyzer(String name) {
         Analyzer analyzer = analyzers.get(name);
         if (analyzer != null) {
             return analyzer;
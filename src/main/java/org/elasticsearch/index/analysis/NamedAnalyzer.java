@@ -21,6 +21,7 @@ package org.elasticsearch.index.analysis;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.CustomAnalyzerWrapper;
+import org.elasticsearch.common.Nullable;
 
 /**
  * Named analyzer is an analyzer wrapper around an actual analyzer ({@link #analyzer} that is associated
@@ -34,14 +35,22 @@ public class NamedAnalyzer extends CustomAnalyzerWrapper {
 
     private final Analyzer analyzer;
 
+    @Nullable
+    private final TokenStreamCache tokenStreamCache;
+
     public NamedAnalyzer(String name, Analyzer analyzer) {
         this(name, AnalyzerScope.INDEX, analyzer);
     }
 
     public NamedAnalyzer(String name, AnalyzerScope scope, Analyzer analyzer) {
+        this(name, scope, analyzer, null);
+    }
+
+    public NamedAnalyzer(String name, AnalyzerScope scope, Analyzer analyzer, @Nullable TokenStreamCache tokenStreamCache) {
         this.name = name;
         this.scope = scope;
         this.analyzer = analyzer;
+        this.tokenStreamCache = tokenStreamCache;
     }
 
     /**
@@ -65,6 +74,14 @@ public class NamedAnalyzer extends CustomAnalyzerWrapper {
         return this.analyzer;
     }
 
+    /**
+     * The cache of analyzed short values, <tt>null</tt> if not enabled for this analyzer.
+     */
+    @Nullable
+    public TokenStreamCache tokenStreamCache() {
+        return this.tokenStreamCache;
+    }
+
     @Override
     protected Analyzer getWrappedAnalyzer(String fieldName) {
         return this.analyzer;
@@ -26,7 +26,7 @@ public class NamedCustomAnalyzer extends NamedAnalyzer {
     private final int positionOffsetGap;
 
     public NamedCustomAnalyzer(NamedAnalyzer analyzer, int positionOffsetGap) {
-        super(analyzer.name(), analyzer.scope(), analyzer.analyzer());
+        super(analyzer.name(), analyzer.scope(), analyzer.analyzer(), analyzer.tokenStreamCache());
         this.positionOffsetGap = positionOffsetGap;
     }
 
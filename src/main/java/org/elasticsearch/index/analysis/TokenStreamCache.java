@@ -0,0 +1,377 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.analysis;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.AttributeReflector;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.FastStringReader;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An opt-in cache of the analysis results of short values, for analyzers that see the same
+ * values over and over again at index time (user agents, urls, tags). The tokens produced for
+ * a (field, value) pair are captured once, and then replayed through a {@link TokenStream} for
+ * every further document indexing the same value.
+ * <p/>
+ * The cache is bounded by the number of entries, evicting the least recently used ones, and only
+ * values up to <tt>max_length</tt> chars are cached. It is enabled by setting
+ * <tt>token_cache.size</tt> on the analyzer settings, for example
+ * <tt>index.analysis.analyzer.my_analyzer.token_cache.size: 10000</tt>.
+ * <p/>
+ * Only the attributes the indexer consumes are replayed: the term bytes, offsets, position
+ * increments and payloads.
+ */
+public class TokenStreamCache {
+
+    public static final int DEFAULT_MAX_LENGTH = 256;
+
+    /**
+     * Builds the token stream cache configured in the provided analyzer settings, or <tt>null</tt>
+     * if it is not enabled.
+     */
+    @Nullable
+    public static TokenStreamCache create(String analyzerName, Settings analyzerSettings) {
+        int size = analyzerSettings.getAsInt("token_cache.size", 0);
+        if (size <= 0) {
+            return null;
+        }
+        int maxLength = analyzerSettings.getAsInt("token_cache.max_length", DEFAULT_MAX_LENGTH);
+        return new TokenStreamCache(analyzerName, size, maxLength);
+    }
+
+    /**
+     * Returns the token stream cache of the analyzer used for the field, or <tt>null</tt> if it has
+     * none. Resolves the per field analyzer of a {@link FieldNameAnalyzer}.
+     */
+    @Nullable
+    public static TokenStreamCache forField(Analyzer analyzer, String fieldName) {
+        if (analyzer instanceof FieldNameAnalyzer) {
+            analyzer = ((FieldNameAnalyzer) analyzer).getAnalyzer(fieldName);
+        }
+        if (analyzer instanceof NamedAnalyzer) {
+            return ((NamedAnalyzer) analyzer).tokenStreamCache();
+        }
+        return null;
+    }
+
+    private static final ThreadLocal<CachedTokenStream> CACHED_TOKEN_STREAM = new ThreadLocal<CachedTokenStream>() {
+        @Override
+        protected CachedTokenStream initialValue() {
+            return new CachedTokenStream();
+        }
+    };
+
+    private final String analyzerName;
+
+    private final int maxLength;
+
+    private final Cache<Key, CachedTokens> cache;
+
+    private final CounterMetric hits = new CounterMetric();
+
+    private final CounterMetric misses = new CounterMetric();
+
+    public TokenStreamCache(String analyzerName, int size, int maxLength) {
+        this.analyzerName = analyzerName;
+        this.maxLength = maxLength;
+        this.cache = CacheBuilder.newBuilder().maximumSize(size).build();
+    }
+
+    public String analyzerName() {
+        return this.analyzerName;
+    }
+
+    /**
+     * Returns a token stream for the value, replaying the cached tokens if the value was already
+     * analyzed for this field, or analyzing (and caching) it using the provided analyzer. Returns
+     * <tt>null</tt> if the value is too long to be cached, in which case it should be analyzed as usual.
+     * <p/>
+     * Note, the returned stream is reused per thread, and must be consumed before asking for another one.
+     */
+    @Nullable
+    public TokenStream tokenStream(Analyzer analyzer, String fieldName, String value) throws IOException {
+        if (value.length() > maxLength) {
+            return null;
+        }
+        Key key = new Key(fieldName, value);
+        CachedTokens tokens = cache.getIfPresent(key);
+        if (tokens != null) {
+            hits.inc();
+        } else {
+            misses.inc();
+            tokens = CachedTokens.capture(analyzer.tokenStream(fieldName, new FastStringReader(value)));
+            cache.put(key, tokens);
+        }
+        return CACHED_TOKEN_STREAM.get().setTokens(tokens);
+    }
+
+    public long hits() {
+        return hits.count();
+    }
+
+    public long misses() {
+        return misses.count();
+    }
+
+    /**
+     * The ratio of values that were served from the cache, between 0 and 1.
+     */
+    public double hitRate() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : ((double) hits) / total;
+    }
+
+    /**
+     * The number of cached values.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    static class Key {
+        final String fieldName;
+        final String value;
+
+        Key(String fieldName, String value) {
+            this.fieldName = fieldName;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            Key key = (Key) o;
+            return value.equals(key.value) && fieldName.equals(key.fieldName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fieldName.hashCode() + value.hashCode();
+        }
+    }
+
+    /**
+     * The tokens captured from a token stream.
+     */
+    static class CachedTokens {
+        final BytesRef[] terms;
+        final int[] startOffsets;
+        final int[] endOffsets;
+        final int[] positionIncrements;
+        @Nullable
+        final BytesRef[] payloads;
+        final int finalOffset;
+
+        CachedTokens(BytesRef[] terms, int[] startOffsets, int[] endOffsets, int[] positionIncrements, @Nullable BytesRef[] payloads, int finalOffset) {
+            this.terms = terms;
+            this.startOffsets = startOffsets;
+            this.endOffsets = endOffsets;
+            this.positionIncrements = positionIncrements;
+            this.payloads = payloads;
+            this.finalOffset = finalOffset;
+        }
+
+        static CachedTokens capture(TokenStream stream) throws IOException {
+            try {
+                TermToBytesRefAttribute termAtt = stream.addAttribute(TermToBytesRefAttribute.class);
+                OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+                PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+                PayloadAttribute payloadAtt = stream.hasAttribute(PayloadAttribute.class) ? stream.getAttribute(PayloadAttribute.class) : null;
+                BytesRef termBytes = termAtt.getBytesRef();
+
+                List<BytesRef> terms = new ArrayList<BytesRef>();
+                List<BytesRef> payloads = null;
+                int[] startOffsets = new int[4];
+                int[] endOffsets = new int[4];
+                int[] positionIncrements = new int[4];
+                stream.reset();
+                while (stream.incrementToken()) {
+                    int index = terms.size();
+                    if (index == startOffsets.length) {
+                        startOffsets = grow(startOffsets);
+                        endOffsets = grow(endOffsets);
+                        positionIncrements = grow(positionIncrements);
+                    }
+                    termAtt.fillBytesRef();
+                    terms.add(BytesRef.deepCopyOf(termBytes));
+                    startOffsets[index] = offsetAtt.startOffset();
+                    endOffsets[index] = offsetAtt.endOffset();
+                    positionIncrements[index] = posIncAtt.getPositionIncrement();
+                    BytesRef payload = payloadAtt == null ? null : payloadAtt.getPayload();
+                    if (payload != null) {
+                        if (payloads == null) {
+                            payloads = new ArrayList<BytesRef>();
+                        }
+                        while (payloads.size() < index) {
+                            payloads.add(null);
+                        }
+                        payloads.add(BytesRef.deepCopyOf(payload));
+                    }
+                }
+                stream.end();
+                int finalOffset = offsetAtt.endOffset();
+
+                BytesRef[] payloadsArr = null;
+                if (payloads != null) {
+                    while (payloads.size() < terms.size()) {
+                        payloads.add(null);
+                    }
+                    payloadsArr = payloads.toArray(new BytesRef[payloads.size()]);
+                }
+                return new CachedTokens(terms.toArray(new BytesRef[terms.size()]), startOffsets, endOffsets, positionIncrements, payloadsArr, finalOffset);
+            } finally {
+                stream.close();
+            }
+        }
+
+        private static int[] grow(int[] array) {
+            int[] newArray = new int[array.length << 1];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+    }
+
+    /**
+     * Replays {@link CachedTokens}.
+     */
+    static final class CachedTokenStream extends TokenStream {
+
+        private final BytesTermAttribute termAtt;
+        private final OffsetAttribute offsetAtt;
+        private final PositionIncrementAttribute posIncAtt;
+        private final PayloadAttribute payloadAtt;
+
+        private CachedTokens tokens;
+        private int upto;
+
+        CachedTokenStream() {
+            BytesTermAttributeImpl termAttImpl = new BytesTermAttributeImpl();
+            addAttributeImpl(termAttImpl);
+            this.termAtt = termAttImpl;
+            this.offsetAtt = addAttribute(OffsetAttribute.class);
+            this.posIncAtt = addAttribute(PositionIncrementAttribute.class);
+            this.payloadAtt = addAttribute(PayloadAttribute.class);
+        }
+
+        CachedTokenStream setTokens(CachedTokens tokens) {
+            this.tokens = tokens;
+            this.upto = 0;
+            return this;
+        }
+
+        @Override
+        public boolean incrementToken() {
+            if (upto >= tokens.terms.length) {
+                return false;
+            }
+            clearAttributes();
+            termAtt.setBytesRef(tokens.terms[upto]);
+            offsetAtt.setOffset(tokens.startOffsets[upto], tokens.endOffsets[upto]);
+            posIncAtt.setPositionIncrement(tokens.positionIncrements[upto]);
+            if (tokens.payloads != null) {
+                payloadAtt.setPayload(tokens.payloads[upto]);
+            }
+            upto++;
+            return true;
+        }
+
+        @Override
+        public void end() {
+            offsetAtt.setOffset(tokens.finalOffset, tokens.finalOffset);
+        }
+
+        @Override
+        public void reset() {
+            upto = 0;
+        }
+
+        @Override
+        public void close() {
+            tokens = null;
+        }
+    }
+
+    /**
+     * A term attribute exposing already computed term bytes.
+     */
+    public static interface BytesTermAttribute extends TermToBytesRefAttribute {
+
+        void setBytesRef(BytesRef bytes);
+    }
+
+    public static final class BytesTermAttributeImpl extends AttributeImpl implements BytesTermAttribute {
+
+        // the indexer pulls the bytes ref once, and then only calls fillBytesRef for each token,
+        // so we keep the same instance and point it to the bytes of the current token
+        private final BytesRef bytes = new BytesRef();
+
+        @Override
+        public void setBytesRef(BytesRef bytes) {
+            this.bytes.bytes = bytes.bytes;
+            this.bytes.offset = bytes.offset;
+            this.bytes.length = bytes.length;
+        }
+
+        @Override
+        public int fillBytesRef() {
+            return bytes.hashCode();
+        }
+
+        @Override
+        public BytesRef getBytesRef() {
+            return bytes;
+        }
+
+        @Override
+        public void clear() {
+            bytes.length = 0;
+        }
+
+        @Override
+        public void copyTo(AttributeImpl target) {
+            ((BytesTermAttribute) target).setBytesRef(bytes);
+        }
+
+        @Override
+        public void reflectWith(AttributeReflector reflector) {
+            reflector.reflect(TermToBytesRefAttribute.class, "bytes", BytesRef.deepCopyOf(bytes));
+        }
+    }
+}
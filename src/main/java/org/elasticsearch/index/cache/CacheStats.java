@@ -35,6 +35,8 @@ import java.io.IOException;
 public class CacheStats implements Streamable, ToXContent {
 
     long filterEvictions;
+    long filterAdmissions;
+    long filterRejections;
     long filterCount;
     long filterSize;
     long idCacheSize;
@@ -42,8 +44,10 @@ public class CacheStats implements Streamable, ToXContent {
     public CacheStats() {
     }
 
-    public CacheStats(long filterEvictions, long filterSize, long filterCount, long idCacheSize) {
+    public CacheStats(long filterEvictions, long filterAdmissions, long filterRejections, long filterSize, long filterCount, long idCacheSize) {
         this.filterEvictions = filterEvictions;
+        this.filterAdmissions = filterAdmissions;
+        this.filterRejections = filterRejections;
         this.filterSize = filterSize;
         this.filterCount = filterCount;
         this.idCacheSize = idCacheSize;
@@ -51,6 +55,8 @@ public class CacheStats implements Streamable, ToXContent {
 
     public void add(CacheStats stats) {
         this.filterEvictions += stats.filterEvictions;
+        this.filterAdmissions += stats.filterAdmissions;
+        this.filterRejections += stats.filterRejections;
         this.filterSize += stats.filterSize;
         this.filterCount += stats.filterCount;
         this.idCacheSize += stats.idCacheSize;
@@ -64,6 +70,20 @@ public class CacheStats implements Streamable, ToXContent {
         return this.filterEvictions;
     }
 
+    /**
+     * The number of filter results that were admitted into the cache.
+     */
+    public long getFilterAdmissions() {
+        return this.filterAdmissions;
+    }
+
+    /**
+     * The number of filter results that were executed without being cached.
+     */
+    public long getFilterRejections() {
+        return this.filterRejections;
+    }
+
     public long getFilterCount() {
         return this.filterCount;
     }
@@ -89,6 +109,8 @@ public class CacheStats implements Streamable, ToXContent {
         builder.startObject(Fields.CACHE);
         builder.field(Fields.FILTER_COUNT, filterCount);
         builder.field(Fields.FILTER_EVICTIONS, filterEvictions);
+        builder.field(Fields.FILTER_ADMISSIONS, filterAdmissions);
+        builder.field(Fields.FILTER_REJECTIONS, filterRejections);
         builder.field(Fields.FILTER_SIZE, getFilterSize().toString());
         builder.field(Fields.FILTER_SIZE_IN_BYTES, filterSize);
         builder.field(Fields.ID_CACHE_SIZE, getIdCacheSize().toString());
@@ -100,6 +122,8 @@ public class CacheStats implements Streamable, ToXContent {
     static final class Fields {
         static final XContentBuilderString CACHE = new XContentBuilderString("cache");
         static final XContentBuilderString FILTER_EVICTIONS = new XContentBuilderString("filter_evictions");
+        static final XContentBuilderString FILTER_ADMISSIONS = new XContentBuilderString("filter_admissions");
+        static final XContentBuilderString FILTER_REJECTIONS = new XContentBuilderString("filter_rejections");
         static final XContentBuilderString FILTER_COUNT = new XContentBuilderString("filter_count");
         static final XContentBuilderString FILTER_SIZE = new XContentBuilderString("filter_size");
         static final XContentBuilderString FILTER_SIZE_IN_BYTES = new XContentBuilderString("filter_size_in_bytes");
@@ -119,6 +143,8 @@ public class CacheStats implements Streamable, ToXContent {
         filterSize = in.readVLong();
         filterCount = in.readVLong();
         idCacheSize = in.readVLong();
+        filterAdmissions = in.readVLong();
+        filterRejections = in.readVLong();
     }
 
     @Override
@@ -127,5 +153,7 @@ public class CacheStats implements Streamable, ToXContent {
         out.writeVLong(filterSize);
         out.writeVLong(filterCount);
         out.writeVLong(idCacheSize);
+        out.writeVLong(filterAdmissions);
+        out.writeVLong(filterRejections);
     }
 }
\ No newline at end of file
@@ -33,6 +33,7 @@ import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.docset.DocSetCache;
 import org.elasticsearch.index.cache.filter.FilterCache;
+import org.elasticsearch.index.cache.fixedbitset.FixedBitSetFilterCache;
 import org.elasticsearch.index.cache.id.IdCache;
 import org.elasticsearch.index.cache.query.parser.QueryParserCache;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -46,6 +47,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
     private final QueryParserCache queryParserCache;
     private final IdCache idCache;
     private final DocSetCache docSetCache;
+    private final FixedBitSetFilterCache fixedBitSetFilterCache;
 
     private final TimeValue refreshInterval;
     private ClusterService clusterService;
@@ -55,12 +57,13 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
 
     @Inject
     public IndexCache(Index index, @IndexSettings Settings indexSettings, FilterCache filterCache, QueryParserCache queryParserCache, IdCache idCache,
-                      DocSetCache docSetCache) {
+                      DocSetCache docSetCache, FixedBitSetFilterCache fixedBitSetFilterCache) {
         super(index, indexSettings);
         this.filterCache = filterCache;
         this.queryParserCache = queryParserCache;
         this.idCache = idCache;
         this.docSetCache = docSetCache;
+        this.fixedBitSetFilterCache = fixedBitSetFilterCache;
 
         this.refreshInterval = componentSettings.getAsTime("stats.refresh_interval", TimeValue.timeValueSeconds(1));
 
@@ -77,7 +80,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
 
     public synchronized void invalidateStatsCache() {
         FilterCache.EntriesStats filterEntriesStats = filterCache.entriesStats();
-        latestCacheStats = new CacheStats(filterCache.evictions(), filterEntriesStats.sizeInBytes, filterEntriesStats.count, idCache.sizeInBytes());
+        latestCacheStats = new CacheStats(filterCache.evictions(), filterCache.admissions(), filterCache.rejections(), filterEntriesStats.sizeInBytes, filterEntriesStats.count, idCache.sizeInBytes());
         latestCacheStatsTimestamp = System.currentTimeMillis();
     }
 
@@ -85,7 +88,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         long timestamp = System.currentTimeMillis();
         if ((timestamp - latestCacheStatsTimestamp) > refreshInterval.millis()) {
             FilterCache.EntriesStats filterEntriesStats = filterCache.entriesStats();
-            latestCacheStats = new CacheStats(filterCache.evictions(), filterEntriesStats.sizeInBytes, filterEntriesStats.count, idCache.sizeInBytes());
+            latestCacheStats = new CacheStats(filterCache.evictions(), filterCache.admissions(), filterCache.rejections(), filterEntriesStats.sizeInBytes, filterEntriesStats.count, idCache.sizeInBytes());
             latestCacheStatsTimestamp = timestamp;
         }
         return latestCacheStats;
@@ -99,6 +102,10 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         return this.docSetCache;
     }
 
+    public FixedBitSetFilterCache fixedBitSetFilterCache() {
+        return this.fixedBitSetFilterCache;
+    }
+
     public IdCache idCache() {
         return this.idCache;
     }
@@ -113,6 +120,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         idCache.close();
         queryParserCache.close();
         docSetCache.clear("close");
+        fixedBitSetFilterCache.close();
         if (clusterService != null) {
             clusterService.remove(this);
         }
@@ -122,6 +130,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         filterCache.clear(reader);
         idCache.clear(reader);
         docSetCache.clear(reader);
+        fixedBitSetFilterCache.clear(reader);
     }
 
     public void clear(String reason) {
@@ -129,6 +138,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         idCache.clear();
         queryParserCache.clear();
         docSetCache.clear(reason);
+        fixedBitSetFilterCache.clear(reason);
     }
 
     @Override
@@ -52,4 +52,15 @@ public interface FilterCache extends IndexComponent, CloseableComponent {
     EntriesStats entriesStats();
 
     long evictions();
+
+    /**
+     * The number of filter results that were admitted into the cache.
+     */
+    long admissions();
+
+    /**
+     * The number of filter results that were executed without being cached, because the segment was
+     * too small or the filter not used often enough.
+     */
+    long rejections();
 }
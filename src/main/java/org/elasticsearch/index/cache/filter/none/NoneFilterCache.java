@@ -78,4 +78,14 @@ public class NoneFilterCache extends AbstractIndexComponent implements FilterCac
     public long evictions() {
         return 0;
     }
-}
\ No newline at end of file
+
+    @Override
+    public long admissions() {
+        return 0;
+    }
+
+    @Override
+    public long rejections() {
+        return 0;
+    }
+}
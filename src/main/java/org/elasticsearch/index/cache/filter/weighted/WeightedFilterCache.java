@@ -33,6 +33,7 @@ import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.common.lucene.docset.EliasFanoDocIdSet;
 import org.elasticsearch.common.lucene.search.CachedFilter;
 import org.elasticsearch.common.lucene.search.NoCacheFilter;
 import org.elasticsearch.common.metrics.CounterMetric;
@@ -57,6 +58,8 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
     final CounterMetric seenReadersCount = new CounterMetric();
 
     final CounterMetric evictionsMetric = new CounterMetric();
+    final CounterMetric admissionsMetric = new CounterMetric();
+    final CounterMetric rejectionsMetric = new CounterMetric();
     final MeanMetric totalMetric = new MeanMetric();
 
     @Inject
@@ -126,6 +129,16 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
         return evictionsMetric.count();
     }
 
+    @Override
+    public long admissions() {
+        return admissionsMetric.count();
+    }
+
+    @Override
+    public long rejections() {
+        return rejectionsMetric.count();
+    }
+
     @Override
     public Filter cache(Filter filterToCache) {
         if (filterToCache instanceof NoCacheFilter) {
@@ -160,6 +173,12 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
 
             DocIdSet cacheValue = innerCache.getIfPresent(cacheKey);
             if (cacheValue == null) {
+                // filters with an explicit cache key are managed by the user, and always cached
+                if (!(filter instanceof CacheKeyFilter) && !cache.indicesFilterCache.admit(cacheKey, context.reader().maxDoc())) {
+                    cache.rejectionsMetric.inc();
+                    return filter.getDocIdSet(context, acceptDocs);
+                }
+                cache.admissionsMetric.inc();
                 if (!cache.seenReaders.containsKey(context.reader().getCoreCacheKey())) {
                     Boolean previous = cache.seenReaders.putIfAbsent(context.reader().getCoreCacheKey(), Boolean.TRUE);
                     if (previous == null && (context.reader() instanceof SegmentReader)) {
@@ -170,7 +189,7 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
 
                 // we can't pass down acceptedDocs provided, because we are caching the result, and acceptedDocs
                 // might be specific to a query AST, we do pass down the live docs to make sure we optimize the execution
-                cacheValue = DocIdSets.toCacheable(context.reader(), filter.getDocIdSet(context, context.reader().getLiveDocs()));
+                cacheValue = DocIdSets.toCompactCacheable(context.reader(), filter.getDocIdSet(context, context.reader().getLiveDocs()));
                 // we might put the same one concurrently, that's fine, it will be replaced and the removal
                 // will be called
                 cache.totalMetric.inc(sizeInBytes(cacheValue));
@@ -223,6 +242,9 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
         if (set instanceof FixedBitSet) {
             return ((FixedBitSet) set).getBits().length * 8 + 16;
         }
+        if (set instanceof EliasFanoDocIdSet) {
+            return ((EliasFanoDocIdSet) set).sizeInBytes();
+        }
         // only for empty ones
         return 1;
     }
@@ -0,0 +1,245 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.fixedbitset;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.component.CloseableComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.object.ObjectMapper;
+import org.elasticsearch.index.search.nested.NonNestedDocsFilter;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.warmer.IndicesWarmer;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the {@link FixedBitSet} of a filter per segment (core cache key), used for the parent
+ * filters of nested queries, filters, sorting and facets. Unlike the generic filter cache, entries
+ * are never evicted while the segment is alive, and when the index has nested mappings the root and
+ * nested type bit sets are loaded when a new searcher is warmed, so the first nested request after a
+ * refresh does not pay for building them.
+ */
+public class FixedBitSetFilterCache extends AbstractIndexComponent implements SegmentReader.CoreClosedListener, CloseableComponent {
+
+    private final boolean loadEagerly;
+
+    private final ConcurrentMap<Object, ConcurrentMap<Filter, FixedBitSet>> loadedFilters = ConcurrentCollections.newConcurrentMap();
+
+    private final NestedParentsWarmer warmer = new NestedParentsWarmer();
+
+    private IndicesWarmer indicesWarmer;
+
+    private MapperService mapperService;
+
+    @Inject
+    public FixedBitSetFilterCache(Index index, @IndexSettings Settings indexSettings) {
+        super(index, indexSettings);
+        this.loadEagerly = componentSettings.getAsBoolean("load_eagerly", true);
+    }
+
+    @Inject(optional = true)
+    public void setIndicesWarmer(@Nullable IndicesWarmer indicesWarmer) {
+        this.indicesWarmer = indicesWarmer;
+        if (indicesWarmer != null && loadEagerly) {
+            indicesWarmer.addListener(warmer);
+        }
+    }
+
+    @Inject(optional = true)
+    public void setMapperService(@Nullable MapperService mapperService) {
+        this.mapperService = mapperService;
+    }
+
+    /**
+     * Wraps the provided filter so its per segment bit sets are loaded from (and kept in) this cache.
+     */
+    public FixedBitSetFilter getFixedBitSetFilter(Filter filter) {
+        if (filter instanceof FixedBitSetFilterWrapper) {
+            return (FixedBitSetFilter) filter;
+        }
+        return new FixedBitSetFilterWrapper(filter);
+    }
+
+    @Override
+    public void close() throws ElasticSearchException {
+        if (indicesWarmer != null) {
+            indicesWarmer.removeListener(warmer);
+        }
+        clear("close");
+    }
+
+    public void clear(String reason) {
+        logger.debug("clearing all fixed bitsets because [{}]", reason);
+        loadedFilters.clear();
+    }
+
+    public void clear(IndexReader reader) {
+        loadedFilters.remove(reader.getCoreCacheKey());
+    }
+
+    @Override
+    public void onClose(SegmentReader owner) {
+        clear(owner);
+    }
+
+    public long sizeInBytes() {
+        long sizeInBytes = 0;
+        for (ConcurrentMap<Filter, FixedBitSet> filters : loadedFilters.values()) {
+            for (FixedBitSet bitSet : filters.values()) {
+                sizeInBytes += bitSet.getBits().length * 8;
+            }
+        }
+        return sizeInBytes;
+    }
+
+    private FixedBitSet getAndLoadIfNotPresent(Filter filter, AtomicReaderContext context) throws IOException {
+        Object coreCacheKey = context.reader().getCoreCacheKey();
+        ConcurrentMap<Filter, FixedBitSet> filters = loadedFilters.get(coreCacheKey);
+        if (filters == null) {
+            filters = ConcurrentCollections.newConcurrentMap();
+            ConcurrentMap<Filter, FixedBitSet> existing = loadedFilters.putIfAbsent(coreCacheKey, filters);
+            if (existing != null) {
+                filters = existing;
+            } else if (context.reader() instanceof SegmentReader) {
+                ((SegmentReader) context.reader()).addCoreClosedListener(this);
+            }
+        }
+        FixedBitSet bitSet = filters.get(filter);
+        if (bitSet == null) {
+            bitSet = load(filter, context);
+            FixedBitSet existing = filters.putIfAbsent(filter, bitSet);
+            if (existing != null) {
+                bitSet = existing;
+            }
+        }
+        return bitSet;
+    }
+
+    private static FixedBitSet load(Filter filter, AtomicReaderContext context) throws IOException {
+        int maxDoc = context.reader().maxDoc();
+        DocIdSet docIdSet = filter.getDocIdSet(context, null);
+        if (DocIdSets.isEmpty(docIdSet)) {
+            return new FixedBitSet(maxDoc);
+        }
+        if (docIdSet instanceof FixedBitSet) {
+            return (FixedBitSet) docIdSet;
+        }
+        DocIdSetIterator iterator = docIdSet.iterator();
+        if (iterator == null) {
+            return new FixedBitSet(maxDoc);
+        }
+        return DocIdSets.toFixedBitSet(iterator, maxDoc);
+    }
+
+    final class FixedBitSetFilterWrapper extends FixedBitSetFilter {
+
+        final Filter filter;
+
+        FixedBitSetFilterWrapper(Filter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public FixedBitSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+            return getAndLoadIfNotPresent(filter, context);
+        }
+
+        @Override
+        public String toString() {
+            return "fixed_bitset(" + filter + ")";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FixedBitSetFilterWrapper)) {
+                return false;
+            }
+            return filter.equals(((FixedBitSetFilterWrapper) o).filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return filter.hashCode() ^ 0x1117BF26;
+        }
+    }
+
+    final class NestedParentsWarmer implements IndicesWarmer.Listener {
+
+        @Override
+        public String executor() {
+            return ThreadPool.Names.SEARCH;
+        }
+
+        @Override
+        public void warm(IndexShard indexShard, IndexMetaData indexMetaData, IndicesWarmer.WarmerContext warmerContext) {
+            if (!index.name().equals(indexShard.shardId().index().name())) {
+                return;
+            }
+            if (mapperService == null || !mapperService.hasNested()) {
+                return;
+            }
+            Set<Filter> warmUp = new HashSet<Filter>();
+            warmUp.add(NonNestedDocsFilter.INSTANCE);
+            for (DocumentMapper docMapper : mapperService) {
+                for (ObjectMapper objectMapper : docMapper.objectMappers().values()) {
+                    if (objectMapper.nested().isNested()) {
+                        warmUp.add(objectMapper.nestedTypeFilter());
+                    }
+                }
+            }
+            long now = System.nanoTime();
+            try {
+                for (AtomicReaderContext context : warmerContext.newSearcher().reader().leaves()) {
+                    for (Filter filter : warmUp) {
+                        getAndLoadIfNotPresent(filter, context);
+                    }
+                }
+                if (indexShard.warmerService().logger().isTraceEnabled()) {
+                    indexShard.warmerService().logger().trace("warmed fixed bitset filters, took [{}]", TimeValue.timeValueNanos(System.nanoTime() - now));
+                }
+            } catch (Throwable t) {
+                indexShard.warmerService().logger().warn("failed to warm fixed bitset filters", t);
+            }
+        }
+    }
+}
@@ -44,6 +44,29 @@ public interface IdReaderTypeCache {
      */
     HashedBytesArray idByDoc(int docId);
 
+    /**
+     * @param docId The Lucene docId of the child document to return the parent ordinal for.
+     * @return The ordinal of the parent _uid within this segment, <tt>0</tt> if the doc has no parent
+     */
+    int parentOrdByDoc(int docId);
+
+    /**
+     * @return The number of parent ordinals within this segment, including the <tt>0</tt> (no parent) ordinal
+     */
+    int numParentOrds();
+
+    /**
+     * @param parentOrd The parent ordinal, as returned by {@link #parentOrdByDoc(int)}
+     * @return The parent _uid of the ordinal
+     */
+    HashedBytesArray parentIdByOrd(int parentOrd);
+
+    /**
+     * @param parentOrd The parent ordinal, as returned by {@link #parentOrdByDoc(int)}
+     * @return The lucene docId of the parent document within this segment, <tt>-1</tt> if it is not in this segment
+     */
+    int docByParentOrd(int parentOrd);
+
     /**
      * @return The size in bytes for this particular instance
      */
@@ -0,0 +1,301 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id.compact;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PagedBytes;
+import org.apache.lucene.util.packed.GrowableWriter;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.id.IdCache;
+import org.elasticsearch.index.cache.id.IdReaderCache;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An id cache that, unlike {@link org.elasticsearch.index.cache.id.simple.SimpleIdCache}, does not hold an object
+ * per id. Per segment, the ids of each type (uids of its docs and parent ids of its children) are stored sorted in
+ * a single paged byte block and addressed by ordinal, with packed doc to ordinal and ordinal to doc arrays. Id to
+ * doc lookups are binary searches over the sorted ids.
+ * <p/>
+ * Segments are loaded one at a time, so a refresh only pays for the new segments. Can be enabled using
+ * <tt>index.cache.id.type: compact</tt>.
+ */
+public class CompactIdCache extends AbstractIndexComponent implements IdCache, SegmentReader.CoreClosedListener {
+
+    private final ConcurrentMap<Object, CompactIdReaderCache> idReaders;
+
+    private final float acceptableOverheadRatio;
+
+    @Inject
+    public CompactIdCache(Index index, @IndexSettings Settings indexSettings) {
+        super(index, indexSettings);
+        idReaders = ConcurrentCollections.newConcurrentMap();
+        this.acceptableOverheadRatio = componentSettings.getAsFloat("acceptable_overhead_ratio", PackedInts.DEFAULT);
+    }
+
+    @Override
+    public void close() throws ElasticSearchException {
+        clear();
+    }
+
+    @Override
+    public void clear() {
+        idReaders.clear();
+    }
+
+    @Override
+    public void onClose(SegmentReader owner) {
+        clear(owner);
+    }
+
+    @Override
+    public void clear(IndexReader reader) {
+        idReaders.remove(reader.getCoreCacheKey());
+    }
+
+    @Override
+    public IdReaderCache reader(AtomicReader reader) {
+        return idReaders.get(reader.getCoreCacheKey());
+    }
+
+    @SuppressWarnings({"unchecked"})
+    @Override
+    public Iterator<IdReaderCache> iterator() {
+        return (Iterator) idReaders.values().iterator();
+    }
+
+    @Override
+    public void refresh(List<AtomicReaderContext> atomicReaderContexts) throws Exception {
+        // do a quick check for the common case, that all are there
+        if (refreshNeeded(atomicReaderContexts)) {
+            synchronized (idReaders) {
+                for (AtomicReaderContext context : atomicReaderContexts) {
+                    AtomicReader reader = context.reader();
+                    if (idReaders.containsKey(reader.getCoreCacheKey())) {
+                        // no need, continue
+                        continue;
+                    }
+
+                    if (reader instanceof SegmentReader) {
+                        ((SegmentReader) reader).addCoreClosedListener(this);
+                    }
+                    CompactIdReaderCache readerCache = load(reader);
+                    idReaders.put(readerCache.readerCacheKey(), readerCache);
+                }
+            }
+        }
+    }
+
+    public long sizeInBytes() {
+        long sizeInBytes = 0;
+        for (CompactIdReaderCache idReaderCache : idReaders.values()) {
+            sizeInBytes += idReaderCache.sizeInBytes();
+        }
+        return sizeInBytes;
+    }
+
+    /**
+     * Loads a single segment. The <tt>_uid</tt> and <tt>_parent</tt> terms (both <tt>type#id</tt>) are merged in
+     * term order, which visits each type's ids contiguously and sorted, so ordinals can be assigned on the fly.
+     */
+    private CompactIdReaderCache load(AtomicReader reader) throws IOException {
+        final Bits liveDocs = reader.getLiveDocs();
+        final PagedBytes bytes = new PagedBytes(15);
+        final List<TypeBuilder> typeBuilders = new ArrayList<TypeBuilder>();
+
+        TermsEnum uidTermsEnum = termsEnum(reader, UidFieldMapper.NAME);
+        TermsEnum parentTermsEnum = termsEnum(reader, ParentFieldMapper.NAME);
+        BytesRef uid = uidTermsEnum == null ? null : uidTermsEnum.next();
+        BytesRef parent = parentTermsEnum == null ? null : parentTermsEnum.next();
+
+        TypeBuilder typeBuilder = null;
+        DocsEnum docsEnum = null;
+        BytesRef id = new BytesRef();
+        while (uid != null || parent != null) {
+            int cmp = uid == null ? 1 : parent == null ? -1 : uid.compareTo(parent);
+            BytesRef term = cmp <= 0 ? uid : parent;
+            int delimiter = delimiterIndex(term);
+            if (delimiter == -1) {
+                // not a type#id term, skip it
+                if (cmp <= 0) {
+                    uid = uidTermsEnum.next();
+                }
+                if (cmp >= 0) {
+                    parent = parentTermsEnum.next();
+                }
+                continue;
+            }
+            if (typeBuilder == null || !typeBuilder.sameType(term, delimiter)) {
+                typeBuilder = new TypeBuilder(new BytesRef(term.bytes, term.offset, delimiter - term.offset), reader.maxDoc(), acceptableOverheadRatio);
+                typeBuilders.add(typeBuilder);
+            }
+            id.bytes = term.bytes;
+            id.offset = delimiter + 1;
+            id.length = term.offset + term.length - id.offset;
+
+            // the ordinal is only allocated once a live doc is found, so fully deleted ids are not kept
+            int ord = 0;
+            if (cmp <= 0) {
+                docsEnum = uidTermsEnum.docs(liveDocs, docsEnum, DocsEnum.FLAG_NONE);
+                for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                    if (ord == 0) {
+                        ord = typeBuilder.nextOrd(bytes.copyUsingLengthPrefix(id));
+                    }
+                    typeBuilder.addDoc(ord, docId);
+                }
+            }
+            if (cmp >= 0) {
+                docsEnum = parentTermsEnum.docs(liveDocs, docsEnum, DocsEnum.FLAG_NONE);
+                for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                    if (ord == 0) {
+                        ord = typeBuilder.nextOrd(bytes.copyUsingLengthPrefix(id));
+                    }
+                    typeBuilder.addChild(ord, docId);
+                }
+            }
+
+            // only move the enums forward once done with the id, as it points into the current term
+            if (cmp <= 0) {
+                uid = uidTermsEnum.next();
+            }
+            if (cmp >= 0) {
+                parent = parentTermsEnum.next();
+            }
+        }
+
+        final long bytesSizeInBytes = bytes.getPointer();
+        PagedBytes.Reader bytesReader = bytes.freeze(true);
+        MapBuilder<String, CompactIdReaderTypeCache> types = MapBuilder.newMapBuilder();
+        for (TypeBuilder builder : typeBuilders) {
+            types.put(builder.type.utf8ToString(), builder.build(bytesReader));
+        }
+        return new CompactIdReaderCache(reader.getCoreCacheKey(), types.immutableMap(), bytesSizeInBytes);
+    }
+
+    private static TermsEnum termsEnum(AtomicReader reader, String field) throws IOException {
+        Terms terms = reader.terms(field);
+        if (terms == null) {
+            return null;
+        }
+        return terms.iterator(null);
+    }
+
+    private static int delimiterIndex(BytesRef term) {
+        final int end = term.offset + term.length;
+        for (int i = term.offset; i < end; i++) {
+            if (term.bytes[i] == Uid.DELIMITER_BYTE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean refreshNeeded(List<AtomicReaderContext> atomicReaderContexts) {
+        for (AtomicReaderContext atomicReaderContext : atomicReaderContexts) {
+            if (!idReaders.containsKey(atomicReaderContext.reader().getCoreCacheKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static class TypeBuilder {
+        final BytesRef type;
+        final int maxDoc;
+        final float acceptableOverheadRatio;
+        GrowableWriter ordToOffset;
+        GrowableWriter ordToDoc;
+        GrowableWriter docToOrd;
+        GrowableWriter docToParentOrd;
+        int numOrds = 1; // 0 indicates null value
+
+        TypeBuilder(BytesRef type, int maxDoc, float acceptableOverheadRatio) {
+            this.type = BytesRef.deepCopyOf(type);
+            this.maxDoc = maxDoc;
+            this.acceptableOverheadRatio = acceptableOverheadRatio;
+            this.ordToOffset = new GrowableWriter(1, 16, acceptableOverheadRatio);
+            this.ordToDoc = new GrowableWriter(1, 16, acceptableOverheadRatio);
+        }
+
+        boolean sameType(BytesRef term, int delimiter) {
+            if (delimiter - term.offset != type.length) {
+                return false;
+            }
+            for (int i = 0; i < type.length; i++) {
+                if (type.bytes[type.offset + i] != term.bytes[term.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int nextOrd(long offset) {
+            final int ord = numOrds++;
+            if (ord == ordToOffset.size()) {
+                final int newSize = ArrayUtil.oversize(ord + 1, 1);
+                ordToOffset = ordToOffset.resize(newSize);
+                ordToDoc = ordToDoc.resize(newSize);
+            }
+            ordToOffset.set(ord, offset);
+            return ord;
+        }
+
+        void addDoc(int ord, int docId) {
+            if (docToOrd == null) {
+                docToOrd = new GrowableWriter(1, maxDoc, acceptableOverheadRatio);
+            }
+            docToOrd.set(docId, ord);
+            ordToDoc.set(ord, docId + 1);
+        }
+
+        void addChild(int ord, int docId) {
+            if (docToParentOrd == null) {
+                docToParentOrd = new GrowableWriter(1, maxDoc, acceptableOverheadRatio);
+            }
+            docToParentOrd.set(docId, ord);
+        }
+
+        CompactIdReaderTypeCache build(PagedBytes.Reader bytes) {
+            return new CompactIdReaderTypeCache(type.utf8ToString(), bytes, numOrds,
+                    ordToOffset.resize(numOrds).getMutable(),
+                    ordToDoc.resize(numOrds).getMutable(),
+                    docToOrd == null ? null : docToOrd.getMutable(),
+                    docToParentOrd == null ? null : docToParentOrd.getMutable());
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id.compact;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PagedBytes;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+
+/**
+ * A per segment, per type id cache. The ids (both of docs of this type and parent ids of its children) are
+ * kept sorted in a shared {@link PagedBytes} block, addressed by ordinal (<tt>0</tt> means no value), with packed
+ * ord to doc and doc to ord arrays.
+ */
+public class CompactIdReaderTypeCache implements IdReaderTypeCache {
+
+    private final String type;
+
+    private final PagedBytes.Reader bytes;
+
+    private final int numOrds;
+
+    private final PackedInts.Reader ordToOffset;
+
+    // doc + 1 of the doc having the id, 0 if the id is not the uid of a (live) doc in this segment
+    private final PackedInts.Reader ordToDoc;
+
+    @Nullable
+    private final PackedInts.Reader docToOrd;
+
+    @Nullable
+    private final PackedInts.Reader docToParentOrd;
+
+    private long sizeInBytes = -1;
+
+    public CompactIdReaderTypeCache(String type, PagedBytes.Reader bytes, int numOrds, PackedInts.Reader ordToOffset, PackedInts.Reader ordToDoc,
+                                    @Nullable PackedInts.Reader docToOrd, @Nullable PackedInts.Reader docToParentOrd) {
+        this.type = type;
+        this.bytes = bytes;
+        this.numOrds = numOrds;
+        this.ordToOffset = ordToOffset;
+        this.ordToDoc = ordToDoc;
+        this.docToOrd = docToOrd;
+        this.docToParentOrd = docToParentOrd;
+    }
+
+    public String type() {
+        return this.type;
+    }
+
+    public HashedBytesArray parentIdByDoc(int docId) {
+        if (docToParentOrd == null) {
+            return null;
+        }
+        return idByOrd((int) docToParentOrd.get(docId));
+    }
+
+    public int docById(HashedBytesArray uid) {
+        return docByOrd(ordById(uid.array(), uid.arrayOffset(), uid.length(), new BytesRef()));
+    }
+
+    public HashedBytesArray idByDoc(int docId) {
+        if (docToOrd == null) {
+            return null;
+        }
+        return idByOrd((int) docToOrd.get(docId));
+    }
+
+    public int numParentOrds() {
+        // parent ids share the ordinals of the ids of the docs of this type
+        return numOrds;
+    }
+
+    public HashedBytesArray parentIdByOrd(int parentOrd) {
+        return idByOrd(parentOrd);
+    }
+
+    public int docByParentOrd(int parentOrd) {
+        return docByOrd(parentOrd);
+    }
+
+    /**
+     * The number of unique ids (of docs or parents) held for this type, including the <tt>0</tt> (no value) ordinal.
+     */
+    public int numOrds() {
+        return numOrds;
+    }
+
+    /**
+     * The ordinal of the id of the doc, <tt>0</tt> if the doc is not of this type.
+     */
+    public int ordByDoc(int docId) {
+        return docToOrd == null ? 0 : (int) docToOrd.get(docId);
+    }
+
+    /**
+     * The ordinal of the parent id of the (child) doc, <tt>0</tt> if the doc has no parent of this type.
+     */
+    public int parentOrdByDoc(int docId) {
+        return docToParentOrd == null ? 0 : (int) docToParentOrd.get(docId);
+    }
+
+    /**
+     * The doc having the id of the ordinal as its uid, <tt>-1</tt> if there is none in this segment.
+     */
+    public int docByOrd(int ord) {
+        if (ord == 0) {
+            return -1;
+        }
+        return (int) ordToDoc.get(ord) - 1;
+    }
+
+    /**
+     * Points the scratch at the id of the ordinal, without copying it out of the packed bytes.
+     *
+     * @return The scratch, or <tt>null</tt> for the <tt>0</tt> ordinal
+     */
+    public BytesRef idByOrd(int ord, BytesRef scratch) {
+        if (ord == 0) {
+            return null;
+        }
+        bytes.fill(scratch, ordToOffset.get(ord));
+        return scratch;
+    }
+
+    /**
+     * The ordinal of the id, <tt>0</tt> if it is not held for this type. The scratch is used to point at the
+     * ids compared against, so it can be reused across calls.
+     */
+    public int ordById(BytesRef id, BytesRef scratch) {
+        return ordById(id.bytes, id.offset, id.length, scratch);
+    }
+
+    public long sizeInBytes() {
+        if (sizeInBytes == -1) {
+            long sizeInBytes = ordToOffset.ramBytesUsed() + ordToDoc.ramBytesUsed();
+            if (docToOrd != null) {
+                sizeInBytes += docToOrd.ramBytesUsed();
+            }
+            if (docToParentOrd != null) {
+                sizeInBytes += docToParentOrd.ramBytesUsed();
+            }
+            this.sizeInBytes = sizeInBytes;
+        }
+        return sizeInBytes;
+    }
+
+    private HashedBytesArray idByOrd(int ord) {
+        if (ord == 0) {
+            return null;
+        }
+        // the returned id is kept by the callers (in sets, maps), so it has to own its bytes
+        BytesRef scratch = idByOrd(ord, new BytesRef());
+        byte[] id = new byte[scratch.length];
+        System.arraycopy(scratch.bytes, scratch.offset, id, 0, scratch.length);
+        return new HashedBytesArray(id);
+    }
+
+    private int ordById(byte[] id, int offset, int length, BytesRef scratch) {
+        int low = 1;
+        int high = numOrds - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            // filling only points the scratch at the packed bytes, the id is compared against them in place
+            bytes.fill(scratch, ordToOffset.get(mid));
+            int cmp = compare(scratch.bytes, scratch.offset, scratch.length, id, offset, length);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return 0;
+    }
+
+    // unsigned byte order, the same as BytesRef#compareTo the ids are sorted with
+    private static int compare(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+        int end = aOffset + Math.min(aLength, bLength);
+        for (int i = aOffset, j = bOffset; i < end; i++, j++) {
+            int cmp = (a[i] & 0xff) - (b[j] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return aLength - bLength;
+    }
+}
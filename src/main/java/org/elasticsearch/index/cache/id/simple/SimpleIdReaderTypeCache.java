@@ -68,6 +68,25 @@ public class SimpleIdReaderTypeCache implements IdReaderTypeCache {
         return docIdToId[docId];
     }
 
+    public int parentOrdByDoc(int docId) {
+        return parentIdsOrdinals[docId];
+    }
+
+    public int numParentOrds() {
+        return parentIdsValues.length;
+    }
+
+    public HashedBytesArray parentIdByOrd(int parentOrd) {
+        return parentIdsValues[parentOrd];
+    }
+
+    public int docByParentOrd(int parentOrd) {
+        if (parentOrd == 0) {
+            return -1;
+        }
+        return idToDoc.get(parentIdsValues[parentOrd]);
+    }
+
     public long sizeInBytes() {
         if (sizeInBytes == -1) {
             sizeInBytes = computeSizeInBytes();
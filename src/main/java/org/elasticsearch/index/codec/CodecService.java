@@ -29,6 +29,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.codec.postingsformat.PostingsFormatService;
+import org.elasticsearch.index.codec.storedfields.HighCompressionStoredFieldsCodec;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.settings.IndexSettings;
 
@@ -61,11 +62,15 @@ public class CodecService extends AbstractIndexComponent {
         this.postingsFormatService = postingsFormatService;
         this.mapperService = mapperService;
         MapBuilder<String, Codec> codecs = MapBuilder.<String, Codec>newMapBuilder();
+        Codec defaultCodec;
         if (mapperService == null) {
-            codecs.put("default", Codec.getDefault());
+            defaultCodec = Codec.getDefault();
         } else {
-            codecs.put("default", new PerFieldMappingPostingFormatCodec(mapperService, postingsFormatService.get("default").get()));
+            defaultCodec = new PerFieldMappingPostingFormatCodec(mapperService, postingsFormatService.get("default").get());
         }
+        codecs.put("default", defaultCodec);
+        // same as default, but compresses stored fields (_source) in large shared blocks
+        codecs.put("high_compression", new HighCompressionStoredFieldsCodec(defaultCodec));
         for (String codec : Codec.availableCodecs()) {
             codecs.put(codec, Codec.forName(codec));
         }
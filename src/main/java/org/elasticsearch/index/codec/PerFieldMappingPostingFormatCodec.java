@@ -19,10 +19,13 @@
 
 package org.elasticsearch.index.codec;
 
+import org.apache.lucene.codecs.DocValuesFormat;
 import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.diskdv.DiskDocValuesFormat;
 import org.apache.lucene.codecs.lucene42.Lucene42Codec;
 import org.elasticsearch.index.codec.postingsformat.PostingsFormatProvider;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.internal.ColumnFieldsMapper;
 
 /**
  * {@link PerFieldMappingPostingFormatCodec This postings format} is the default
@@ -31,12 +34,16 @@ import org.elasticsearch.index.mapper.MapperService;
  * allows users to change the low level postings format for individual fields
  * per index in real time via the mapping API. If no specific postings format is
  * configured for a specific field the default postings format is used.
+ * <p/>
+ * The {@link ColumnFieldsMapper _columns} doc values are written with the disk based doc values format, since
+ * the default one loads the binary values of a whole segment on heap.
  */
 // LUCENE UPGRADE: make sure to move to a new codec depending on the lucene version
 public class PerFieldMappingPostingFormatCodec extends Lucene42Codec {
 
     private final MapperService mapperService;
     private final PostingsFormat defaultPostingFormat;
+    private final DocValuesFormat columnsDocValuesFormat = new DiskDocValuesFormat();
 
     public PerFieldMappingPostingFormatCodec(MapperService mapperService, PostingsFormat defaultPostingFormat) {
         this.mapperService = mapperService;
@@ -48,4 +55,12 @@ public class PerFieldMappingPostingFormatCodec extends Lucene42Codec {
         PostingsFormatProvider postingsFormat = mapperService.indexName(field).mapper().postingsFormatProvider();
         return postingsFormat != null ? postingsFormat.get() : defaultPostingFormat;
     }
+
+    @Override
+    public DocValuesFormat getDocValuesFormatForField(String field) {
+        if (ColumnFieldsMapper.NAME.equals(field)) {
+            return columnsDocValuesFormat;
+        }
+        return super.getDocValuesFormatForField(field);
+    }
 }
@@ -184,6 +184,14 @@ public final class BloomFilterPostingsFormat extends PostingsFormat {
                 return filter;
             }
 
+            /**
+             * The wrapped terms, allowing to seek without consulting the bloom filter again once
+             * it has already been checked by the caller.
+             */
+            public Terms getDelegate() {
+                return delegateTerms;
+            }
+
             @Override
             public TermsEnum intersect(CompiledAutomaton compiled,
                                        final BytesRef startTerm) throws IOException {
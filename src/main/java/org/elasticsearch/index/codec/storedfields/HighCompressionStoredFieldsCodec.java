@@ -0,0 +1,53 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec.storedfields;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.FilterCodec;
+import org.apache.lucene.codecs.StoredFieldsFormat;
+import org.apache.lucene.codecs.lucene42.Lucene42Codec;
+
+/**
+ * A codec that delegates to another codec (the per field mapping codec when writing), and only
+ * replaces the stored fields format with {@link HighCompressionStoredFieldsFormat}.
+ * <p/>
+ * Segments written with it are read back using the no args constructor (loaded through SPI), which
+ * works since the per field postings and doc values formats are resolved from the segment itself.
+ */
+// LUCENE UPGRADE: make sure to move to a new codec depending on the lucene version
+public class HighCompressionStoredFieldsCodec extends FilterCodec {
+
+    public static final String CODEC_NAME = "XHighCompressionStoredFields";
+
+    private final StoredFieldsFormat storedFieldsFormat = new HighCompressionStoredFieldsFormat();
+
+    public HighCompressionStoredFieldsCodec() {
+        this(new Lucene42Codec());
+    }
+
+    public HighCompressionStoredFieldsCodec(Codec delegate) {
+        super(CODEC_NAME, delegate);
+    }
+
+    @Override
+    public StoredFieldsFormat storedFieldsFormat() {
+        return storedFieldsFormat;
+    }
+}
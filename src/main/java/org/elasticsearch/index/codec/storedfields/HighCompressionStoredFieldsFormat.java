@@ -0,0 +1,183 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec.storedfields;
+
+import org.apache.lucene.codecs.StoredFieldsFormat;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.codecs.StoredFieldsWriter;
+import org.apache.lucene.codecs.compressing.CompressingStoredFieldsFormat;
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.UnicodeUtil;
+import org.elasticsearch.common.lucene.Lucene;
+
+import java.io.IOException;
+
+/**
+ * A stored fields format that compresses documents in large shared blocks using deflate, instead of
+ * the fast LZ4 compression of the default format. Small and repetitive documents (like log events)
+ * compress much better when compressed together, since the redundancy across documents is used as well.
+ * Note, this only helps if the <tt>_source</tt> is not compressed per document as well.
+ * <p/>
+ * The writer records the raw size of the stored fields and the size of the compressed stored fields
+ * file of each segment as segment attributes, see {@link #rawSizeInBytes(SegmentInfo)} and
+ * {@link #sizeInBytes(SegmentInfo)}.
+ */
+public class HighCompressionStoredFieldsFormat extends StoredFieldsFormat {
+
+    public static final String FORMAT_NAME = "XHighCompressionStoredFields";
+
+    public static final int CHUNK_SIZE = 1 << 16;
+
+    static final String RAW_SIZE_ATTRIBUTE = HighCompressionStoredFieldsFormat.class.getSimpleName() + ".raw_size";
+    static final String SIZE_ATTRIBUTE = HighCompressionStoredFieldsFormat.class.getSimpleName() + ".size";
+
+    private final StoredFieldsFormat delegate = new CompressingStoredFieldsFormat(FORMAT_NAME, CompressionMode.HIGH_COMPRESSION, CHUNK_SIZE);
+
+    @Override
+    public StoredFieldsReader fieldsReader(Directory directory, SegmentInfo si, FieldInfos fn, IOContext context) throws IOException {
+        return delegate.fieldsReader(directory, si, fn, context);
+    }
+
+    @Override
+    public StoredFieldsWriter fieldsWriter(Directory directory, SegmentInfo si, IOContext context) throws IOException {
+        return new SizeTrackingStoredFieldsWriter(delegate.fieldsWriter(directory, si, context), directory, si);
+    }
+
+    /**
+     * The raw (uncompressed) size of the stored fields of the segment, or <tt>-1</tt> if the segment
+     * was not written using this format.
+     */
+    public static long rawSizeInBytes(SegmentInfo si) {
+        return longAttribute(si, RAW_SIZE_ATTRIBUTE);
+    }
+
+    /**
+     * The size of the compressed stored fields of the segment, or <tt>-1</tt> if the segment was not
+     * written using this format.
+     */
+    public static long sizeInBytes(SegmentInfo si) {
+        return longAttribute(si, SIZE_ATTRIBUTE);
+    }
+
+    private static long longAttribute(SegmentInfo si, String key) {
+        String value = si.getAttribute(key);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static class SizeTrackingStoredFieldsWriter extends StoredFieldsWriter {
+
+        private final StoredFieldsWriter delegate;
+        private final Directory directory;
+        private final SegmentInfo si;
+        // strings are stored as utf8, reused to compute their byte length
+        private final BytesRef scratch = new BytesRef();
+
+        private long rawSizeInBytes;
+        // false if the raw size is not known, for example when merging segments written by another format
+        private boolean rawSizeKnown = true;
+        private boolean aborted;
+
+        SizeTrackingStoredFieldsWriter(StoredFieldsWriter delegate, Directory directory, SegmentInfo si) {
+            this.delegate = delegate;
+            this.directory = directory;
+            this.si = si;
+        }
+
+        @Override
+        public void startDocument(int numStoredFields) throws IOException {
+            delegate.startDocument(numStoredFields);
+        }
+
+        @Override
+        public void finishDocument() throws IOException {
+            delegate.finishDocument();
+        }
+
+        @Override
+        public void writeField(FieldInfo info, IndexableField field) throws IOException {
+            if (field.binaryValue() != null) {
+                rawSizeInBytes += field.binaryValue().length;
+            } else if (field.stringValue() != null) {
+                String value = field.stringValue();
+                UnicodeUtil.UTF16toUTF8(value, 0, value.length(), scratch);
+                rawSizeInBytes += scratch.length;
+            } else if (field.numericValue() != null) {
+                rawSizeInBytes += 8;
+            }
+            delegate.writeField(info, field);
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            delegate.abort();
+        }
+
+        @Override
+        public void finish(FieldInfos fis, int numDocs) throws IOException {
+            delegate.finish(fis, numDocs);
+        }
+
+        @Override
+        public int merge(MergeState mergeState) throws IOException {
+            // compressed chunks are copied as is when merging, so we don't see the fields, derive the raw size
+            // from the merged segments instead, excluding the deleted docs
+            for (AtomicReader reader : mergeState.readers) {
+                long rawSize = -1;
+                if (reader instanceof SegmentReader) {
+                    SegmentInfoPerCommit info = Lucene.getSegmentInfo((SegmentReader) reader);
+                    if (info != null) {
+                        rawSize = rawSizeInBytes(info.info);
+                    }
+                }
+                if (rawSize < 0) {
+                    rawSizeKnown = false;
+                } else if (reader.maxDoc() > 0) {
+                    rawSizeInBytes += (long) (rawSize * ((double) reader.numDocs() / reader.maxDoc()));
+                }
+            }
+            return delegate.merge(mergeState);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+            if (aborted || !rawSizeKnown) {
+                return;
+            }
+            String fieldsFile = IndexFileNames.segmentFileName(si.name, "", "fdt");
+            if (directory.fileExists(fieldsFile)) {
+                si.putAttribute(RAW_SIZE_ATTRIBUTE, Long.toString(rawSizeInBytes));
+                si.putAttribute(SIZE_ATTRIBUTE, Long.toString(directory.fileLength(fieldsFile)));
+            }
+        }
+    }
+}
@@ -80,6 +80,12 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     GetResult get(Get get) throws EngineException;
 
+    /**
+     * Gets a batch of docs against a single searcher. The results loaded from the index don't hold the searcher
+     * themselves, the returned {@link MultiGetResult} must be released once they are all used.
+     */
+    MultiGetResult multiGet(Get[] gets) throws EngineException;
+
     Searcher searcher() throws EngineException;
 
     List<Segment> segments();
@@ -883,4 +889,28 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         }
     }
 
+    static class MultiGetResult {
+        private final GetResult[] results;
+        @Nullable
+        private final Searcher searcher;
+
+        public MultiGetResult(GetResult[] results, @Nullable Searcher searcher) {
+            this.results = results;
+            this.searcher = searcher;
+        }
+
+        /**
+         * The result of each get, in the order of the gets.
+         */
+        public GetResult[] results() {
+            return results;
+        }
+
+        public void release() {
+            if (searcher != null) {
+                searcher.release();
+            }
+        }
+    }
+
 }
@@ -0,0 +1,282 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.robin;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.CloseableThreadLocal;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.uid.UidField;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.codec.postingsformat.BloomFilter;
+import org.elasticsearch.index.codec.postingsformat.BloomFilterPostingsFormat;
+import org.elasticsearch.index.indexing.ShardIndexingService;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the version (and doc id) of a uid against the segments of a searcher. Each segment
+ * first consults the <tt>_uid</tt> bloom filter (when the segment was written with one), and only
+ * then seeks using a {@link TermsEnum} that is cached per thread and per segment core, so the
+ * indexing threads do not pay for pulling a new terms enum for every segment on every operation.
+ * <p/>
+ * Segments are visited newest first, since recently updated docs are more likely to live there.
+ * Lookup counts, bloom filter hits (segments skipped without a seek) and false positives (a seek
+ * that the bloom filter allowed but did not find the uid) are reported to the indexing stats.
+ */
+public class PerThreadUidLookup implements SegmentReader.CoreClosedListener {
+
+    private final ConcurrentMap<Object, SegmentUidLookup> segments = ConcurrentCollections.newConcurrentMap();
+
+    private final ShardIndexingService indexingService;
+
+    private volatile boolean closed;
+
+    public PerThreadUidLookup(ShardIndexingService indexingService) {
+        this.indexingService = indexingService;
+    }
+
+    /**
+     * Load the version for the uid from the reader, returning -1 if no doc exists, or -2 if
+     * no version is available (for backward comp.)
+     */
+    public long loadVersion(IndexReader reader, Term uid) throws IOException {
+        int bloomHits = 0;
+        int bloomFalsePositives = 0;
+        long version = -1;
+        try {
+            List<AtomicReaderContext> leaves = reader.leaves();
+            for (int i = leaves.size() - 1; i >= 0; i--) {
+                AtomicReaderContext context = leaves.get(i);
+                SegmentUidLookup segment = segmentLookup(context.reader());
+                if (segment.bloom != null && !segment.bloom.mightContain(uid.bytes())) {
+                    bloomHits++;
+                    continue;
+                }
+                TermsEnum termsEnum = segment.termsEnum();
+                if (termsEnum == null) {
+                    continue;
+                }
+                if (!termsEnum.seekExact(uid.bytes(), true)) {
+                    if (segment.bloom != null) {
+                        bloomFalsePositives++;
+                    }
+                    continue;
+                }
+                version = UidField.loadVersion(context, termsEnum);
+                // either -2 (its there, but no version associated), or an actual version
+                if (version != -1) {
+                    break;
+                }
+            }
+        } finally {
+            indexingService.uidLookup(bloomHits, bloomFalsePositives);
+        }
+        return version;
+    }
+
+    /**
+     * Loads the doc id and version of the uid from the reader, returning <tt>null</tt> if no
+     * doc exists.
+     */
+    @Nullable
+    public UidField.DocIdAndVersion loadDocIdAndVersion(IndexReader reader, Term uid) throws IOException {
+        int bloomHits = 0;
+        int bloomFalsePositives = 0;
+        try {
+            List<AtomicReaderContext> leaves = reader.leaves();
+            for (int i = leaves.size() - 1; i >= 0; i--) {
+                AtomicReaderContext context = leaves.get(i);
+                SegmentUidLookup segment = segmentLookup(context.reader());
+                if (segment.bloom != null && !segment.bloom.mightContain(uid.bytes())) {
+                    bloomHits++;
+                    continue;
+                }
+                TermsEnum termsEnum = segment.termsEnum();
+                if (termsEnum == null) {
+                    continue;
+                }
+                if (!termsEnum.seekExact(uid.bytes(), true)) {
+                    if (segment.bloom != null) {
+                        bloomFalsePositives++;
+                    }
+                    continue;
+                }
+                UidField.DocIdAndVersion docIdAndVersion = UidField.loadDocIdAndVersion(context, termsEnum);
+                if (docIdAndVersion != null && docIdAndVersion.docId != Lucene.NO_DOC) {
+                    return docIdAndVersion;
+                }
+            }
+            return null;
+        } finally {
+            indexingService.uidLookup(bloomHits, bloomFalsePositives);
+        }
+    }
+
+    /**
+     * Loads the doc id and version of a batch of uids from the reader, with <tt>null</tt> for the uids that
+     * don't exist. The uids are seeked in term order, so each segment is walked once by its terms enum moving
+     * forward, instead of seeking each uid on its own across all the segments.
+     */
+    public UidField.DocIdAndVersion[] loadDocIdsAndVersions(IndexReader reader, final Term[] uids) throws IOException {
+        UidField.DocIdAndVersion[] results = new UidField.DocIdAndVersion[uids.length];
+        Integer[] order = new Integer[uids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return uids[o1].bytes().compareTo(uids[o2].bytes());
+            }
+        });
+        int bloomHits = 0;
+        int bloomFalsePositives = 0;
+        int remaining = uids.length;
+        try {
+            List<AtomicReaderContext> leaves = reader.leaves();
+            for (int i = leaves.size() - 1; i >= 0 && remaining > 0; i--) {
+                AtomicReaderContext context = leaves.get(i);
+                SegmentUidLookup segment = segmentLookup(context.reader());
+                TermsEnum termsEnum = segment.termsEnum();
+                if (termsEnum == null) {
+                    continue;
+                }
+                for (int index : order) {
+                    if (results[index] != null) {
+                        continue;
+                    }
+                    BytesRef uid = uids[index].bytes();
+                    if (segment.bloom != null && !segment.bloom.mightContain(uid)) {
+                        bloomHits++;
+                        continue;
+                    }
+                    if (!termsEnum.seekExact(uid, true)) {
+                        if (segment.bloom != null) {
+                            bloomFalsePositives++;
+                        }
+                        continue;
+                    }
+                    UidField.DocIdAndVersion docIdAndVersion = UidField.loadDocIdAndVersion(context, termsEnum);
+                    if (docIdAndVersion != null && docIdAndVersion.docId != Lucene.NO_DOC) {
+                        results[index] = docIdAndVersion;
+                        remaining--;
+                    }
+                }
+            }
+            return results;
+        } finally {
+            indexingService.uidLookup(uids.length, bloomHits, bloomFalsePositives);
+        }
+    }
+
+    /**
+     * Releases all the cached terms enums, further lookups still work but will not be cached.
+     */
+    public void close() {
+        closed = true;
+        for (SegmentUidLookup segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    @Override
+    public void onClose(SegmentReader owner) {
+        SegmentUidLookup segment = segments.remove(owner.getCoreCacheKey());
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private SegmentUidLookup segmentLookup(AtomicReader reader) throws IOException {
+        Object coreKey = reader.getCoreCacheKey();
+        SegmentUidLookup segment = segments.get(coreKey);
+        if (segment != null) {
+            return segment;
+        }
+        Terms terms = reader.terms(UidFieldMapper.NAME);
+        if (closed || !(reader instanceof SegmentReader)) {
+            // we can't get notified when this reader goes away, don't cache anything for it
+            return new SegmentUidLookup(terms, false);
+        }
+        segment = new SegmentUidLookup(terms, true);
+        SegmentUidLookup existing = segments.putIfAbsent(coreKey, segment);
+        if (existing != null) {
+            segment.close();
+            return existing;
+        }
+        ((SegmentReader) reader).addCoreClosedListener(this);
+        return segment;
+    }
+
+    static class SegmentUidLookup {
+
+        @Nullable
+        final Terms terms;
+
+        @Nullable
+        final BloomFilter bloom;
+
+        @Nullable
+        private final CloseableThreadLocal<TermsEnum> termsEnums;
+
+        SegmentUidLookup(@Nullable Terms terms, boolean cacheTermsEnums) {
+            if (terms instanceof BloomFilterPostingsFormat.BloomFilteredFieldsProducer.BloomFilteredTerms) {
+                BloomFilterPostingsFormat.BloomFilteredFieldsProducer.BloomFilteredTerms bloomTerms = (BloomFilterPostingsFormat.BloomFilteredFieldsProducer.BloomFilteredTerms) terms;
+                // we check the bloom filter ourselves, so seek on the delegate and don't check it twice
+                this.terms = bloomTerms.getDelegate();
+                this.bloom = bloomTerms.getFilter();
+            } else {
+                this.terms = terms;
+                this.bloom = null;
+            }
+            this.termsEnums = cacheTermsEnums ? new CloseableThreadLocal<TermsEnum>() : null;
+        }
+
+        @Nullable
+        TermsEnum termsEnum() throws IOException {
+            if (terms == null) {
+                return null;
+            }
+            if (termsEnums == null) {
+                return terms.iterator(null);
+            }
+            TermsEnum termsEnum = termsEnums.get();
+            if (termsEnum == null) {
+                termsEnum = terms.iterator(null);
+                termsEnums.set(termsEnum);
+            }
+            return termsEnum;
+        }
+
+        void close() {
+            if (termsEnums != null) {
+                termsEnums.close();
+            }
+        }
+    }
+}
@@ -94,6 +94,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private final ThreadPool threadPool;
 
     private final ShardIndexingService indexingService;
+    private final PerThreadUidLookup uidLookup;
     private final IndexSettingsService indexSettingsService;
     @Nullable
     private final InternalIndicesWarmer warmer;
@@ -168,6 +169,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         this.threadPool = threadPool;
         this.indexSettingsService = indexSettingsService;
         this.indexingService = indexingService;
+        this.uidLookup = new PerThreadUidLookup(indexingService);
         this.warmer = (InternalIndicesWarmer) warmer;
         this.store = store;
         this.deletionPolicy = deletionPolicy;
@@ -304,37 +306,17 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     public GetResult get(Get get) throws EngineException {
         rwl.readLock().lock();
         try {
-            if (get.realtime()) {
-                VersionValue versionValue = versionMap.get(get.uid().text());
-                if (versionValue != null) {
-                    if (versionValue.delete()) {
-                        return GetResult.NOT_EXISTS;
-                    }
-                    if (!get.loadSource()) {
-                        return new GetResult(true, versionValue.version(), null);
-                    }
-                    byte[] data = translog.read(versionValue.translogLocation());
-                    if (data != null) {
-                        try {
-                            Translog.Source source = TranslogStreams.readSource(data);
-                            return new GetResult(true, versionValue.version(), source);
-                        } catch (IOException e) {
-                            // switched on us, read it from the reader
-                        }
-                    }
-                }
+            GetResult realtimeResult = realtimeGet(get);
+            if (realtimeResult != null) {
+                return realtimeResult;
             }
 
             // no version, get the version from the index, we know that we refresh on flush
             Searcher searcher = searcher();
             try {
-                List<AtomicReaderContext> readers = searcher.reader().leaves();
-                for (int i = 0; i < readers.size(); i++) {
-                    AtomicReaderContext readerContext = readers.get(i);
-                    UidField.DocIdAndVersion docIdAndVersion = UidField.loadDocIdAndVersion(readerContext, get.uid());
-                    if (docIdAndVersion != null && docIdAndVersion.docId != Lucene.NO_DOC) {
-                        return new GetResult(searcher, docIdAndVersion);
-                    }
+                UidField.DocIdAndVersion docIdAndVersion = uidLookup.loadDocIdAndVersion(searcher.reader(), get.uid());
+                if (docIdAndVersion != null) {
+                    return new GetResult(searcher, docIdAndVersion);
                 }
             } catch (Exception e) {
                 searcher.release();
@@ -348,6 +330,80 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    /**
+     * Serves a realtime get of a recently indexed doc from the version map (and translog), returns <tt>null</tt>
+     * if the doc needs to be loaded from the index.
+     */
+    @Nullable
+    private GetResult realtimeGet(Get get) {
+        if (!get.realtime()) {
+            return null;
+        }
+        VersionValue versionValue = versionMap.get(get.uid().text());
+        if (versionValue == null) {
+            return null;
+        }
+        if (versionValue.delete()) {
+            return GetResult.NOT_EXISTS;
+        }
+        if (!get.loadSource()) {
+            return new GetResult(true, versionValue.version(), null);
+        }
+        byte[] data = translog.read(versionValue.translogLocation());
+        if (data != null) {
+            try {
+                Translog.Source source = TranslogStreams.readSource(data);
+                return new GetResult(true, versionValue.version(), source);
+            } catch (IOException e) {
+                // switched on us, read it from the reader
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public MultiGetResult multiGet(Get[] gets) throws EngineException {
+        rwl.readLock().lock();
+        try {
+            GetResult[] results = new GetResult[gets.length];
+            // only the recently indexed docs are in the version map, the rest are looked up in the index at once
+            int[] pending = new int[gets.length];
+            int numPending = 0;
+            for (int i = 0; i < gets.length; i++) {
+                results[i] = realtimeGet(gets[i]);
+                if (results[i] == null) {
+                    pending[numPending++] = i;
+                }
+            }
+            if (numPending == 0) {
+                return new MultiGetResult(results, null);
+            }
+
+            Term[] uids = new Term[numPending];
+            for (int i = 0; i < numPending; i++) {
+                uids[i] = gets[pending[i]].uid();
+            }
+            Searcher searcher = searcher();
+            try {
+                UidField.DocIdAndVersion[] docIdsAndVersions = uidLookup.loadDocIdsAndVersions(searcher.reader(), uids);
+                for (int i = 0; i < numPending; i++) {
+                    if (docIdsAndVersions[i] == null) {
+                        results[pending[i]] = GetResult.NOT_EXISTS;
+                    } else {
+                        // the searcher is released once for all the results
+                        results[pending[i]] = new GetResult(null, docIdsAndVersions[i]);
+                    }
+                }
+            } catch (Exception e) {
+                searcher.release();
+                throw new EngineException(shardId(), "failed to load documents", e);
+            }
+            return new MultiGetResult(results, searcher);
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
     @Override
     public void create(Create create) throws EngineException {
         rwl.readLock().lock();
@@ -1260,6 +1316,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         closed = true;
         this.versionMap.clear();
         this.failedEngineListeners.clear();
+        this.uidLookup.close();
         try {
             if (searcherManager != null) {
                 searcherManager.close();
@@ -1295,16 +1352,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private long loadCurrentVersionFromIndex(Term uid) {
         Searcher searcher = searcher();
         try {
-            List<AtomicReaderContext> readers = searcher.reader().leaves();
-            for (int i = 0; i < readers.size(); i++) {
-                AtomicReaderContext readerContext = readers.get(i);
-                long version = UidField.loadVersion(readerContext, uid);
-                // either -2 (its there, but no version associated), or an actual version
-                if (version != -1) {
-                    return version;
-                }
-            }
-            return -1;
+            return uidLookup.loadVersion(searcher.reader(), uid);
+        } catch (IOException e) {
+            throw new EngineException(shardId, "failed to load version for uid [" + uid.text() + "]", e);
         } finally {
             searcher.release();
         }
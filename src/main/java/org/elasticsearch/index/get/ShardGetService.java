@@ -22,12 +22,15 @@ package org.elasticsearch.index.get;
 import com.google.common.collect.Sets;
 import org.apache.lucene.index.Term;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchParseException;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.uid.UidField;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.fieldvisitor.CustomFieldsVisitor;
@@ -47,6 +50,8 @@ import org.elasticsearch.search.lookup.SourceLookup;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -138,6 +143,95 @@ public class ShardGetService extends AbstractIndexShardComponent {
         }
     }
 
+    /**
+     * Gets a batch of docs. The docs with a type are looked up together with a single {@link IndexShard#multiGet(Engine.Get[])},
+     * and then loaded in doc id order, so the stored fields of each segment are read moving forward. The docs without a
+     * type need to be looked up per type, and go through {@link #get(String, String, String[], boolean)}.
+     * <p/>
+     * The failure to get a specific doc is set in <tt>failures</tt>, and its result is left <tt>null</tt>.
+     */
+    public GetResult[] multiGet(String[] types, String[] ids, String[][] gFields, boolean realtime, Throwable[] failures) throws ElasticSearchException {
+        GetResult[] results = new GetResult[ids.length];
+        int[] batched = new int[ids.length];
+        int numBatched = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (types[i] == null || types[i].equals("_all")) {
+                try {
+                    results[i] = get(types[i], ids[i], gFields[i], realtime);
+                } catch (Exception e) {
+                    failures[i] = e;
+                }
+            } else {
+                batched[numBatched++] = i;
+            }
+        }
+        if (numBatched == 0) {
+            return results;
+        }
+
+        currentMetric.inc(numBatched);
+        try {
+            long now = System.nanoTime();
+            Engine.Get[] gets = new Engine.Get[numBatched];
+            for (int i = 0; i < numBatched; i++) {
+                int index = batched[i];
+                boolean loadSource = gFields[index] == null || gFields[index].length > 0;
+                gets[i] = new Engine.Get(realtime, new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(types[index], ids[index]))).loadSource(loadSource);
+            }
+            Engine.MultiGetResult multiGet = indexShard.multiGet(gets);
+            try {
+                final Engine.GetResult[] engineResults = multiGet.results();
+                Integer[] order = new Integer[numBatched];
+                for (int i = 0; i < numBatched; i++) {
+                    order[i] = i;
+                }
+                // the ones not loaded from the index first, then by their top level doc id
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer o1, Integer o2) {
+                        UidField.DocIdAndVersion docIdAndVersion1 = engineResults[o1].docIdAndVersion();
+                        UidField.DocIdAndVersion docIdAndVersion2 = engineResults[o2].docIdAndVersion();
+                        int docId1 = docIdAndVersion1 == null ? -1 : docIdAndVersion1.reader.docBase + docIdAndVersion1.docId;
+                        int docId2 = docIdAndVersion2 == null ? -1 : docIdAndVersion2.reader.docBase + docIdAndVersion2.docId;
+                        return docId1 < docId2 ? -1 : (docId1 == docId2 ? 0 : 1);
+                    }
+                });
+                for (int i : order) {
+                    int index = batched[i];
+                    Engine.GetResult get = engineResults[i];
+                    try {
+                        DocumentMapper docMapper = mapperService.documentMapper(types[index]);
+                        if (!get.exists() || docMapper == null) {
+                            results[index] = new GetResult(shardId.index().name(), types[index], ids[index], -1, false, null, null);
+                        } else {
+                            results[index] = innerGet(types[index], ids[index], gFields[index], get, docMapper);
+                        }
+                    } catch (Exception e) {
+                        failures[index] = e;
+                    }
+                }
+            } finally {
+                multiGet.release();
+            }
+            // the lookup is shared, so each doc accounts for an even part of the batch
+            long took = (System.nanoTime() - now) / numBatched;
+            for (int i = 0; i < numBatched; i++) {
+                GetResult getResult = results[batched[i]];
+                if (getResult == null) {
+                    continue;
+                }
+                if (getResult.isExists()) {
+                    existsMetric.inc(took);
+                } else {
+                    missingMetric.inc(took);
+                }
+            }
+            return results;
+        } finally {
+            currentMetric.dec(numBatched);
+        }
+    }
+
     public GetResult innerGet(String type, String id, String[] gFields, boolean realtime) throws ElasticSearchException {
         boolean loadSource = gFields == null || gFields.length > 0;
         Engine.GetResult get = null;
@@ -173,107 +267,114 @@ public class ShardGetService extends AbstractIndexShardComponent {
         }
 
         try {
-            // break between having loaded it from translog (so we only have _source), and having a document to load
-            if (get.docIdAndVersion() != null) {
-                return innerGetLoadFromStoredFields(type, id, gFields, get, docMapper);
-            } else {
-                Translog.Source source = get.source();
+            return innerGet(type, id, gFields, get, docMapper);
+        } finally {
+            get.release();
+        }
+    }
+
+    /**
+     * Builds the result of an engine get that exists, the caller is responsible for releasing it.
+     */
+    private GetResult innerGet(String type, String id, String[] gFields, Engine.GetResult get, DocumentMapper docMapper) {
+        // break between having loaded it from translog (so we only have _source), and having a document to load
+        if (get.docIdAndVersion() != null) {
+            return innerGetLoadFromStoredFields(type, id, gFields, get, docMapper);
+        } else {
+            Translog.Source source = get.source();
 
-                Map<String, GetField> fields = null;
-                boolean sourceRequested = false;
+            Map<String, GetField> fields = null;
+            boolean sourceRequested = false;
 
-                // we can only load scripts that can run against the source
-                if (gFields == null) {
-                    sourceRequested = true;
-                } else if (gFields.length == 0) {
-                    // no fields, and no source
-                    sourceRequested = false;
-                } else {
-                    Map<String, Object> sourceAsMap = null;
-                    SearchLookup searchLookup = null;
-                    for (String field : gFields) {
-                        if (field.equals("_source")) {
-                            sourceRequested = true;
-                            continue;
+            // we can only load scripts that can run against the source
+            if (gFields == null) {
+                sourceRequested = true;
+            } else if (gFields.length == 0) {
+                // no fields, and no source
+                sourceRequested = false;
+            } else {
+                Map<String, Object> sourceAsMap = null;
+                SearchLookup searchLookup = null;
+                Map<String, Object> extractedSource = null;
+                for (String field : gFields) {
+                    if (field.equals("_source")) {
+                        sourceRequested = true;
+                        continue;
+                    }
+                    Object value = null;
+                    if (field.equals(RoutingFieldMapper.NAME) && docMapper.routingFieldMapper().fieldType().stored()) {
+                        value = source.routing;
+                    } else if (field.equals(ParentFieldMapper.NAME) && docMapper.parentFieldMapper() != null && docMapper.parentFieldMapper().fieldType().stored()) {
+                        value = source.parent;
+                    } else if (field.equals(TimestampFieldMapper.NAME) && docMapper.timestampFieldMapper().fieldType().stored()) {
+                        value = source.timestamp;
+                    } else if (field.equals(TTLFieldMapper.NAME) && docMapper.TTLFieldMapper().fieldType().stored()) {
+                        // Call value for search with timestamp + ttl here to display the live remaining ttl value and be consistent with the search result display
+                        if (source.ttl > 0) {
+                            value = docMapper.TTLFieldMapper().valueForSearch(source.timestamp + source.ttl);
                         }
-                        Object value = null;
-                        if (field.equals(RoutingFieldMapper.NAME) && docMapper.routingFieldMapper().fieldType().stored()) {
-                            value = source.routing;
-                        } else if (field.equals(ParentFieldMapper.NAME) && docMapper.parentFieldMapper() != null && docMapper.parentFieldMapper().fieldType().stored()) {
-                            value = source.parent;
-                        } else if (field.equals(TimestampFieldMapper.NAME) && docMapper.timestampFieldMapper().fieldType().stored()) {
-                            value = source.timestamp;
-                        } else if (field.equals(TTLFieldMapper.NAME) && docMapper.TTLFieldMapper().fieldType().stored()) {
-                            // Call value for search with timestamp + ttl here to display the live remaining ttl value and be consistent with the search result display
-                            if (source.ttl > 0) {
-                                value = docMapper.TTLFieldMapper().valueForSearch(source.timestamp + source.ttl);
+                    } else if (field.equals(SizeFieldMapper.NAME) && docMapper.rootMapper(SizeFieldMapper.class).fieldType().stored()) {
+                        value = source.source.length();
+                    } else {
+                        if (field.contains("_source.")) {
+                            if (searchLookup == null) {
+                                searchLookup = new SearchLookup(mapperService, fieldDataService, new String[]{type});
                             }
-                        } else if (field.equals(SizeFieldMapper.NAME) && docMapper.rootMapper(SizeFieldMapper.class).fieldType().stored()) {
-                            value = source.source.length();
-                        } else {
-                            if (field.contains("_source.")) {
-                                if (searchLookup == null) {
-                                    searchLookup = new SearchLookup(mapperService, fieldDataService, new String[]{type});
-                                }
-                                if (sourceAsMap == null) {
-                                    sourceAsMap = SourceLookup.sourceAsMap(source.source);
-                                }
-                                SearchScript searchScript = scriptService.search(searchLookup, "mvel", field, null);
-                                // we can't do this, only allow to run scripts against the source
-                                //searchScript.setNextReader(docIdAndVersion.reader);
-                                //searchScript.setNextDocId(docIdAndVersion.docId);
-
-                                // but, we need to inject the parsed source into the script, so it will be used...
-                                searchScript.setNextSource(sourceAsMap);
-
-                                try {
-                                    value = searchScript.run();
-                                } catch (RuntimeException e) {
-                                    if (logger.isTraceEnabled()) {
-                                        logger.trace("failed to execute get request script field [{}]", e, field);
-                                    }
-                                    // ignore
+                            if (sourceAsMap == null) {
+                                sourceAsMap = SourceLookup.sourceAsMap(source.source);
+                            }
+                            SearchScript searchScript = scriptService.search(searchLookup, "mvel", field, null);
+                            // we can't do this, only allow to run scripts against the source
+                            //searchScript.setNextReader(docIdAndVersion.reader);
+                            //searchScript.setNextDocId(docIdAndVersion.docId);
+
+                            // but, we need to inject the parsed source into the script, so it will be used...
+                            searchScript.setNextSource(sourceAsMap);
+
+                            try {
+                                value = searchScript.run();
+                            } catch (RuntimeException e) {
+                                if (logger.isTraceEnabled()) {
+                                    logger.trace("failed to execute get request script field [{}]", e, field);
                                 }
-                            } else {
-                                if (searchLookup == null) {
-                                    searchLookup = new SearchLookup(mapperService, fieldDataService, new String[]{type});
-                                    searchLookup.source().setNextSource(source.source);
+                                // ignore
+                            }
+                        } else {
+                            FieldMapper<?> x = docMapper.mappers().smartNameFieldMapper(field);
+                            // only if the field is stored or source is enabled we should add it..
+                            if (docMapper.sourceMapper().enabled() || x == null || x.fieldType().stored()) {
+                                if (extractedSource == null) {
+                                    // stream only the requested fields out of the source, instead of parsing all of it
+                                    extractedSource = filterSource(source.source, gFields);
                                 }
-
-                                FieldMapper<?> x = docMapper.mappers().smartNameFieldMapper(field);
-                                // only if the field is stored or source is enabled we should add it..
-                                if (docMapper.sourceMapper().enabled() || x == null || x.fieldType().stored()) {
-                                    value = searchLookup.source().extractValue(field);
-                                    // normalize the data if needed (mainly for binary fields, to convert from base64 strings to bytes)
-                                    if (value != null && x != null) {
-                                        value = x.valueForSearch(value);
-                                    }
+                                value = XContentMapValues.extractValue(field, extractedSource);
+                                // normalize the data if needed (mainly for binary fields, to convert from base64 strings to bytes)
+                                if (value != null && x != null) {
+                                    value = x.valueForSearch(value);
                                 }
                             }
                         }
-                        if (value != null) {
-                            if (fields == null) {
-                                fields = newHashMapWithExpectedSize(2);
-                            }
-                            GetField getField = fields.get(field);
-                            if (getField == null) {
-                                getField = new GetField(field, new ArrayList<Object>(2));
-                                fields.put(field, getField);
-                            }
-                            getField.getValues().add(value);
+                    }
+                    if (value != null) {
+                        if (fields == null) {
+                            fields = newHashMapWithExpectedSize(2);
+                        }
+                        GetField getField = fields.get(field);
+                        if (getField == null) {
+                            getField = new GetField(field, new ArrayList<Object>(2));
+                            fields.put(field, getField);
                         }
+                        getField.getValues().add(value);
                     }
                 }
+            }
 
-                // if source is not enabled, don't return it even though we have it from the translog
-                if (sourceRequested && !docMapper.sourceMapper().enabled()) {
-                    sourceRequested = false;
-                }
-
-                return new GetResult(shardId.index().name(), type, id, get.version(), get.exists(), sourceRequested ? source.source : null, fields);
+            // if source is not enabled, don't return it even though we have it from the translog
+            if (sourceRequested && !docMapper.sourceMapper().enabled()) {
+                sourceRequested = false;
             }
-        } finally {
-            get.release();
+
+            return new GetResult(shardId.index().name(), type, id, get.version(), get.exists(), sourceRequested ? source.source : null, fields);
         }
     }
 
@@ -302,6 +403,7 @@ public class ShardGetService extends AbstractIndexShardComponent {
         // now, go and do the script thingy if needed
         if (gFields != null && gFields.length > 0) {
             SearchLookup searchLookup = null;
+            Map<String, Object> extractedSource = null;
             for (String field : gFields) {
                 Object value = null;
                 if (field.contains("_source.") || field.contains("doc[")) {
@@ -323,12 +425,17 @@ public class ShardGetService extends AbstractIndexShardComponent {
                 } else {
                     FieldMappers x = docMapper.mappers().smartName(field);
                     if (x == null || !x.mapper().fieldType().stored()) {
-                        if (searchLookup == null) {
-                            searchLookup = new SearchLookup(mapperService, fieldDataService, new String[]{type});
-                            searchLookup.setNextReader(docIdAndVersion.reader);
-                            searchLookup.setNextDocId(docIdAndVersion.docId);
+                        if (extractedSource == null) {
+                            if (source != null) {
+                                extractedSource = filterSource(source, gFields);
+                            } else {
+                                SourceLookup sourceLookup = new SourceLookup();
+                                sourceLookup.setNextReader(docIdAndVersion.reader);
+                                sourceLookup.setNextDocId(docIdAndVersion.docId);
+                                extractedSource = (Map<String, Object>) sourceLookup.filter(XContentMapValues.extractIncludes(gFields), Strings.EMPTY_ARRAY);
+                            }
                         }
-                        value = searchLookup.source().extractValue(field);
+                        value = XContentMapValues.extractValue(field, extractedSource);
                         // normalize the data if needed (mainly for binary fields, to convert from base64 strings to bytes)
                         if (value != null && x != null) {
                             value = x.mapper().valueForSearch(value);
@@ -353,6 +460,14 @@ public class ShardGetService extends AbstractIndexShardComponent {
         return new GetResult(shardId.index().name(), type, id, get.version(), get.exists(), source, fields);
     }
 
+    private static Map<String, Object> filterSource(BytesReference source, String[] fields) {
+        try {
+            return XContentMapValues.filter(source, XContentMapValues.extractIncludes(fields), Strings.EMPTY_ARRAY);
+        } catch (IOException e) {
+            throw new ElasticSearchParseException("failed to filter source", e);
+        }
+    }
+
     private static FieldsVisitor buildFieldsVisitors(String... fields) {
         if (fields == null) {
             return new JustSourceFieldsVisitor();
@@ -46,17 +46,25 @@ public class IndexingStats implements Streamable, ToXContent {
         private long deleteTimeInMillis;
         private long deleteCurrent;
 
+        private long uidLookupCount;
+        private long uidLookupBloomHits;
+        private long uidLookupBloomFalsePositives;
+
         Stats() {
 
         }
 
-        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long deleteCount, long deleteTimeInMillis, long deleteCurrent) {
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long deleteCount, long deleteTimeInMillis, long deleteCurrent,
+                     long uidLookupCount, long uidLookupBloomHits, long uidLookupBloomFalsePositives) {
             this.indexCount = indexCount;
             this.indexTimeInMillis = indexTimeInMillis;
             this.indexCurrent = indexCurrent;
             this.deleteCount = deleteCount;
             this.deleteTimeInMillis = deleteTimeInMillis;
             this.deleteCurrent = deleteCurrent;
+            this.uidLookupCount = uidLookupCount;
+            this.uidLookupBloomHits = uidLookupBloomHits;
+            this.uidLookupBloomFalsePositives = uidLookupBloomFalsePositives;
         }
 
         public void add(Stats stats) {
@@ -67,6 +75,10 @@ public class IndexingStats implements Streamable, ToXContent {
             deleteCount += stats.deleteCount;
             deleteTimeInMillis += stats.deleteTimeInMillis;
             deleteCurrent += stats.deleteCurrent;
+
+            uidLookupCount += stats.uidLookupCount;
+            uidLookupBloomHits += stats.uidLookupBloomHits;
+            uidLookupBloomFalsePositives += stats.uidLookupBloomFalsePositives;
         }
 
         public long getIndexCount() {
@@ -101,6 +113,27 @@ public class IndexingStats implements Streamable, ToXContent {
             return deleteCurrent;
         }
 
+        /**
+         * The number of uid lookups done against the index (versioned index / create / delete and realtime get).
+         */
+        public long getUidLookupCount() {
+            return uidLookupCount;
+        }
+
+        /**
+         * The number of segments skipped during uid lookups thanks to the bloom filter.
+         */
+        public long getUidLookupBloomHits() {
+            return uidLookupBloomHits;
+        }
+
+        /**
+         * The number of segments the bloom filter allowed to seek on during uid lookups without holding the uid.
+         */
+        public long getUidLookupBloomFalsePositives() {
+            return uidLookupBloomFalsePositives;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -116,6 +149,10 @@ public class IndexingStats implements Streamable, ToXContent {
             deleteCount = in.readVLong();
             deleteTimeInMillis = in.readVLong();
             deleteCurrent = in.readVLong();
+
+            uidLookupCount = in.readVLong();
+            uidLookupBloomHits = in.readVLong();
+            uidLookupBloomFalsePositives = in.readVLong();
         }
 
         @Override
@@ -127,6 +164,10 @@ public class IndexingStats implements Streamable, ToXContent {
             out.writeVLong(deleteCount);
             out.writeVLong(deleteTimeInMillis);
             out.writeVLong(deleteCurrent);
+
+            out.writeVLong(uidLookupCount);
+            out.writeVLong(uidLookupBloomHits);
+            out.writeVLong(uidLookupBloomFalsePositives);
         }
 
         @Override
@@ -141,6 +182,10 @@ public class IndexingStats implements Streamable, ToXContent {
             builder.field(Fields.DELETE_TIME_IN_MILLIS, deleteTimeInMillis);
             builder.field(Fields.DELETE_CURRENT, deleteCurrent);
 
+            builder.field(Fields.UID_LOOKUP_TOTAL, uidLookupCount);
+            builder.field(Fields.UID_LOOKUP_BLOOM_HITS, uidLookupBloomHits);
+            builder.field(Fields.UID_LOOKUP_BLOOM_FALSE_POSITIVES, uidLookupBloomFalsePositives);
+
             return builder;
         }
     }
@@ -220,6 +265,9 @@ public class IndexingStats implements Streamable, ToXContent {
         static final XContentBuilderString DELETE_TIME = new XContentBuilderString("delete_time");
         static final XContentBuilderString DELETE_TIME_IN_MILLIS = new XContentBuilderString("delete_time_in_millis");
         static final XContentBuilderString DELETE_CURRENT = new XContentBuilderString("delete_current");
+        static final XContentBuilderString UID_LOOKUP_TOTAL = new XContentBuilderString("uid_lookup_total");
+        static final XContentBuilderString UID_LOOKUP_BLOOM_HITS = new XContentBuilderString("uid_lookup_bloom_hits");
+        static final XContentBuilderString UID_LOOKUP_BLOOM_FALSE_POSITIVES = new XContentBuilderString("uid_lookup_bloom_false_positives");
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
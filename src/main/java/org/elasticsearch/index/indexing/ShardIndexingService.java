@@ -250,6 +250,25 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         }
     }
 
+    /**
+     * Records a uid lookup against the index, along with the number of segments the bloom filter
+     * allowed to skip, and the number of segments it allowed to seek on but did not have the uid.
+     * Tracked on the shard level only.
+     */
+    public void uidLookup(long bloomHits, long bloomFalsePositives) {
+        uidLookup(1, bloomHits, bloomFalsePositives);
+    }
+
+    public void uidLookup(long lookups, long bloomHits, long bloomFalsePositives) {
+        totalStats.uidLookupMetric.inc(lookups);
+        if (bloomHits > 0) {
+            totalStats.uidLookupBloomHits.inc(bloomHits);
+        }
+        if (bloomFalsePositives > 0) {
+            totalStats.uidLookupBloomFalsePositives.inc(bloomFalsePositives);
+        }
+    }
+
     public void clear() {
         totalStats.clear();
         synchronized (this) {
@@ -285,11 +304,15 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public final MeanMetric deleteMetric = new MeanMetric();
         public final CounterMetric indexCurrent = new CounterMetric();
         public final CounterMetric deleteCurrent = new CounterMetric();
+        public final CounterMetric uidLookupMetric = new CounterMetric();
+        public final CounterMetric uidLookupBloomHits = new CounterMetric();
+        public final CounterMetric uidLookupBloomFalsePositives = new CounterMetric();
 
         public IndexingStats.Stats stats() {
             return new IndexingStats.Stats(
                     indexMetric.count(), TimeUnit.NANOSECONDS.toMillis(indexMetric.sum()), indexCurrent.count(),
-                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count());
+                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count(),
+                    uidLookupMetric.count(), uidLookupBloomHits.count(), uidLookupBloomFalsePositives.count());
         }
 
         public long totalCurrent() {
@@ -299,6 +322,9 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public void clear() {
             indexMetric.clear();
             deleteMetric.clear();
+            uidLookupMetric.clear();
+            uidLookupBloomHits.clear();
+            uidLookupBloomFalsePositives.clear();
         }
     }
 }
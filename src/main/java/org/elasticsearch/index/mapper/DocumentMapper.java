@@ -174,6 +174,7 @@ public class DocumentMapper implements ToXContent {
             this.rootMappers.put(TimestampFieldMapper.class, new TimestampFieldMapper());
             this.rootMappers.put(TTLFieldMapper.class, new TTLFieldMapper());
             this.rootMappers.put(UidFieldMapper.class, new UidFieldMapper());
+            this.rootMappers.put(ColumnFieldsMapper.class, new ColumnFieldsMapper());
             // don't add parent field, by default its "null"
         }
 
@@ -220,6 +221,8 @@ public class DocumentMapper implements ToXContent {
 
         public DocumentMapper build(DocumentMapperParser docMapperParser) {
             Preconditions.checkNotNull(rootObjectMapper, "Mapper builder must have the root object mapper set");
+            // the column is built from the fields of the doc, so it goes after all the other root mappers (like _parent)
+            rootMappers.put(ColumnFieldsMapper.class, rootMappers.remove(ColumnFieldsMapper.class));
             return new DocumentMapper(index, indexSettings, docMapperParser, rootObjectMapper, meta,
                     indexAnalyzer, searchAnalyzer, searchQuoteAnalyzer,
                     rootMappers);
@@ -402,6 +405,10 @@ public class DocumentMapper implements ToXContent {
         return rootMapper(TTLFieldMapper.class);
     }
 
+    public ColumnFieldsMapper columnFieldsMapper() {
+        return rootMapper(ColumnFieldsMapper.class);
+    }
+
     public Analyzer indexAnalyzer() {
         return this.indexAnalyzer;
     }
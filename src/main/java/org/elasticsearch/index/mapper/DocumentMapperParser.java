@@ -116,6 +116,7 @@ public class DocumentMapperParser extends AbstractIndexComponent {
                 .put(TTLFieldMapper.NAME, new TTLFieldMapper.TypeParser())
                 .put(UidFieldMapper.NAME, new UidFieldMapper.TypeParser())
                 .put(IdFieldMapper.NAME, new IdFieldMapper.TypeParser())
+                .put(ColumnFieldsMapper.NAME, new ColumnFieldsMapper.TypeParser())
                 .immutableMap();
     }
 
@@ -229,6 +230,7 @@ public class DocumentMapperParser extends AbstractIndexComponent {
         docBuilder.meta(attributes);
 
         DocumentMapper documentMapper = docBuilder.build(this);
+        documentMapper.columnFieldsMapper().validateFields(documentMapper.mappers());
         // update the source with the generated one
         documentMapper.refreshSource();
         return documentMapper;
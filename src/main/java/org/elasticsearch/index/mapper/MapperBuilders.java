@@ -85,6 +85,10 @@ public final class MapperBuilders {
         return new AnalyzerMapper.Builder();
     }
 
+    public static ColumnFieldsMapper.Builder columnFields() {
+        return new ColumnFieldsMapper.Builder();
+    }
+
     public static MultiFieldMapper.Builder multiField(String name) {
         return new MultiFieldMapper.Builder(name);
     }
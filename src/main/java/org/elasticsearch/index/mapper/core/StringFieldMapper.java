@@ -36,6 +36,7 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.analysis.NamedCustomAnalyzer;
+import org.elasticsearch.index.analysis.TokenStreamCache;
 import org.elasticsearch.index.codec.postingsformat.PostingsFormatProvider;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.mapper.*;
@@ -358,6 +359,14 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
             }
             // Only use the cached TokenStream if the value is indexed and not-tokenized
             if (fieldType().tokenized()) {
+                // replay the analysis of short values if the analyzer has a token stream cache
+                TokenStreamCache tokenStreamCache = TokenStreamCache.forField(analyzer, name());
+                if (tokenStreamCache != null) {
+                    TokenStream tokenStream = tokenStreamCache.tokenStream(analyzer, name(), (String) fieldsData);
+                    if (tokenStream != null) {
+                        return tokenStream;
+                    }
+                }
                 return super.tokenStream(analyzer);
             }
             return NOT_ANALYZED_TOKENSTREAM.get().setValue((String) fieldsData);
@@ -0,0 +1,331 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper.internal;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.mapper.*;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.elasticsearch.index.mapper.MapperBuilders.columnFields;
+
+/**
+ * Keeps the stored values of a few (small) fields, along with the <tt>_uid</tt>, in a single binary doc values
+ * field per doc. The values of all the docs of a segment are then read from one column, in doc id order,
+ * instead of decompressing the stored fields block of each doc when only these fields are asked for.
+ * <p/>
+ * Only stored fields are kept, with the same values the stored fields visitor would see for them, and each
+ * field listed must be mapped and stored when the mapping is parsed.
+ * <p/>
+ * The column is written with the disk based doc values format (see
+ * {@link org.elasticsearch.index.codec.PerFieldMappingPostingFormatCodec}), so reading it does not load the
+ * values of all the docs of a segment on heap. With another codec configured through <tt>index.codec</tt>,
+ * the default doc values format is used, which keeps the whole column of each segment in memory, roughly
+ * the size of the listed stored fields (uncompressed) for all the docs.
+ */
+public class ColumnFieldsMapper implements Mapper, InternalMapper, RootMapper {
+
+    public static final String NAME = "_columns";
+    public static final String CONTENT_TYPE = "_columns";
+
+    // binary doc values can't hold more than that per doc, larger docs are read from the stored fields
+    public static final int MAX_LENGTH = ByteBlockPool.BYTE_BLOCK_SIZE - 2;
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_BINARY = 5;
+
+    public static class Defaults {
+        public static final Set<String> FIELDS = ImmutableSet.of();
+    }
+
+    public static class Builder extends Mapper.Builder<Builder, ColumnFieldsMapper> {
+
+        private Set<String> fields = Defaults.FIELDS;
+
+        public Builder() {
+            super(CONTENT_TYPE);
+            this.builder = this;
+        }
+
+        public Builder fields(Collection<String> fields) {
+            this.fields = ImmutableSet.copyOf(fields);
+            return this;
+        }
+
+        @Override
+        public ColumnFieldsMapper build(BuilderContext context) {
+            return new ColumnFieldsMapper(fields);
+        }
+    }
+
+    public static class TypeParser implements Mapper.TypeParser {
+        @Override
+        public Mapper.Builder parse(String name, Map<String, Object> node, ParserContext parserContext) throws MapperParsingException {
+            ColumnFieldsMapper.Builder builder = columnFields();
+            for (Map.Entry<String, Object> entry : node.entrySet()) {
+                String fieldName = Strings.toUnderscoreCase(entry.getKey());
+                Object fieldNode = entry.getValue();
+                if (fieldName.equals("fields")) {
+                    ImmutableSet.Builder<String> fields = ImmutableSet.builder();
+                    if (fieldNode instanceof List) {
+                        for (Object field : (List) fieldNode) {
+                            fields.add(field.toString());
+                        }
+                    } else {
+                        fields.add(Strings.splitStringByCommaToArray(fieldNode.toString()));
+                    }
+                    builder.fields(fields.build());
+                }
+            }
+            return builder;
+        }
+    }
+
+    private final Set<String> fields;
+
+    public ColumnFieldsMapper() {
+        this(Defaults.FIELDS);
+    }
+
+    public ColumnFieldsMapper(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * The (index) names of the fields kept in the column, on top of the <tt>_uid</tt>.
+     */
+    public Set<String> fields() {
+        return this.fields;
+    }
+
+    public boolean enabled() {
+        return !fields.isEmpty();
+    }
+
+    /**
+     * Checks that the fields kept in the column are mapped and stored, since only stored values are kept.
+     */
+    public void validateFields(DocumentFieldMappers mappers) throws MapperParsingException {
+        for (String field : fields) {
+            FieldMappers fieldMappers = mappers.indexName(field);
+            if (fieldMappers == null || fieldMappers.isEmpty()) {
+                throw new MapperParsingException("field [" + field + "] of [" + NAME + "] is not mapped");
+            }
+            if (!fieldMappers.mapper().fieldType().stored()) {
+                throw new MapperParsingException("field [" + field + "] of [" + NAME + "] is not stored");
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public void preParse(ParseContext context) throws IOException {
+    }
+
+    @Override
+    public void postParse(ParseContext context) throws IOException {
+        if (fields.isEmpty() || context.flyweight()) {
+            return;
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        List<IndexableField> docFields = context.rootDoc().getFields();
+        for (int i = 0, size = docFields.size(); i < size; i++) {
+            IndexableField field = docFields.get(i);
+            if (!field.fieldType().stored()) {
+                continue;
+            }
+            if (!field.name().equals(UidFieldMapper.NAME) && !fields.contains(field.name())) {
+                continue;
+            }
+            writeValue(field, out);
+        }
+        if (out.size() > MAX_LENGTH) {
+            return;
+        }
+        context.rootDoc().add(new BinaryDocValuesField(NAME, out.bytes().toBytesRef()));
+    }
+
+    /**
+     * Writes the value the same way the stored fields writer picks it: numeric, then binary, then string.
+     */
+    private static void writeValue(IndexableField field, BytesStreamOutput out) throws IOException {
+        out.writeString(field.name());
+        Number number = field.numericValue();
+        if (number != null) {
+            if (number instanceof Byte || number instanceof Short || number instanceof Integer) {
+                out.writeByte(TYPE_INT);
+                out.writeInt(number.intValue());
+            } else if (number instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong(number.longValue());
+            } else if (number instanceof Float) {
+                out.writeByte(TYPE_FLOAT);
+                out.writeFloat(number.floatValue());
+            } else if (number instanceof Double) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble(number.doubleValue());
+            } else {
+                throw new MapperParsingException("cannot keep numeric value of type [" + number.getClass() + "] for field [" + field.name() + "] in [" + NAME + "]");
+            }
+            return;
+        }
+        BytesRef binary = field.binaryValue();
+        if (binary != null) {
+            out.writeByte(TYPE_BINARY);
+            out.writeVInt(binary.length);
+            out.writeBytes(binary.bytes, binary.offset, binary.length);
+            return;
+        }
+        out.writeByte(TYPE_STRING);
+        out.writeString(field.stringValue());
+    }
+
+    /**
+     * Feeds the values kept in the column of a doc to the visitor, as if they were read from the stored fields.
+     *
+     * @return <tt>false</tt> if the doc has no column values, and the stored fields should be visited instead
+     */
+    public static boolean visit(BytesRef column, FieldInfos fieldInfos, StoredFieldVisitor visitor) throws IOException {
+        if (column.length == 0) {
+            return false;
+        }
+        BytesStreamInput in = new BytesStreamInput(column.bytes, column.offset, column.length, true);
+        int end = column.offset + column.length;
+        while (in.position() < end) {
+            FieldInfo fieldInfo = fieldInfos.fieldInfo(in.readString());
+            byte type = in.readByte();
+            StoredFieldVisitor.Status status = fieldInfo == null ? StoredFieldVisitor.Status.NO : visitor.needsField(fieldInfo);
+            if (status == StoredFieldVisitor.Status.STOP) {
+                return true;
+            }
+            boolean needed = status == StoredFieldVisitor.Status.YES;
+            switch (type) {
+                case TYPE_STRING:
+                    String value = in.readString();
+                    if (needed) {
+                        visitor.stringField(fieldInfo, value);
+                    }
+                    break;
+                case TYPE_INT:
+                    int intValue = in.readInt();
+                    if (needed) {
+                        visitor.intField(fieldInfo, intValue);
+                    }
+                    break;
+                case TYPE_LONG:
+                    long longValue = in.readLong();
+                    if (needed) {
+                        visitor.longField(fieldInfo, longValue);
+                    }
+                    break;
+                case TYPE_FLOAT:
+                    float floatValue = in.readFloat();
+                    if (needed) {
+                        visitor.floatField(fieldInfo, floatValue);
+                    }
+                    break;
+                case TYPE_DOUBLE:
+                    double doubleValue = in.readDouble();
+                    if (needed) {
+                        visitor.doubleField(fieldInfo, doubleValue);
+                    }
+                    break;
+                case TYPE_BINARY:
+                    byte[] bytes = new byte[in.readVInt()];
+                    in.readBytes(bytes, 0, bytes.length);
+                    if (needed) {
+                        visitor.binaryField(fieldInfo, bytes);
+                    }
+                    break;
+                default:
+                    throw new IOException("unknown column value type [" + type + "]");
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void validate(ParseContext context) throws MapperParsingException {
+    }
+
+    @Override
+    public boolean includeInObject() {
+        return false;
+    }
+
+    @Override
+    public void parse(ParseContext context) throws IOException {
+    }
+
+    @Override
+    public void merge(Mapper mergeWith, MergeContext mergeContext) throws MergeMappingException {
+        ColumnFieldsMapper columnFieldsMergeWith = (ColumnFieldsMapper) mergeWith;
+        // the fields can't change, so all the docs of a type keep the same fields in their column
+        if (columnFieldsMergeWith.enabled() && !columnFieldsMergeWith.fields.equals(fields)) {
+            mergeContext.addConflict("mapper [" + NAME + "] fields can't be changed from " + fields + " to " + columnFieldsMergeWith.fields);
+        }
+    }
+
+    @Override
+    public void traverse(FieldMapperListener fieldMapperListener) {
+    }
+
+    @Override
+    public void traverse(ObjectMapperListener objectMapperListener) {
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        if (fields.isEmpty()) {
+            return builder;
+        }
+        builder.startObject(CONTENT_TYPE);
+        builder.field("fields", fields);
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -91,6 +91,8 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
 
         private Boolean compress = null;
 
+        private String compressType = null;
+
         private String format = Defaults.FORMAT;
 
         private String[] includes = Defaults.INCLUDES;
@@ -110,6 +112,14 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
             return this;
         }
 
+        /**
+         * The compressor type to use when compressing the source, defaults to the default compressor.
+         */
+        public Builder compressType(String compressType) {
+            this.compressType = compressType;
+            return this;
+        }
+
         public Builder compressThreshold(long compressThreshold) {
             this.compressThreshold = compressThreshold;
             return this;
@@ -132,7 +142,7 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
 
         @Override
         public SourceFieldMapper build(BuilderContext context) {
-            return new SourceFieldMapper(name, enabled, format, compress, compressThreshold, includes, excludes);
+            return new SourceFieldMapper(name, enabled, format, compress, compressType, compressThreshold, includes, excludes);
         }
     }
 
@@ -148,6 +158,12 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
                     builder.enabled(nodeBooleanValue(fieldNode));
                 } else if (fieldName.equals("compress") && fieldNode != null) {
                     builder.compress(nodeBooleanValue(fieldNode));
+                } else if (fieldName.equals("compress_type") && fieldNode != null) {
+                    String compressType = CompressorFactory.normalizeType(fieldNode.toString());
+                    if (CompressorFactory.compressor(compressType) == null) {
+                        throw new MapperParsingException("failed to find compressor type [" + compressType + "] for [" + name + "]");
+                    }
+                    builder.compressType(compressType);
                 } else if (fieldName.equals("compress_threshold") && fieldNode != null) {
                     if (fieldNode instanceof Number) {
                         builder.compressThreshold(((Number) fieldNode).longValue());
@@ -183,6 +199,8 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
 
     private Boolean compress;
 
+    private String compressType;
+
     private long compressThreshold;
 
     private String[] includes;
@@ -194,15 +212,16 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
     private XContentType formatContentType;
 
     public SourceFieldMapper() {
-        this(Defaults.NAME, Defaults.ENABLED, Defaults.FORMAT, null, -1, Defaults.INCLUDES, Defaults.EXCLUDES);
+        this(Defaults.NAME, Defaults.ENABLED, Defaults.FORMAT, null, null, -1, Defaults.INCLUDES, Defaults.EXCLUDES);
     }
 
-    protected SourceFieldMapper(String name, boolean enabled, String format, Boolean compress, long compressThreshold,
+    protected SourceFieldMapper(String name, boolean enabled, String format, Boolean compress, String compressType, long compressThreshold,
                                 String[] includes, String[] excludes) {
         super(new Names(name, name, name, name), Defaults.BOOST, new FieldType(Defaults.FIELD_TYPE),
                 Lucene.KEYWORD_ANALYZER, Lucene.KEYWORD_ANALYZER, null, null, null); // Only stored.
         this.enabled = enabled;
         this.compress = compress;
+        this.compressType = compressType;
         this.compressThreshold = compressThreshold;
         this.includes = includes;
         this.excludes = excludes;
@@ -214,6 +233,10 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
         return this.enabled;
     }
 
+    private Compressor compressor() {
+        return CompressorFactory.compressorOrDefault(compressType);
+    }
+
     @Override
     public FieldType defaultFieldType() {
         return Defaults.FIELD_TYPE;
@@ -269,7 +292,7 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
             CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
             StreamOutput streamOutput;
             if (compress != null && compress && (compressThreshold == -1 || source.length() > compressThreshold)) {
-                streamOutput = cachedEntry.bytes(CompressorFactory.defaultCompressor());
+                streamOutput = cachedEntry.bytes(compressor());
             } else {
                 streamOutput = cachedEntry.bytes();
             }
@@ -289,11 +312,11 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
                 try {
                     XContentType contentType = XContentFactory.xContentType(source);
                     if (formatContentType != null && formatContentType != contentType) {
-                        XContentBuilder builder = XContentFactory.contentBuilder(formatContentType, cachedEntry.bytes(CompressorFactory.defaultCompressor()));
+                        XContentBuilder builder = XContentFactory.contentBuilder(formatContentType, cachedEntry.bytes(compressor()));
                         builder.copyCurrentStructure(XContentFactory.xContent(contentType).createParser(source));
                         builder.close();
                     } else {
-                        StreamOutput streamOutput = cachedEntry.bytes(CompressorFactory.defaultCompressor());
+                        StreamOutput streamOutput = cachedEntry.bytes(compressor());
                         source.writeTo(streamOutput);
                         streamOutput.close();
                     }
@@ -317,7 +340,7 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
                     // we need to reread and store back, compressed....
                     CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
                     try {
-                        StreamOutput streamOutput = cachedEntry.bytes(CompressorFactory.defaultCompressor());
+                        StreamOutput streamOutput = cachedEntry.bytes(compressor());
                         XContentBuilder builder = XContentFactory.contentBuilder(formatContentType, streamOutput);
                         builder.copyCurrentStructure(XContentFactory.xContent(contentType).createParser(compressedStreamInput));
                         builder.close();
@@ -379,7 +402,7 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         // all are defaults, no need to write it at all
-        if (enabled == Defaults.ENABLED && compress == null && compressThreshold == -1 && includes.length == 0 && excludes.length == 0) {
+        if (enabled == Defaults.ENABLED && compress == null && compressType == null && compressThreshold == -1 && includes.length == 0 && excludes.length == 0) {
             return builder;
         }
         builder.startObject(contentType());
@@ -392,6 +415,9 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
         if (compress != null) {
             builder.field("compress", compress);
         }
+        if (compressType != null) {
+            builder.field("compress_type", compressType);
+        }
         if (compressThreshold != -1) {
             builder.field("compress_threshold", new ByteSizeValue(compressThreshold).toString());
         }
@@ -412,6 +438,9 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
             if (sourceMergeWith.compress != null) {
                 this.compress = sourceMergeWith.compress;
             }
+            if (sourceMergeWith.compressType != null) {
+                this.compressType = sourceMergeWith.compressType;
+            }
             if (sourceMergeWith.compressThreshold != -1) {
                 this.compressThreshold = sourceMergeWith.compressThreshold;
             }
@@ -42,6 +42,8 @@ public class MergeStats implements Streamable, ToXContent {
     private long current;
     private long currentNumDocs;
     private long currentSizeInBytes;
+    private long totalThrottledTimeInMillis;
+    private long totalAutoThrottleBytesPerSec;
 
     public MergeStats() {
 
@@ -57,6 +59,13 @@ public class MergeStats implements Streamable, ToXContent {
         this.currentSizeInBytes += currentSizeInBytes;
     }
 
+    public void add(long totalMerges, long totalMergeTime, long totalNumDocs, long totalSizeInBytes, long currentMerges, long currentNumDocs, long currentSizeInBytes,
+                    long totalThrottledTimeInMillis, long autoThrottleBytesPerSec) {
+        add(totalMerges, totalMergeTime, totalNumDocs, totalSizeInBytes, currentMerges, currentNumDocs, currentSizeInBytes);
+        this.totalThrottledTimeInMillis += totalThrottledTimeInMillis;
+        this.totalAutoThrottleBytesPerSec += autoThrottleBytesPerSec;
+    }
+
     public void add(MergeStats mergeStats) {
         if (mergeStats == null) {
             return;
@@ -68,6 +77,8 @@ public class MergeStats implements Streamable, ToXContent {
         this.current += mergeStats.current;
         this.currentNumDocs += mergeStats.currentNumDocs;
         this.currentSizeInBytes += mergeStats.currentSizeInBytes;
+        this.totalThrottledTimeInMillis += mergeStats.totalThrottledTimeInMillis;
+        this.totalAutoThrottleBytesPerSec += mergeStats.totalAutoThrottleBytesPerSec;
     }
 
     /**
@@ -122,6 +133,31 @@ public class MergeStats implements Streamable, ToXContent {
         return new ByteSizeValue(currentSizeInBytes);
     }
 
+    /**
+     * The total time merges were paused by the adaptive merge throttling (in milliseconds).
+     */
+    public long getTotalThrottledTimeInMillis() {
+        return this.totalThrottledTimeInMillis;
+    }
+
+    /**
+     * The total time merges were paused by the adaptive merge throttling.
+     */
+    public TimeValue getTotalThrottledTime() {
+        return new TimeValue(totalThrottledTimeInMillis);
+    }
+
+    /**
+     * The sum of the current target merge rates (in bytes per second) of shards using adaptive merge throttling.
+     */
+    public long getTotalAutoThrottleBytesPerSec() {
+        return this.totalAutoThrottleBytesPerSec;
+    }
+
+    public ByteSizeValue getTotalAutoThrottle() {
+        return new ByteSizeValue(totalAutoThrottleBytesPerSec);
+    }
+
     public static MergeStats readMergeStats(StreamInput in) throws IOException {
         MergeStats stats = new MergeStats();
         stats.readFrom(in);
@@ -141,6 +177,10 @@ public class MergeStats implements Streamable, ToXContent {
         builder.field(Fields.TOTAL_DOCS, totalNumDocs);
         builder.field(Fields.TOTAL_SIZE, getTotalSize().toString());
         builder.field(Fields.TOTAL_SIZE_IN_BYTES, totalSizeInBytes);
+        builder.field(Fields.TOTAL_THROTTLED_TIME, getTotalThrottledTime().toString());
+        builder.field(Fields.TOTAL_THROTTLED_TIME_IN_MILLIS, totalThrottledTimeInMillis);
+        builder.field(Fields.TOTAL_AUTO_THROTTLE, getTotalAutoThrottle().toString());
+        builder.field(Fields.TOTAL_AUTO_THROTTLE_IN_BYTES, totalAutoThrottleBytesPerSec);
         builder.endObject();
         return builder;
     }
@@ -157,6 +197,10 @@ public class MergeStats implements Streamable, ToXContent {
         static final XContentBuilderString TOTAL_DOCS = new XContentBuilderString("total_docs");
         static final XContentBuilderString TOTAL_SIZE = new XContentBuilderString("total_size");
         static final XContentBuilderString TOTAL_SIZE_IN_BYTES = new XContentBuilderString("total_size_in_bytes");
+        static final XContentBuilderString TOTAL_THROTTLED_TIME = new XContentBuilderString("total_throttled_time");
+        static final XContentBuilderString TOTAL_THROTTLED_TIME_IN_MILLIS = new XContentBuilderString("total_throttled_time_in_millis");
+        static final XContentBuilderString TOTAL_AUTO_THROTTLE = new XContentBuilderString("total_auto_throttle");
+        static final XContentBuilderString TOTAL_AUTO_THROTTLE_IN_BYTES = new XContentBuilderString("total_auto_throttle_in_bytes");
     }
 
     @Override
@@ -168,6 +212,8 @@ public class MergeStats implements Streamable, ToXContent {
         current = in.readVLong();
         currentNumDocs = in.readVLong();
         currentSizeInBytes = in.readVLong();
+        totalThrottledTimeInMillis = in.readVLong();
+        totalAutoThrottleBytesPerSec = in.readVLong();
     }
 
     @Override
@@ -179,5 +225,7 @@ public class MergeStats implements Streamable, ToXContent {
         out.writeVLong(current);
         out.writeVLong(currentNumDocs);
         out.writeVLong(currentSizeInBytes);
+        out.writeVLong(totalThrottledTimeInMillis);
+        out.writeVLong(totalAutoThrottleBytesPerSec);
     }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.scheduler;
+
+import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.store.StoreRateLimiting;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A per shard merge rate limiting that adapts the allowed merge IO rate to the merge backlog and the indexing rate.
+ * Each time a merge starts while other merges are already running or waiting (the merges can't keep up with
+ * indexing), the rate is increased by 20%. When a merge starts with no backlog, the rate is decreased by 10%.
+ * <p/>
+ * The rate is also adjusted while merges run, from periodic samples of the merge backlog and of the indexing rate
+ * (see {@link #onSample(long, long, long, int, boolean)}). It goes up while merges are backlogged, or while merges
+ * run during an indexing burst (an indexing rate well above its recent average, which will register more merges
+ * soon). It goes down while merges run with no backlog and no indexing at all. The rate is always kept within the
+ * configured min and max rate.
+ * <p/>
+ * The rate limiting is only applied to merges, and is used by the shard directory instead of the store level
+ * throttling when enabled.
+ */
+public class AdaptiveMergeRateLimiting implements StoreRateLimiting.Provider {
+
+    private final ESLogger logger;
+
+    private final double minMbPerSec;
+    private final double maxMbPerSec;
+
+    private final TrackingRateLimiter rateLimiter;
+
+    // the indexing operations and time of the last sample, and the average indexing rate (ops per second) so far
+    private long lastIndexingOps = -1;
+    private long lastSampleNanos;
+    private double avgIndexingRate = -1;
+
+    private final StoreRateLimiting rateLimiting = new StoreRateLimiting() {
+        @Override
+        public RateLimiter getRateLimiter() {
+            return rateLimiter;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.MERGE;
+        }
+    };
+
+    public AdaptiveMergeRateLimiting(ESLogger logger, ByteSizeValue minRate, ByteSizeValue maxRate, ByteSizeValue initialRate) {
+        this.logger = logger;
+        this.minMbPerSec = minRate.mbFrac();
+        this.maxMbPerSec = Math.max(minMbPerSec, maxRate.mbFrac());
+        this.rateLimiter = new TrackingRateLimiter(Math.min(maxMbPerSec, Math.max(minMbPerSec, initialRate.mbFrac())));
+    }
+
+    @Override
+    public StoreRateLimiting rateLimiting() {
+        return rateLimiting;
+    }
+
+    /**
+     * Called when a merge starts, with the number of merges currently running (including this one), the max
+     * number of merge threads, and if more merges are waiting to be executed.
+     */
+    public synchronized void onMergeStart(long runningMerges, int maxThreadCount, boolean pendingMerges) {
+        if (pendingMerges || runningMerges >= maxThreadCount) {
+            update(true, runningMerges, pendingMerges);
+        } else if (runningMerges <= 1) {
+            update(false, runningMerges, pendingMerges);
+        }
+    }
+
+    /**
+     * Called periodically, with the total number of indexing operations (index and delete) of the shard so far,
+     * the time of the sample (as {@link System#nanoTime()}), the number of merges currently running, the max
+     * number of merge threads, and if more merges are waiting to be executed.
+     */
+    public synchronized void onSample(long indexingOps, long timeInNanos, long runningMerges, int maxThreadCount, boolean pendingMerges) {
+        if (lastIndexingOps < 0 || indexingOps < lastIndexingOps || timeInNanos <= lastSampleNanos) {
+            // first sample (or the stats were reset), nothing to compare with yet
+            lastIndexingOps = indexingOps;
+            lastSampleNanos = timeInNanos;
+            return;
+        }
+        double indexingRate = (indexingOps - lastIndexingOps) / ((timeInNanos - lastSampleNanos) / 1000000000.0);
+        lastIndexingOps = indexingOps;
+        lastSampleNanos = timeInNanos;
+        boolean indexingBurst = avgIndexingRate >= 0 && indexingRate > avgIndexingRate * 1.5;
+        avgIndexingRate = avgIndexingRate < 0 ? indexingRate : avgIndexingRate * 0.8 + indexingRate * 0.2;
+
+        if (runningMerges == 0) {
+            // nothing to throttle, the next merge start adjusts the rate
+            return;
+        }
+        boolean backlog = pendingMerges || runningMerges >= maxThreadCount;
+        if (backlog || indexingBurst) {
+            update(true, runningMerges, pendingMerges);
+        } else if (indexingRate == 0) {
+            update(false, runningMerges, pendingMerges);
+        }
+    }
+
+    private void update(boolean increase, long runningMerges, boolean pendingMerges) {
+        double current = rateLimiter.getMbPerSec();
+        double updated = increase ? Math.min(maxMbPerSec, current * 1.20) : Math.max(minMbPerSec, current / 1.10);
+        if (updated != current) {
+            if (logger.isTraceEnabled()) {
+                logger.trace("updating merge rate from [{}] to [{}] (running merges [{}], pending merges [{}], indexing rate [{}]/s)",
+                        new ByteSizeValue((long) (current * 1024 * 1024)), new ByteSizeValue((long) (updated * 1024 * 1024)), runningMerges, pendingMerges, (long) avgIndexingRate);
+            }
+            rateLimiter.setMbPerSec(updated);
+        }
+    }
+
+    /**
+     * The current target rate of merges, in bytes per second.
+     */
+    public long targetBytesPerSec() {
+        return (long) (rateLimiter.getMbPerSec() * 1024 * 1024);
+    }
+
+    /**
+     * The total time merges were paused because of the rate limiting, in milliseconds.
+     */
+    public long throttleTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(rateLimiter.pausedNanos.count());
+    }
+
+    static class TrackingRateLimiter extends RateLimiter {
+
+        private final RateLimiter.SimpleRateLimiter delegate;
+
+        final CounterMetric pausedNanos = new CounterMetric();
+
+        TrackingRateLimiter(double mbPerSec) {
+            this.delegate = new RateLimiter.SimpleRateLimiter(mbPerSec);
+        }
+
+        @Override
+        public void setMbPerSec(double mbPerSec) {
+            delegate.setMbPerSec(mbPerSec);
+        }
+
+        @Override
+        public double getMbPerSec() {
+            return delegate.getMbPerSec();
+        }
+
+        @Override
+        public long pause(long bytes) {
+            long paused = delegate.pause(bytes);
+            pausedNanos.inc(paused);
+            return paused;
+        }
+    }
+}
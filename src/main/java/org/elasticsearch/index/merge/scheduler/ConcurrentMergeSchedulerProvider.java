@@ -23,10 +23,16 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.MergeScheduler;
 import org.apache.lucene.index.TrackingConcurrentMergeScheduler;
+import org.apache.lucene.store.StoreRateLimiting;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.index.indexing.IndexingStats;
+import org.elasticsearch.index.indexing.ShardIndexingService;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.ShardId;
@@ -35,6 +41,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  *
@@ -44,16 +51,39 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
     private final int maxThreadCount;
     private final int maxMergeCount;
 
+    private final ThreadPool threadPool;
+    private final ShardIndexingService indexingService;
+
+    private final AdaptiveMergeRateLimiting autoThrottle;
+    private final TimeValue autoThrottleInterval;
+    private ScheduledFuture autoThrottleSampling;
+
     private Set<CustomConcurrentMergeScheduler> schedulers = new CopyOnWriteArraySet<CustomConcurrentMergeScheduler>();
 
     @Inject
-    public ConcurrentMergeSchedulerProvider(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool) {
+    public ConcurrentMergeSchedulerProvider(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool, ShardIndexingService indexingService) {
         super(shardId, indexSettings, threadPool);
+        this.threadPool = threadPool;
+        this.indexingService = indexingService;
 
         // TODO LUCENE MONITOR this will change in Lucene 4.0
         this.maxThreadCount = componentSettings.getAsInt("max_thread_count", Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() / 2)));
         this.maxMergeCount = componentSettings.getAsInt("max_merge_count", maxThreadCount + 2);
-        logger.debug("using [concurrent] merge scheduler with max_thread_count[{}]", maxThreadCount);
+        if (componentSettings.getAsBoolean("auto_throttle", false)) {
+            this.autoThrottle = new AdaptiveMergeRateLimiting(logger,
+                    componentSettings.getAsBytesSize("auto_throttle.min_rate", new ByteSizeValue(5, ByteSizeUnit.MB)),
+                    componentSettings.getAsBytesSize("auto_throttle.max_rate", new ByteSizeValue(200, ByteSizeUnit.MB)),
+                    componentSettings.getAsBytesSize("auto_throttle.initial_rate", new ByteSizeValue(20, ByteSizeUnit.MB)));
+        } else {
+            this.autoThrottle = null;
+        }
+        this.autoThrottleInterval = componentSettings.getAsTime("auto_throttle.interval", TimeValue.timeValueSeconds(1));
+        logger.debug("using [concurrent] merge scheduler with max_thread_count[{}], auto_throttle[{}]", maxThreadCount, autoThrottle != null);
+    }
+
+    @Override
+    public StoreRateLimiting.Provider mergeRateLimiting() {
+        return autoThrottle;
     }
 
     @Override
@@ -62,9 +92,44 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
         concurrentMergeScheduler.setMaxMergeCount(maxMergeCount);
         concurrentMergeScheduler.setMaxThreadCount(maxThreadCount);
         schedulers.add(concurrentMergeScheduler);
+        if (autoThrottle != null) {
+            startAutoThrottleSampling();
+        }
         return concurrentMergeScheduler;
     }
 
+    private synchronized void startAutoThrottleSampling() {
+        if (autoThrottleSampling == null) {
+            autoThrottleSampling = threadPool.scheduleWithFixedDelay(new AutoThrottleSampler(), autoThrottleInterval);
+        }
+    }
+
+    private synchronized void stopAutoThrottleSampling() {
+        // the sampling runs as long as the shard has an open merge scheduler
+        if (autoThrottleSampling != null && schedulers.isEmpty()) {
+            autoThrottleSampling.cancel(false);
+            autoThrottleSampling = null;
+        }
+    }
+
+    /**
+     * Samples the indexing rate and the merge backlog of the shard, so the merge rate keeps adapting while merges run.
+     */
+    class AutoThrottleSampler implements Runnable {
+        @Override
+        public void run() {
+            long runningMerges = 0;
+            boolean pendingMerges = false;
+            for (CustomConcurrentMergeScheduler scheduler : schedulers) {
+                runningMerges += scheduler.currentMerges();
+                pendingMerges |= scheduler.hasPendingMerges();
+            }
+            IndexingStats.Stats indexingStats = indexingService.stats().getTotal();
+            autoThrottle.onSample(indexingStats.getIndexCount() + indexingStats.getDeleteCount(), System.nanoTime(),
+                    runningMerges, maxThreadCount, pendingMerges);
+        }
+    }
+
     @Override
     public MergeStats stats() {
         MergeStats mergeStats = new MergeStats();
@@ -72,6 +137,10 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
             mergeStats.add(scheduler.totalMerges(), scheduler.totalMergeTime(), scheduler.totalMergeNumDocs(), scheduler.totalMergeSizeInBytes(),
                     scheduler.currentMerges(), scheduler.currentMergesNumDocs(), scheduler.currentMergesSizeInBytes());
         }
+        if (autoThrottle != null) {
+            // the throttling is shared by all the schedulers of the shard, so only add it once
+            mergeStats.add(0, 0, 0, 0, 0, 0, 0, autoThrottle.throttleTimeInMillis(), autoThrottle.targetBytesPerSec());
+        }
         return mergeStats;
     }
 
@@ -94,6 +163,20 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
             return thread;
         }
 
+        @Override
+        protected void doMerge(MergePolicy.OneMerge merge) throws IOException {
+            if (provider.autoThrottle != null) {
+                // this merge is not counted as current yet
+                provider.autoThrottle.onMergeStart(currentMerges() + 1, getMaxThreadCount(), writer.hasPendingMerges());
+            }
+            super.doMerge(merge);
+        }
+
+        boolean hasPendingMerges() {
+            IndexWriter writer = this.writer;
+            return writer != null && writer.hasPendingMerges();
+        }
+
         @Override
         protected void handleMergeException(Throwable exc) {
             logger.warn("failed to merge", exc);
@@ -105,6 +188,9 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
         public void close() {
             super.close();
             provider.schedulers.remove(this);
+            if (provider.autoThrottle != null) {
+                provider.stopAutoThrottleSampling();
+            }
         }
     }
 }
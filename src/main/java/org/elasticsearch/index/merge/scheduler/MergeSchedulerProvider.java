@@ -21,6 +21,8 @@ package org.elasticsearch.index.merge.scheduler;
 
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.MergeScheduler;
+import org.apache.lucene.store.StoreRateLimiting;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -71,5 +73,14 @@ public abstract class MergeSchedulerProvider<T extends MergeScheduler> extends A
 
     public abstract T newMergeScheduler();
 
+    /**
+     * The shard level merge rate limiting to use instead of the store level one, <tt>null</tt> if the store
+     * level merge throttling should be used.
+     */
+    @Nullable
+    public StoreRateLimiting.Provider mergeRateLimiting() {
+        return null;
+    }
+
     public abstract MergeStats stats();
 }
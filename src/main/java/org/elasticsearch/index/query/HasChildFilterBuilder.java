@@ -32,6 +32,7 @@ public class HasChildFilterBuilder extends BaseFilterBuilder {
     private final QueryBuilder queryBuilder;
     private String childType;
     private String filterName;
+    private String executionType;
 
     public HasChildFilterBuilder(String type, QueryBuilder queryBuilder) {
         this.childType = type;
@@ -53,6 +54,15 @@ public class HasChildFilterBuilder extends BaseFilterBuilder {
         return this;
     }
 
+    /**
+     * How the matching children are joined to their parents, either <tt>uid</tt> (the default, a set of parent
+     * uids) or <tt>bitset</tt> (matching children resolved to parent docs per segment).
+     */
+    public HasChildFilterBuilder executionType(String executionType) {
+        this.executionType = executionType;
+        return this;
+    }
+
     @Override
     protected void doXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(HasChildFilterParser.NAME);
@@ -67,6 +77,9 @@ public class HasChildFilterBuilder extends BaseFilterBuilder {
         if (filterName != null) {
             builder.field("_name", filterName);
         }
+        if (executionType != null) {
+            builder.field("execution_type", executionType);
+        }
         builder.endObject();
     }
 }
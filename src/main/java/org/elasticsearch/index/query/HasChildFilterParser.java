@@ -55,6 +55,7 @@ public class HasChildFilterParser implements FilterParser {
         Query query = null;
         boolean queryFound = false;
         String childType = null;
+        String executionType = null;
 
         String filterName = null;
         String currentFieldName = null;
@@ -93,6 +94,11 @@ public class HasChildFilterParser implements FilterParser {
                     throw new QueryParsingException(parseContext.index(), "the [_scope] support in [has_child] filter has been removed, use a filter as a facet_filter in the relevant global facet");
                 } else if ("_name".equals(currentFieldName)) {
                     filterName = parser.text();
+                } else if ("execution_type".equals(currentFieldName) || "executionType".equals(currentFieldName)) {
+                    executionType = parser.text();
+                    if (!"uid".equals(executionType) && !"bitset".equals(executionType)) {
+                        throw new QueryParsingException(parseContext.index(), "[has_child] filter execution_type [" + executionType + "] not supported");
+                    }
                 } else {
                     throw new QueryParsingException(parseContext.index(), "[has_child] filter does not support [" + currentFieldName + "]");
                 }
@@ -122,7 +128,7 @@ public class HasChildFilterParser implements FilterParser {
 
         SearchContext searchContext = SearchContext.current();
 
-        HasChildFilter childFilter = HasChildFilter.create(query, parentType, childType, searchContext);
+        HasChildFilter childFilter = HasChildFilter.create(query, parentType, childType, searchContext, executionType);
         searchContext.addRewrite(childFilter);
 
         if (filterName != null) {
@@ -36,6 +36,8 @@ public class HasChildQueryBuilder extends BaseQueryBuilder implements BoostableQ
 
     private String scoreType;
 
+    private String executionType;
+
     public HasChildQueryBuilder(String type, QueryBuilder queryBuilder) {
         this.childType = type;
         this.queryBuilder = queryBuilder;
@@ -58,6 +60,15 @@ public class HasChildQueryBuilder extends BaseQueryBuilder implements BoostableQ
         return this;
     }
 
+    /**
+     * How the matching children are joined to their parents, either <tt>uid</tt> (the default, a set of parent
+     * uids) or <tt>bitset</tt> (matching children resolved to parent docs per segment).
+     */
+    public HasChildQueryBuilder executionType(String executionType) {
+        this.executionType = executionType;
+        return this;
+    }
+
     @Override
     protected void doXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(HasChildQueryParser.NAME);
@@ -70,6 +81,9 @@ public class HasChildQueryBuilder extends BaseQueryBuilder implements BoostableQ
         if (scoreType != null) {
             builder.field("score_type", scoreType);
         }
+        if (executionType != null) {
+            builder.field("execution_type", executionType);
+        }
         builder.endObject();
     }
 }
@@ -58,6 +58,7 @@ public class HasChildQueryParser implements QueryParser {
         float boost = 1.0f;
         String childType = null;
         ScoreType scoreType = null;
+        String executionType = null;
 
         String currentFieldName = null;
         XContentParser.Token token;
@@ -88,6 +89,11 @@ public class HasChildQueryParser implements QueryParser {
                     if (!"none".equals(scoreTypeValue)) {
                         scoreType = ScoreType.fromString(scoreTypeValue);
                     }
+                } else if ("execution_type".equals(currentFieldName) || "executionType".equals(currentFieldName)) {
+                    executionType = parser.text();
+                    if (!"uid".equals(executionType) && !"bitset".equals(executionType)) {
+                        throw new QueryParsingException(parseContext.index(), "[has_child] query execution_type [" + executionType + "] not supported");
+                    }
                 } else if ("boost".equals(currentFieldName)) {
                     boost = parser.floatValue();
                 } else {
@@ -121,11 +127,11 @@ public class HasChildQueryParser implements QueryParser {
         Query query;
         if (scoreType != null) {
             Filter parentFilter = parseContext.cacheFilter(parentDocMapper.typeFilter(), null);
-            ChildrenQuery childrenQuery = new ChildrenQuery(searchContext, parentType, childType, parentFilter, innerQuery, scoreType);
+            ChildrenQuery childrenQuery = new ChildrenQuery(searchContext, parentType, childType, parentFilter, innerQuery, scoreType, executionType);
             searchContext.addRewrite(childrenQuery);
             query = childrenQuery;
         } else {
-            HasChildFilter hasChildFilter = HasChildFilter.create(innerQuery, parentType, childType, searchContext);
+            HasChildFilter hasChildFilter = HasChildFilter.create(innerQuery, parentType, childType, searchContext, executionType);
             searchContext.addRewrite(hasChildFilter);
             query = new ConstantScoreQuery(hasChildFilter);
         }
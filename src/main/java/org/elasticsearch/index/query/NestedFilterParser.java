@@ -136,7 +136,8 @@ public class NestedFilterParser implements FilterParser {
             }
 
             Filter childFilter = parseContext.cacheFilter(objectMapper.nestedTypeFilter(), null);
-            usAsParentFilter.filter = childFilter;
+            // nested levels below this one use the bit sets of this path as their parents
+            usAsParentFilter.filter = parseContext.fixedBitSetFilter(objectMapper.nestedTypeFilter());
             // wrap the child query to only work on the nested path type
             query = new XFilteredQuery(query, childFilter);
 
@@ -148,7 +149,7 @@ public class NestedFilterParser implements FilterParser {
                 //    // filter based on the type...
                 //    parentFilter = mapper.docMapper().typeFilter();
                 //}
-                parentFilter = parseContext.cacheFilter(parentFilter, null);
+                parentFilter = parseContext.fixedBitSetFilter(parentFilter);
             }
 
             Filter nestedFilter;
@@ -137,7 +137,8 @@ public class NestedQueryParser implements QueryParser {
             }
 
             Filter childFilter = parseContext.cacheFilter(objectMapper.nestedTypeFilter(), null);
-            usAsParentFilter.filter = childFilter;
+            // nested levels below this one use the bit sets of this path as their parents
+            usAsParentFilter.filter = parseContext.fixedBitSetFilter(objectMapper.nestedTypeFilter());
             // wrap the child query to only work on the nested path type
             query = new XFilteredQuery(query, childFilter);
 
@@ -149,7 +150,7 @@ public class NestedQueryParser implements QueryParser {
                 //    // filter based on the type...
                 //    parentFilter = mapper.docMapper().typeFilter();
                 //}
-                parentFilter = parseContext.cacheFilter(parentFilter, null);
+                parentFilter = parseContext.fixedBitSetFilter(parentFilter);
             }
 
             ToParentBlockJoinQuery joinQuery = new ToParentBlockJoinQuery(query, parentFilter, scoreMode);
@@ -32,6 +32,7 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.IndexCache;
 import org.elasticsearch.index.cache.filter.support.CacheKeyFilter;
+import org.elasticsearch.index.cache.fixedbitset.FixedBitSetFilter;
 import org.elasticsearch.index.engine.IndexEngine;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.FieldMapper;
@@ -154,6 +155,10 @@ public class QueryParseContext {
         return indexQueryParser.indexCache.filter().cache(filter);
     }
 
+    public FixedBitSetFilter fixedBitSetFilter(Filter filter) {
+        return indexQueryParser.indexCache.fixedBitSetFilterCache().getFixedBitSetFilter(filter);
+    }
+
     public void addNamedFilter(String name, Filter filter) {
         namedFilters.put(name, filter);
     }
@@ -117,7 +117,8 @@ public class TermsFilterBuilder extends BaseFilterBuilder {
 
     /**
      * Sets the execution mode for the terms filter. Cane be either "plain", "bool"
-     * "and". Defaults to "plain".
+     * "and" or "merge" (sorts the terms once and intersects them with each segment in
+     * a single pass, meant for a large number of terms). Defaults to "plain".
      */
     public TermsFilterBuilder execution(String execution) {
         this.execution = execution;
@@ -32,6 +32,9 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.cache.filter.support.CacheKeyFilter;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.internal.IdFieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.indices.cache.filter.terms.IndicesTermsFilterCache;
 import org.elasticsearch.indices.cache.filter.terms.TermsLookup;
 
@@ -187,6 +190,24 @@ public class TermsFilterParser implements FilterParser {
                 if (cache == null || cache) {
                     filter = parseContext.cacheFilter(filter, cacheKey);
                 }
+            } else if ("merge".equals(execution)) {
+                String indexFieldName = fieldName;
+                BytesRef[] filterValues;
+                if (fieldMapper instanceof IdFieldMapper && !fieldMapper.fieldType().indexed()) {
+                    // same as the id field terms filter, _id is looked up through the _uid of the queried types
+                    indexFieldName = UidFieldMapper.NAME;
+                    filterValues = Uid.createTypeUids(parseContext.queryTypes(), terms);
+                } else {
+                    filterValues = new BytesRef[terms.size()];
+                    for (int i = 0; i < filterValues.length; i++) {
+                        filterValues[i] = fieldMapper != null ? fieldMapper.indexedValueForSearch(terms.get(i)) : BytesRefs.toBytesRef(terms.get(i));
+                    }
+                }
+                filter = new MergeTermsFilter(indexFieldName, filterValues);
+                // cache the whole filter by default, or if explicitly told to
+                if (cache == null || cache) {
+                    filter = parseContext.cacheFilter(filter, cacheKey);
+                }
             } else if ("bool".equals(execution)) {
                 XBooleanFilter boolFiler = new XBooleanFilter();
                 if (fieldMapper != null) {
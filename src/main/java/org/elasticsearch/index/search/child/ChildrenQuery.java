@@ -21,22 +21,30 @@ package org.elasticsearch.index.search.child;
 
 import gnu.trove.map.TObjectFloatMap;
 import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TIntFloatHashMap;
+import gnu.trove.map.hash.TIntIntHashMap;
 import gnu.trove.map.hash.TObjectFloatHashMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.ToStringUtils;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.CacheRecycler;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.HashedBytesArray;
 import org.elasticsearch.common.lucene.search.NoopCollector;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -47,6 +55,10 @@ import java.util.Set;
  * documents by parent uid value. Also the child scores are aggregated per parent uid value. During the second round
  * all parent documents having the same uid value that is collected in the first phase are emitted as hit including
  * a score based on the aggregated child scores and score type.
+ * <p/>
+ * With the <tt>bitset</tt> execution type, the first round aggregates the child scores per parent ordinal within
+ * each segment, then resolves each parent ordinal straight to its parent docs in every segment, keeping the
+ * aggregated scores per parent doc, so the second round doesn't need to look up the uid of each parent doc.
  */
 // TODO We use a score of 0 to indicate a doc was not scored in uidToScore, this means score of 0 can be problematic, if we move to HPCC, we can use lset/...
 public class ChildrenQuery extends Query implements SearchContext.Rewrite {
@@ -57,18 +69,34 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
     private final Filter parentFilter;
     private final ScoreType scoreType;
     private final Query originalChildQuery;
+    private final boolean bitsetExecution;
 
     private Query rewrittenChildQuery;
     private TObjectFloatHashMap<HashedBytesArray> uidToScore;
     private TObjectIntHashMap<HashedBytesArray> uidToCount;
+    private Map<Object, ParentScores> parentScores;
 
     public ChildrenQuery(SearchContext searchContext, String parentType, String childType, Filter parentFilter, Query childQuery, ScoreType scoreType) {
+        this(searchContext, parentType, childType, parentFilter, childQuery, scoreType, null);
+    }
+
+    /**
+     * @param executionType Either <tt>uid</tt> (the default) or <tt>bitset</tt>, see {@link HasChildFilter#create(Query, String, String, SearchContext, String)}.
+     */
+    public ChildrenQuery(SearchContext searchContext, String parentType, String childType, Filter parentFilter, Query childQuery, ScoreType scoreType, @Nullable String executionType) {
         this.searchContext = searchContext;
         this.parentType = parentType;
         this.childType = childType;
         this.parentFilter = parentFilter;
         this.originalChildQuery = childQuery;
         this.scoreType = scoreType;
+        if (executionType == null || "uid".equals(executionType)) {
+            this.bitsetExecution = false;
+        } else if ("bitset".equals(executionType)) {
+            this.bitsetExecution = true;
+        } else {
+            throw new ElasticSearchIllegalArgumentException("has_child execution type [" + executionType + "] not supported");
+        }
     }
 
     private ChildrenQuery(ChildrenQuery unProcessedQuery, Query rewrittenChildQuery) {
@@ -78,10 +106,12 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
         this.parentFilter = unProcessedQuery.parentFilter;
         this.scoreType = unProcessedQuery.scoreType;
         this.originalChildQuery = unProcessedQuery.originalChildQuery;
+        this.bitsetExecution = unProcessedQuery.bitsetExecution;
         this.rewrittenChildQuery = rewrittenChildQuery;
 
         this.uidToScore = unProcessedQuery.uidToScore;
         this.uidToCount = unProcessedQuery.uidToCount;
+        this.parentScores = unProcessedQuery.parentScores;
     }
 
     @Override
@@ -120,6 +150,26 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
     public void contextRewrite(SearchContext searchContext) throws Exception {
         searchContext.idCache().refresh(searchContext.searcher().getTopReaderContext().leaves());
 
+        Query childQuery;
+        if (rewrittenChildQuery == null) {
+            childQuery = rewrittenChildQuery = searchContext.searcher().rewrite(originalChildQuery);
+        } else {
+            childQuery = rewrittenChildQuery;
+        }
+
+        if (bitsetExecution) {
+            ChildParentDocsCollector collector = new ChildParentDocsCollector(scoreType, searchContext, parentType);
+            searchContext.searcher().search(childQuery, collector);
+            collector.finish();
+            parentScores = new HashMap<Object, ParentScores>();
+            for (int i = 0; i < collector.parentScores.length; i++) {
+                if (collector.parentScores[i] != null) {
+                    parentScores.put(collector.leaves.get(i).reader().getCoreCacheKey(), collector.parentScores[i]);
+                }
+            }
+            return;
+        }
+
         uidToScore = CacheRecycler.popObjectFloatMap();
         Collector collector;
         switch (scoreType) {
@@ -130,12 +180,6 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
             default:
                 collector = new ChildUidCollector(scoreType, searchContext, parentType, uidToScore);
         }
-        Query childQuery;
-        if (rewrittenChildQuery == null) {
-            childQuery = rewrittenChildQuery = searchContext.searcher().rewrite(originalChildQuery);
-        } else {
-            childQuery = rewrittenChildQuery;
-        }
         searchContext.searcher().search(childQuery, collector);
     }
 
@@ -149,11 +193,12 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
             CacheRecycler.pushObjectIntMap(uidToCount);
         }
         uidToCount = null;
+        parentScores = null;
     }
 
     @Override
     public Weight createWeight(IndexSearcher searcher) throws IOException {
-        if (uidToScore == null) {
+        if (uidToScore == null && parentScores == null) {
             throw new ElasticSearchIllegalStateException("has_child query hasn't executed properly");
         }
 
@@ -196,6 +241,14 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
                 return null;
             }
 
+            if (bitsetExecution) {
+                ParentScores segmentParentScores = parentScores.get(context.reader().getCoreCacheKey());
+                if (segmentParentScores == null) {
+                    return null;
+                }
+                return new ParentScoresScorer(this, segmentParentScores, parentsSet.iterator());
+            }
+
             IdReaderTypeCache idTypeCache = searchContext.idCache().reader(context.reader()).type(parentType);
             DocIdSetIterator parentsIterator = parentsSet.iterator();
             switch (scoreType) {
@@ -389,4 +442,179 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
 
     }
 
+    /**
+     * The aggregated child scores of the parent docs of a single segment. Only the parent docs that have matching
+     * children are kept, so the scores are held in maps by parent doc rather than in arrays sized to the segment.
+     */
+    static final class ParentScores {
+
+        final ScoreType scoreType;
+        final FixedBitSet docs;
+        final TIntFloatHashMap scores = new TIntFloatHashMap();
+        final TIntIntHashMap counts;
+
+        ParentScores(int maxDoc, ScoreType scoreType) {
+            this.scoreType = scoreType;
+            this.docs = new FixedBitSet(maxDoc);
+            this.counts = scoreType == ScoreType.AVG ? new TIntIntHashMap() : null;
+        }
+
+        /**
+         * Adds the score (and child count, for avg) aggregated from the child docs of a segment.
+         */
+        void add(int doc, float score, int count) {
+            if (!docs.getAndSet(doc)) {
+                scores.put(doc, score);
+                if (counts != null) {
+                    counts.put(doc, count);
+                }
+                return;
+            }
+            switch (scoreType) {
+                case SUM:
+                    scores.adjustValue(doc, score);
+                    break;
+                case MAX:
+                    if (score > scores.get(doc)) {
+                        scores.put(doc, score);
+                    }
+                    break;
+                case AVG:
+                    scores.adjustValue(doc, score);
+                    counts.adjustValue(doc, count);
+                    break;
+                default:
+                    assert false : "Are we missing a score type here? -- " + scoreType;
+                    break;
+            }
+        }
+
+        float score(int doc) {
+            if (counts == null) {
+                return scores.get(doc);
+            }
+            return scores.get(doc) / counts.get(doc);
+        }
+    }
+
+    static class ParentScoresScorer extends Scorer {
+
+        final ParentScores parentScores;
+        final DocIdSetIterator parentsIterator;
+
+        int currentDocId = -1;
+        float currentScore;
+
+        ParentScoresScorer(Weight weight, ParentScores parentScores, DocIdSetIterator parentsIterator) {
+            super(weight);
+            this.parentScores = parentScores;
+            this.parentsIterator = parentsIterator;
+        }
+
+        @Override
+        public float score() throws IOException {
+            return currentScore;
+        }
+
+        @Override
+        public int freq() throws IOException {
+            return 1;
+        }
+
+        @Override
+        public int docID() {
+            return currentDocId;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return advance(currentDocId + 1);
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            // leapfrog between the parent docs that have children and the parents filter
+            final FixedBitSet docs = parentScores.docs;
+            int doc = target;
+            while (true) {
+                int next = doc < docs.length() ? docs.nextSetBit(doc) : -1;
+                if (next == -1) {
+                    return currentDocId = NO_MORE_DOCS;
+                }
+                int parent = parentsIterator.docID();
+                if (parent < next) {
+                    parent = parentsIterator.advance(next);
+                }
+                if (parent == NO_MORE_DOCS) {
+                    return currentDocId = NO_MORE_DOCS;
+                }
+                if (parent == next) {
+                    currentScore = parentScores.score(next);
+                    return currentDocId = next;
+                }
+                doc = parent;
+            }
+        }
+    }
+
+    final static class ChildParentDocsCollector extends ParentDocsCollector {
+
+        final ScoreType scoreType;
+        final ParentScores[] parentScores;
+        Scorer scorer;
+
+        // the child scores (and counts, for avg) aggregated per parent ordinal of the current segment, reused across segments
+        float[] ordScores = new float[0];
+        int[] ordCounts = new int[0];
+
+        ChildParentDocsCollector(ScoreType scoreType, SearchContext searchContext, String parentType) {
+            super(parentType, searchContext);
+            this.scoreType = scoreType;
+            this.parentScores = new ParentScores[leaves.size()];
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+            this.scorer = scorer;
+        }
+
+        @Override
+        protected void collect(int doc, int parentOrd, boolean first) throws IOException {
+            float currentScore = scorer.score();
+            if (first) {
+                if (parentOrd >= ordScores.length) {
+                    ordScores = ArrayUtil.grow(ordScores, parentOrd + 1);
+                    ordCounts = ArrayUtil.grow(ordCounts, parentOrd + 1);
+                }
+                ordScores[parentOrd] = currentScore;
+                ordCounts[parentOrd] = 1;
+                return;
+            }
+            switch (scoreType) {
+                case SUM:
+                case AVG:
+                    ordScores[parentOrd] += currentScore;
+                    ordCounts[parentOrd]++;
+                    break;
+                case MAX:
+                    if (currentScore > ordScores[parentOrd]) {
+                        ordScores[parentOrd] = currentScore;
+                    }
+                    break;
+                default:
+                    assert false : "Are we missing a score type here? -- " + scoreType;
+                    break;
+            }
+        }
+
+        @Override
+        protected void collectParent(int parentOrd, int leaf, int parentDoc) throws IOException {
+            ParentScores scores = parentScores[leaf];
+            if (scores == null) {
+                scores = parentScores[leaf] = new ParentScores(leaves.get(leaf).reader().maxDoc(), scoreType);
+            }
+            scores.add(parentDoc, ordScores[parentOrd], ordCounts[parentOrd]);
+        }
+    }
+
 }
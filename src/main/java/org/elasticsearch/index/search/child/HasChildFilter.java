@@ -22,10 +22,13 @@ package org.elasticsearch.index.search.child;
 import gnu.trove.set.hash.THashSet;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.BitsFilteredDocIdSet;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.CacheRecycler;
 import org.elasticsearch.common.Nullable;
@@ -36,6 +39,8 @@ import org.elasticsearch.index.cache.id.IdReaderTypeCache;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  *
@@ -65,6 +70,80 @@ public abstract class HasChildFilter extends Filter implements SearchContext.Rew
         return new Uid(childQuery, parentType, childType, searchContext);
     }
 
+    /**
+     * @param executionType Either <tt>uid</tt> (the default), collecting the parent uids of the matching children
+     *                      into a set probed per parent doc, or <tt>bitset</tt>, resolving the parent ordinals of the
+     *                      matching children straight to parent docs per segment. The latter avoids hashing per child
+     *                      and per parent doc, at the cost of a bitset per segment.
+     */
+    public static HasChildFilter create(Query childQuery, String parentType, String childType, SearchContext searchContext, @Nullable String executionType) {
+        if (executionType == null || "uid".equals(executionType)) {
+            return new Uid(childQuery, parentType, childType, searchContext);
+        } else if ("bitset".equals(executionType)) {
+            return new Bitset(childQuery, parentType, childType, searchContext);
+        }
+        throw new ElasticSearchIllegalArgumentException("has_child execution type [" + executionType + "] not supported");
+    }
+
+    static class Bitset extends HasChildFilter {
+
+        Map<Object, FixedBitSet> parentDocs;
+
+        Bitset(Query childQuery, String parentType, String childType, SearchContext searchContext) {
+            super(childQuery, parentType, childType, searchContext);
+        }
+
+        public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+            if (parentDocs == null) {
+                throw new ElasticSearchIllegalStateException("has_child filter hasn't executed properly");
+            }
+
+            FixedBitSet docs = parentDocs.get(context.reader().getCoreCacheKey());
+            if (docs == null) {
+                return null;
+            }
+            return BitsFilteredDocIdSet.wrap(docs, acceptDocs);
+        }
+
+        @Override
+        public void contextRewrite(SearchContext searchContext) throws Exception {
+            searchContext.idCache().refresh(searchContext.searcher().getTopReaderContext().leaves());
+            ParentDocsBitsCollector collector = new ParentDocsBitsCollector(parentType, searchContext);
+            searchContext.searcher().search(childQuery, collector);
+            collector.finish();
+            parentDocs = new HashMap<Object, FixedBitSet>();
+            for (int i = 0; i < collector.parentDocs.length; i++) {
+                if (collector.parentDocs[i] != null) {
+                    parentDocs.put(collector.leaves.get(i).reader().getCoreCacheKey(), collector.parentDocs[i]);
+                }
+            }
+        }
+
+        @Override
+        public void contextClear() {
+            parentDocs = null;
+        }
+
+        final static class ParentDocsBitsCollector extends ParentDocsCollector {
+
+            final FixedBitSet[] parentDocs;
+
+            ParentDocsBitsCollector(String parentType, SearchContext context) {
+                super(parentType, context);
+                this.parentDocs = new FixedBitSet[leaves.size()];
+            }
+
+            @Override
+            protected void collectParent(int parentOrd, int leaf, int parentDoc) {
+                FixedBitSet docs = parentDocs[leaf];
+                if (docs == null) {
+                    docs = parentDocs[leaf] = new FixedBitSet(leaves.get(leaf).reader().maxDoc());
+                }
+                docs.set(parentDoc);
+            }
+        }
+    }
+
     static class Uid extends HasChildFilter {
 
         THashSet<HashedBytesArray> collectedUids;
@@ -0,0 +1,140 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.search.child;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.common.lucene.search.NoopCollector;
+import org.elasticsearch.index.cache.id.IdReaderCache;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A collector that resolves the parents of the collected child docs straight to parent doc ids in every segment
+ * of the searcher, instead of collecting parent uids into a set that has to be probed per parent doc later on.
+ * <p/>
+ * Within a segment, the collected child docs are grouped by the ordinal of their parent uid (see
+ * {@link IdReaderTypeCache#parentOrdByDoc(int)}). Each parent ordinal is resolved once the segment is done: with
+ * the ordinal itself in the same segment, and by uid in the other segments. A parent uid can be found in more than
+ * one segment (older deleted versions), so all segments are checked, and the live docs need to be applied on the
+ * resulting parent docs.
+ * <p/>
+ * {@link #finish()} needs to be called once the search is done, to resolve the parents of the last segment.
+ */
+abstract class ParentDocsCollector extends NoopCollector {
+
+    protected final List<AtomicReaderContext> leaves;
+    private final IdReaderTypeCache[] parentTypeCaches;
+
+    private int leaf = -1;
+    // the parent ordinals collected in the current segment, reused across segments
+    private FixedBitSet parentOrds;
+
+    protected ParentDocsCollector(String parentType, SearchContext context) {
+        this.leaves = context.searcher().getTopReaderContext().leaves();
+        this.parentTypeCaches = new IdReaderTypeCache[leaves.size()];
+        for (int i = 0; i < parentTypeCaches.length; i++) {
+            IdReaderCache readerCache = context.idCache().reader(leaves.get(i).reader());
+            parentTypeCaches[i] = readerCache == null ? null : readerCache.type(parentType);
+        }
+    }
+
+    @Override
+    public final void collect(int doc) throws IOException {
+        if (leaf == -1) {
+            return;
+        }
+        int parentOrd = parentTypeCaches[leaf].parentOrdByDoc(doc);
+        if (parentOrd != 0) {
+            collect(doc, parentOrd, !parentOrds.getAndSet(parentOrd));
+        }
+    }
+
+    @Override
+    public final void setNextReader(AtomicReaderContext readerContext) throws IOException {
+        resolveParents();
+        leaf = parentTypeCaches[readerContext.ord] == null ? -1 : readerContext.ord;
+        if (leaf != -1) {
+            int numParentOrds = parentTypeCaches[leaf].numParentOrds();
+            if (parentOrds == null || parentOrds.length() < numParentOrds) {
+                parentOrds = new FixedBitSet(numParentOrds);
+            }
+        }
+    }
+
+    /**
+     * Resolves the parents of the child docs collected in the last segment.
+     */
+    public final void finish() throws IOException {
+        resolveParents();
+        leaf = -1;
+    }
+
+    private void resolveParents() throws IOException {
+        if (leaf == -1) {
+            return;
+        }
+        IdReaderTypeCache typeCache = parentTypeCaches[leaf];
+        int length = parentOrds.length();
+        for (int parentOrd = parentOrds.nextSetBit(0); parentOrd != -1; parentOrd = parentOrd + 1 < length ? parentOrds.nextSetBit(parentOrd + 1) : -1) {
+            HashedBytesArray parentId = null;
+            for (int i = 0; i < parentTypeCaches.length; i++) {
+                int parentDoc;
+                if (i == leaf) {
+                    parentDoc = typeCache.docByParentOrd(parentOrd);
+                } else if (parentTypeCaches[i] == null) {
+                    continue;
+                } else {
+                    if (parentId == null) {
+                        parentId = typeCache.parentIdByOrd(parentOrd);
+                    }
+                    parentDoc = parentTypeCaches[i].docById(parentId);
+                }
+                if (parentDoc != -1) {
+                    collectParent(parentOrd, i, parentDoc);
+                }
+            }
+        }
+        parentOrds.clear(0, length);
+    }
+
+    /**
+     * Called for each collected child doc that has a parent.
+     *
+     * @param doc       The child doc (within the current segment)
+     * @param parentOrd The ordinal of the parent uid (within the current segment)
+     * @param first     Whether this is the first child doc of the parent ordinal in the current segment
+     */
+    protected void collect(int doc, int parentOrd, boolean first) throws IOException {
+    }
+
+    /**
+     * Called for each parent doc of the child docs collected in a segment, once the segment is done.
+     *
+     * @param parentOrd The ordinal of the parent uid (within the segment of the child docs)
+     * @param leaf      The index of the segment of the parent doc in {@link #leaves}
+     * @param parentDoc The parent doc (within its segment)
+     */
+    protected abstract void collectParent(int parentOrd, int leaf, int parentDoc) throws IOException;
+}
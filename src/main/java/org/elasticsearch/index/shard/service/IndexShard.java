@@ -96,6 +96,8 @@ public interface IndexShard extends IndexShardComponent {
 
     Engine.GetResult get(Engine.Get get) throws ElasticSearchException;
 
+    Engine.MultiGetResult multiGet(Engine.Get[] gets) throws ElasticSearchException;
+
     void refresh(Engine.Refresh refresh) throws ElasticSearchException;
 
     void flush(Engine.Flush flush) throws ElasticSearchException;
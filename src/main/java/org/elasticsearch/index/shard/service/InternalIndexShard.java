@@ -370,7 +370,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         query = filterQueryIfNeeded(query, types);
 
         Filter aliasFilter = indexAliasesService.aliasFilter(filteringAliases);
-        Filter parentFilter = mapperService.hasNested() ? indexCache.filter().cache(NonNestedDocsFilter.INSTANCE) : null;
+        Filter parentFilter = mapperService.hasNested() ? indexCache.fixedBitSetFilterCache().getFixedBitSetFilter(NonNestedDocsFilter.INSTANCE) : null;
         return new Engine.DeleteByQuery(query, querySource, filteringAliases, aliasFilter, parentFilter, types).startTime(startTime);
     }
 
@@ -392,6 +392,12 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return engine.get(get);
     }
 
+    @Override
+    public Engine.MultiGetResult multiGet(Engine.Get[] gets) throws ElasticSearchException {
+        readAllowed();
+        return engine.multiGet(gets);
+    }
+
     @Override
     public void refresh(Engine.Refresh refresh) throws ElasticSearchException {
         verifyStarted();
@@ -0,0 +1,545 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.UUID;
+import org.elasticsearch.common.blobstore.*;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.io.FastByteArrayInputStream;
+import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
+import org.elasticsearch.common.lucene.store.ThreadSafeInputStreamIndexInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.IndexShardRestoreFailedException;
+import org.elasticsearch.index.snapshots.IndexShardSnapshotFailedException;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreFileMetaData;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A snapshot repository of shards on top of a {@link BlobStore}. Each shard gets its own container under
+ * <tt>[base_path]/indices/[index]/[shard]</tt>, holding a <tt>snapshot-[name]</tt> blob per snapshot, listing
+ * the files the snapshot is made of, and the data blobs of the files.
+ * <p/>
+ * Snapshots are incremental, an index file that is already stored in the repository as part of a previous snapshot
+ * of the shard (same name, length and checksum) is reused and not uploaded again. Data blobs are only deleted once
+ * no snapshot references them anymore. Data blobs get unique random names, so snapshots of the same shard do not need
+ * to agree on a blob name counter, and snapshots and deletes of the same shard are serialized on this node, so a
+ * delete never removes the blobs of a snapshot that is still being uploaded.
+ * <p/>
+ * Note, this is only the storage side of shard snapshots, it is not exposed through an API or used by the gateway
+ * yet, the snapshot and restore operations (including taking the index commit and closing the shards while restoring)
+ * are up to the caller.
+ */
+public class BlobStoreIndexShardRepository extends AbstractComponent {
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    static final String DATA_BLOB_PREFIX = "__";
+
+    private final BlobStore blobStore;
+
+    private final BlobPath basePath;
+
+    private final ByteSizeValue chunkSize;
+
+    private final ConcurrentMap<ShardId, Object> shardMutexes = ConcurrentCollections.newConcurrentMap();
+
+    public BlobStoreIndexShardRepository(Settings settings, BlobStore blobStore, BlobPath basePath, @Nullable ByteSizeValue chunkSize) {
+        super(settings);
+        this.blobStore = blobStore;
+        this.basePath = basePath;
+        this.chunkSize = chunkSize;
+    }
+
+    public BlobPath shardPath(ShardId shardId) {
+        return basePath.add("indices").add(shardId.index().name()).add(Integer.toString(shardId.id()));
+    }
+
+    /**
+     * Validates a snapshot name, it ends up as part of a blob name, so it must be a valid file name.
+     */
+    public static void validateSnapshotName(String snapshot) throws ElasticSearchIllegalArgumentException {
+        if (!Strings.hasLength(snapshot)) {
+            throw new ElasticSearchIllegalArgumentException("snapshot name must not be empty");
+        }
+        if (!Strings.validFileName(snapshot)) {
+            throw new ElasticSearchIllegalArgumentException("snapshot name [" + snapshot + "] must not contain the following characters " + Strings.INVALID_FILENAME_CHARS);
+        }
+        if (snapshot.charAt(0) == '.') {
+            throw new ElasticSearchIllegalArgumentException("snapshot name [" + snapshot + "] must not start with '.'");
+        }
+    }
+
+    /**
+     * Lists the names of the snapshots available for the shard.
+     */
+    public List<String> listSnapshots(ShardId shardId) throws IOException {
+        ImmutableBlobContainer blobContainer = blobStore.immutableBlobContainer(shardPath(shardId));
+        List<String> snapshots = Lists.newArrayList();
+        for (String blobName : blobContainer.listBlobsByPrefix(SNAPSHOT_PREFIX).keySet()) {
+            snapshots.add(blobName.substring(SNAPSHOT_PREFIX.length()));
+        }
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+
+    /**
+     * Loads the shard snapshot with the provided name, <tt>null</tt> if it does not exists.
+     */
+    @Nullable
+    public BlobStoreIndexShardSnapshot loadSnapshot(ShardId shardId, String snapshot) throws IOException {
+        validateSnapshotName(snapshot);
+        ImmutableBlobContainer blobContainer = blobStore.immutableBlobContainer(shardPath(shardId));
+        if (!blobContainer.blobExists(SNAPSHOT_PREFIX + snapshot)) {
+            return null;
+        }
+        return BlobStoreIndexShardSnapshot.fromXContent(blobContainer.readBlobFully(SNAPSHOT_PREFIX + snapshot));
+    }
+
+    /**
+     * Snapshots the provided files of the store (usually the files of a {@link org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit})
+     * under the given snapshot name, uploading only the files that are not already stored in the repository. The
+     * snapshot becomes visible only once all its files have been uploaded.
+     */
+    public BlobStoreIndexShardSnapshot snapshot(String snapshot, Store store, Collection<String> files) throws IndexShardSnapshotFailedException {
+        validateSnapshotName(snapshot);
+        ShardId shardId = store.shardId();
+        synchronized (shardMutex(shardId)) {
+            return innerSnapshot(snapshot, store, files);
+        }
+    }
+
+    private BlobStoreIndexShardSnapshot innerSnapshot(String snapshot, Store store, Collection<String> files) throws IndexShardSnapshotFailedException {
+        ShardId shardId = store.shardId();
+        ImmutableBlobContainer blobContainer = blobStore.immutableBlobContainer(shardPath(shardId));
+        try {
+            ImmutableMap<String, BlobMetaData> blobs = blobContainer.listBlobs();
+            if (blobs.containsKey(SNAPSHOT_PREFIX + snapshot)) {
+                throw new IndexShardSnapshotFailedException(shardId, "snapshot [" + snapshot + "] already exists");
+            }
+            List<BlobStoreIndexShardSnapshot> existingSnapshots = loadSnapshots(blobContainer, blobs);
+
+            List<BlobStoreIndexShardSnapshot.FileInfo> indexFiles = Lists.newArrayList();
+            List<BlobStoreIndexShardSnapshot.FileInfo> filesToUpload = Lists.newArrayList();
+            long reusedSize = 0;
+            long uploadSize = 0;
+            for (String fileName : files) {
+                StoreFileMetaData md = store.metaData(fileName);
+                if (md == null) {
+                    throw new IndexShardSnapshotFailedException(shardId, "file [" + fileName + "] does not exist in the store");
+                }
+                BlobStoreIndexShardSnapshot.FileInfo existingFileInfo = findSameFile(existingSnapshots, md, blobs);
+                if (existingFileInfo != null) {
+                    indexFiles.add(existingFileInfo);
+                    reusedSize += md.length();
+                } else {
+                    BlobStoreIndexShardSnapshot.FileInfo fileInfo = new BlobStoreIndexShardSnapshot.FileInfo(DATA_BLOB_PREFIX + UUID.randomBase64UUID(), fileName, md.length(), md.checksum());
+                    indexFiles.add(fileInfo);
+                    filesToUpload.add(fileInfo);
+                    uploadSize += md.length();
+                }
+            }
+
+            logger.debug("[{}][{}] snapshot [{}]: uploading [{}] files with total_size [{}], reusing [{}] files with total_size [{}]",
+                    shardId.index().name(), shardId.id(), snapshot, filesToUpload.size(), new ByteSizeValue(uploadSize), indexFiles.size() - filesToUpload.size(), new ByteSizeValue(reusedSize));
+
+            final CountDownLatch latch = new CountDownLatch(filesToUpload.size());
+            final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+            for (BlobStoreIndexShardSnapshot.FileInfo fileInfo : filesToUpload) {
+                snapshotFile(store, blobContainer, fileInfo, latch, failures);
+            }
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                failures.add(e);
+            }
+            if (!failures.isEmpty()) {
+                throw new IndexShardSnapshotFailedException(shardId, "failed to upload index files of snapshot [" + snapshot + "]", failures.get(failures.size() - 1));
+            }
+
+            // write the snapshot last, so it only becomes visible once all its files are there
+            BlobStoreIndexShardSnapshot shardSnapshot = new BlobStoreIndexShardSnapshot(snapshot, indexFiles);
+            byte[] snapshotData = BlobStoreIndexShardSnapshot.toXContent(shardSnapshot);
+            blobContainer.writeBlob(SNAPSHOT_PREFIX + snapshot, new FastByteArrayInputStream(snapshotData), snapshotData.length);
+            return shardSnapshot;
+        } catch (IndexShardSnapshotFailedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IndexShardSnapshotFailedException(shardId, "failed to snapshot [" + snapshot + "]", e);
+        }
+    }
+
+    /**
+     * Restores the snapshot into the provided stores (shards), in parallel. Files that already exist in a store
+     * with the same content are not downloaded again, and files that are not part of the snapshot are removed
+     * from the store. The shards should not be started while they are being restored.
+     */
+    public void restore(String snapshot, Collection<Store> stores) throws IndexShardRestoreFailedException {
+        final Map<Store, BlobStoreIndexShardSnapshot> shardSnapshots = Maps.newHashMap();
+        for (Store store : stores) {
+            BlobStoreIndexShardSnapshot shardSnapshot;
+            try {
+                shardSnapshot = loadSnapshot(store.shardId(), snapshot);
+            } catch (Exception e) {
+                throw new IndexShardRestoreFailedException(store.shardId(), "failed to read snapshot [" + snapshot + "]", e);
+            }
+            if (shardSnapshot == null) {
+                throw new IndexShardRestoreFailedException(store.shardId(), "snapshot [" + snapshot + "] does not exist");
+            }
+            shardSnapshots.put(store, shardSnapshot);
+        }
+
+        // figure out the files to restore across all shards, and restore all of them in parallel
+        Map<Store, List<BlobStoreIndexShardSnapshot.FileInfo>> filesToRestore = Maps.newHashMap();
+        int totalFilesToRestore = 0;
+        for (Map.Entry<Store, BlobStoreIndexShardSnapshot> entry : shardSnapshots.entrySet()) {
+            Store store = entry.getKey();
+            List<BlobStoreIndexShardSnapshot.FileInfo> files = Lists.newArrayList();
+            for (BlobStoreIndexShardSnapshot.FileInfo fileInfo : entry.getValue().indexFiles()) {
+                StoreFileMetaData md;
+                try {
+                    md = store.metaData(fileInfo.physicalName());
+                } catch (IOException e) {
+                    md = null;
+                }
+                if (md != null && fileInfo.isSame(md)) {
+                    logger.trace("[{}][{}] restore [{}]: not restoring [{}], exists in local store and is the same", store.shardId().index().name(), store.shardId().id(), snapshot, fileInfo.physicalName());
+                    continue;
+                }
+                files.add(fileInfo);
+            }
+            filesToRestore.put(store, files);
+            totalFilesToRestore += files.size();
+        }
+
+        final CountDownLatch latch = new CountDownLatch(totalFilesToRestore);
+        final Map<ShardId, List<Throwable>> failures = Maps.newHashMap();
+        for (Map.Entry<Store, List<BlobStoreIndexShardSnapshot.FileInfo>> entry : filesToRestore.entrySet()) {
+            Store store = entry.getKey();
+            ImmutableBlobContainer blobContainer = blobStore.immutableBlobContainer(shardPath(store.shardId()));
+            ImmutableMap<String, BlobMetaData> blobs;
+            List<Throwable> shardFailures = new CopyOnWriteArrayList<Throwable>();
+            failures.put(store.shardId(), shardFailures);
+            try {
+                blobs = blobContainer.listBlobs();
+            } catch (IOException e) {
+                shardFailures.add(e);
+                for (int i = 0; i < entry.getValue().size(); i++) {
+                    latch.countDown();
+                }
+                continue;
+            }
+            for (BlobStoreIndexShardSnapshot.FileInfo fileInfo : entry.getValue()) {
+                restoreFile(store, blobContainer, fileInfo, blobs, latch, shardFailures);
+            }
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IndexShardRestoreFailedException(null, "interrupted while restoring snapshot [" + snapshot + "]", e);
+        }
+        for (Map.Entry<ShardId, List<Throwable>> entry : failures.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                throw new IndexShardRestoreFailedException(entry.getKey(), "failed to restore snapshot [" + snapshot + "]", entry.getValue().get(entry.getValue().size() - 1));
+            }
+        }
+
+        // now, remove files that are not part of the snapshot
+        for (Map.Entry<Store, BlobStoreIndexShardSnapshot> entry : shardSnapshots.entrySet()) {
+            Store store = entry.getKey();
+            Set<String> snapshotFiles = Sets.newHashSet();
+            for (BlobStoreIndexShardSnapshot.FileInfo fileInfo : entry.getValue().indexFiles()) {
+                snapshotFiles.add(fileInfo.physicalName());
+            }
+            try {
+                for (String existingFile : store.directory().listAll()) {
+                    // don't delete the checksums file (note, this is extra protection since the Store won't delete checksum)
+                    if (!snapshotFiles.contains(existingFile) && !Store.isChecksum(existingFile)) {
+                        try {
+                            store.directory().deleteFile(existingFile);
+                        } catch (Exception e) {
+                            // ignore, we don't really care, will get deleted later on
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new IndexShardRestoreFailedException(store.shardId(), "failed to list files after restoring snapshot [" + snapshot + "]", e);
+            }
+        }
+    }
+
+    /**
+     * Deletes the snapshot of the shard, and the data blobs that are not used by any other snapshot.
+     */
+    public void deleteSnapshot(ShardId shardId, String snapshot) throws IOException {
+        validateSnapshotName(snapshot);
+        synchronized (shardMutex(shardId)) {
+            innerDeleteSnapshot(shardId, snapshot);
+        }
+    }
+
+    private void innerDeleteSnapshot(ShardId shardId, String snapshot) throws IOException {
+        ImmutableBlobContainer blobContainer = blobStore.immutableBlobContainer(shardPath(shardId));
+        blobContainer.deleteBlob(SNAPSHOT_PREFIX + snapshot);
+
+        ImmutableMap<String, BlobMetaData> blobs = blobContainer.listBlobs();
+        final Set<String> usedBlobs = Sets.newHashSet();
+        for (BlobStoreIndexShardSnapshot shardSnapshot : loadSnapshots(blobContainer, blobs)) {
+            for (BlobStoreIndexShardSnapshot.FileInfo fileInfo : shardSnapshot.indexFiles()) {
+                usedBlobs.add(fileInfo.name());
+            }
+        }
+        blobContainer.deleteBlobsByFilter(new BlobContainer.BlobNameFilter() {
+            @Override
+            public boolean accept(String blobName) {
+                if (!blobName.startsWith(DATA_BLOB_PREFIX)) {
+                    return false;
+                }
+                return !usedBlobs.contains(dataBlobName(blobName));
+            }
+        });
+    }
+
+    private Object shardMutex(ShardId shardId) {
+        Object mutex = shardMutexes.get(shardId);
+        if (mutex == null) {
+            mutex = new Object();
+            Object existing = shardMutexes.putIfAbsent(shardId, mutex);
+            if (existing != null) {
+                mutex = existing;
+            }
+        }
+        return mutex;
+    }
+
+    private List<BlobStoreIndexShardSnapshot> loadSnapshots(BlobContainer blobContainer, ImmutableMap<String, BlobMetaData> blobs) throws IOException {
+        List<BlobStoreIndexShardSnapshot> snapshots = Lists.newArrayList();
+        for (String blobName : blobs.keySet()) {
+            if (blobName.startsWith(SNAPSHOT_PREFIX)) {
+                snapshots.add(BlobStoreIndexShardSnapshot.fromXContent(blobContainer.readBlobFully(blobName)));
+            }
+        }
+        return snapshots;
+    }
+
+    private BlobStoreIndexShardSnapshot.FileInfo findSameFile(List<BlobStoreIndexShardSnapshot> snapshots, StoreFileMetaData md, ImmutableMap<String, BlobMetaData> blobs) {
+        for (BlobStoreIndexShardSnapshot snapshot : snapshots) {
+            BlobStoreIndexShardSnapshot.FileInfo fileInfo = snapshot.findPhysicalIndexFile(md.name());
+            if (fileInfo != null && fileInfo.isSame(md) && dataBlobExists(fileInfo, blobs)) {
+                return fileInfo;
+            }
+        }
+        return null;
+    }
+
+    private boolean dataBlobExists(BlobStoreIndexShardSnapshot.FileInfo fileInfo, ImmutableMap<String, BlobMetaData> blobs) {
+        BlobMetaData blobMetaData = blobs.get(fileInfo.name());
+        if (blobMetaData != null) {
+            return blobMetaData.length() == fileInfo.length();
+        }
+        // chunked, sum up the parts
+        long totalSize = 0;
+        for (int part = 0; ; part++) {
+            blobMetaData = blobs.get(fileInfo.name() + ".part" + part);
+            if (blobMetaData == null) {
+                break;
+            }
+            totalSize += blobMetaData.length();
+        }
+        return totalSize == fileInfo.length();
+    }
+
+    private static String dataBlobName(String blobName) {
+        int partIndex = blobName.indexOf(".part");
+        if (partIndex == -1) {
+            return blobName;
+        }
+        return blobName.substring(0, partIndex);
+    }
+
+    private void snapshotFile(Store store, ImmutableBlobContainer blobContainer, final BlobStoreIndexShardSnapshot.FileInfo fileInfo, final CountDownLatch latch, final List<Throwable> failures) {
+        long chunkBytes = Long.MAX_VALUE;
+        if (chunkSize != null) {
+            chunkBytes = chunkSize.bytes();
+        }
+
+        long totalLength = fileInfo.length();
+        long numberOfChunks = totalLength / chunkBytes;
+        if (totalLength % chunkBytes > 0) {
+            numberOfChunks++;
+        }
+        if (numberOfChunks == 0) {
+            numberOfChunks++;
+        }
+
+        final long fNumberOfChunks = numberOfChunks;
+        final AtomicLong counter = new AtomicLong(numberOfChunks);
+        for (long i = 0; i < fNumberOfChunks; i++) {
+            final long partNumber = i;
+
+            IndexInput indexInput = null;
+            try {
+                indexInput = store.openInputRaw(fileInfo.physicalName(), IOContext.READ);
+                indexInput.seek(partNumber * chunkBytes);
+                InputStreamIndexInput is = new ThreadSafeInputStreamIndexInput(indexInput, chunkBytes);
+
+                String blobName = fileInfo.name();
+                if (fNumberOfChunks > 1) {
+                    // if we do chunks, then all of them are in the form of "[xxx].part[N]".
+                    blobName += ".part" + partNumber;
+                }
+
+                final IndexInput fIndexInput = indexInput;
+                blobContainer.writeBlob(blobName, is, is.actualSizeToRead(), new ImmutableBlobContainer.WriterListener() {
+                    @Override
+                    public void onCompleted() {
+                        try {
+                            fIndexInput.close();
+                        } catch (IOException e) {
+                            // ignore
+                        }
+                        if (counter.decrementAndGet() == 0) {
+                            latch.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        try {
+                            fIndexInput.close();
+                        } catch (IOException e) {
+                            // ignore
+                        }
+                        failures.add(t);
+                        if (counter.decrementAndGet() == 0) {
+                            latch.countDown();
+                        }
+                    }
+                });
+            } catch (Exception e) {
+                if (indexInput != null) {
+                    try {
+                        indexInput.close();
+                    } catch (IOException e1) {
+                        // ignore
+                    }
+                }
+                failures.add(e);
+                if (counter.decrementAndGet() == 0) {
+                    latch.countDown();
+                }
+            }
+        }
+    }
+
+    private void restoreFile(final Store store, final ImmutableBlobContainer blobContainer, final BlobStoreIndexShardSnapshot.FileInfo fileInfo,
+                             final ImmutableMap<String, BlobMetaData> blobs, final CountDownLatch latch, final List<Throwable> failures) {
+        final IndexOutput indexOutput;
+        try {
+            // we create an output with no checksum, this is because the pure binary data of the file is not
+            // the checksum (because of seek). We will create the checksum file once copying is done
+            indexOutput = store.createOutputRaw(fileInfo.physicalName());
+        } catch (IOException e) {
+            failures.add(e);
+            latch.countDown();
+            return;
+        }
+
+        String firstFileToRestore = fileInfo.name();
+        if (!blobs.containsKey(fileInfo.name())) {
+            // chunking, append part0 to it
+            firstFileToRestore = fileInfo.name() + ".part0";
+        }
+        if (!blobs.containsKey(firstFileToRestore)) {
+            try {
+                indexOutput.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            failures.add(new IndexShardRestoreFailedException(store.shardId(), "missing blob [" + fileInfo.name() + "] for file [" + fileInfo.physicalName() + "]"));
+            latch.countDown();
+            return;
+        }
+        final AtomicInteger partIndex = new AtomicInteger();
+
+        blobContainer.readBlob(firstFileToRestore, new BlobContainer.ReadBlobListener() {
+            @Override
+            public synchronized void onPartial(byte[] data, int offset, int size) throws IOException {
+                indexOutput.writeBytes(data, offset, size);
+            }
+
+            @Override
+            public synchronized void onCompleted() {
+                int part = partIndex.incrementAndGet();
+                String partName = fileInfo.name() + ".part" + part;
+                if (blobs.containsKey(partName)) {
+                    // continue with the new part
+                    blobContainer.readBlob(partName, this);
+                    return;
+                } else {
+                    // we are done...
+                    try {
+                        indexOutput.close();
+                        // write the checksum
+                        if (fileInfo.checksum() != null) {
+                            store.writeChecksum(fileInfo.physicalName(), fileInfo.checksum());
+                        }
+                        store.directory().sync(Collections.singleton(fileInfo.physicalName()));
+                    } catch (IOException e) {
+                        onFailure(e);
+                        return;
+                    }
+                }
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                try {
+                    indexOutput.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                failures.add(t);
+                latch.countDown();
+            }
+        });
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.store.StoreFileMetaData;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A point in time snapshot of a shard, listing the index files it is made of, and the blobs holding
+ * their content. Blobs are shared between snapshots of the same shard.
+ */
+public class BlobStoreIndexShardSnapshot {
+
+    public static class FileInfo {
+        private final String name;
+        private final String physicalName;
+        private final long length;
+        private final String checksum;
+
+        public FileInfo(String name, String physicalName, long length, @Nullable String checksum) {
+            this.name = name;
+            this.physicalName = physicalName;
+            this.length = length;
+            this.checksum = checksum;
+        }
+
+        /**
+         * The name of the blob (or the prefix of its parts) holding the file content.
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * The name of the file in the shard store.
+         */
+        public String physicalName() {
+            return this.physicalName;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        @Nullable
+        public String checksum() {
+            return checksum;
+        }
+
+        /**
+         * Returns <tt>true</tt> if this file holds exactly the same content as the provided store file. Files
+         * without a checksum are never considered the same.
+         */
+        public boolean isSame(StoreFileMetaData md) {
+            if (checksum == null || md.checksum() == null) {
+                return false;
+            }
+            return physicalName.equals(md.name()) && length == md.length() && checksum.equals(md.checksum());
+        }
+
+        @Override
+        public String toString() {
+            return "name [" + name + "], physical_name [" + physicalName + "], length [" + length + "], checksum [" + checksum + "]";
+        }
+    }
+
+    private final String snapshot;
+
+    private final ImmutableList<FileInfo> indexFiles;
+
+    public BlobStoreIndexShardSnapshot(String snapshot, List<FileInfo> indexFiles) {
+        this.snapshot = snapshot;
+        this.indexFiles = ImmutableList.copyOf(indexFiles);
+    }
+
+    public String snapshot() {
+        return snapshot;
+    }
+
+    public ImmutableList<FileInfo> indexFiles() {
+        return indexFiles;
+    }
+
+    public FileInfo findPhysicalIndexFile(String physicalName) {
+        for (FileInfo file : indexFiles) {
+            if (file.physicalName().equals(physicalName)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    public FileInfo findNameFile(String name) {
+        for (FileInfo file : indexFiles) {
+            if (file.name().equals(name)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    public static byte[] toXContent(BlobStoreIndexShardSnapshot snapshot) throws IOException {
+        XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON).prettyPrint();
+        builder.startObject();
+        builder.field("snapshot", snapshot.snapshot());
+        builder.startObject("index_files");
+        for (FileInfo fileInfo : snapshot.indexFiles()) {
+            builder.startObject(fileInfo.name());
+            builder.field("physical_name", fileInfo.physicalName());
+            builder.field("length", fileInfo.length());
+            if (fileInfo.checksum() != null) {
+                builder.field("checksum", fileInfo.checksum());
+            }
+            builder.endObject();
+        }
+        builder.endObject();
+        builder.endObject();
+        return builder.bytes().toBytes();
+    }
+
+    public static BlobStoreIndexShardSnapshot fromXContent(byte[] data) throws IOException {
+        XContentParser parser = XContentFactory.xContent(XContentType.JSON).createParser(data);
+        try {
+            String currentFieldName = null;
+            XContentParser.Token token = parser.nextToken();
+            if (token == null) {
+                // no data...
+                throw new IOException("No snapshot data");
+            }
+            String snapshot = null;
+            List<FileInfo> indexFiles = Lists.newArrayList();
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    currentFieldName = parser.currentName();
+                } else if (token == XContentParser.Token.START_OBJECT) {
+                    if (!"index_files".equals(currentFieldName)) {
+                        throw new IOException("Can't handle object with name [" + currentFieldName + "]");
+                    }
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                        if (token == XContentParser.Token.FIELD_NAME) {
+                            currentFieldName = parser.currentName();
+                        } else if (token == XContentParser.Token.START_OBJECT) {
+                            String fileName = currentFieldName;
+                            String physicalName = null;
+                            long length = -1;
+                            String checksum = null;
+                            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                                if (token == XContentParser.Token.FIELD_NAME) {
+                                    currentFieldName = parser.currentName();
+                                } else if (token.isValue()) {
+                                    if ("physical_name".equals(currentFieldName)) {
+                                        physicalName = parser.text();
+                                    } else if ("length".equals(currentFieldName)) {
+                                        length = parser.longValue();
+                                    } else if ("checksum".equals(currentFieldName)) {
+                                        checksum = parser.text();
+                                    }
+                                }
+                            }
+                            if (physicalName == null) {
+                                throw new IOException("Malformed snapshot, missing physical_name for [" + fileName + "]");
+                            }
+                            if (length == -1) {
+                                throw new IOException("Malformed snapshot, missing length for [" + fileName + "]");
+                            }
+                            indexFiles.add(new FileInfo(fileName, physicalName, length, checksum));
+                        }
+                    }
+                } else if (token.isValue()) {
+                    if ("snapshot".equals(currentFieldName)) {
+                        snapshot = parser.text();
+                    }
+                }
+            }
+            if (snapshot == null) {
+                throw new IOException("Malformed snapshot, missing snapshot name");
+            }
+            return new BlobStoreIndexShardSnapshot(snapshot, indexFiles);
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -22,7 +22,10 @@ package org.elasticsearch.index.store;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import org.apache.lucene.index.SegmentInfoPerCommit;
+import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.store.*;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.compress.Compressor;
@@ -34,6 +37,7 @@ import org.elasticsearch.common.lucene.store.ChecksumIndexOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.CloseableIndexComponent;
+import org.elasticsearch.index.codec.storedfields.HighCompressionStoredFieldsFormat;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
@@ -69,6 +73,8 @@ public class Store extends AbstractIndexShardComponent implements CloseableIndex
 
     private volatile String[] files = Strings.EMPTY_ARRAY;
 
+    private volatile StoredFieldsSizes storedFieldsSizes = StoredFieldsSizes.EMPTY;
+
     private final Object mutex = new Object();
 
     private final boolean sync;
@@ -142,7 +148,44 @@ public class Store extends AbstractIndexShardComponent implements CloseableIndex
     }
 
     public StoreStats stats() throws IOException {
-        return new StoreStats(Directories.estimateSize(directory), directoryService.throttleTimeInNanos());
+        StoredFieldsSizes storedFieldsSizes = storedFieldsSizes();
+        return new StoreStats(Directories.estimateSize(directory), directoryService.throttleTimeInNanos(), storedFieldsSizes.sizeInBytes, storedFieldsSizes.rawSizeInBytes);
+    }
+
+    /**
+     * The stored fields sizes of the last commit point, only reading the segment infos again
+     * once a new commit point was written.
+     */
+    private StoredFieldsSizes storedFieldsSizes() throws IOException {
+        String segmentsFileName = SegmentInfos.getLastCommitSegmentsFileName(files);
+        if (segmentsFileName == null) {
+            // no commit point yet
+            return StoredFieldsSizes.EMPTY;
+        }
+        StoredFieldsSizes storedFieldsSizes = this.storedFieldsSizes;
+        if (segmentsFileName.equals(storedFieldsSizes.segmentsFileName)) {
+            return storedFieldsSizes;
+        }
+        if (metaData(segmentsFileName) == null) {
+            // the commit point is still being written, keep reporting the previous one
+            return storedFieldsSizes;
+        }
+        SegmentInfos infos = new SegmentInfos();
+        infos.read(directory, segmentsFileName);
+        long rawSizeInBytes = 0;
+        long sizeInBytes = 0;
+        // only segments written with the high compression stored fields format track their stored fields size
+        for (SegmentInfoPerCommit info : infos) {
+            long rawSize = HighCompressionStoredFieldsFormat.rawSizeInBytes(info.info);
+            long size = HighCompressionStoredFieldsFormat.sizeInBytes(info.info);
+            if (rawSize >= 0 && size >= 0) {
+                rawSizeInBytes += rawSize;
+                sizeInBytes += size;
+            }
+        }
+        storedFieldsSizes = new StoredFieldsSizes(segmentsFileName, sizeInBytes, rawSizeInBytes);
+        this.storedFieldsSizes = storedFieldsSizes;
+        return storedFieldsSizes;
     }
 
     public ByteSizeValue estimateSize() throws IOException {
@@ -271,6 +314,26 @@ public class Store extends AbstractIndexShardComponent implements CloseableIndex
         return metaData.directory().openInput(name, context);
     }
 
+    /**
+     * Returns the file backing the store file in case it is stored on the file system, <tt>null</tt> otherwise.
+     * Note, the content of the file is raw, no decompression for example.
+     */
+    @Nullable
+    public File rawFile(String name) throws IOException {
+        StoreFileMetaData metaData = filesMetadata.get(name);
+        if (metaData == null) {
+            throw new FileNotFoundException(name);
+        }
+        Directory directory = metaData.directory();
+        if (directory instanceof RateLimitedFSDirectory) {
+            directory = ((RateLimitedFSDirectory) directory).wrappedDirectory();
+        }
+        if (directory instanceof FSDirectory) {
+            return new File(((FSDirectory) directory).getDirectory(), name);
+        }
+        return null;
+    }
+
     public void writeChecksum(String name, String checksum) throws IOException {
         // update the metadata to include the checksum and write a new checksums file
         synchronized (mutex) {
@@ -293,6 +356,21 @@ public class Store extends AbstractIndexShardComponent implements CloseableIndex
         }
     }
 
+    static class StoredFieldsSizes {
+
+        static final StoredFieldsSizes EMPTY = new StoredFieldsSizes(null, 0, 0);
+
+        final String segmentsFileName;
+        final long sizeInBytes;
+        final long rawSizeInBytes;
+
+        StoredFieldsSizes(String segmentsFileName, long sizeInBytes, long rawSizeInBytes) {
+            this.segmentsFileName = segmentsFileName;
+            this.sizeInBytes = sizeInBytes;
+            this.rawSizeInBytes = rawSizeInBytes;
+        }
+    }
+
     /**
      * The idea of the store directory is to cache file level meta data, as well as md5 of it
      */
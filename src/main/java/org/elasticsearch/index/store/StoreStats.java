@@ -38,13 +38,23 @@ public class StoreStats implements Streamable, ToXContent {
 
     private long throttleTimeInNanos;
 
+    private long storedFieldsSizeInBytes;
+
+    private long storedFieldsRawSizeInBytes;
+
     public StoreStats() {
 
     }
 
     public StoreStats(long sizeInBytes, long throttleTimeInNanos) {
+        this(sizeInBytes, throttleTimeInNanos, 0, 0);
+    }
+
+    public StoreStats(long sizeInBytes, long throttleTimeInNanos, long storedFieldsSizeInBytes, long storedFieldsRawSizeInBytes) {
         this.sizeInBytes = sizeInBytes;
         this.throttleTimeInNanos = throttleTimeInNanos;
+        this.storedFieldsSizeInBytes = storedFieldsSizeInBytes;
+        this.storedFieldsRawSizeInBytes = storedFieldsRawSizeInBytes;
     }
 
     public void add(StoreStats stats) {
@@ -53,6 +63,8 @@ public class StoreStats implements Streamable, ToXContent {
         }
         sizeInBytes += stats.sizeInBytes;
         throttleTimeInNanos += stats.throttleTimeInNanos;
+        storedFieldsSizeInBytes += stats.storedFieldsSizeInBytes;
+        storedFieldsRawSizeInBytes += stats.storedFieldsRawSizeInBytes;
     }
 
 
@@ -80,6 +92,32 @@ public class StoreStats implements Streamable, ToXContent {
         return throttleTime();
     }
 
+    /**
+     * The size of the compressed stored fields, only tracked for segments written with the
+     * <tt>high_compression</tt> codec.
+     */
+    public long getStoredFieldsSizeInBytes() {
+        return storedFieldsSizeInBytes;
+    }
+
+    /**
+     * The raw (uncompressed) size of the stored fields, only tracked for segments written with the
+     * <tt>high_compression</tt> codec.
+     */
+    public long getStoredFieldsRawSizeInBytes() {
+        return storedFieldsRawSizeInBytes;
+    }
+
+    /**
+     * The ratio between the raw and the compressed size of the stored fields, <tt>0</tt> if not tracked.
+     */
+    public double getStoredFieldsCompressionRatio() {
+        if (storedFieldsSizeInBytes == 0) {
+            return 0;
+        }
+        return ((double) storedFieldsRawSizeInBytes) / storedFieldsSizeInBytes;
+    }
+
     public static StoreStats readStoreStats(StreamInput in) throws IOException {
         StoreStats store = new StoreStats();
         store.readFrom(in);
@@ -90,12 +128,16 @@ public class StoreStats implements Streamable, ToXContent {
     public void readFrom(StreamInput in) throws IOException {
         sizeInBytes = in.readVLong();
         throttleTimeInNanos = in.readVLong();
+        storedFieldsSizeInBytes = in.readVLong();
+        storedFieldsRawSizeInBytes = in.readVLong();
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(sizeInBytes);
         out.writeVLong(throttleTimeInNanos);
+        out.writeVLong(storedFieldsSizeInBytes);
+        out.writeVLong(storedFieldsRawSizeInBytes);
     }
 
     @Override
@@ -105,6 +147,12 @@ public class StoreStats implements Streamable, ToXContent {
         builder.field(Fields.SIZE_IN_BYTES, sizeInBytes);
         builder.field(Fields.THROTTLE_TIME, throttleTime().toString());
         builder.field(Fields.THROTTLE_TIME_IN_MILLIS, throttleTime().millis());
+        if (storedFieldsSizeInBytes > 0) {
+            builder.field(Fields.STORED_FIELDS_SIZE, new ByteSizeValue(storedFieldsSizeInBytes).toString());
+            builder.field(Fields.STORED_FIELDS_SIZE_IN_BYTES, storedFieldsSizeInBytes);
+            builder.field(Fields.STORED_FIELDS_RAW_SIZE_IN_BYTES, storedFieldsRawSizeInBytes);
+            builder.field(Fields.STORED_FIELDS_COMPRESSION_RATIO, getStoredFieldsCompressionRatio());
+        }
         builder.endObject();
         return builder;
     }
@@ -116,5 +164,10 @@ public class StoreStats implements Streamable, ToXContent {
 
         static final XContentBuilderString THROTTLE_TIME = new XContentBuilderString("throttle_time");
         static final XContentBuilderString THROTTLE_TIME_IN_MILLIS = new XContentBuilderString("throttle_time_in_millis");
+
+        static final XContentBuilderString STORED_FIELDS_SIZE = new XContentBuilderString("stored_fields_size");
+        static final XContentBuilderString STORED_FIELDS_SIZE_IN_BYTES = new XContentBuilderString("stored_fields_size_in_bytes");
+        static final XContentBuilderString STORED_FIELDS_RAW_SIZE_IN_BYTES = new XContentBuilderString("stored_fields_raw_size_in_bytes");
+        static final XContentBuilderString STORED_FIELDS_COMPRESSION_RATIO = new XContentBuilderString("stored_fields_compression_ratio");
     }
 }
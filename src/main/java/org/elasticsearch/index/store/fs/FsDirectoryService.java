@@ -20,9 +20,11 @@
 package org.elasticsearch.index.store.fs;
 
 import org.apache.lucene.store.*;
+import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.merge.scheduler.MergeSchedulerProvider;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
@@ -42,6 +44,8 @@ public abstract class FsDirectoryService extends AbstractIndexShardComponent imp
 
     private final CounterMetric rateLimitingTimeInNanos = new CounterMetric();
 
+    private volatile StoreRateLimiting.Provider mergeRateLimiting;
+
     public FsDirectoryService(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore) {
         super(shardId, indexSettings);
         this.indexStore = (FsIndexStore) indexStore;
@@ -52,8 +56,18 @@ public abstract class FsDirectoryService extends AbstractIndexShardComponent imp
         return rateLimitingTimeInNanos.count();
     }
 
+    @Inject(optional = true)
+    public void setMergeSchedulerProvider(MergeSchedulerProvider mergeSchedulerProvider) {
+        this.mergeRateLimiting = mergeSchedulerProvider.mergeRateLimiting();
+    }
+
     @Override
     public StoreRateLimiting rateLimiting() {
+        StoreRateLimiting.Provider mergeRateLimiting = this.mergeRateLimiting;
+        if (mergeRateLimiting != null) {
+            // shard level merge throttling, only merges are throttled
+            return mergeRateLimiting.rateLimiting();
+        }
         return indexStore.rateLimiting();
     }
 
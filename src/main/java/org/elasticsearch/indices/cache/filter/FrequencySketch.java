@@ -0,0 +1,120 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A count-min sketch with 4 bit counters (TinyLFU style) estimating how often a key was seen. Counters are
+ * halved once enough increments were recorded, so the estimate favours recent popularity. Each long holds
+ * 16 counters, a key maps to one counter in each of 4 longs.
+ * <p/>
+ * The sketch is shared by the node, so it is lock free. Counters are incremented with a CAS on the long
+ * holding them, and the thread crossing the sample size does the halving. Increments racing with the halving
+ * might not get halved, which is fine for an estimate.
+ */
+public class FrequencySketch {
+
+    private static final long[] SEEDS = new long[]{0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param size the number of longs (each holding 16 counters) to use, rounded up to a power of two
+     */
+    public FrequencySketch(int size) {
+        int length = Integer.highestOneBit(Math.max(16, size) - 1) << 1;
+        this.table = new AtomicLongArray(length);
+        this.tableMask = length - 1;
+        this.sampleSize = length * 10;
+    }
+
+    /**
+     * Increments the counters of the key and returns its estimated frequency, including this increment.
+     */
+    public int increment(int hash) {
+        int start = (spread(hash) & 3) << 2;
+        boolean added = false;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            int count;
+            while (true) {
+                long value = table.get(index);
+                count = (int) ((value >>> offset) & 0xfL);
+                if (count == 15) {
+                    break;
+                }
+                if (table.compareAndSet(index, value, value + (1L << offset))) {
+                    count++;
+                    added = true;
+                    break;
+                }
+            }
+            frequency = Math.min(frequency, count);
+        }
+        if (added && additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+        return frequency;
+    }
+
+    /**
+     * Returns the estimated frequency of the key.
+     */
+    public int frequency(int hash) {
+        int start = (spread(hash) & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            frequency = Math.min(frequency, (int) ((table.get(index) >>> offset) & 0xfL));
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            long value;
+            do {
+                value = table.get(i);
+            } while (!table.compareAndSet(i, value, (value >>> 1) & RESET_MASK));
+        }
+        additions.addAndGet(-(sampleSize >>> 1));
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += (h >>> 32);
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
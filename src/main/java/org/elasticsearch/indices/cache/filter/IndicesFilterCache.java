@@ -54,6 +54,10 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
 
     private final TimeValue cleanInterval;
 
+    private final int minSegmentSize;
+    private final int minFrequency;
+    private final FrequencySketch frequencySketch;
+
     private final Set<Object> readersKeysToClean = ConcurrentCollections.newConcurrentSet();
 
     private volatile boolean closed;
@@ -94,10 +98,14 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
         this.size = componentSettings.get("size", "20%");
         this.expire = componentSettings.getAsTime("expire", null);
         this.cleanInterval = componentSettings.getAsTime("clean_interval", TimeValue.timeValueSeconds(60));
+        // admission is opt in, by default every filter is cached on every segment
+        this.minSegmentSize = componentSettings.getAsInt("admission.min_segment_size", 0);
+        this.minFrequency = componentSettings.getAsInt("admission.min_frequency", 1);
+        this.frequencySketch = minFrequency > 1 ? new FrequencySketch(componentSettings.getAsInt("admission.sketch_size", 4096)) : null;
         computeSizeInBytes();
         buildCache();
-        logger.debug("using [node] weighted filter cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}]",
-                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval);
+        logger.debug("using [node] weighted filter cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}], admission min_segment_size [{}], min_frequency [{}]",
+                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval, minSegmentSize, minFrequency);
 
         nodeSettingsService.addListener(new ApplySettings());
 
@@ -128,6 +136,22 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
         }
     }
 
+    /**
+     * Should the filter be cached for the segment? Segments smaller than {@code min_segment_size} docs are
+     * cheap to execute against and are never cached, other entries are only admitted once they have been
+     * asked for (and missed) at least {@code min_frequency} times recently, so one off filters don't push
+     * out the ones that get reused. Both default to admitting everything.
+     */
+    public boolean admit(WeightedFilterCache.FilterCacheKey cacheKey, int maxDoc) {
+        if (maxDoc < minSegmentSize) {
+            return false;
+        }
+        if (minFrequency <= 1) {
+            return true;
+        }
+        return frequencySketch.increment(cacheKey.hashCode()) >= minFrequency;
+    }
+
     public void addReaderKeyToClean(Object readerKey) {
         readersKeysToClean.add(readerKey);
     }
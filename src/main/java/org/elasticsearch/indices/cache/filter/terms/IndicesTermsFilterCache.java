@@ -21,54 +21,99 @@ package org.elasticsearch.indices.cache.filter.terms;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.cache.Weigher;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.queries.TermsFilter;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.cache.filter.support.CacheKeyFilter;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.indexing.IndexingOperationListener;
+import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.IndicesLifecycle;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Caches the terms of lookup documents used by the terms filter. The terms are extracted from the lookup
+ * document on a cache miss, sorted and de-duplicated, and the filter built out of them is reused until the
+ * lookup document changes. Changes are picked up from the indexing path: every shard allocated on this node
+ * invalidates the cached terms of a lookup document when it is indexed or deleted. Lookup documents that
+ * have no started copy on this node are not seen by those listeners, so for them the version of the cached
+ * terms is checked in the background against the current version of the document (a get without fields),
+ * at most once per <tt>remote_check_interval</tt> (defaults to <tt>1s</tt>). The cached terms keep being
+ * used while checking, so such lookup documents can be stale for up to that interval.
+ * <p/>
+ * The filter returned for a lookup is bound to the terms loaded when it was parsed, and its cache key includes
+ * the version of the lookup document, so per segment results cached in the filter cache are never reused
+ * across versions.
  */
 public class IndicesTermsFilterCache extends AbstractComponent {
 
-    private static TermsFilterValue NO_TERMS = new TermsFilterValue(0, null);
-
     private final Client client;
 
+    private final ClusterService clusterService;
+
+    private final TimeValue remoteCheckInterval;
+
     private final Cache<CacheKeyFilter.Key, TermsFilterValue> cache;
 
+    // the cached values, by the lookup document they were loaded from
+    private final ConcurrentMap<String, Map<CacheKeyFilter.Key, TermsFilterValue>> lookupDocs = ConcurrentCollections.newConcurrentMap();
+
+    private final Object lookupDocsMutex = new Object();
+
+    // loads in progress are not registered yet, so they check this counter to know whether a lookup document changed while loading
+    private final AtomicInteger loadsInProgress = new AtomicInteger();
+
+    private final AtomicLong lookupDocChanges = new AtomicLong();
+
     @Inject
-    public IndicesTermsFilterCache(Settings settings, Client client) {
+    public IndicesTermsFilterCache(Settings settings, Client client, ClusterService clusterService, IndicesLifecycle indicesLifecycle) {
         super(settings);
         this.client = client;
+        this.clusterService = clusterService;
 
         ByteSizeValue size = componentSettings.getAsBytesSize("size", new ByteSizeValue(10, ByteSizeUnit.MB));
         TimeValue expireAfterWrite = componentSettings.getAsTime("expire_after_write", null);
         TimeValue expireAfterAccess = componentSettings.getAsTime("expire_after_access", null);
+        this.remoteCheckInterval = componentSettings.getAsTime("remote_check_interval", TimeValue.timeValueSeconds(1));
 
         CacheBuilder<CacheKeyFilter.Key, TermsFilterValue> builder = CacheBuilder.newBuilder()
                 .maximumWeight(size.bytes())
-                .weigher(new TermsFilterValueWeigher());
+                .weigher(new TermsFilterValueWeigher())
+                .removalListener(new TermsFilterValueRemovalListener());
 
         if (expireAfterAccess != null) {
             builder.expireAfterAccess(expireAfterAccess.millis(), TimeUnit.MILLISECONDS);
@@ -78,53 +123,213 @@ public class IndicesTermsFilterCache extends AbstractComponent {
         }
 
         this.cache = builder.build();
+
+        indicesLifecycle.addListener(new ShardLifecycleListener());
     }
 
     /**
-     * An external lookup terms filter. Note, already implements the {@link CacheKeyFilter} so no need
-     * to double cache key it.
+     * An external lookup terms filter, bound to the terms of the lookup document as currently cached (or
+     * loaded). Note, already implements the {@link CacheKeyFilter} so no need to double cache key it.
      */
     public Filter lookupTermsFilter(final CacheKeyFilter.Key cacheKey, final TermsLookup lookup) {
-        return new LookupTermsFilter(lookup, cacheKey, this);
+        ClusterState state = clusterService.state();
+        String index = concreteIndex(state, lookup);
+        TermsFilterValue value = cache.getIfPresent(cacheKey);
+        if (value == null) {
+            value = load(cacheKey, lookup, lookupDoc(index != null ? index : lookup.getIndex(), lookup.getType(), lookup.getId()));
+        } else if (!startedLocally(state, index, lookup)) {
+            // the lookup document is not indexed on this node, so its changes do not invalidate the cached terms
+            checkVersion(cacheKey, lookup, value);
+        }
+        return new LookupTermsFilter(lookup, cacheKey, value);
     }
 
-    @Nullable
-    private Filter termsFilter(final CacheKeyFilter.Key cacheKey, final TermsLookup lookup) throws RuntimeException {
-        try {
-            return cache.get(cacheKey, new Callable<TermsFilterValue>() {
-                @Override
-                public TermsFilterValue call() throws Exception {
-                    GetResponse getResponse = client.get(new GetRequest(lookup.getIndex(), lookup.getType(), lookup.getId()).preference("_local")).actionGet();
-                    if (!getResponse.isExists()) {
-                        return NO_TERMS;
+    /**
+     * Checks the version of the cached terms against the current version of the lookup document (only the
+     * version is fetched, the source is not loaded), without waiting for it, and drops them if it changed.
+     * Only one check runs at a time for a value, and not more than once per <tt>remote_check_interval</tt>.
+     */
+    private void checkVersion(final CacheKeyFilter.Key cacheKey, TermsLookup lookup, final TermsFilterValue value) {
+        if (System.currentTimeMillis() - value.checkedAt < remoteCheckInterval.millis()) {
+            return;
+        }
+        if (!value.checking.compareAndSet(false, true)) {
+            return;
+        }
+        client.get(new GetRequest(lookup.getIndex(), lookup.getType(), lookup.getId()).preference("_local").fields(Strings.EMPTY_ARRAY),
+                new ActionListener<GetResponse>() {
+                    @Override
+                    public void onResponse(GetResponse getResponse) {
+                        long version = getResponse.isExists() ? getResponse.getVersion() : -1;
+                        if (version != value.version) {
+                            cache.asMap().remove(cacheKey, value);
+                        }
+                        value.checkedAt = System.currentTimeMillis();
+                        value.checking.set(false);
                     }
-                    List<Object> values = XContentMapValues.extractRawValues(lookup.getPath(), getResponse.getSourceAsMap());
-                    if (values.isEmpty()) {
-                        return NO_TERMS;
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        // load it again on the next parse, which reports the failure
+                        cache.asMap().remove(cacheKey, value);
+                        value.checking.set(false);
                     }
-                    Filter filter = lookup.getFieldMapper().termsFilter(values, null);
-                    return new TermsFilterValue(estimateSizeInBytes(values), filter);
+                });
+    }
+
+    /**
+     * Loads the terms of the lookup document and caches them, the version is taken from the same get
+     * response the terms are extracted from.
+     */
+    private TermsFilterValue load(CacheKeyFilter.Key cacheKey, TermsLookup lookup, String lookupDoc) throws RuntimeException {
+        loadsInProgress.incrementAndGet();
+        try {
+            long changes = lookupDocChanges.get();
+            GetResponse getResponse = client.get(new GetRequest(lookup.getIndex(), lookup.getType(), lookup.getId()).preference("_local")).actionGet();
+            TermsFilterValue value;
+            if (!getResponse.isExists()) {
+                value = new TermsFilterValue(lookupDoc, -1, 0, null);
+            } else {
+                List<Object> values = XContentMapValues.extractRawValues(lookup.getPath(), getResponse.getSourceAsMap());
+                if (values.isEmpty()) {
+                    value = new TermsFilterValue(lookupDoc, getResponse.getVersion(), 0, null);
+                } else {
+                    BytesRef[] terms = sortedTerms(lookup, values);
+                    Filter filter = new TermsFilter(lookup.getFieldMapper().names().indexName(), terms);
+                    value = new TermsFilterValue(lookupDoc, getResponse.getVersion(), estimateSizeInBytes(terms), filter);
                 }
-            }).filter;
-        } catch (ExecutionException e) {
-            if (e.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) e.getCause();
             }
-            throw new ElasticSearchException(e.getMessage(), e.getCause());
+            cache.put(cacheKey, value);
+            register(cacheKey, value);
+            if (lookupDocChanges.get() != changes) {
+                // a lookup document might have changed while loading, use the loaded terms for this request only
+                cache.asMap().remove(cacheKey, value);
+            }
+            return value;
+        } finally {
+            loadsInProgress.decrementAndGet();
         }
     }
 
-    long estimateSizeInBytes(List<Object> terms) {
-        long size = 8;
-        for (Object term : terms) {
-            if (term instanceof BytesRef) {
-                size += ((BytesRef) term).length;
-            } else if (term instanceof String) {
-                size += ((String) term).length() / 2;
-            } else {
-                size += 4;
+    private void register(CacheKeyFilter.Key cacheKey, TermsFilterValue value) {
+        synchronized (lookupDocsMutex) {
+            Map<CacheKeyFilter.Key, TermsFilterValue> values = lookupDocs.get(value.lookupDoc);
+            if (values == null) {
+                values = ConcurrentCollections.newConcurrentMap();
+                lookupDocs.put(value.lookupDoc, values);
+            }
+            values.put(cacheKey, value);
+        }
+    }
+
+    private void unregister(CacheKeyFilter.Key cacheKey, TermsFilterValue value) {
+        synchronized (lookupDocsMutex) {
+            Map<CacheKeyFilter.Key, TermsFilterValue> values = lookupDocs.get(value.lookupDoc);
+            // only remove the registration of this very value, the key might have been loaded again since
+            if (values != null && values.remove(cacheKey, value) && values.isEmpty()) {
+                lookupDocs.remove(value.lookupDoc);
+            }
+        }
+    }
+
+    /**
+     * Called from the indexing path of every shard on this node, cheap unless there are loads in progress
+     * or the document is a cached lookup document.
+     */
+    void lookupDocChanged(String index, String type, String id) {
+        if (loadsInProgress.get() > 0) {
+            lookupDocChanges.incrementAndGet();
+        }
+        if (lookupDocs.isEmpty()) {
+            return;
+        }
+        invalidate(lookupDoc(index, type, id));
+    }
+
+    void lookupIndexChanged(String index) {
+        if (loadsInProgress.get() > 0) {
+            lookupDocChanges.incrementAndGet();
+        }
+        String prefix = index + '/';
+        for (String lookupDoc : lookupDocs.keySet()) {
+            if (lookupDoc.startsWith(prefix)) {
+                invalidate(lookupDoc);
             }
         }
+    }
+
+    private void invalidate(String lookupDoc) {
+        Map<CacheKeyFilter.Key, TermsFilterValue> values;
+        synchronized (lookupDocsMutex) {
+            values = lookupDocs.remove(lookupDoc);
+        }
+        if (values == null) {
+            return;
+        }
+        for (Map.Entry<CacheKeyFilter.Key, TermsFilterValue> entry : values.entrySet()) {
+            cache.asMap().remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if a started copy of the shard holding the lookup document is allocated on this
+     * node, in which case the indexing listeners see all the changes to it.
+     */
+    private boolean startedLocally(ClusterState state, @Nullable String index, TermsLookup lookup) {
+        if (index == null) {
+            return false;
+        }
+        String localNodeId = state.nodes().localNodeId();
+        try {
+            ShardIterator shards = clusterService.operationRouting().indexShards(state, index, lookup.getType(), lookup.getId(), null);
+            for (ShardRouting shard = shards.nextOrNull(); shard != null; shard = shards.nextOrNull()) {
+                if (shard.started() && localNodeId.equals(shard.currentNodeId())) {
+                    return true;
+                }
+            }
+        } catch (ElasticSearchException e) {
+            // the lookup index is missing, the get reports it
+        }
+        return false;
+    }
+
+    @Nullable
+    private String concreteIndex(ClusterState state, TermsLookup lookup) {
+        try {
+            return state.metaData().concreteIndex(lookup.getIndex());
+        } catch (ElasticSearchException e) {
+            // the lookup index is missing or an alias pointing to several indices, the get reports it
+            return null;
+        }
+    }
+
+    private static String lookupDoc(String index, String type, String id) {
+        return index + '/' + type + '/' + id;
+    }
+
+    /**
+     * Converts the values to their indexed form, sorted in term order and without duplicates.
+     */
+    static BytesRef[] sortedTerms(TermsLookup lookup, List<Object> values) {
+        BytesRef[] terms = new BytesRef[values.size()];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = lookup.getFieldMapper().indexedValueForSearch(values.get(i));
+        }
+        Arrays.sort(terms);
+        int size = 0;
+        for (int i = 0; i < terms.length; i++) {
+            if (size == 0 || !terms[i].bytesEquals(terms[size - 1])) {
+                terms[size++] = terms[i];
+            }
+        }
+        return size == terms.length ? terms : Arrays.copyOf(terms, size);
+    }
+
+    long estimateSizeInBytes(BytesRef[] terms) {
+        long size = 8;
+        for (BytesRef term : terms) {
+            size += term.length + 32;
+        }
         return size;
     }
 
@@ -141,25 +346,28 @@ public class IndicesTermsFilterCache extends AbstractComponent {
     static class LookupTermsFilter extends Filter implements CacheKeyFilter {
 
         private final TermsLookup lookup;
-        private final CacheKeyFilter.Key cacheKey;
-        private final IndicesTermsFilterCache cache;
+        @Nullable
+        private final Filter filter;
+        private final CacheKeyFilter.Key versionedCacheKey;
 
-        LookupTermsFilter(TermsLookup lookup, CacheKeyFilter.Key cacheKey, IndicesTermsFilterCache cache) {
+        LookupTermsFilter(TermsLookup lookup, CacheKeyFilter.Key cacheKey, TermsFilterValue value) {
             this.lookup = lookup;
-            this.cacheKey = cacheKey;
-            this.cache = cache;
+            this.filter = value.filter;
+            this.versionedCacheKey = new CacheKeyFilter.Key(cacheKey.utf8ToString() + "/" + value.version);
         }
 
         @Override
         public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
-            Filter filter = cache.termsFilter(cacheKey, lookup);
             if (filter == null) return null;
             return filter.getDocIdSet(context, acceptDocs);
         }
 
+        /**
+         * The cache key, including the version of the lookup document the filter is bound to.
+         */
         @Override
         public Key cacheKey() {
-            return this.cacheKey;
+            return this.versionedCacheKey;
         }
 
         @Override
@@ -169,14 +377,14 @@ public class IndicesTermsFilterCache extends AbstractComponent {
 
             LookupTermsFilter that = (LookupTermsFilter) o;
 
-            if (!cacheKey.equals(that.cacheKey)) return false;
+            if (!versionedCacheKey.equals(that.versionedCacheKey)) return false;
 
             return true;
         }
 
         @Override
         public int hashCode() {
-            return cacheKey.hashCode();
+            return versionedCacheKey.hashCode();
         }
 
         @Override
@@ -185,6 +393,59 @@ public class IndicesTermsFilterCache extends AbstractComponent {
         }
     }
 
+    class ShardLifecycleListener extends IndicesLifecycle.Listener {
+
+        @Override
+        public void afterIndexShardCreated(IndexShard indexShard) {
+            indexShard.indexingService().addListener(new LookupDocsIndexingListener(indexShard.shardId().index().name()));
+        }
+
+        @Override
+        public void afterIndexShardStarted(IndexShard indexShard) {
+            // changes replayed by the recovery do not go through the indexing listeners
+            lookupIndexChanged(indexShard.shardId().index().name());
+        }
+    }
+
+    class LookupDocsIndexingListener extends IndexingOperationListener {
+
+        private final String index;
+
+        LookupDocsIndexingListener(String index) {
+            this.index = index;
+        }
+
+        @Override
+        public void postCreate(Engine.Create create) {
+            lookupDocChanged(index, create.type(), create.id());
+        }
+
+        @Override
+        public void postIndex(Engine.Index index) {
+            lookupDocChanged(this.index, index.type(), index.id());
+        }
+
+        @Override
+        public void postDelete(Engine.Delete delete) {
+            lookupDocChanged(index, delete.type(), delete.id());
+        }
+
+        @Override
+        public void postDeleteByQuery(Engine.DeleteByQuery deleteByQuery) {
+            lookupIndexChanged(index);
+        }
+    }
+
+    class TermsFilterValueRemovalListener implements RemovalListener<CacheKeyFilter.Key, TermsFilterValue> {
+
+        @Override
+        public void onRemoval(RemovalNotification<CacheKeyFilter.Key, TermsFilterValue> notification) {
+            if (notification.getKey() != null && notification.getValue() != null) {
+                unregister(notification.getKey(), notification.getValue());
+            }
+        }
+    }
+
     static class TermsFilterValueWeigher implements Weigher<CacheKeyFilter.Key, TermsFilterValue> {
 
         @Override
@@ -195,12 +456,21 @@ public class IndicesTermsFilterCache extends AbstractComponent {
 
     // TODO: if TermsFilter exposed sizeInBytes, we won't need this wrapper
     static class TermsFilterValue {
+        public final String lookupDoc;
+        public final long version;
         public final long sizeInBytes;
+        @Nullable
         public final Filter filter;
+        // when the version was last checked, for lookup documents not indexed on this node
+        volatile long checkedAt;
+        final AtomicBoolean checking = new AtomicBoolean();
 
-        TermsFilterValue(long sizeInBytes, Filter filter) {
+        TermsFilterValue(String lookupDoc, long version, long sizeInBytes, @Nullable Filter filter) {
+            this.lookupDoc = lookupDoc;
+            this.version = version;
             this.sizeInBytes = sizeInBytes;
             this.filter = filter;
+            this.checkedAt = System.currentTimeMillis();
         }
     }
 }
@@ -25,14 +25,19 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.transport.FileRegionTransportRequest;
 import org.elasticsearch.transport.TransportRequest;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  *
  */
-class RecoveryFileChunkRequest extends TransportRequest {
+class RecoveryFileChunkRequest extends TransportRequest implements FileRegionTransportRequest {
 
     private long recoveryId;
     private ShardId shardId;
@@ -42,6 +47,10 @@ class RecoveryFileChunkRequest extends TransportRequest {
     private String checksum;
     private BytesReference content;
 
+    // when set, the content is read from the file region (only on the sending side), the file is owned by the request
+    private RandomAccessFile file;
+    private int fileRegionLength;
+
     RecoveryFileChunkRequest() {
     }
 
@@ -55,6 +64,21 @@ class RecoveryFileChunkRequest extends TransportRequest {
         this.content = content;
     }
 
+    /**
+     * A chunk that has its content read directly from the file, at the given position. The file is closed once the
+     * request got written.
+     */
+    RecoveryFileChunkRequest(long recoveryId, ShardId shardId, String name, long position, long length, String checksum, RandomAccessFile file, int fileRegionLength) {
+        this.recoveryId = recoveryId;
+        this.shardId = shardId;
+        this.name = name;
+        this.position = position;
+        this.length = length;
+        this.checksum = checksum;
+        this.file = file;
+        this.fileRegionLength = fileRegionLength;
+    }
+
     public long recoveryId() {
         return this.recoveryId;
     }
@@ -84,6 +108,35 @@ class RecoveryFileChunkRequest extends TransportRequest {
         return content;
     }
 
+    @Override
+    public boolean hasFileRegion() {
+        return file != null;
+    }
+
+    @Override
+    public FileChannel fileRegionChannel() {
+        return file.getChannel();
+    }
+
+    @Override
+    public long fileRegionPosition() {
+        return position;
+    }
+
+    @Override
+    public int fileRegionLength() {
+        return fileRegionLength;
+    }
+
+    @Override
+    public void releaseFileRegion() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
     public RecoveryFileChunkRequest readFileChunk(StreamInput in) throws IOException {
         RecoveryFileChunkRequest request = new RecoveryFileChunkRequest();
         request.readFrom(in);
@@ -104,6 +157,37 @@ class RecoveryFileChunkRequest extends TransportRequest {
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
+        if (file == null) {
+            writeHeaderTo(out);
+            out.writeBytesReference(content);
+            return;
+        }
+        // the transport does not support writing file regions directly, read the region and write it
+        writeToFileRegion(out);
+        ByteBuffer buffer = ByteBuffer.allocate(fileRegionLength);
+        try {
+            FileChannel fileChannel = file.getChannel();
+            long filePosition = position;
+            while (buffer.hasRemaining()) {
+                int read = fileChannel.read(buffer, filePosition);
+                if (read < 0) {
+                    throw new EOFException("read past EOF of [" + name + "] at position [" + filePosition + "]");
+                }
+                filePosition += read;
+            }
+        } finally {
+            releaseFileRegion();
+        }
+        out.writeBytes(buffer.array(), 0, fileRegionLength);
+    }
+
+    @Override
+    public void writeToFileRegion(StreamOutput out) throws IOException {
+        writeHeaderTo(out);
+        out.writeVInt(fileRegionLength);
+    }
+
+    private void writeHeaderTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         out.writeLong(recoveryId);
         shardId.writeTo(out);
@@ -111,7 +195,6 @@ class RecoveryFileChunkRequest extends TransportRequest {
         out.writeVLong(position);
         out.writeVLong(length);
         out.writeOptionalString(checksum);
-        out.writeBytesReference(content);
     }
 
     @Override
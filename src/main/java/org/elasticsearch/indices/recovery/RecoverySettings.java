@@ -21,7 +21,10 @@ package org.elasticsearch.indices.recovery;
 
 import com.google.common.base.Objects;
 import org.apache.lucene.store.RateLimiter;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
@@ -40,18 +43,23 @@ public class RecoverySettings extends AbstractComponent {
     public static final String INDICES_RECOVERY_TRANSLOG_OPS = "indices.recovery.translog_ops";
     public static final String INDICES_RECOVERY_TRANSLOG_SIZE = "indices.recovery.translog_size";
     public static final String INDICES_RECOVERY_COMPRESS = "indices.recovery.compress";
+    public static final String INDICES_RECOVERY_COMPRESS_TYPE = "indices.recovery.compress_type";
     public static final String INDICES_RECOVERY_CONCURRENT_STREAMS = "indices.recovery.concurrent_streams";
+    public static final String INDICES_RECOVERY_CONCURRENT_CHUNKS = "indices.recovery.concurrent_chunks";
     public static final String INDICES_RECOVERY_MAX_SIZE_PER_SEC = "indices.recovery.max_size_per_sec";
 
     private volatile ByteSizeValue fileChunkSize;
 
     private volatile boolean compress;
+    private volatile String compressType;
     private volatile int translogOps;
     private volatile ByteSizeValue translogSize;
 
     private volatile int concurrentStreams;
     private final ThreadPoolExecutor concurrentStreamPool;
 
+    private volatile int concurrentChunks;
+
     private volatile ByteSizeValue maxSizePerSec;
     private volatile RateLimiter.SimpleRateLimiter rateLimiter;
 
@@ -63,9 +71,18 @@ public class RecoverySettings extends AbstractComponent {
         this.translogOps = componentSettings.getAsInt("translog_ops", settings.getAsInt("index.shard.recovery.translog_ops", 1000));
         this.translogSize = componentSettings.getAsBytesSize("translog_size", settings.getAsBytesSize("index.shard.recovery.translog_size", new ByteSizeValue(512, ByteSizeUnit.KB)));
         this.compress = componentSettings.getAsBoolean("compress", true);
+        this.compressType = CompressorFactory.normalizeType(componentSettings.get("compress_type"));
+        if (compressType != null && CompressorFactory.compressor(compressType) == null) {
+            throw new ElasticSearchIllegalArgumentException("failed to find compressor type [" + compressType + "] for [indices.recovery.compress_type]");
+        }
 
         this.concurrentStreams = componentSettings.getAsInt("concurrent_streams", settings.getAsInt("index.shard.recovery.concurrent_streams", 3));
         this.concurrentStreamPool = EsExecutors.newScalingExecutorService(0, concurrentStreams, 60, TimeUnit.SECONDS, EsExecutors.daemonThreadFactory(settings, "[recovery_stream]"));
+        // number of file chunk requests per file (stream) that can be in flight without being acked
+        this.concurrentChunks = componentSettings.getAsInt("concurrent_chunks", 1);
+        if (concurrentChunks < 1) {
+            throw new ElasticSearchIllegalArgumentException("[" + INDICES_RECOVERY_CONCURRENT_CHUNKS + "] must be at least 1, got [" + concurrentChunks + "]");
+        }
 
         this.maxSizePerSec = componentSettings.getAsBytesSize("max_size_per_sec", new ByteSizeValue(0));
         if (maxSizePerSec.bytes() <= 0) {
@@ -74,8 +91,8 @@ public class RecoverySettings extends AbstractComponent {
             rateLimiter = new RateLimiter.SimpleRateLimiter(maxSizePerSec.mbFrac());
         }
 
-        logger.debug("using max_size_per_sec[{}], concurrent_streams [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
-                maxSizePerSec, concurrentStreams, fileChunkSize, translogSize, translogOps, compress);
+        logger.debug("using max_size_per_sec[{}], concurrent_streams [{}], concurrent_chunks [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
+                maxSizePerSec, concurrentStreams, concurrentChunks, fileChunkSize, translogSize, translogOps, compress);
 
         nodeSettingsService.addListener(new ApplySettings());
     }
@@ -98,6 +115,13 @@ public class RecoverySettings extends AbstractComponent {
         return compress;
     }
 
+    /**
+     * The compressor used for recovery requests, defaults to the default compressor.
+     */
+    public Compressor compressor() {
+        return CompressorFactory.compressorOrDefault(compressType);
+    }
+
     public int translogOps() {
         return translogOps;
     }
@@ -110,6 +134,10 @@ public class RecoverySettings extends AbstractComponent {
         return concurrentStreams;
     }
 
+    public int concurrentChunks() {
+        return concurrentChunks;
+    }
+
     public ThreadPoolExecutor concurrentStreamPool() {
         return concurrentStreamPool;
     }
@@ -158,12 +186,30 @@ public class RecoverySettings extends AbstractComponent {
                 RecoverySettings.this.compress = compress;
             }
 
+            String compressType = CompressorFactory.normalizeType(settings.get(INDICES_RECOVERY_COMPRESS_TYPE, RecoverySettings.this.compressType));
+            if (compressType != null && !compressType.equals(RecoverySettings.this.compressType)) {
+                if (CompressorFactory.compressor(compressType) == null) {
+                    logger.warn("failed to find compressor type [{}] for [indices.recovery.compress_type], ignoring", compressType);
+                } else {
+                    logger.info("updating [indices.recovery.compress_type] from [{}] to [{}]", RecoverySettings.this.compressType, compressType);
+                    RecoverySettings.this.compressType = compressType;
+                }
+            }
+
             int concurrentStreams = settings.getAsInt(INDICES_RECOVERY_CONCURRENT_STREAMS, RecoverySettings.this.concurrentStreams);
             if (concurrentStreams != RecoverySettings.this.concurrentStreams) {
                 logger.info("updating [indices.recovery.concurrent_streams] from [{}] to [{}]", RecoverySettings.this.concurrentStreams, concurrentStreams);
                 RecoverySettings.this.concurrentStreams = concurrentStreams;
                 RecoverySettings.this.concurrentStreamPool.setMaximumPoolSize(concurrentStreams);
             }
+
+            int concurrentChunks = settings.getAsInt(INDICES_RECOVERY_CONCURRENT_CHUNKS, RecoverySettings.this.concurrentChunks);
+            if (concurrentChunks < 1) {
+                logger.warn("[indices.recovery.concurrent_chunks] must be at least 1, got [{}], ignoring", concurrentChunks);
+            } else if (concurrentChunks != RecoverySettings.this.concurrentChunks) {
+                logger.info("updating [indices.recovery.concurrent_chunks] from [{}] to [{}]", RecoverySettings.this.concurrentChunks, concurrentChunks);
+                RecoverySettings.this.concurrentChunks = concurrentChunks;
+            }
         }
     }
 }
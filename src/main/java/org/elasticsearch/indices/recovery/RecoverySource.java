@@ -47,10 +47,13 @@ import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -165,7 +168,6 @@ public class RecoverySource extends AbstractComponent {
                                 IndexInput indexInput = null;
                                 try {
                                     final int BUFFER_SIZE = (int) recoverySettings.fileChunkSize().bytes();
-                                    byte[] buf = new byte[BUFFER_SIZE];
                                     StoreFileMetaData md = shard.store().metaData(name);
                                     // TODO: maybe use IOContext.READONCE?
                                     indexInput = shard.store().openInputRaw(name, IOContext.READ);
@@ -173,25 +175,81 @@ public class RecoverySource extends AbstractComponent {
                                     if (CompressorFactory.isCompressed(indexInput)) {
                                         shouldCompressRequest = false;
                                     }
+                                    // uncompressed chunks of files on the file system are sent as file regions, allowing the transport
+                                    // to write them from the file to the network without copying them around on the heap
+                                    final File file = shouldCompressRequest ? null : shard.store().rawFile(name);
+                                    final TransportRequestOptions options = TransportRequestOptions.options().withCompress(shouldCompressRequest).withCompressor(recoverySettings.compressor()).withLowType().withTimeout(internalActionTimeout);
+
+                                    // the first chunk is always sent and acked on its own, since it opens the file on the target,
+                                    // the following chunks are pipelined with up to concurrent_chunks requests in flight
+                                    final int maxOutstanding = recoverySettings.concurrentChunks();
+                                    final Semaphore outstanding = new Semaphore(maxOutstanding);
+                                    final AtomicReference<TransportException> chunkFailure = new AtomicReference<TransportException>();
 
                                     long len = indexInput.length();
                                     long readCount = 0;
-                                    while (readCount < len) {
-                                        if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
-                                            throw new IndexShardClosedException(shard.shardId());
-                                        }
-                                        int toRead = readCount + BUFFER_SIZE > len ? (int) (len - readCount) : BUFFER_SIZE;
-                                        long position = indexInput.getFilePointer();
-
-                                        if (recoverySettings.rateLimiter() != null) {
-                                            recoverySettings.rateLimiter().pause(toRead);
+                                    try {
+                                        while (readCount < len) {
+                                            if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
+                                                throw new IndexShardClosedException(shard.shardId());
+                                            }
+                                            if (chunkFailure.get() != null) {
+                                                break;
+                                            }
+                                            int toRead = readCount + BUFFER_SIZE > len ? (int) (len - readCount) : BUFFER_SIZE;
+                                            long position = readCount;
+
+                                            if (recoverySettings.rateLimiter() != null) {
+                                                recoverySettings.rateLimiter().pause(toRead);
+                                            }
+
+                                            boolean pipelined = position != 0 && maxOutstanding > 1;
+                                            if (pipelined) {
+                                                outstanding.acquire();
+                                            }
+
+                                            RecoveryFileChunkRequest chunkRequest;
+                                            try {
+                                                if (file != null) {
+                                                    // each chunk has its own file, closed once the transport wrote it
+                                                    chunkRequest = new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), new RandomAccessFile(file, "r"), toRead);
+                                                } else {
+                                                    // a fresh buffer per chunk, since previous chunks might still be in flight
+                                                    byte[] buf = new byte[toRead];
+                                                    indexInput.readBytes(buf, 0, toRead, false);
+                                                    BytesArray content = new BytesArray(buf, 0, toRead);
+                                                    chunkRequest = new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), content);
+                                                }
+                                            } catch (IOException e) {
+                                                if (pipelined) {
+                                                    outstanding.release();
+                                                }
+                                                throw e;
+                                            }
+                                            if (!pipelined) {
+                                                transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, chunkRequest, options, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+                                            } else {
+                                                transportService.sendRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, chunkRequest, options, new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+                                                    @Override
+                                                    public void handleResponse(TransportResponse.Empty response) {
+                                                        outstanding.release();
+                                                    }
+
+                                                    @Override
+                                                    public void handleException(TransportException exp) {
+                                                        chunkFailure.set(exp);
+                                                        outstanding.release();
+                                                    }
+                                                });
+                                            }
+                                            readCount += toRead;
                                         }
-
-                                        indexInput.readBytes(buf, 0, toRead, false);
-                                        BytesArray content = new BytesArray(buf, 0, toRead);
-                                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), content),
-                                                TransportRequestOptions.options().withCompress(shouldCompressRequest).withLowType().withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
-                                        readCount += toRead;
+                                    } finally {
+                                        // wait for all the in flight chunks of this file to be acked
+                                        outstanding.acquireUninterruptibly(maxOutstanding);
+                                    }
+                                    if (chunkFailure.get() != null) {
+                                        throw chunkFailure.get();
                                     }
                                 } catch (Exception e) {
                                     lastException.set(e);
@@ -294,7 +352,7 @@ public class RecoverySource extends AbstractComponent {
                         }
 
                         RecoveryTranslogOperationsRequest translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.recoveryId(), request.shardId(), operations);
-                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(recoverySettings.compress()).withLowType().withTimeout(internalActionLongTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(recoverySettings.compress()).withCompressor(recoverySettings.compressor()).withLowType().withTimeout(internalActionLongTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
                         ops = 0;
                         size = 0;
                         operations.clear();
@@ -303,7 +361,7 @@ public class RecoverySource extends AbstractComponent {
                 // send the leftover
                 if (!operations.isEmpty()) {
                     RecoveryTranslogOperationsRequest translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.recoveryId(), request.shardId(), operations);
-                    transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(recoverySettings.compress()).withLowType().withTimeout(internalActionLongTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+                    transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(recoverySettings.compress()).withCompressor(recoverySettings.compressor()).withLowType().withTimeout(internalActionLongTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
                 }
                 return totalOperations;
             }
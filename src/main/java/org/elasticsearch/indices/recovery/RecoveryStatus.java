@@ -20,11 +20,13 @@
 package org.elasticsearch.indices.recovery;
 
 import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -57,6 +59,8 @@ public class RecoveryStatus {
 
     ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
     ConcurrentMap<String, String> checksums = ConcurrentCollections.newConcurrentMap();
+    // chunks that arrived ahead of their position, keyed by file name, guarded by the matching index output
+    ConcurrentMap<String, Map<Long, BytesReference>> pendingFileChunks = ConcurrentCollections.newConcurrentMap();
 
     final long startTime = System.currentTimeMillis();
     long time;
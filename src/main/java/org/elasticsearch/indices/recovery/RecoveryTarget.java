@@ -19,6 +19,7 @@
 
 package org.elasticsearch.indices.recovery;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.IndexOutput;
@@ -348,6 +349,7 @@ public class RecoveryTarget extends AbstractComponent {
         }
         status.openIndexOutputs = null;
         status.checksums = null;
+        status.pendingFileChunks = null;
     }
 
     class PrepareForTranslogOperationsRequestHandler extends BaseTransportRequestHandler<RecoveryPrepareForTranslogOperationsRequest> {
@@ -588,6 +590,7 @@ public class RecoveryTarget extends AbstractComponent {
             if (request.position() == 0) {
                 // first request
                 onGoingRecovery.checksums.remove(request.name());
+                onGoingRecovery.pendingFileChunks.put(request.name(), Maps.<Long, BytesReference>newHashMap());
                 indexOutput = onGoingRecovery.openIndexOutputs.remove(request.name());
                 if (indexOutput != null) {
                     try {
@@ -624,14 +627,16 @@ public class RecoveryTarget extends AbstractComponent {
                     if (recoverySettings.rateLimiter() != null) {
                         recoverySettings.rateLimiter().pause(request.content().length());
                     }
-                    BytesReference content = request.content();
-                    if (!content.hasArray()) {
-                        content = content.toBytesArray();
+                    Map<Long, BytesReference> pendingChunks = onGoingRecovery.pendingFileChunks.get(request.name());
+                    if (pendingChunks == null) {
+                        // shard is getting closed on us
+                        throw new IndexShardClosedException(request.shardId());
                     }
-                    indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+                    writeFileChunk(indexOutput, pendingChunks, request.position(), request.content());
                     onGoingRecovery.currentFilesSize.addAndGet(request.length());
                     if (indexOutput.getFilePointer() == request.length()) {
                         // we are done
+                        onGoingRecovery.pendingFileChunks.remove(request.name());
                         indexOutput.close();
                         // write the checksum
                         if (request.checksum() != null) {
@@ -642,6 +647,7 @@ public class RecoveryTarget extends AbstractComponent {
                     }
                 } catch (IOException e) {
                     onGoingRecovery.openIndexOutputs.remove(request.name());
+                    onGoingRecovery.pendingFileChunks.remove(request.name());
                     try {
                         indexOutput.close();
                     } catch (IOException e1) {
@@ -653,4 +659,27 @@ public class RecoveryTarget extends AbstractComponent {
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
     }
+
+    /**
+     * Writes a file chunk at its position. The source pipelines chunks of the same file, so a chunk can arrive
+     * ahead of a previous one, in which case a copy of it is kept in the pending chunks until the gap is filled.
+     */
+    public static void writeFileChunk(IndexOutput indexOutput, Map<Long, BytesReference> pendingChunks, long position, BytesReference content) throws IOException {
+        if (position != indexOutput.getFilePointer()) {
+            pendingChunks.put(position, content.copyBytesArray());
+            return;
+        }
+        writeChunk(indexOutput, content);
+        BytesReference next;
+        while ((next = pendingChunks.remove(indexOutput.getFilePointer())) != null) {
+            writeChunk(indexOutput, next);
+        }
+    }
+
+    private static void writeChunk(IndexOutput indexOutput, BytesReference content) throws IOException {
+        if (!content.hasArray()) {
+            content = content.toBytesArray();
+        }
+        indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+    }
 }
@@ -39,7 +39,14 @@ public class RestXContentBuilder {
     }
 
     public static XContentBuilder restContentBuilder(RestRequest request, boolean autoDetect) throws IOException {
-        XContentType contentType = XContentType.fromRestContentType(request.param("format", request.header("Content-Type")));
+        // an explicit format wins, then the accepted media types, and then the format of the request itself
+        XContentType contentType = XContentType.fromRestContentType(request.param("format"));
+        if (contentType == null) {
+            contentType = XContentType.fromAcceptHeader(request.header("Accept"));
+        }
+        if (contentType == null) {
+            contentType = XContentType.fromRestContentType(request.header("Content-Type"));
+        }
         if (contentType == null) {
             // try and guess it from the body, if exists
             if (autoDetect && request.hasContent()) {
@@ -63,7 +63,7 @@ public class NestedFacetExecutor extends FacetExecutor {
         if (!objectMapper.nested().isNested()) {
             throw new SearchParseException(context, "facet nested path [" + nestedPath + "] is not nested");
         }
-        parentFilter = context.filterCache().cache(NonNestedDocsFilter.INSTANCE);
+        parentFilter = context.fixedBitSetFilterCache().getFixedBitSetFilter(NonNestedDocsFilter.INSTANCE);
         childFilter = context.filterCache().cache(objectMapper.nestedTypeFilter());
     }
 
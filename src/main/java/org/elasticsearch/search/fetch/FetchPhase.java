@@ -21,17 +21,22 @@ package org.elasticsearch.search.fetch;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.text.StringAndBytesText;
 import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.fieldvisitor.CustomFieldsVisitor;
 import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
 import org.elasticsearch.index.fieldvisitor.JustUidFieldsVisitor;
 import org.elasticsearch.index.fieldvisitor.UidAndSourceFieldsVisitor;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.FieldMappers;
+import org.elasticsearch.index.mapper.internal.ColumnFieldsMapper;
 import org.elasticsearch.index.mapper.internal.SourceFieldMapper;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.SearchParseElement;
@@ -81,6 +86,8 @@ public class FetchPhase implements SearchPhase {
 
     public void execute(SearchContext context) {
         FieldsVisitor fieldsVisitor;
+        // the stored fields to try and read from the _columns of each doc, instead of its stored fields
+        Set<String> columnFieldNames = null;
         List<String> extractFieldNames = null;
         boolean sourceRequested = false;
         if (!context.hasFieldNames()) {
@@ -130,6 +137,9 @@ public class FetchPhase implements SearchPhase {
             } else if (fieldNames != null) {
                 boolean loadSource = extractFieldNames != null || sourceRequested;
                 fieldsVisitor = new CustomFieldsVisitor(fieldNames, loadSource);
+                if (!loadSource) {
+                    columnFieldNames = fieldNames;
+                }
             } else if (extractFieldNames != null || sourceRequested) {
                 fieldsVisitor = new UidAndSourceFieldsVisitor();
             } else {
@@ -138,10 +148,30 @@ public class FetchPhase implements SearchPhase {
         }
 
         InternalSearchHit[] hits = new InternalSearchHit[context.docIdsToLoadSize()];
-        for (int index = 0; index < context.docIdsToLoadSize(); index++) {
+        // the hit context is reused across hits, so sub phases can cache per request state in it
+        FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
+        String[] extractIncludes = extractFieldNames == null ? null : XContentMapValues.extractIncludes(extractFieldNames.toArray(new String[extractFieldNames.size()]));
+        List<AtomicReaderContext> leaves = context.searcher().getIndexReader().leaves();
+        AtomicReaderContext subReaderContext = null;
+        BinaryDocValues columns = null;
+        BytesRef column = new BytesRef();
+        int[] docIdsInOrder = docIdsInOrder(context);
+        for (int i = 0; i < docIdsInOrder.length; i++) {
+            int index = docIdsInOrder[i];
             int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
 
-            loadStoredFields(context, fieldsVisitor, docId);
+            // hits are visited in doc id order, so we only move forward to the next segment
+            if (subReaderContext == null || docId >= subReaderContext.docBase + subReaderContext.reader().maxDoc()) {
+                subReaderContext = leaves.get(ReaderUtil.subIndex(docId, leaves));
+                if (columnFieldNames != null) {
+                    columns = loadColumns(context, subReaderContext);
+                }
+            }
+            int subDoc = docId - subReaderContext.docBase;
+
+            if (columns == null || !loadColumnFields(context, fieldsVisitor, columnFieldNames, columns, column, subReaderContext, subDoc)) {
+                loadStoredFields(context, fieldsVisitor, subReaderContext, subDoc);
+            }
             fieldsVisitor.postProcess(context.mapperService());
 
             Map<String, SearchHitField> searchFields = null;
@@ -161,12 +191,9 @@ public class FetchPhase implements SearchPhase {
             }
             InternalSearchHit searchHit = new InternalSearchHit(docId, fieldsVisitor.uid().id(), typeText, sourceRequested ? fieldsVisitor.source() : null, searchFields);
 
+            // placed back in its score order slot
             hits[index] = searchHit;
 
-            int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-            AtomicReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
-            int subDoc = docId - subReaderContext.docBase;
-
             // go over and extract fields that are not mapped / stored
             context.lookup().setNextReader(subReaderContext);
             context.lookup().setNextDocId(subDoc);
@@ -174,8 +201,10 @@ public class FetchPhase implements SearchPhase {
                 context.lookup().source().setNextSource(new BytesArray(searchHit.source()));
             }
             if (extractFieldNames != null) {
+                // stream only the requested paths out of the source, instead of parsing all of it into a map
+                Map<String, Object> extractedSource = (Map<String, Object>) context.lookup().source().filter(extractIncludes, Strings.EMPTY_ARRAY);
                 for (String extractFieldName : extractFieldNames) {
-                    Object value = context.lookup().source().extractValue(extractFieldName);
+                    Object value = XContentMapValues.extractValue(extractFieldName, extractedSource);
                     if (value != null) {
                         if (searchHit.fieldsOrNull() == null) {
                             searchHit.fields(new HashMap<String, SearchHitField>(2));
@@ -191,8 +220,8 @@ public class FetchPhase implements SearchPhase {
                 }
             }
 
+            // per hit sub phases run in doc id order too, each one only works on the hit (and doc) it is given
             for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
-                FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
                 if (fetchSubPhase.hitExecutionNeeded(context)) {
                     hitContext.reset(searchHit, subReaderContext, subDoc, context.searcher().getIndexReader(), docId, fieldsVisitor);
                     fetchSubPhase.hitExecute(context, hitContext);
@@ -200,6 +229,7 @@ public class FetchPhase implements SearchPhase {
             }
         }
 
+        // hits are back in score order here
         for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
             if (fetchSubPhase.hitsExecutionNeeded(context)) {
                 fetchSubPhase.hitsExecute(context, hits);
@@ -209,12 +239,64 @@ public class FetchPhase implements SearchPhase {
         context.fetchResult().hits(new InternalSearchHits(hits, context.queryResult().topDocs().totalHits, context.queryResult().topDocs().getMaxScore()));
     }
 
-    private void loadStoredFields(SearchContext context, FieldsVisitor fieldVisitor, int docId) {
+    /**
+     * Returns the indices of the docs to load, ordered by their doc id, which is (segment, segment doc id)
+     * order. Loading the stored fields in that order means each segment is visited once, moving forward
+     * in its stored fields file, instead of jumping between segments in score order.
+     */
+    private static int[] docIdsInOrder(SearchContext context) {
+        int size = context.docIdsToLoadSize();
+        int from = context.docIdsToLoadFrom();
+        int[] docIds = context.docIdsToLoad();
+        // doc ids are positive, so pack the doc id with its index and sort both at once without boxing
+        long[] packed = new long[size];
+        for (int index = 0; index < size; index++) {
+            packed[index] = (((long) docIds[from + index]) << 32) | index;
+        }
+        Arrays.sort(packed);
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = (int) packed[i];
+        }
+        return indices;
+    }
+
+    private BinaryDocValues loadColumns(SearchContext context, AtomicReaderContext subReaderContext) {
+        try {
+            return subReaderContext.reader().getBinaryDocValues(ColumnFieldsMapper.NAME);
+        } catch (IOException e) {
+            throw new FetchPhaseExecutionException(context, "Failed to load [" + ColumnFieldsMapper.NAME + "] for segment [" + subReaderContext.ord + "]", e);
+        }
+    }
+
+    /**
+     * Reads the fields from the <tt>_columns</tt> of the doc, returns <tt>false</tt> if its type does not keep all
+     * of them there (or the doc has none), in which case the stored fields need to be loaded.
+     */
+    private boolean loadColumnFields(SearchContext context, FieldsVisitor fieldVisitor, Set<String> fieldNames, BinaryDocValues columns,
+                                     BytesRef column, AtomicReaderContext subReaderContext, int subDoc) {
+        fieldVisitor.reset();
+        columns.get(subDoc, column);
+        try {
+            if (!ColumnFieldsMapper.visit(column, subReaderContext.reader().getFieldInfos(), fieldVisitor)) {
+                return false;
+            }
+        } catch (IOException e) {
+            throw new FetchPhaseExecutionException(context, "Failed to fetch doc id [" + (subReaderContext.docBase + subDoc) + "] from [" + ColumnFieldsMapper.NAME + "]", e);
+        }
+        if (fieldVisitor.uid() == null) {
+            return false;
+        }
+        DocumentMapper documentMapper = context.mapperService().documentMapper(fieldVisitor.uid().type());
+        return documentMapper != null && documentMapper.columnFieldsMapper().fields().containsAll(fieldNames);
+    }
+
+    private void loadStoredFields(SearchContext context, FieldsVisitor fieldVisitor, AtomicReaderContext subReaderContext, int subDoc) {
         fieldVisitor.reset();
         try {
-            context.searcher().doc(docId, fieldVisitor);
+            subReaderContext.reader().document(subDoc, fieldVisitor);
         } catch (IOException e) {
-            throw new FetchPhaseExecutionException(context, "Failed to fetch doc id [" + docId + "]", e);
+            throw new FetchPhaseExecutionException(context, "Failed to fetch doc id [" + (subReaderContext.docBase + subDoc) + "]", e);
         }
     }
 }
@@ -182,7 +182,9 @@ public class HighlightBuilder implements ToXContent {
 
     /**
      * Set type of highlighter to use. Supported types
-     * are <tt>highlighter</tt> and <tt>fast-vector-highlighter</tt>.
+     * are <tt>highlighter</tt>, <tt>fast-vector-highlighter</tt> and <tt>postings</tt> (the fast
+     * vector highlighter fragments built from the offsets indexed in the postings, requires
+     * <tt>index_options</tt> set to <tt>offsets</tt>).
      */
     public HighlightBuilder highlighterType(String highlighterType) {
         this.highlighterType = highlighterType;
@@ -24,10 +24,12 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.highlight.*;
 import org.apache.lucene.search.highlight.Formatter;
 import org.apache.lucene.search.vectorhighlight.*;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -93,7 +95,7 @@ public class HighlightPhase extends AbstractComponent implements FetchSubPhase {
 
     @Override
     public void hitExecute(SearchContext context, HitContext hitContext) throws ElasticSearchException {
-        // we use a cache to cache heavy things, mainly the rewrite in FieldQuery for FVH
+        // we use a cache to cache heavy things across the hits of the request, mainly the rewrite in FieldQuery for FVH
         HighlighterEntry cache = (HighlighterEntry) hitContext.cache().get("highlight");
         if (cache == null) {
             cache = new HighlighterEntry();
@@ -135,16 +137,26 @@ public class HighlightPhase extends AbstractComponent implements FetchSubPhase {
                         continue;
                     }
                 }
+                boolean termVectorOffsets = mapper.fieldType().storeTermVectors() && mapper.fieldType().storeTermVectorOffsets() && mapper.fieldType().storeTermVectorPositions();
+                boolean postingsOffsets = mapper.fieldType().indexed() && mapper.fieldType().indexOptions() == FieldInfo.IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS;
                 boolean useFastVectorHighlighter;
+                // when set, the fast vector highlighter phrases are built from the postings offsets instead of the term vectors
+                boolean usePostings = false;
                 if (field.highlighterType() == null) {
                     // if we can do highlighting using Term Vectors, use FastVectorHighlighter, otherwise, use the
-                    // slower plain highlighter
-                    useFastVectorHighlighter = mapper.fieldType().storeTermVectors() && mapper.fieldType().storeTermVectorOffsets() && mapper.fieldType().storeTermVectorPositions();
+                    // slower plain highlighter (the postings offsets are only used when asked for explicitly)
+                    useFastVectorHighlighter = termVectorOffsets;
                 } else if (field.highlighterType().equals("fast-vector-highlighter") || field.highlighterType().equals("fvh")) {
-                    if (!(mapper.fieldType().storeTermVectors() && mapper.fieldType().storeTermVectorOffsets() && mapper.fieldType().storeTermVectorPositions())) {
+                    if (!termVectorOffsets) {
                         throw new ElasticSearchIllegalArgumentException("the field [" + fieldName + "] should be indexed with term vector with position offsets to be used with fast vector highlighter");
                     }
                     useFastVectorHighlighter = true;
+                } else if (field.highlighterType().equals("postings") || field.highlighterType().equals("postings-highlighter")) {
+                    if (!postingsOffsets) {
+                        throw new ElasticSearchIllegalArgumentException("the field [" + fieldName + "] should be indexed with index_options [offsets] to be used with postings highlighter");
+                    }
+                    useFastVectorHighlighter = true;
+                    usePostings = true;
                 } else if (field.highlighterType().equals("highlighter") || field.highlighterType().equals("plain")) {
                     useFastVectorHighlighter = false;
                 } else {
@@ -248,7 +260,6 @@ public class HighlightPhase extends AbstractComponent implements FetchSubPhase {
                 } else {
                     try {
                         MapperHighlightEntry entry = cache.mappers.get(mapper);
-                        FieldQuery fieldQuery = null;
                         if (entry == null) {
                             FragListBuilder fragListBuilder;
                             BaseFragmentsBuilder fragmentsBuilder;
@@ -302,13 +313,17 @@ public class HighlightPhase extends AbstractComponent implements FetchSubPhase {
                                     // we use top level reader to rewrite the query against all readers, with use caching it across hits (and across readers...)
                                     cache.fieldMatchFieldQuery = new CustomFieldQuery(context.parsedQuery().query(), hitContext.topLevelReader(), true, field.requireFieldMatch());
                                 }
-                                fieldQuery = cache.fieldMatchFieldQuery;
+                                entry.fieldQuery = cache.fieldMatchFieldQuery;
                             } else {
                                 if (cache.noFieldMatchFieldQuery == null) {
                                     // we use top level reader to rewrite the query against all readers, with use caching it across hits (and across readers...)
                                     cache.noFieldMatchFieldQuery = new CustomFieldQuery(context.parsedQuery().query(), hitContext.topLevelReader(), true, field.requireFieldMatch());
                                 }
-                                fieldQuery = cache.noFieldMatchFieldQuery;
+                                entry.fieldQuery = cache.noFieldMatchFieldQuery;
+                            }
+                            if (usePostings) {
+                                // the query terms of the field are extracted once, and then looked up in the postings of each hit
+                                entry.postingsQueryTerms = PostingsFieldTermStack.queryTerms(entry.fieldQuery, mapper.names().indexName());
                             }
                             cache.mappers.put(mapper, entry);
                         }
@@ -319,8 +334,16 @@ public class HighlightPhase extends AbstractComponent implements FetchSubPhase {
                         int numberOfFragments = field.numberOfFragments() == 0 ? Integer.MAX_VALUE : field.numberOfFragments();
                         int fragmentCharSize = field.numberOfFragments() == 0 ? Integer.MAX_VALUE : field.fragmentCharSize();
                         // we highlight against the low level reader and docId, because if we load source, we want to reuse it if possible
-                        fragments = cache.fvh.getBestFragments(fieldQuery, hitContext.reader(), hitContext.docId(), mapper.names().indexName(), fragmentCharSize, numberOfFragments,
-                                entry.fragListBuilder, entry.fragmentsBuilder, field.preTags(), field.postTags(), encoder);
+                        if (entry.postingsQueryTerms != null) {
+                            FieldTermStack fieldTermStack = new PostingsFieldTermStack(hitContext.reader(), hitContext.docId(), mapper.names().indexName(), entry.postingsQueryTerms);
+                            FieldPhraseList fieldPhraseList = new FieldPhraseList(fieldTermStack, entry.fieldQuery, cache.fvh.getPhraseLimit());
+                            FieldFragList fieldFragList = entry.fragListBuilder.createFieldFragList(fieldPhraseList, fragmentCharSize);
+                            fragments = entry.fragmentsBuilder.createFragments(hitContext.reader(), hitContext.docId(), mapper.names().indexName(), fieldFragList, numberOfFragments,
+                                    field.preTags(), field.postTags(), encoder);
+                        } else {
+                            fragments = cache.fvh.getBestFragments(entry.fieldQuery, hitContext.reader(), hitContext.docId(), mapper.names().indexName(), fragmentCharSize, numberOfFragments,
+                                    entry.fragListBuilder, entry.fragmentsBuilder, field.preTags(), field.postTags(), encoder);
+                        }
 
                         if (fragments != null && fragments.length > 0) {
                             HighlightField highlightField = new HighlightField(fieldName, StringText.convertFromStringArray(fragments));
@@ -339,6 +362,8 @@ public class HighlightPhase extends AbstractComponent implements FetchSubPhase {
     static class MapperHighlightEntry {
         public FragListBuilder fragListBuilder;
         public FragmentsBuilder fragmentsBuilder;
+        public FieldQuery fieldQuery;
+        public BytesRef[] postingsQueryTerms;
 
         public Highlighter highlighter;
     }
@@ -36,6 +36,7 @@ import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.docset.DocSetCache;
 import org.elasticsearch.index.cache.filter.FilterCache;
+import org.elasticsearch.index.cache.fixedbitset.FixedBitSetFilterCache;
 import org.elasticsearch.index.cache.id.IdCache;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
@@ -382,6 +383,10 @@ public class SearchContext implements Releasable {
         return indexService.cache().filter();
     }
 
+    public FixedBitSetFilterCache fixedBitSetFilterCache() {
+        return indexService.cache().fixedBitSetFilterCache();
+    }
+
     public DocSetCache docSetCache() {
         return indexService.cache().docSet();
     }
@@ -73,6 +73,20 @@ public class SourceLookup implements Map {
         return this.source;
     }
 
+    private BytesReference loadSourceBytesIfNeeded() {
+        if (sourceAsBytes != null) {
+            return sourceAsBytes;
+        }
+        try {
+            JustSourceFieldsVisitor sourceFieldVisitor = new JustSourceFieldsVisitor();
+            reader.document(docId, sourceFieldVisitor);
+            sourceAsBytes = sourceFieldVisitor.source();
+        } catch (Exception e) {
+            throw new ElasticSearchParseException("failed to load source", e);
+        }
+        return sourceAsBytes;
+    }
+
     public static Map<String, Object> sourceAsMap(BytesReference source) throws ElasticSearchParseException {
         return XContentHelper.convertToMap(source, false).v2();
     }
@@ -116,8 +130,23 @@ public class SourceLookup implements Map {
         return XContentMapValues.extractRawValues(path, loadSourceIfNeeded());
     }
 
+    /**
+     * Filters the source based on the includes / excludes. If the source was not parsed into a map
+     * yet, it is streamed from its bytes, copying only the matching parts instead of parsing it whole.
+     */
     public Object filter(String[] includes, String[] excludes) {
-        return XContentMapValues.filter(loadSourceIfNeeded(), includes, excludes);
+        if (source != null) {
+            return XContentMapValues.filter(source, includes, excludes);
+        }
+        BytesReference sourceAsBytes = loadSourceBytesIfNeeded();
+        if (sourceAsBytes == null) {
+            return XContentMapValues.filter(loadSourceIfNeeded(), includes, excludes);
+        }
+        try {
+            return XContentMapValues.filter(sourceAsBytes, includes, excludes);
+        } catch (Exception e) {
+            throw new ElasticSearchParseException("failed to filter source", e);
+        }
     }
 
     public Object extractValue(String path) {
@@ -217,7 +217,7 @@ public class SortParseElement implements SearchParseElement {
                 objectMapper = context.mapperService().resolveClosestNestedObjectMapper(fieldName);
             }
             if (objectMapper != null && objectMapper.nested().isNested()) {
-                Filter rootDocumentsFilter = context.filterCache().cache(NonNestedDocsFilter.INSTANCE);
+                Filter rootDocumentsFilter = context.fixedBitSetFilterCache().getFixedBitSetFilter(NonNestedDocsFilter.INSTANCE);
                 Filter innerDocumentsFilter;
                 if (nestedFilter != null) {
                     innerDocumentsFilter = context.filterCache().cache(nestedFilter);
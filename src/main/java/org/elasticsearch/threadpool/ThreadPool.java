@@ -64,6 +64,7 @@ public class ThreadPool extends AbstractComponent {
         public static final String GET = "get";
         public static final String INDEX = "index";
         public static final String BULK = "bulk";
+        public static final String PARSE = "parse";
         public static final String SEARCH = "search";
         public static final String PERCOLATE = "percolate";
         public static final String MANAGEMENT = "management";
@@ -100,6 +101,7 @@ public class ThreadPool extends AbstractComponent {
                 .put(Names.GENERIC, settingsBuilder().put("type", "cached").put("keep_alive", "30s").build())
                 .put(Names.INDEX, settingsBuilder().put("type", "cached").build())
                 .put(Names.BULK, settingsBuilder().put("type", "cached").build())
+                .put(Names.PARSE, settingsBuilder().put("type", "scaling").put("keep_alive", "5m").put("size", Runtime.getRuntime().availableProcessors()).build())
                 .put(Names.GET, settingsBuilder().put("type", "cached").build())
                 .put(Names.SEARCH, settingsBuilder().put("type", "cached").build())
                 .put(Names.PERCOLATE, settingsBuilder().put("type", "cached").build())
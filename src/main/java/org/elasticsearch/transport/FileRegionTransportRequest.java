@@ -0,0 +1,58 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A transport request that can end with a raw payload read directly from a file region. Transports that support it
+ * write the payload straight from the file to the network (using {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)})
+ * when the request is not compressed, instead of copying it into a buffer first.
+ * <p/>
+ * The wire format is the same as writing the payload as a bytes reference, so the receiving side does not need to
+ * know how the payload got sent.
+ */
+public interface FileRegionTransportRequest {
+
+    /**
+     * Returns <tt>true</tt> if the request currently holds a file region as its trailing payload.
+     */
+    boolean hasFileRegion();
+
+    FileChannel fileRegionChannel();
+
+    long fileRegionPosition();
+
+    int fileRegionLength();
+
+    /**
+     * Writes the request up to and including the length of the file region, without the file region content.
+     */
+    void writeToFileRegion(StreamOutput out) throws IOException;
+
+    /**
+     * Releases the file region. Called by the transport once the write of the request to the network completed,
+     * successfully or not, or once the request got written without sending the region directly.
+     */
+    void releaseFileRegion();
+}
@@ -20,6 +20,8 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.unit.TimeValue;
 
 /**
@@ -55,6 +57,10 @@ public class TransportRequestOptions {
 
     private boolean compress;
 
+    private Compressor compressor;
+
+    private boolean bytesByReference;
+
     private Type type = Type.MED;
 
     public TransportRequestOptions withTimeout(long timeout) {
@@ -71,6 +77,24 @@ public class TransportRequestOptions {
         return this;
     }
 
+    /**
+     * The compressor to use when the request is compressed, <tt>null</tt> to use the transport compressor.
+     */
+    public TransportRequestOptions withCompressor(@Nullable Compressor compressor) {
+        this.compressor = compressor;
+        return this;
+    }
+
+    /**
+     * Should bytes references of the request be sent by reference instead of being copied over to the request
+     * buffer, when the request is not compressed. Only safe for requests that don't modify these bytes once
+     * they are sent. Defaults to <tt>false</tt>.
+     */
+    public TransportRequestOptions withBytesByReference(boolean bytesByReference) {
+        this.bytesByReference = bytesByReference;
+        return this;
+    }
+
     public TransportRequestOptions withType(Type type) {
         this.type = type;
         return this;
@@ -108,6 +132,15 @@ public class TransportRequestOptions {
         return this.compress;
     }
 
+    @Nullable
+    public Compressor compressor() {
+        return this.compressor;
+    }
+
+    public boolean bytesByReference() {
+        return this.bytesByReference;
+    }
+
     public Type type() {
         return this.type;
     }
@@ -0,0 +1,96 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.AdapterStreamOutput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A stream that keeps large bytes references written to it by reference instead of copying them over
+ * to the bytes the rest of the request is serialized to. The resulting channel buffer is a composite of
+ * the serialized parts and the referenced bytes, written to the network using a gathering write.
+ * <p/>
+ * The referenced bytes must not change until the buffer is written, see
+ * {@link org.elasticsearch.transport.TransportRequestOptions#withBytesByReference(boolean)}.
+ */
+public class GatheringStreamOutput extends AdapterStreamOutput {
+
+    /**
+     * Smaller bytes references are cheaper to copy than to add as another component of the buffer.
+     */
+    public static final int MIN_REFERENCED_LENGTH = 1024;
+
+    private final BytesStreamOutput bytes;
+
+    private final List<BytesReference> references = new ArrayList<BytesReference>();
+
+    // the position in the serialized bytes each reference is written at
+    private final List<Integer> positions = new ArrayList<Integer>();
+
+    /**
+     * @param out   the stream to write to, possibly wrapping <tt>bytes</tt>
+     * @param bytes the bytes <tt>out</tt> ends up writing to
+     */
+    public GatheringStreamOutput(StreamOutput out, BytesStreamOutput bytes) {
+        super(out);
+        this.bytes = bytes;
+    }
+
+    @Override
+    public void writeBytesReference(@Nullable BytesReference bytes) throws IOException {
+        if (bytes == null || bytes.length() < MIN_REFERENCED_LENGTH) {
+            super.writeBytesReference(bytes);
+            return;
+        }
+        // same wire format, the length followed by the bytes
+        out.writeVInt(bytes.length());
+        positions.add(this.bytes.size());
+        references.add(bytes);
+    }
+
+    /**
+     * The serialized bytes with the referenced bytes in place.
+     */
+    public ChannelBuffer toChannelBuffer() {
+        BytesReference serialized = bytes.bytes();
+        if (references.isEmpty()) {
+            return serialized.toChannelBuffer();
+        }
+        ChannelBuffer[] buffers = new ChannelBuffer[references.size() * 2 + 1];
+        int from = 0;
+        int index = 0;
+        for (int i = 0; i < references.size(); i++) {
+            int position = positions.get(i);
+            buffers[index++] = serialized.slice(from, position - from).toChannelBuffer();
+            buffers[index++] = references.get(i).toChannelBuffer();
+            from = position;
+        }
+        buffers[index] = serialized.slice(from, serialized.length() - from).toChannelBuffer();
+        return ChannelBuffers.wrappedBuffer(true, buffers);
+    }
+}
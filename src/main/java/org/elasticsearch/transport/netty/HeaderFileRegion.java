@@ -0,0 +1,83 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.FileRegion;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A file region preceded by a buffer (the message header and the request up to the region). Both are transferred
+ * as part of a single channel write, so they never get interleaved with other messages written to the channel.
+ * <p/>
+ * The file channel is not closed when the transfer is done, it is up to the owner of it.
+ */
+public class HeaderFileRegion implements FileRegion {
+
+    private final ChannelBuffer header;
+
+    private final FileChannel file;
+
+    private final long filePosition;
+
+    private final long fileCount;
+
+    public HeaderFileRegion(ChannelBuffer header, FileChannel file, long filePosition, long fileCount) {
+        this.header = header;
+        this.file = file;
+        this.filePosition = filePosition;
+        this.fileCount = fileCount;
+    }
+
+    @Override
+    public long getPosition() {
+        return 0;
+    }
+
+    @Override
+    public long getCount() {
+        return header.readableBytes() + fileCount;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target, long position) throws IOException {
+        int headerLength = header.readableBytes();
+        if (position < headerLength) {
+            return target.write(header.toByteBuffer(header.readerIndex() + (int) position, headerLength - (int) position));
+        }
+        long fileOffset = position - headerLength;
+        long count = fileCount - fileOffset;
+        if (count < 0) {
+            throw new IllegalArgumentException("position out of range: " + position + " (expected: 0 - " + (getCount() - 1) + ")");
+        }
+        if (count == 0) {
+            return 0l;
+        }
+        return file.transferTo(filePosition + fileOffset, count, target);
+    }
+
+    @Override
+    public void releaseExternalResources() {
+        // the file channel is released by its owner once the write completes
+    }
+}
@@ -29,13 +29,21 @@ public class NettyHeader {
     public static final int HEADER_SIZE = 2 + 4 + 8 + 1 + 4;
 
     public static void writeHeader(ChannelBuffer buffer, long requestId, byte status, Version version) {
+        writeHeader(buffer, requestId, status, version, 0);
+    }
+
+    /**
+     * Writes the header, with the message size including <tt>trailingSize</tt> bytes that are written to
+     * the channel right after the buffer (for example, a file region).
+     */
+    public static void writeHeader(ChannelBuffer buffer, long requestId, byte status, Version version, int trailingSize) {
         int index = buffer.readerIndex();
         buffer.setByte(index, 'E');
         index += 1;
         buffer.setByte(index, 'S');
         index += 1;
         // write the size, the size indicates the remaining message size, not including the size int
-        buffer.setInt(index, buffer.readableBytes() - 6);
+        buffer.setInt(index, buffer.readableBytes() + trailingSize - 6);
         index += 4;
         buffer.setLong(index, requestId);
         index += 8;
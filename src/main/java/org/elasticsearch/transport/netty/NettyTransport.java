@@ -22,10 +22,14 @@ package org.elasticsearch.transport.netty;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
@@ -109,6 +113,10 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 
     final boolean compress;
 
+    // the compressor type used when compressing, null for the default compressor
+    @Nullable
+    final String compressType;
+
     final TimeValue connectTimeout;
 
     final Boolean tcpNoDelay;
@@ -182,6 +190,10 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.bindHost = componentSettings.get("bind_host", settings.get("transport.bind_host", settings.get("transport.host")));
         this.publishHost = componentSettings.get("publish_host", settings.get("transport.publish_host", settings.get("transport.host")));
         this.compress = settings.getAsBoolean("transport.tcp.compress", false);
+        this.compressType = CompressorFactory.normalizeType(settings.get("transport.tcp.compress_type"));
+        if (compressType != null && CompressorFactory.compressor(compressType) == null) {
+            throw new ElasticSearchIllegalArgumentException("failed to find compressor type [" + compressType + "] for [transport.tcp.compress_type]");
+        }
         this.connectTimeout = componentSettings.getAsTime("connect_timeout", settings.getAsTime("transport.tcp.connect_timeout", settings.getAsTime(TCP_CONNECT_TIMEOUT, TCP_DEFAULT_CONNECT_TIMEOUT)));
         this.tcpNoDelay = componentSettings.getAsBoolean("tcp_no_delay", settings.getAsBoolean(TCP_NO_DELAY, true));
         this.tcpKeepAlive = componentSettings.getAsBoolean("tcp_keep_alive", settings.getAsBoolean(TCP_KEEP_ALIVE, true));
@@ -507,6 +519,13 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         return new InetSocketTransportAddress((InetSocketAddress) socketAddress);
     }
 
+    /**
+     * The compressor used to compress requests and responses, unless the request options provide one.
+     */
+    Compressor compressor() {
+        return CompressorFactory.compressorOrDefault(compressType);
+    }
+
     @Override
     public long serverOpen() {
         OpenChannelsHandler channels = serverOpenChannels;
@@ -515,25 +534,41 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 
     @Override
     public void sendRequest(final DiscoveryNode node, final long requestId, final String action, final TransportRequest request, TransportRequestOptions options) throws IOException, TransportException {
-        Channel targetChannel = nodeChannel(node, options);
-
         if (compress) {
             options.withCompress(true);
         }
 
+        if (!options.compress() && request instanceof FileRegionTransportRequest && ((FileRegionTransportRequest) request).hasFileRegion()) {
+            sendFileRegionRequest(node, requestId, action, (FileRegionTransportRequest) request, options);
+            return;
+        }
+
+        Channel targetChannel = nodeChannel(node, options);
+
         CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
 
         byte status = 0;
         status = TransportStatus.setRequest(status);
 
+        ChannelBuffer buffer;
         if (options.compress()) {
             status = TransportStatus.setCompress(status);
             cachedEntry.bytes().skip(NettyHeader.HEADER_SIZE);
-            StreamOutput stream = cachedEntry.handles(CompressorFactory.defaultCompressor());
+            StreamOutput stream = cachedEntry.handles(options.compressor() != null ? options.compressor() : compressor());
+            stream.setVersion(node.version());
+            stream.writeString(action);
+            request.writeTo(stream);
+            stream.close();
+            buffer = cachedEntry.bytes().bytes().toChannelBuffer();
+        } else if (options.bytesByReference()) {
+            // large sources (for example) are gathered into the write instead of being copied over
+            GatheringStreamOutput stream = new GatheringStreamOutput(cachedEntry.handles(), cachedEntry.bytes());
+            cachedEntry.bytes().skip(NettyHeader.HEADER_SIZE);
             stream.setVersion(node.version());
             stream.writeString(action);
             request.writeTo(stream);
             stream.close();
+            buffer = stream.toChannelBuffer();
         } else {
             StreamOutput stream = cachedEntry.handles();
             cachedEntry.bytes().skip(NettyHeader.HEADER_SIZE);
@@ -541,8 +576,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
             stream.writeString(action);
             request.writeTo(stream);
             stream.close();
+            buffer = cachedEntry.bytes().bytes().toChannelBuffer();
         }
-        ChannelBuffer buffer = cachedEntry.bytes().bytes().toChannelBuffer();
         NettyHeader.writeHeader(buffer, requestId, status, node.version());
 
         ChannelFuture future = targetChannel.write(buffer);
@@ -561,6 +596,48 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 //        });
     }
 
+    /**
+     * Sends a request with the file region going directly from the file to the network. The file region is released
+     * once the write completes.
+     */
+    private void sendFileRegionRequest(DiscoveryNode node, long requestId, String action, FileRegionTransportRequest request, TransportRequestOptions options) throws IOException {
+        CachedStreamOutput.Entry cachedEntry = null;
+        boolean success = false;
+        try {
+            Channel targetChannel = nodeChannel(node, options);
+            cachedEntry = CachedStreamOutput.popEntry();
+            FileRegion fileRegion = fileRegionMessage(cachedEntry, requestId, node.version(), action, request);
+            ChannelFuture future = targetChannel.write(fileRegion);
+            success = true;
+            future.addListener(new FileRegionFutureListener(cachedEntry, request));
+        } finally {
+            if (!success) {
+                request.releaseFileRegion();
+                if (cachedEntry != null) {
+                    CachedStreamOutput.pushEntry(cachedEntry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the message of a request with a file region, the request itself is written into the cached entry
+     * and followed by the file region. On the wire, it is the same as the request written as a whole.
+     */
+    public static FileRegion fileRegionMessage(CachedStreamOutput.Entry cachedEntry, long requestId, Version version, String action, FileRegionTransportRequest request) throws IOException {
+        byte status = 0;
+        status = TransportStatus.setRequest(status);
+        StreamOutput stream = cachedEntry.handles();
+        cachedEntry.bytes().skip(NettyHeader.HEADER_SIZE);
+        stream.setVersion(version);
+        stream.writeString(action);
+        request.writeToFileRegion(stream);
+        stream.close();
+        ChannelBuffer buffer = cachedEntry.bytes().bytes().toChannelBuffer();
+        NettyHeader.writeHeader(buffer, requestId, status, version, request.fileRegionLength());
+        return new HeaderFileRegion(buffer, request.fileRegionChannel(), request.fileRegionPosition(), request.fileRegionLength());
+    }
+
     @Override
     public boolean nodeConnected(DiscoveryNode node) {
         return connectedNodes.containsKey(node);
@@ -870,6 +947,24 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         }
     }
 
+    static class FileRegionFutureListener implements ChannelFutureListener {
+
+        private final CachedStreamOutput.Entry cachedEntry;
+
+        private final FileRegionTransportRequest request;
+
+        FileRegionFutureListener(CachedStreamOutput.Entry cachedEntry, FileRegionTransportRequest request) {
+            this.cachedEntry = cachedEntry;
+            this.request = request;
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture channelFuture) throws Exception {
+            CachedStreamOutput.pushEntry(cachedEntry);
+            request.releaseFileRegion();
+        }
+    }
+
     public static class CacheFutureListener implements ChannelFutureListener {
 
         private final CachedStreamOutput.Entry cachedEntry;
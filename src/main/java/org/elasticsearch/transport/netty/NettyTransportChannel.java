@@ -20,7 +20,6 @@
 package org.elasticsearch.transport.netty;
 
 import org.elasticsearch.Version;
-import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.ThrowableObjectOutputStream;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
@@ -80,7 +79,7 @@ public class NettyTransportChannel implements TransportChannel {
         if (options.compress()) {
             status = TransportStatus.setCompress(status);
             cachedEntry.bytes().skip(NettyHeader.HEADER_SIZE);
-            StreamOutput stream = cachedEntry.handles(CompressorFactory.defaultCompressor());
+            StreamOutput stream = cachedEntry.handles(transport.compressor());
             stream.setVersion(version);
             response.writeTo(stream);
             stream.close();
@@ -0,0 +1,117 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.compress;
+
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
+import org.elasticsearch.common.compress.lzf.LZFCompressor;
+import org.elasticsearch.common.xcontent.XContentFactory;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the compressors on a <tt>_source</tt> corpus: pass a file with one json document per line
+ * (for example, dumped from a scan search), otherwise generated log like documents are used.
+ */
+public class CompressorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int ITERATIONS = 20;
+
+        List<byte[]> sources = new ArrayList<byte[]>();
+        if (args.length > 0) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().length() > 0) {
+                        sources.add(line.getBytes("UTF-8"));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } else {
+            Random random = new Random(0);
+            String[] levels = {"DEBUG", "INFO", "WARN", "ERROR"};
+            for (int i = 0; i < 100000; i++) {
+                sources.add(XContentFactory.jsonBuilder().startObject()
+                        .field("@timestamp", 1360000000000l + i * 1000)
+                        .field("level", levels[random.nextInt(levels.length)])
+                        .field("logger", "org.elasticsearch.index.shard.service")
+                        .field("host", "host-" + random.nextInt(20))
+                        .field("message", "[index][" + random.nextInt(5) + "] took [" + random.nextInt(1000) + "ms] to execute request for user [" + random.nextInt(1000) + "]")
+                        .endObject().bytes().toBytes());
+            }
+        }
+        long totalSize = 0;
+        for (byte[] source : sources) {
+            totalSize += source.length;
+        }
+        System.out.println("--> " + sources.size() + " sources, total size " + totalSize);
+
+        for (Compressor compressor : new Compressor[]{CompressorFactory.compressor(LZFCompressor.TYPE), CompressorFactory.compressor(LZ4Compressor.TYPE)}) {
+            List<byte[]> compressed = new ArrayList<byte[]>(sources.size());
+            long compressedSize = 0;
+            for (byte[] source : sources) {
+                byte[] bytes = compressor.compress(source, 0, source.length);
+                compressedSize += bytes.length;
+                compressed.add(bytes);
+            }
+
+            // warm up
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (byte[] source : sources) {
+                    compressor.compress(source, 0, source.length);
+                }
+                for (byte[] bytes : compressed) {
+                    compressor.uncompress(bytes, 0, bytes.length);
+                }
+            }
+
+            StopWatch stopWatch = new StopWatch().start();
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (byte[] source : sources) {
+                    compressor.compress(source, 0, source.length);
+                }
+            }
+            stopWatch.stop();
+            double compressMBPerSec = (totalSize * ITERATIONS) / stopWatch.totalTime().secondsFrac() / (1024 * 1024);
+
+            stopWatch = new StopWatch().start();
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (byte[] bytes : compressed) {
+                    compressor.uncompress(bytes, 0, bytes.length);
+                }
+            }
+            stopWatch.stop();
+            double uncompressMBPerSec = (totalSize * ITERATIONS) / stopWatch.totalTime().secondsFrac() / (1024 * 1024);
+
+            System.out.println("--> [" + compressor.type() + "] ratio " + ((double) totalSize / compressedSize)
+                    + ", compress " + compressMBPerSec + "mb/s, uncompress " + uncompressMBPerSec + "mb/s");
+        }
+    }
+}
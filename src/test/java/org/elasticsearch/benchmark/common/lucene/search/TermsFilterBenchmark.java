@@ -0,0 +1,114 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.lucene.search;
+
+import jsr166y.ThreadLocalRandom;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene42.Lucene42Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queries.TermsFilter;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.MergeTermsFilter;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.index.codec.postingsformat.BloomFilter;
+import org.elasticsearch.index.codec.postingsformat.BloomFilterPostingsFormat;
+
+/**
+ * Compares the per term seeks of {@link TermsFilter} with the single pass of {@link MergeTermsFilter},
+ * for large numbers of id like terms, with and without a bloom filter on the field.
+ */
+public class TermsFilterBenchmark {
+
+    static final int NUMBER_OF_DOCS = (int) SizeValue.parseSizeValue("2m").singles();
+    static final int[] NUMBER_OF_TERMS = new int[]{1000, 10000, 100000};
+    static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws Exception {
+        for (final boolean bloom : new boolean[]{false, true}) {
+            RAMDirectory dir = new RAMDirectory();
+            IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+            if (bloom) {
+                config.setCodec(new Lucene42Codec() {
+                    final PostingsFormat bloomFormat = new BloomFilterPostingsFormat(PostingsFormat.forName("Lucene41"), BloomFilter.Factory.DEFAULT);
+
+                    @Override
+                    public PostingsFormat getPostingsFormatForField(String field) {
+                        return bloomFormat;
+                    }
+                });
+            }
+            IndexWriter writer = new IndexWriter(dir, config);
+            StopWatch watch = new StopWatch().start();
+            for (int i = 0; i < NUMBER_OF_DOCS; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+            DirectoryReader reader = DirectoryReader.open(writer, true);
+            System.out.println("--> indexed " + NUMBER_OF_DOCS + " docs, bloom [" + bloom + "], segments [" + reader.leaves().size() + "], took " + watch.stop().lastTaskTime());
+
+            for (int numberOfTerms : NUMBER_OF_TERMS) {
+                BytesRef[] terms = new BytesRef[numberOfTerms];
+                Term[] luceneTerms = new Term[numberOfTerms];
+                for (int i = 0; i < numberOfTerms; i++) {
+                    // a quarter of the terms don't exist
+                    terms[i] = new BytesRef(Integer.toString(ThreadLocalRandom.current().nextInt(NUMBER_OF_DOCS + NUMBER_OF_DOCS / 3)));
+                    luceneTerms[i] = new Term("id", terms[i]);
+                }
+                run("terms", bloom, new TermsFilter(luceneTerms), reader);
+                run("merge", bloom, new MergeTermsFilter("id", terms), reader);
+            }
+            reader.close();
+            writer.close();
+        }
+    }
+
+    static void run(String name, boolean bloom, Filter filter, DirectoryReader reader) throws Exception {
+        // warm up
+        long count = execute(filter, reader);
+        StopWatch watch = new StopWatch().start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            execute(filter, reader);
+        }
+        watch.stop();
+        System.out.println("--> [" + name + "], bloom [" + bloom + "], matches [" + count + "], avg took " + (watch.totalTime().millis() / ITERATIONS) + "ms");
+    }
+
+    static long execute(Filter filter, DirectoryReader reader) throws Exception {
+        long count = 0;
+        for (AtomicReaderContext context : reader.leaves()) {
+            DocIdSet set = filter.getDocIdSet(context, context.reader().getLiveDocs());
+            if (set != null) {
+                count += ((FixedBitSet) set).cardinality();
+            }
+        }
+        return count;
+    }
+}
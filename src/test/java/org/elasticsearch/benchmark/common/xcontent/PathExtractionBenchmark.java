@@ -0,0 +1,96 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.xcontent;
+
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedString;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+/**
+ * Compares resolving the id, routing and timestamp paths of index requests by parsing the source,
+ * against scanning it for just the mapped paths. The paths are placed at the end of the doc, which
+ * is the worst case for both.
+ */
+public class PathExtractionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int NUMBER_OF_FIELDS = 50;
+        final int ITERATIONS = 200000;
+
+        MappingMetaData md = new MappingMetaData("type1", new CompressedString(""),
+                new MappingMetaData.Id("meta.id"),
+                new MappingMetaData.Routing(true, "meta.user"),
+                new MappingMetaData.Timestamp(true, "meta.date", "dateOptionalTime"));
+
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        for (int i = 0; i < NUMBER_OF_FIELDS; i++) {
+            builder.field("field" + i, "value " + i + " with some more text in it to make the source a bit larger");
+        }
+        builder.startObject("obj");
+        for (int i = 0; i < NUMBER_OF_FIELDS; i++) {
+            builder.field("field" + i, i);
+        }
+        builder.endObject();
+        builder.startObject("meta").field("id", "1").field("user", "kimchy").field("date", "2013-04-01T10:00:00").endObject();
+        builder.endObject();
+        BytesReference source = builder.bytes();
+        System.out.println("Source size: " + source.length() + " bytes");
+
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            parse(md, source);
+            md.parse(source, md.createParseContext(null, null, null));
+        }
+
+        StopWatch stopWatch = new StopWatch().start();
+        long count = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            count += parse(md, source).routing().length();
+        }
+        stopWatch.stop();
+        System.out.println("Parser: " + stopWatch.totalTime() + ", " + (ITERATIONS / stopWatch.totalTime().secondsFrac()) + " per second (" + count + ")");
+
+        stopWatch = new StopWatch().start();
+        count = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            MappingMetaData.ParseContext parseContext = md.createParseContext(null, null, null);
+            md.parse(source, parseContext);
+            count += parseContext.routing().length();
+        }
+        stopWatch.stop();
+        System.out.println("Scanner: " + stopWatch.totalTime() + ", " + (ITERATIONS / stopWatch.totalTime().secondsFrac()) + " per second (" + count + ")");
+    }
+
+    private static MappingMetaData.ParseContext parse(MappingMetaData md, BytesReference source) throws Exception {
+        MappingMetaData.ParseContext parseContext = md.createParseContext(null, null, null);
+        XContentParser parser = XContentHelper.createParser(source);
+        try {
+            md.parse(parser, parseContext);
+        } finally {
+            parser.close();
+        }
+        return parseContext;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.xcontent;
+
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+
+import java.util.Map;
+
+/**
+ * Compares filtering a source by parsing it into a map first, against streaming only the
+ * included parts of it.
+ */
+public class SourceFilterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int NUMBER_OF_FIELDS = 200;
+        final int ITERATIONS = 20000;
+        final String[] includes = new String[]{"field1", "obj.field3"};
+
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        for (int i = 0; i < NUMBER_OF_FIELDS; i++) {
+            builder.field("field" + i, "value " + i + " with some more text in it to make the source a bit larger");
+        }
+        builder.startObject("obj");
+        for (int i = 0; i < NUMBER_OF_FIELDS; i++) {
+            builder.field("field" + i, i);
+        }
+        builder.endObject();
+        builder.startArray("arr");
+        for (int i = 0; i < NUMBER_OF_FIELDS; i++) {
+            builder.startObject().field("field", i).field("other", "value " + i).endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        BytesReference source = builder.bytes();
+        System.out.println("Source size: " + source.length() + " bytes");
+
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            XContentMapValues.filter(XContentHelper.convertToMap(source, false).v2(), includes, Strings.EMPTY_ARRAY);
+            XContentMapValues.filter(source, includes, Strings.EMPTY_ARRAY);
+        }
+
+        StopWatch stopWatch = new StopWatch().start();
+        long count = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            Map<String, Object> filtered = XContentMapValues.filter(XContentHelper.convertToMap(source, false).v2(), includes, Strings.EMPTY_ARRAY);
+            count += filtered.size();
+        }
+        stopWatch.stop();
+        System.out.println("Map filter: " + stopWatch.totalTime() + ", " + (ITERATIONS / stopWatch.totalTime().secondsFrac()) + " per second (" + count + ")");
+
+        stopWatch = new StopWatch().start();
+        count = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            Map<String, Object> filtered = XContentMapValues.filter(source, includes, Strings.EMPTY_ARRAY);
+            count += filtered.size();
+        }
+        stopWatch.stop();
+        System.out.println("Streaming filter: " + stopWatch.totalTime() + ", " + (ITERATIONS / stopWatch.totalTime().secondsFrac()) + " per second (" + count + ")");
+    }
+}
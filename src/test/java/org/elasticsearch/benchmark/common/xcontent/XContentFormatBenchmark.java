@@ -0,0 +1,113 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.xcontent;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+/**
+ * Compares json and smile when serializing a response like structure, parsing it back, and parsing
+ * a bulk request body of each format.
+ */
+public class XContentFormatBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int ITERATIONS = 10000;
+        final int HITS = 50;
+        final int BULK_ITEMS = 1000;
+        final int BULK_ITERATIONS = 200;
+
+        for (XContentType type : new XContentType[]{XContentType.JSON, XContentType.SMILE}) {
+            // warm up
+            for (int i = 0; i < ITERATIONS; i++) {
+                XContentHelper.convertToMap(response(type, HITS), false);
+            }
+
+            StopWatch stopWatch = new StopWatch().start();
+            long size = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                size += response(type, HITS).length();
+            }
+            stopWatch.stop();
+            System.out.println("[" + type.shortName() + "] serialize: " + stopWatch.totalTime() + ", " + (ITERATIONS / stopWatch.totalTime().secondsFrac()) + " per second, size " + (size / ITERATIONS));
+
+            BytesReference response = response(type, HITS);
+            stopWatch = new StopWatch().start();
+            long count = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                count += XContentHelper.convertToMap(response, false).v2().size();
+            }
+            stopWatch.stop();
+            System.out.println("[" + type.shortName() + "] parse: " + stopWatch.totalTime() + ", " + (ITERATIONS / stopWatch.totalTime().secondsFrac()) + " per second (" + count + ")");
+
+            BytesReference bulk = bulk(type, BULK_ITEMS);
+            for (int i = 0; i < BULK_ITERATIONS; i++) {
+                new BulkRequest().add(bulk, false, null, null);
+            }
+            stopWatch = new StopWatch().start();
+            count = 0;
+            for (int i = 0; i < BULK_ITERATIONS; i++) {
+                count += new BulkRequest().add(bulk, false, null, null).numberOfActions();
+            }
+            stopWatch.stop();
+            System.out.println("[" + type.shortName() + "] bulk parse: " + stopWatch.totalTime() + ", " + (BULK_ITERATIONS / stopWatch.totalTime().secondsFrac()) + " per second, size " + bulk.length() + " (" + count + ")");
+        }
+    }
+
+    private static BytesReference response(XContentType type, int hits) throws Exception {
+        XContentBuilder builder = XContentFactory.contentBuilder(type);
+        builder.startObject().field("took", 12).field("timed_out", false);
+        builder.startObject("hits").field("total", 123456).field("max_score", 1.2345f).startArray("hits");
+        for (int i = 0; i < hits; i++) {
+            builder.startObject()
+                    .field("_index", "test").field("_type", "type1").field("_id", Integer.toString(i)).field("_score", 1.2345f / (i + 1))
+                    .startObject("_source")
+                    .field("user", "kimchy" + i).field("post_date", 1360000000000l + i).field("rating", i * 0.5d)
+                    .field("message", "trying out elastic search, with some more text in the message " + i)
+                    .array("tags", "tag1", "tag2", "tag3")
+                    .endObject()
+                    .endObject();
+        }
+        builder.endArray().endObject().endObject();
+        return builder.bytes();
+    }
+
+    private static BytesReference bulk(XContentType type, int items) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        byte separator = XContentFactory.xContent(type).streamSeparator();
+        for (int i = 0; i < items; i++) {
+            XContentFactory.contentBuilder(type).startObject()
+                    .startObject("index").field("_index", "test").field("_type", "type1").field("_id", Integer.toString(i)).endObject()
+                    .endObject().bytes().writeTo(out);
+            out.writeByte(separator);
+            XContentFactory.contentBuilder(type).startObject()
+                    .field("user", "kimchy" + i).field("post_date", 1360000000000l + i).field("rating", i * 0.5d)
+                    .field("message", "trying out elastic search, with some more text in the message " + i)
+                    .endObject().bytes().writeTo(out);
+            out.writeByte(separator);
+        }
+        return out.bytes();
+    }
+}
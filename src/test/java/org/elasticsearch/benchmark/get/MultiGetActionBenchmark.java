@@ -0,0 +1,108 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.get;
+
+import jsr166y.ThreadLocalRandom;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.node.Node;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Multi gets 10k random ids at once out of an index with several segments per shard.
+ */
+public class MultiGetActionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = settingsBuilder()
+                .put("index.refresh_interval", "-1")
+                .put(SETTING_NUMBER_OF_SHARDS, 2)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .build();
+
+        Node node = nodeBuilder().settings(settingsBuilder().put(settings).put("name", "node1")).node();
+        Client client = node.client();
+
+        int count = (int) SizeValue.parseSizeValue("1m").singles();
+        int batch = 1000;
+        int refreshEvery = 100000;
+        int idsPerRequest = 10000;
+        int warmup = 5;
+        int requests = 50;
+
+        client.admin().indices().prepareCreate("test").execute().actionGet();
+        client.admin().cluster().prepareHealth("test").setWaitForGreenStatus().execute().actionGet();
+
+        StopWatch stopWatch = new StopWatch().start();
+        for (int counter = 0; counter < count; ) {
+            BulkRequestBuilder request = client.prepareBulk();
+            for (int j = 0; j < batch; j++, counter++) {
+                request.add(client.prepareIndex("test", "type1", Integer.toString(counter)).setSource("field", "value " + counter));
+            }
+            request.execute().actionGet();
+            if (counter % refreshEvery == 0) {
+                // create several segments
+                client.admin().indices().prepareRefresh("test").execute().actionGet();
+            }
+        }
+        client.admin().indices().prepareRefresh("test").execute().actionGet();
+        System.out.println("--> Indexed " + count + " docs in " + stopWatch.stop().totalTime());
+
+        for (int i = 0; i < warmup; i++) {
+            multiGet(client, count, idsPerRequest);
+        }
+
+        stopWatch = new StopWatch().start();
+        long found = 0;
+        for (int i = 0; i < requests; i++) {
+            found += multiGet(client, count, idsPerRequest);
+        }
+        stopWatch.stop();
+        System.out.println("--> Multi get of " + idsPerRequest + " ids took " + (stopWatch.totalTime().millis() / requests) + "ms on average, found " + found);
+
+        client.close();
+        node.close();
+    }
+
+    private static long multiGet(Client client, int count, int size) {
+        MultiGetRequestBuilder request = client.prepareMultiGet();
+        for (int i = 0; i < size; i++) {
+            request.add("test", "type1", Integer.toString(ThreadLocalRandom.current().nextInt(count)));
+        }
+        MultiGetResponse response = request.execute().actionGet();
+        long found = 0;
+        for (MultiGetItemResponse item : response.getResponses()) {
+            if (!item.isFailed() && item.getResponse().isExists()) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.recovery;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Priority;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.indices.recovery.RecoverySettings;
+import org.elasticsearch.node.Node;
+
+import java.util.Random;
+
+import static org.elasticsearch.client.Requests.indexRequest;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Measures peer recovery throughput of a single large shard over the local transport, with different
+ * number of in flight file chunks per stream.
+ */
+public class RecoveryThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long COUNT = SizeValue.parseSizeValue("1m").singles();
+        int BATCH = 1000;
+        int[] CONCURRENT_CHUNKS = new int[]{1, 2, 4, 8};
+        int ITERS = 3;
+
+        Settings settings = settingsBuilder()
+                .put("gateway.type", "none")
+                .put("node.local", true)
+                .put(RecoverySettings.INDICES_RECOVERY_COMPRESS, false)
+                .put(SETTING_NUMBER_OF_SHARDS, 1)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .build();
+
+        Node node1 = nodeBuilder().settings(settingsBuilder().put(settings).put("name", "node1")).node();
+        Node node2 = nodeBuilder().settings(settingsBuilder().put(settings).put("name", "node2")).node();
+        Client client = node1.client();
+
+        client.admin().indices().prepareCreate("test").execute().actionGet();
+        client.admin().cluster().prepareHealth("test").setWaitForGreenStatus().execute().actionGet();
+
+        Random random = new Random();
+        StopWatch stopWatch = new StopWatch().start();
+        System.out.println("--> Indexing [" + COUNT + "] ...");
+        int counter = 0;
+        for (long i = 0; i < COUNT / BATCH; i++) {
+            BulkRequestBuilder request = client.prepareBulk();
+            for (int j = 0; j < BATCH; j++) {
+                counter++;
+                request.add(indexRequest("test").type("type1").id(Integer.toString(counter))
+                        .source(jsonBuilder().startObject()
+                                .field("field1", "value" + random.nextInt(10000))
+                                .field("field2", random.nextLong())
+                                .field("field3", "some text to make the segments a bit bigger " + counter)
+                                .endObject()));
+            }
+            BulkResponse response = request.execute().actionGet();
+            if (response.hasFailures()) {
+                System.err.println("--> failures...");
+            }
+        }
+        client.admin().indices().prepareOptimize("test").setMaxNumSegments(1).setWaitForMerge(true).execute().actionGet();
+        System.out.println("--> Indexing took " + stopWatch.stop().totalTime());
+
+        long sizeInBytes = client.admin().indices().prepareStats("test").clear().setStore(true).execute().actionGet().getPrimaries().getStore().getSizeInBytes();
+        System.out.println("--> Shard size [" + new ByteSizeValue(sizeInBytes) + "]");
+
+        for (int concurrentChunks : CONCURRENT_CHUNKS) {
+            client.admin().cluster().prepareUpdateSettings().setTransientSettings(settingsBuilder()
+                    .put(RecoverySettings.INDICES_RECOVERY_CONCURRENT_CHUNKS, concurrentChunks)).execute().actionGet();
+            long totalMillis = 0;
+            for (int i = 0; i < ITERS; i++) {
+                stopWatch = new StopWatch().start();
+                client.admin().indices().prepareUpdateSettings("test").setSettings(settingsBuilder().put(SETTING_NUMBER_OF_REPLICAS, 1)).execute().actionGet();
+                client.admin().cluster().prepareHealth("test").setWaitForEvents(Priority.LANGUID).setWaitForGreenStatus().setTimeout("10m").execute().actionGet();
+                totalMillis += stopWatch.stop().totalTime().millis();
+
+                client.admin().indices().prepareUpdateSettings("test").setSettings(settingsBuilder().put(SETTING_NUMBER_OF_REPLICAS, 0)).execute().actionGet();
+                client.admin().cluster().prepareHealth("test").setWaitForEvents(Priority.LANGUID).setWaitForGreenStatus().execute().actionGet();
+            }
+            long avgMillis = totalMillis / ITERS;
+            System.out.println("--> concurrent_chunks [" + concurrentChunks + "], avg recovery took [" + avgMillis + "ms], throughput ["
+                    + new ByteSizeValue(avgMillis == 0 ? sizeInBytes : (sizeInBytes * 1000 / avgMillis)) + "/s]");
+        }
+
+        node1.close();
+        node2.close();
+    }
+}
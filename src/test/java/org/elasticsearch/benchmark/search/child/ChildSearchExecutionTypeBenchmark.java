@@ -0,0 +1,154 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.child;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Requests;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.node.Node;
+
+import java.util.Arrays;
+
+import static org.elasticsearch.client.Requests.createIndexRequest;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.hasChildFilter;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Compares the <tt>uid</tt> and <tt>bitset</tt> execution types of the has_child filter and query, for a selective
+ * and a match all child query.
+ */
+public class ChildSearchExecutionTypeBenchmark {
+
+    static final int QUERY_WARMUP = 20;
+    static final int QUERY_COUNT = 50;
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = settingsBuilder()
+                .put("index.engine.robin.refreshInterval", "-1")
+                .put("gateway.type", "local")
+                .put(SETTING_NUMBER_OF_SHARDS, 1)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .build();
+
+        Node node1 = nodeBuilder().settings(settingsBuilder().put(settings).put("name", "node1")).node();
+        Client client = node1.client();
+
+        long COUNT = SizeValue.parseSizeValue("1m").singles();
+        int CHILD_COUNT = 5;
+        int BATCH = 100;
+        String indexName = "test";
+
+        Thread.sleep(10000);
+        try {
+            client.admin().indices().create(createIndexRequest(indexName)).actionGet();
+            client.admin().indices().preparePutMapping(indexName).setType("child").setSource(XContentFactory.jsonBuilder().startObject().startObject("type")
+                    .startObject("_parent").field("type", "parent").endObject()
+                    .endObject().endObject()).execute().actionGet();
+            Thread.sleep(5000);
+
+            StopWatch stopWatch = new StopWatch().start();
+
+            System.out.println("--> Indexing [" + COUNT + "] parent document and [" + (COUNT * CHILD_COUNT) + " child documents");
+            long ITERS = COUNT / BATCH;
+            int counter = 0;
+            for (long i = 1; i <= ITERS; i++) {
+                BulkRequestBuilder request = client.prepareBulk();
+                for (int j = 0; j < BATCH; j++) {
+                    counter++;
+                    request.add(Requests.indexRequest(indexName).type("parent").id(Integer.toString(counter))
+                            .source(jsonBuilder().startObject().field("id", Integer.toString(counter)).field("name", "test" + counter).endObject()));
+                    for (int k = 0; k < CHILD_COUNT; k++) {
+                        request.add(Requests.indexRequest(indexName).type("child").id(Integer.toString(counter) + "_" + k)
+                                .parent(Integer.toString(counter))
+                                .source(jsonBuilder().startObject().field("id", Integer.toString(counter)).field("tag", "tag" + k).endObject()));
+                    }
+                }
+                BulkResponse response = request.execute().actionGet();
+                if (response.hasFailures()) {
+                    System.err.println("--> failures...");
+                }
+                if (((i * BATCH) % 100000) == 0) {
+                    System.out.println("--> Indexed " + (i * BATCH) * (1 + CHILD_COUNT) + " took " + stopWatch.stop().lastTaskTime());
+                    stopWatch.start();
+                }
+            }
+            System.out.println("--> Indexing took " + stopWatch.totalTime() + ", TPS " + (((double) (COUNT * (1 + CHILD_COUNT))) / stopWatch.totalTime().secondsFrac()));
+        } catch (Exception e) {
+            System.out.println("--> Index already exists, ignoring indexing phase, waiting for green");
+            ClusterHealthResponse clusterHealthResponse = client.admin().cluster().prepareHealth(indexName).setWaitForGreenStatus().setTimeout("10m").execute().actionGet();
+            if (clusterHealthResponse.isTimedOut()) {
+                System.err.println("--> Timed out waiting for cluster health");
+            }
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        System.out.println("--> Number of docs in index: " + client.prepareCount().setQuery(matchAllQuery()).execute().actionGet().getCount());
+
+        for (String executionType : new String[]{"uid", "bitset"}) {
+            run(client, indexName, "has_child filter [" + executionType + "]",
+                    filteredQuery(matchAllQuery(), hasChildFilter("child", termQuery("tag", "tag1")).executionType(executionType)), COUNT);
+            run(client, indexName, "has_child filter with match_all [" + executionType + "]",
+                    filteredQuery(matchAllQuery(), hasChildFilter("child", matchAllQuery()).executionType(executionType)), COUNT);
+            for (String scoreType : new String[]{"max", "sum", "avg"}) {
+                run(client, indexName, "has_child query score_type [" + scoreType + "] [" + executionType + "]",
+                        hasChildQuery("child", termQuery("tag", "tag1")).scoreType(scoreType).executionType(executionType), COUNT);
+                run(client, indexName, "has_child query with match_all score_type [" + scoreType + "] [" + executionType + "]",
+                        hasChildQuery("child", matchAllQuery()).scoreType(scoreType).executionType(executionType), COUNT);
+            }
+        }
+
+        System.out.println("--> Id cache size: " + client.admin().cluster().prepareNodesStats().setIndices(true).execute().actionGet()
+                .getNodes()[0].getIndices().getCache().getIdCacheSize());
+
+        client.close();
+        node1.close();
+    }
+
+    private static void run(Client client, String indexName, String name, QueryBuilder query, long expectedHits) {
+        System.out.println("--> Running " + name);
+        for (int j = 0; j < QUERY_WARMUP; j++) {
+            client.prepareSearch(indexName).setQuery(query).execute().actionGet();
+        }
+        long totalQueryTime = 0;
+        for (int j = 0; j < QUERY_COUNT; j++) {
+            SearchResponse searchResponse = client.prepareSearch(indexName).setQuery(query).execute().actionGet();
+            if (searchResponse.getFailedShards() > 0) {
+                System.err.println("Search Failures " + Arrays.toString(searchResponse.getShardFailures()));
+            }
+            if (searchResponse.getHits().totalHits() != expectedHits) {
+                System.err.println("--> mismatch on hits [" + j + "], got [" + searchResponse.getHits().totalHits() + "], expected [" + expectedHits + "]");
+            }
+            totalQueryTime += searchResponse.getTookInMillis();
+        }
+        System.out.println("--> " + name + " Query Avg: " + (totalQueryTime / QUERY_COUNT) + "ms");
+    }
+}
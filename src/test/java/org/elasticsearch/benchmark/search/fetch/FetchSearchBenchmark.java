@@ -0,0 +1,151 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.fetch;
+
+import jsr166y.ThreadLocalRandom;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Requests;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.search.sort.SortOrder;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Fetches 100 large docs per request, sorted on a random value so the hits are spread across
+ * all the segments and are not in doc id order, which is the case the fetch phase has to reorder.
+ */
+public class FetchSearchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = settingsBuilder()
+                .put("index.engine.robin.refreshInterval", "-1")
+                .put("gateway.type", "local")
+                .put(SETTING_NUMBER_OF_SHARDS, 1)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .build();
+
+        Node node1 = nodeBuilder()
+                .settings(settingsBuilder().put(settings).put("name", "node1"))
+                .node();
+        Client client = node1.client();
+
+        int count = (int) SizeValue.parseSizeValue("200k").singles();
+        int fieldCount = 50;
+        int batch = 100;
+        int refreshEvery = 20000;
+        int size = 100;
+        int queryWarmup = 20;
+        int queryCount = 500;
+        String indexName = "test";
+        ClusterHealthResponse clusterHealthResponse = client.admin().cluster().prepareHealth()
+                .setWaitForGreenStatus().execute().actionGet();
+        if (clusterHealthResponse.isTimedOut()) {
+            System.err.println("--> Timed out waiting for cluster health");
+        }
+
+        try {
+            client.admin().indices().prepareCreate(indexName).execute().actionGet();
+            clusterHealthResponse = client.admin().cluster().prepareHealth(indexName).setWaitForGreenStatus().execute().actionGet();
+            if (clusterHealthResponse.isTimedOut()) {
+                System.err.println("--> Timed out waiting for cluster health");
+            }
+
+            StopWatch stopWatch = new StopWatch().start();
+            System.out.println("--> Indexing [" + count + "] documents with [" + fieldCount + "] text fields each");
+            int counter = 0;
+            while (counter < count) {
+                BulkRequestBuilder request = client.prepareBulk();
+                for (int j = 0; j < batch; j++) {
+                    counter++;
+                    XContentBuilder doc = XContentFactory.jsonBuilder().startObject()
+                            .field("rand", ThreadLocalRandom.current().nextLong());
+                    for (int k = 0; k < fieldCount; k++) {
+                        doc.field("field" + k, "some text value for doc " + counter + " and field " + k + " to make the document larger " + ThreadLocalRandom.current().nextLong());
+                    }
+                    doc.endObject();
+                    request.add(Requests.indexRequest(indexName).type("type").id(Integer.toString(counter)).source(doc));
+                }
+                BulkResponse response = request.execute().actionGet();
+                if (response.hasFailures()) {
+                    System.err.println("--> failures...");
+                }
+                if ((counter % refreshEvery) == 0) {
+                    // create several segments
+                    client.admin().indices().prepareRefresh(indexName).execute().actionGet();
+                    System.out.println("--> Indexed " + counter + " took " + stopWatch.stop().lastTaskTime());
+                    stopWatch.start();
+                }
+            }
+            System.out.println("--> Indexing took " + stopWatch.totalTime() + ", TPS " + (((double) count) / stopWatch.totalTime().secondsFrac()));
+        } catch (Exception e) {
+            System.out.println("--> Index already exists, ignoring indexing phase, waiting for green");
+            clusterHealthResponse = client.admin().cluster().prepareHealth(indexName).setWaitForGreenStatus().setTimeout("10m").execute().actionGet();
+            if (clusterHealthResponse.isTimedOut()) {
+                System.err.println("--> Timed out waiting for cluster health");
+            }
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        System.out.println("--> Number of docs in index: " + client.prepareCount().setQuery(matchAllQuery()).execute().actionGet().getCount());
+        System.out.println("--> Number of segments: " + client.admin().indices().prepareSegments(indexName).execute().actionGet().getIndices().get(indexName).getShards().values().iterator().next().getShards()[0].getSegments().size());
+
+        System.out.println("--> Running match_all sorted on a random field, fetching [" + size + "] hits");
+        for (int j = 0; j < queryWarmup; j++) {
+            SearchResponse searchResponse = client.prepareSearch(indexName)
+                    .setQuery(matchAllQuery())
+                    .addSort("rand", SortOrder.ASC)
+                    .setSize(size)
+                    .execute().actionGet();
+            if (j == 0) {
+                System.out.println("--> Warmup took: " + searchResponse.getTook());
+            }
+        }
+
+        long totalQueryTime = 0;
+        for (int j = 0; j < queryCount; j++) {
+            SearchResponse searchResponse = client.prepareSearch(indexName)
+                    .setQuery(matchAllQuery())
+                    .addSort("rand", j % 2 == 0 ? SortOrder.ASC : SortOrder.DESC)
+                    .setFrom((j * size) % 10000)
+                    .setSize(size)
+                    .execute().actionGet();
+            if (searchResponse.getHits().hits().length != size) {
+                System.err.println("--> mismatch on hits");
+            }
+            totalQueryTime += searchResponse.getTookInMillis();
+        }
+        System.out.println("--> Fetching [" + size + "] hits took: " + (totalQueryTime / queryCount) + "ms");
+
+        client.close();
+        node1.close();
+    }
+}
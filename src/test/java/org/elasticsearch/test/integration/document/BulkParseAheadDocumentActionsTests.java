@@ -0,0 +1,38 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.document;
+
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ * Runs the document actions with bulk items parsed ahead on the parse thread pool, and sent uncompressed
+ * so their sources are sent by reference.
+ */
+public class BulkParseAheadDocumentActionsTests extends DocumentActionsTests {
+
+    @Override
+    protected Settings nodeSettings() {
+        return ImmutableSettings.settingsBuilder()
+                .put("action.bulk.parse_ahead", 2)
+                .put("action.bulk.compress", false)
+                .build();
+    }
+}
@@ -23,7 +23,9 @@ import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
 import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
 import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.Base64;
@@ -38,6 +40,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.elasticsearch.client.Requests.clusterHealthRequest;
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
@@ -203,6 +206,68 @@ public class GetActionTests extends AbstractNodesTests {
         assertThat(response.getResponses()[0].getResponse().getField("field").getValues().get(0).toString(), equalTo("value1"));
     }
 
+    @Test
+    public void multiGetAcrossSegmentsTests() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // fine
+        }
+        client.admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.refresh_interval", -1).put("index.number_of_shards", 2)).execute().actionGet();
+
+        ClusterHealthResponse clusterHealth = client.admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        assertThat(clusterHealth.isTimedOut(), equalTo(false));
+
+        // a few segments
+        for (int i = 0; i < 100; i++) {
+            client.prepareIndex("test", "type1", Integer.toString(i)).setSource("field", "value" + i).execute().actionGet();
+            if (i % 25 == 24) {
+                client.admin().indices().prepareRefresh("test").execute().actionGet();
+            }
+        }
+        // and recent changes, only in the version map
+        for (int i = 100; i < 110; i++) {
+            client.prepareIndex("test", "type1", Integer.toString(i)).setSource("field", "value" + i).execute().actionGet();
+        }
+        client.prepareIndex("test", "type1", "7").setSource("field", "updated").execute().actionGet();
+        client.prepareDelete("test", "type1", "5").execute().actionGet();
+
+        // ids in reverse, so not in uid or doc id order
+        MultiGetRequestBuilder request = client.prepareMultiGet();
+        for (int i = 114; i >= 0; i--) {
+            request.add("test", i % 10 == 0 ? null : "type1", Integer.toString(i));
+        }
+        MultiGetResponse response = request.execute().actionGet();
+        assertThat(response.getResponses().length, equalTo(115));
+        for (int i = 0; i < 115; i++) {
+            int id = 114 - i;
+            MultiGetItemResponse item = response.getResponses()[i];
+            assertThat(item.isFailed(), equalTo(false));
+            assertThat(item.getId(), equalTo(Integer.toString(id)));
+            if (id == 5 || id >= 110) {
+                assertThat(item.getResponse().isExists(), equalTo(false));
+            } else {
+                assertThat(item.getResponse().isExists(), equalTo(true));
+                assertThat(item.getResponse().getType(), equalTo("type1"));
+                assertThat(item.getResponse().getSourceAsMap().get("field").toString(), equalTo(id == 7 ? "updated" : "value" + id));
+            }
+        }
+
+        // not realtime, only what was refreshed
+        response = client.prepareMultiGet().setRealtime(false)
+                .add("test", "type1", "105")
+                .add("test", "type1", "7")
+                .add("test", "type1", "5")
+                .add(new MultiGetRequest.Item("test", "type1", "3").fields("field"))
+                .execute().actionGet();
+        assertThat(response.getResponses()[0].getResponse().isExists(), equalTo(false));
+        assertThat(response.getResponses()[1].getResponse().getSourceAsMap().get("field").toString(), equalTo("value7"));
+        assertThat(response.getResponses()[2].getResponse().isExists(), equalTo(true));
+        assertThat(response.getResponses()[3].getResponse().getSourceAsBytes(), nullValue());
+        assertThat(response.getResponses()[3].getResponse().getField("field").getValues().get(0).toString(), equalTo("value3"));
+    }
+
     @Test
     public void realtimeGetWithCompress() throws Exception {
         client.admin().indices().prepareDelete().execute().actionGet();
@@ -381,4 +446,42 @@ public class GetActionTests extends AbstractNodesTests {
         assertThat(((List) response.getFields().get("field").getValues().get(0)).get(1).toString(), equalTo("2"));
     }
 
+    @Test
+    public void testGetObjectFieldFromSource() throws Exception {
+        client.admin().indices().prepareDelete().execute().actionGet();
+
+        client.admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.refresh_interval", -1)).execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        client.prepareIndex("test", "type1", "1").setSource(jsonBuilder().startObject()
+                .field("field1", "value1")
+                .startObject("obj1")
+                .field("field1", "value2")
+                .startObject("obj2").field("field2", "value3").endObject()
+                .startArray("arr1").startObject().field("field3", "value4").endObject().endArray()
+                .endObject()
+                .endObject()).execute().actionGet();
+
+        logger.info("--> realtime get of an object field");
+        GetResponse response = client.prepareGet("test", "type1", "1").setFields("obj1", "obj1.obj2").execute().actionGet();
+        assertThat(response.isExists(), equalTo(true));
+        assertObjectFields(response);
+
+        logger.info("--> flush and get of an object field");
+        client.admin().indices().prepareFlush("test").execute().actionGet();
+        response = client.prepareGet("test", "type1", "1").setFields("obj1", "obj1.obj2").execute().actionGet();
+        assertThat(response.isExists(), equalTo(true));
+        assertObjectFields(response);
+    }
+
+    private void assertObjectFields(GetResponse response) {
+        Map obj1 = (Map) response.getField("obj1").getValue();
+        assertThat(obj1.size(), equalTo(3));
+        assertThat(obj1.get("field1").toString(), equalTo("value2"));
+        assertThat(((Map) obj1.get("obj2")).get("field2").toString(), equalTo("value3"));
+        assertThat(((Map) ((List) obj1.get("arr1")).get(0)).get("field3").toString(), equalTo("value4"));
+        Map obj2 = (Map) response.getField("obj1.obj2").getValue();
+        assertThat(obj2.size(), equalTo(1));
+        assertThat(obj2.get("field2").toString(), equalTo("value3"));
+    }
 }
@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.indices.rollover;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.action.admin.indices.rollover.RolloverResponse;
+import org.elasticsearch.action.admin.indices.rollover.TransportRolloverAction;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.AliasAction;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.Priority;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.testng.Assert.fail;
+
+/**
+ *
+ */
+public class RolloverTests extends AbstractNodesTests {
+
+    private Client client;
+
+    @BeforeClass
+    public void createNodes() throws Exception {
+        startNode("node1");
+        startNode("node2");
+        client = client("node2");
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    @BeforeMethod
+    public void deleteIndices() {
+        client.admin().indices().prepareDelete().execute().actionGet();
+    }
+
+    @Test
+    public void testRolloverWithoutConditions() throws Exception {
+        createIndexWithAlias("logs-000001", "logs");
+
+        RolloverResponse response = client.admin().indices().prepareRollover("logs").execute().actionGet();
+        assertThat(response.getOldIndex(), equalTo("logs-000001"));
+        assertThat(response.getNewIndex(), equalTo("logs-000002"));
+        assertThat(response.isRolledOver(), equalTo(true));
+        assertThat(response.isDryRun(), equalTo(false));
+        assertThat(response.isAcknowledged(), equalTo(true));
+        assertThat(response.getConditions().isEmpty(), equalTo(true));
+
+        assertThat(aliasIndices("logs").keySet(), contains("logs-000002"));
+        assertThat(client.admin().indices().prepareExists("logs-000001").execute().actionGet().isExists(), equalTo(true));
+    }
+
+    @Test
+    public void testRolloverConditions() throws Exception {
+        createIndexWithAlias("logs-1", "logs");
+        client.prepareIndex("logs", "type", "1").setSource("field", "value").execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        // not met, nothing happens
+        RolloverResponse response = client.admin().indices().prepareRollover("logs").setMaxDocs(2).execute().actionGet();
+        assertThat(response.isRolledOver(), equalTo(false));
+        assertThat(response.getConditions().get("[max_docs: 2]"), equalTo(false));
+        assertThat(aliasIndices("logs").keySet(), contains("logs-1"));
+        assertThat(client.admin().indices().prepareExists("logs-2").execute().actionGet().isExists(), equalTo(false));
+
+        client.prepareIndex("logs", "type", "2").setSource("field", "value").execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        // met, but a dry run only reports it
+        response = client.admin().indices().prepareRollover("logs").setMaxDocs(2).setDryRun(true).execute().actionGet();
+        assertThat(response.isRolledOver(), equalTo(false));
+        assertThat(response.isDryRun(), equalTo(true));
+        assertThat(response.getNewIndex(), equalTo("logs-2"));
+        assertThat(response.getConditions().get("[max_docs: 2]"), equalTo(true));
+        assertThat(aliasIndices("logs").keySet(), contains("logs-1"));
+        assertThat(client.admin().indices().prepareExists("logs-2").execute().actionGet().isExists(), equalTo(false));
+
+        // one met condition is enough
+        response = client.admin().indices().prepareRollover("logs").setMaxDocs(2).setMaxAge(TimeValue.timeValueHours(1)).execute().actionGet();
+        assertThat(response.isRolledOver(), equalTo(true));
+        assertThat(response.getConditions().get("[max_docs: 2]"), equalTo(true));
+        assertThat(response.getConditions().get("[max_age: 1h]"), equalTo(false));
+        assertThat(aliasIndices("logs").keySet(), contains("logs-2"));
+    }
+
+    @Test
+    public void testRolloverKeepsAliasFilterAndRouting() throws Exception {
+        client.admin().indices().prepareCreate("logs-1").execute().actionGet();
+        client.admin().indices().prepareAliases().addAliasAction(new AliasAction(AliasAction.Type.ADD, "logs-1", "logs")
+                .filter(FilterBuilders.termFilter("user", "kimchy")).routing("1")).execute().actionGet();
+        waitForGreen();
+
+        RolloverResponse response = client.admin().indices().prepareRollover("logs").setNewIndex("logs-new").execute().actionGet();
+        assertThat(response.isRolledOver(), equalTo(true));
+
+        ImmutableMap<String, AliasMetaData> indices = aliasIndices("logs");
+        assertThat(indices.keySet(), contains("logs-new"));
+        AliasMetaData aliasMetaData = indices.get("logs-new");
+        assertThat(aliasMetaData.filter(), notNullValue());
+        assertThat(aliasMetaData.filter().string(), containsString("kimchy"));
+        assertThat(aliasMetaData.indexRouting(), equalTo("1"));
+        assertThat(aliasMetaData.searchRouting(), equalTo("1"));
+    }
+
+    @Test
+    public void testRetryReusesIndexCreatedByFailedRollover() throws Exception {
+        createIndexWithAlias("logs-1", "logs");
+        // a previous rollover created the index, but failed to move the alias
+        client.admin().indices().prepareCreate("logs-2")
+                .setSettings(ImmutableSettings.settingsBuilder().put(TransportRolloverAction.SETTING_ROLLOVER_ALIAS, "logs"))
+                .execute().actionGet();
+        waitForGreen();
+
+        RolloverResponse response = client.admin().indices().prepareRollover("logs").execute().actionGet();
+        assertThat(response.isRolledOver(), equalTo(true));
+        assertThat(response.getNewIndex(), equalTo("logs-2"));
+        assertThat(aliasIndices("logs").keySet(), contains("logs-2"));
+
+        // the index created by the rollover is marked, so a retry after a failed alias swap would reuse it
+        response = client.admin().indices().prepareRollover("logs").execute().actionGet();
+        assertThat(response.getNewIndex(), equalTo("logs-3"));
+        assertThat(client.admin().cluster().prepareState().execute().actionGet().getState().metaData().index("logs-3")
+                .settings().get(TransportRolloverAction.SETTING_ROLLOVER_ALIAS), equalTo("logs"));
+    }
+
+    @Test
+    public void testRolloverToUnrelatedExistingIndexFails() throws Exception {
+        createIndexWithAlias("logs-1", "logs");
+        client.admin().indices().prepareCreate("logs-2").execute().actionGet();
+        waitForGreen();
+
+        try {
+            client.admin().indices().prepareRollover("logs").execute().actionGet();
+            fail("rolling over to an index that was not created by a rollover of the alias should fail");
+        } catch (IndexAlreadyExistsException e) {
+            // all is well
+        }
+        assertThat(aliasIndices("logs").keySet(), contains("logs-1"));
+    }
+
+    private void createIndexWithAlias(String index, String alias) {
+        client.admin().indices().prepareCreate(index).execute().actionGet();
+        client.admin().indices().prepareAliases().addAlias(index, alias).execute().actionGet();
+        waitForGreen();
+    }
+
+    private void waitForGreen() {
+        assertThat(client.admin().cluster().prepareHealth().setWaitForEvents(Priority.LANGUID).setWaitForGreenStatus().execute().actionGet().isTimedOut(), equalTo(false));
+    }
+
+    private ImmutableMap<String, AliasMetaData> aliasIndices(String alias) {
+        return client.admin().cluster().prepareState().execute().actionGet().getState().metaData().aliases().get(alias);
+    }
+}
@@ -1110,6 +1110,57 @@ public class SimpleChildQuerySearchTests extends AbstractNodesTests {
         assertThat(response.getHits().hits()[6].score(), equalTo(5f));
     }
 
+    @Test
+    public void testBitsetExecutionType() throws Exception {
+        client.admin().indices().prepareDelete().execute().actionGet();
+        client.admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForEvents(Priority.LANGUID).setWaitForGreenStatus().execute().actionGet();
+        client.admin().indices().preparePutMapping("test").setType("child").setSource(jsonBuilder().startObject().startObject("type")
+                .startObject("_parent").field("type", "parent").endObject()
+                .endObject().endObject()).execute().actionGet();
+
+        client.prepareIndex("test", "parent", "p1").setSource("p_field", "p_value1").execute().actionGet();
+        client.prepareIndex("test", "parent", "p2").setSource("p_field", "p_value2").execute().actionGet();
+        client.prepareIndex("test", "child", "c1").setSource("c_field", "red").setParent("p1").execute().actionGet();
+        client.prepareIndex("test", "child", "c2").setSource("c_field", "red").setParent("p1").execute().actionGet();
+        client.admin().indices().prepareFlush().execute().actionGet();
+        // the children of p2 and a new version of p1 end up in a different segment
+        client.prepareIndex("test", "parent", "p1").setSource("p_field", "p_value1_updated").execute().actionGet();
+        client.prepareIndex("test", "child", "c3").setSource("c_field", "blue").setParent("p2").execute().actionGet();
+        client.prepareIndex("test", "child", "c4").setSource("c_field", "red").setParent("p2").execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        SearchResponse searchResponse = client.prepareSearch("test")
+                .setQuery(filteredQuery(matchAllQuery(), hasChildFilter("child", termQuery("c_field", "blue")).executionType("bitset")))
+                .execute().actionGet();
+        assertThat(Arrays.toString(searchResponse.getShardFailures()), searchResponse.getFailedShards(), equalTo(0));
+        assertThat(searchResponse.getHits().totalHits(), equalTo(1l));
+        assertThat(searchResponse.getHits().getAt(0).id(), equalTo("p2"));
+
+        searchResponse = client.prepareSearch("test")
+                .setQuery(filteredQuery(matchAllQuery(), hasChildFilter("child", termQuery("c_field", "red")).executionType("bitset")))
+                .execute().actionGet();
+        assertThat(Arrays.toString(searchResponse.getShardFailures()), searchResponse.getFailedShards(), equalTo(0));
+        assertThat(searchResponse.getHits().totalHits(), equalTo(2l));
+
+        for (String scoreType : new String[]{"max", "sum", "avg"}) {
+            SearchResponse uidResponse = client.prepareSearch("test")
+                    .setQuery(hasChildQuery("child", termQuery("c_field", "red")).scoreType(scoreType).executionType("uid"))
+                    .execute().actionGet();
+            searchResponse = client.prepareSearch("test")
+                    .setQuery(hasChildQuery("child", termQuery("c_field", "red")).scoreType(scoreType).executionType("bitset"))
+                    .execute().actionGet();
+            assertThat(Arrays.toString(searchResponse.getShardFailures()), searchResponse.getFailedShards(), equalTo(0));
+            assertThat(searchResponse.getHits().totalHits(), equalTo(2l));
+            assertThat(searchResponse.getHits().getAt(0).id(), equalTo(uidResponse.getHits().getAt(0).id()));
+            assertThat(searchResponse.getHits().getAt(0).score(), equalTo(uidResponse.getHits().getAt(0).score()));
+            assertThat(searchResponse.getHits().getAt(1).id(), equalTo(uidResponse.getHits().getAt(1).id()));
+            assertThat(searchResponse.getHits().getAt(1).score(), equalTo(uidResponse.getHits().getAt(1).score()));
+        }
+    }
+
     @Test
     // https://github.com/elasticsearch/elasticsearch/issues/2536
     public void testParentChildQueriesCanHandleNoRelevantTypesInIndex() throws Exception {
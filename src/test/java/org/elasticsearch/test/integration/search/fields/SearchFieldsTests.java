@@ -28,6 +28,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.joda.Joda;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.integration.AbstractNodesTests;
 import org.joda.time.DateTime;
@@ -129,6 +130,61 @@ public class SearchFieldsTests extends AbstractNodesTests {
         assertThat(searchResponse.getHits().getAt(0).fields().get("field3").value().toString(), equalTo("value3"));
     }
 
+    @Test
+    public void testHitOrderAndFieldsAcrossSegments() throws Exception {
+        client.admin().indices().prepareDelete().execute().actionGet();
+        client.admin().indices().prepareCreate("test").execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForEvents(Priority.LANGUID).setWaitForYellowStatus().execute().actionGet();
+
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type").startObject("properties")
+                .startObject("num").field("type", "integer").field("store", "yes").endObject()
+                .startObject("text").field("type", "string").field("store", "yes").endObject()
+                .startObject("other").field("type", "string").field("store", "no").endObject()
+                .endObject().endObject().endObject().string();
+
+        client.admin().indices().preparePutMapping().setType("type1").setSource(mapping).execute().actionGet();
+
+        // three segments, with a sort order that jumps between them
+        int numDocs = 30;
+        String[] idByNum = new String[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            int num = (i * 7) % numDocs;
+            idByNum[num] = Integer.toString(i);
+            client.prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .field("num", num)
+                    .field("text", "text " + i)
+                    .field("other", "other " + i)
+                    .endObject()).execute().actionGet();
+            if (i % 10 == 9) {
+                client.admin().indices().prepareFlush().execute().actionGet();
+            }
+        }
+        client.admin().indices().refresh(refreshRequest()).actionGet();
+
+        SearchResponse response = client.prepareSearch()
+                .setQuery(matchAllQuery())
+                .setSize(numDocs)
+                .addSort("num", SortOrder.DESC)
+                .addField("num").addField("text").addField("other")
+                .addScriptField("s_num", "doc['num'].value")
+                .execute().actionGet();
+
+        assertThat("Failures " + Arrays.toString(response.getShardFailures()), response.getShardFailures().length, equalTo(0));
+        assertThat(response.getHits().totalHits(), equalTo((long) numDocs));
+        assertThat(response.getHits().hits().length, equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            int num = numDocs - 1 - i;
+            String id = idByNum[num];
+            SearchHit hit = response.getHits().getAt(i);
+            assertThat(hit.id(), equalTo(id));
+            assertThat(((Number) hit.sortValues()[0]).intValue(), equalTo(num));
+            assertThat(((Number) hit.fields().get("num").value()).intValue(), equalTo(num));
+            assertThat(hit.fields().get("text").value().toString(), equalTo("text " + id));
+            assertThat(hit.fields().get("other").value().toString(), equalTo("other " + id));
+            assertThat(((Number) hit.fields().get("s_num").value()).intValue(), equalTo(num));
+        }
+    }
+
     @Test
     public void testScriptDocAndFields() throws Exception {
         client.admin().indices().prepareDelete().execute().actionGet();
@@ -285,6 +341,40 @@ public class SearchFieldsTests extends AbstractNodesTests {
         assertThat(partial2.containsKey("field1"), equalTo(true));
     }
 
+    @Test
+    public void testObjectFieldsFromSource() throws Exception {
+        client.admin().indices().prepareDelete().execute().actionGet();
+        client.admin().indices().prepareCreate("test").execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForEvents(Priority.LANGUID).setWaitForYellowStatus().execute().actionGet();
+
+        client.prepareIndex("test", "type1", "1").setSource(jsonBuilder().startObject()
+                .field("field1", "value1")
+                .startObject("obj1")
+                .field("field1", "value2")
+                .startObject("obj2").field("field2", "value3").endObject()
+                .startArray("arr1").startObject().field("field3", "value4").endObject().endArray()
+                .endObject()
+                .endObject())
+                .execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        SearchResponse response = client.prepareSearch("test").addField("obj1").addField("obj1.obj2").addField("field1").execute().actionGet();
+        assertThat("Failures " + Arrays.toString(response.getShardFailures()), response.getShardFailures().length, equalTo(0));
+        assertThat(response.getHits().getTotalHits(), equalTo(1l));
+
+        Map obj1 = response.getHits().getAt(0).field("obj1").value();
+        assertThat(obj1.size(), equalTo(3));
+        assertThat(obj1.get("field1").toString(), equalTo("value2"));
+        assertThat(((Map) obj1.get("obj2")).get("field2").toString(), equalTo("value3"));
+        assertThat(((Map) ((List) obj1.get("arr1")).get(0)).get("field3").toString(), equalTo("value4"));
+
+        Map obj2 = response.getHits().getAt(0).field("obj1.obj2").value();
+        assertThat(obj2.size(), equalTo(1));
+        assertThat(obj2.get("field2").toString(), equalTo("value3"));
+
+        assertThat(response.getHits().getAt(0).field("field1").value().toString(), equalTo("value1"));
+    }
+
     @Test
     public void testStoredFieldsWithoutSource() throws Exception {
         client.admin().indices().prepareDelete().execute().actionGet();
@@ -349,4 +439,75 @@ public class SearchFieldsTests extends AbstractNodesTests {
         assertThat(((BytesReference) searchResponse.getHits().getAt(0).fields().get("binary_field").value()).toBytesArray(), equalTo((BytesReference) new BytesArray("testing text".getBytes("UTF8"))));
 
     }
+
+    @Test
+    public void testColumnFields() throws Exception {
+        client.admin().indices().prepareDelete().execute().actionGet();
+        client.admin().indices().prepareCreate("test").execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForEvents(Priority.LANGUID).setWaitForYellowStatus().execute().actionGet();
+
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type1")
+                .startObject("_columns").field("fields", "short_field,long_field,date_field,boolean_field,binary_field").endObject()
+                .startObject("properties")
+                .startObject("short_field").field("type", "short").field("store", "yes").endObject()
+                .startObject("long_field").field("type", "long").field("store", "yes").endObject()
+                .startObject("date_field").field("type", "date").field("store", "yes").endObject()
+                .startObject("boolean_field").field("type", "boolean").field("store", "yes").endObject()
+                .startObject("binary_field").field("type", "binary").field("store", "yes").endObject()
+                .endObject().endObject().endObject().string();
+        client.admin().indices().preparePutMapping().setType("type1").setSource(mapping).execute().actionGet();
+
+        // same fields, but read from the stored fields
+        mapping = XContentFactory.jsonBuilder().startObject().startObject("type2").startObject("properties")
+                .startObject("short_field").field("type", "short").field("store", "yes").endObject()
+                .startObject("long_field").field("type", "long").field("store", "yes").endObject()
+                .endObject().endObject().endObject().string();
+        client.admin().indices().preparePutMapping().setType("type2").setSource(mapping).execute().actionGet();
+
+        String dateTime = Joda.forPattern("dateOptionalTime").printer().print(new DateTime(2012, 3, 22, 0, 0, DateTimeZone.UTC));
+        client.prepareIndex("test", "type1", "1").setSource(jsonBuilder().startObject()
+                .field("short_field", (short) 2)
+                .startArray("long_field").value(4l).value(5l).endArray()
+                .field("date_field", dateTime)
+                .field("boolean_field", true)
+                .field("binary_field", Base64.encodeBytes("testing text".getBytes("UTF8")))
+                .endObject()).execute().actionGet();
+        client.prepareIndex("test", "type2", "2").setSource(jsonBuilder().startObject()
+                .field("short_field", (short) 3)
+                .field("long_field", 6l)
+                .endObject()).execute().actionGet();
+
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        SearchResponse searchResponse = client.prepareSearch().setTypes("type1").setQuery(matchAllQuery())
+                .addField("short_field")
+                .addField("long_field")
+                .addField("date_field")
+                .addField("boolean_field")
+                .addField("binary_field")
+                .execute().actionGet();
+        assertThat(searchResponse.getHits().getTotalHits(), equalTo(1l));
+        assertThat(searchResponse.getHits().getAt(0).id(), equalTo("1"));
+        assertThat(searchResponse.getHits().getAt(0).type(), equalTo("type1"));
+        assertThat(searchResponse.getHits().getAt(0).fields().size(), equalTo(5));
+        assertThat(searchResponse.getHits().getAt(0).fields().get("short_field").value().toString(), equalTo("2"));
+        assertThat(searchResponse.getHits().getAt(0).fields().get("long_field").values(), equalTo(Arrays.<Object>asList(4l, 5l)));
+        assertThat(searchResponse.getHits().getAt(0).fields().get("date_field").value(), equalTo((Object) dateTime));
+        assertThat(searchResponse.getHits().getAt(0).fields().get("boolean_field").value(), equalTo((Object) Boolean.TRUE));
+        assertThat(((BytesReference) searchResponse.getHits().getAt(0).fields().get("binary_field").value()).toBytesArray(), equalTo((BytesReference) new BytesArray("testing text".getBytes("UTF8"))));
+
+        searchResponse = client.prepareSearch().setQuery(matchAllQuery())
+                .addField("short_field")
+                .addField("long_field")
+                .addSort("short_field", SortOrder.ASC)
+                .execute().actionGet();
+        assertThat(searchResponse.getHits().getTotalHits(), equalTo(2l));
+        assertThat(searchResponse.getHits().getAt(0).id(), equalTo("1"));
+        assertThat(searchResponse.getHits().getAt(0).fields().get("short_field").value().toString(), equalTo("2"));
+        assertThat(searchResponse.getHits().getAt(0).fields().get("long_field").values().size(), equalTo(2));
+        assertThat(searchResponse.getHits().getAt(1).id(), equalTo("2"));
+        assertThat(searchResponse.getHits().getAt(1).type(), equalTo("type2"));
+        assertThat(searchResponse.getHits().getAt(1).fields().get("short_field").value().toString(), equalTo("3"));
+        assertThat(searchResponse.getHits().getAt(1).fields().get("long_field").value(), equalTo((Object) 6l));
+    }
 }
@@ -191,6 +191,80 @@ public class HighlighterSearchTests extends AbstractNodesTests {
         }
     }
 
+    @Test
+    public void testSourceLookupHighlightingUsingPostingsOffsets() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+
+        client.admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 2))
+                .addMapping("type1", jsonBuilder().startObject().startObject("type1").startObject("properties")
+                        // no term vectors, the offsets are only indexed in the postings
+                        .startObject("title").field("type", "string").field("store", "no").field("index_options", "offsets").endObject()
+                        .startObject("attachments").startObject("properties").startObject("body").field("type", "string").field("store", "no").field("index_options", "offsets").endObject().endObject().endObject()
+                        .endObject().endObject().endObject())
+                .execute().actionGet();
+
+        for (int i = 0; i < 5; i++) {
+            client.prepareIndex("test", "type1", Integer.toString(i))
+                    .setSource(XContentFactory.jsonBuilder().startObject()
+                            .field("title", "This is a test on the highlighting bug present in elasticsearch")
+                            .startArray("attachments").startObject().field("body", "attachment 1").endObject().startObject().field("body", "attachment 2").endObject().endArray()
+                            .endObject())
+                    .setRefresh(true).execute().actionGet();
+        }
+
+        // the plain highlighter is still the default without term vectors, the postings one gives the same output
+        for (String highlighterType : new String[]{null, "postings"}) {
+            SearchResponse search = client.prepareSearch()
+                    .setQuery(fieldQuery("title", "bug"))
+                    .addHighlightedField("title", -1, 0)
+                    .setHighlighterType(highlighterType)
+                    .execute().actionGet();
+
+            assertThat(Arrays.toString(search.getShardFailures()), search.getFailedShards(), equalTo(0));
+
+            assertThat(search.getHits().totalHits(), equalTo(5l));
+            assertThat(search.getHits().hits().length, equalTo(5));
+
+            for (SearchHit hit : search.getHits()) {
+                assertThat(hit.highlightFields().get("title").fragments()[0].string(), equalTo("This is a test on the highlighting <em>bug</em> present in elasticsearch"));
+            }
+        }
+
+        SearchResponse search = client.prepareSearch()
+                .setQuery(matchPhraseQuery("title", "highlighting bug"))
+                .addHighlightedField("title", -1, 0)
+                .setHighlighterType("postings")
+                .execute().actionGet();
+
+        assertThat(Arrays.toString(search.getShardFailures()), search.getFailedShards(), equalTo(0));
+
+        assertThat(search.getHits().totalHits(), equalTo(5l));
+
+        for (SearchHit hit : search.getHits()) {
+            assertThat(hit.highlightFields().get("title").fragments()[0].string(), equalTo("This is a test on the <em>highlighting bug</em> present in elasticsearch"));
+        }
+
+        search = client.prepareSearch()
+                .setQuery(fieldQuery("attachments.body", "attachment"))
+                .addHighlightedField("attachments.body", -1, 2)
+                .setHighlighterType("postings")
+                .execute().actionGet();
+
+        assertThat(Arrays.toString(search.getShardFailures()), search.getFailedShards(), equalTo(0));
+
+        assertThat(search.getHits().totalHits(), equalTo(5l));
+        assertThat(search.getHits().hits().length, equalTo(5));
+
+        for (SearchHit hit : search.getHits()) {
+            assertThat(hit.highlightFields().get("attachments.body").fragments()[0].string(), equalTo("<em>attachment</em> 1"));
+            assertThat(hit.highlightFields().get("attachments.body").fragments()[1].string(), equalTo("<em>attachment</em> 2"));
+        }
+    }
+
     @Test
     public void testHighlightIssue1994() throws Exception {
         try {
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.action.admin.indices.rollover;
+
+import org.elasticsearch.ElasticSearchParseException;
+import org.elasticsearch.action.admin.indices.rollover.RolloverRequest;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ */
+public class RolloverRequestTests {
+
+    @Test
+    public void testParseConditions() throws Exception {
+        RolloverRequest request = new RolloverRequest("logs");
+        assertThat(request.hasConditions(), equalTo(false));
+
+        request.source(XContentFactory.jsonBuilder().startObject()
+                .startObject("conditions")
+                .field("max_docs", 100)
+                .field("max_size", "5gb")
+                .field("max_age", "7d")
+                .endObject()
+                .startObject("settings").field("number_of_shards", 2).endObject()
+                .startObject("mappings").startObject("type").startObject("properties")
+                .startObject("field").field("type", "string").endObject()
+                .endObject().endObject().endObject()
+                .endObject());
+
+        assertThat(request.hasConditions(), equalTo(true));
+        assertThat(request.maxDocs(), equalTo(100l));
+        assertThat(request.maxSize().bytes(), equalTo(5l * 1024 * 1024 * 1024));
+        assertThat(request.maxAge().millis(), equalTo(TimeValue.timeValueHours(7 * 24).millis()));
+        assertThat(request.validate(), nullValue());
+    }
+
+    @Test
+    public void testParseCamelCaseAndStringValues() throws Exception {
+        RolloverRequest request = new RolloverRequest("logs");
+        request.source("{\"conditions\" : {\"maxDocs\" : \"10\", \"maxAge\" : \"1h\"}}");
+        assertThat(request.maxDocs(), equalTo(10l));
+        assertThat(request.maxAge().millis(), equalTo(TimeValue.timeValueHours(1).millis()));
+        assertThat(request.maxSize(), nullValue());
+    }
+
+    @Test(expectedExceptions = ElasticSearchParseException.class)
+    public void testUnknownCondition() throws Exception {
+        new RolloverRequest("logs").source("{\"conditions\" : {\"max_primaries\" : 10}}");
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        RolloverRequest request = new RolloverRequest("logs").newIndex("logs-new").maxDocs(10).maxSize("1mb").maxAge("1d").dryRun(true);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        request.writeTo(out);
+        RolloverRequest read = new RolloverRequest("other");
+        read.readFrom(new BytesStreamInput(out.bytes()));
+
+        assertThat(read.alias(), equalTo("logs"));
+        assertThat(read.newIndex(), equalTo("logs-new"));
+        assertThat(read.maxDocs(), equalTo(10l));
+        assertThat(read.maxSize().bytes(), equalTo(1024l * 1024));
+        assertThat(read.maxAge().millis(), equalTo(TimeValue.timeValueHours(24).millis()));
+        assertThat(read.dryRun(), equalTo(true));
+    }
+}
@@ -23,8 +23,14 @@ import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.smile.SmileXContent;
 import org.testng.annotations.Test;
 
+import java.util.Map;
+
 import static org.elasticsearch.common.io.Streams.copyToStringFromClasspath;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -58,4 +64,45 @@ public class BulkRequestTests {
         bulkRequest.add(bulkAction.getBytes(), 0, bulkAction.length(), true, null, null);
         assertThat(bulkRequest.numberOfActions(), equalTo(3));
     }
+
+    @Test
+    public void testSmileBulk() throws Exception {
+        // raw binary values might contain the smile stream separator
+        byte[] binary = new byte[]{(byte) 0xFF, 1, (byte) 0xFF, (byte) 0xFF, 2};
+        BytesStreamOutput out = new BytesStreamOutput();
+        writeSmile(out, SmileXContent.contentBuilder().startObject().startObject("index").field("_index", "test").field("_type", "type1").field("_id", "1").endObject().endObject());
+        out.writeByte((byte) 0xFF);
+        writeSmile(out, SmileXContent.contentBuilder().startObject().field("field1", "value1").field("binary", binary).endObject());
+        out.writeByte((byte) 0xFF);
+        writeSmile(out, SmileXContent.contentBuilder().startObject().startObject("delete").field("_index", "test").field("_type", "type1").field("_id", "2").endObject().endObject());
+        // no separator in between is fine as well
+        writeSmile(out, SmileXContent.contentBuilder().startObject().startObject("create").field("_index", "test").field("_type", "type1").field("_id", "3").endObject().endObject());
+        out.writeByte((byte) 0xFF);
+        out.writeByte((byte) 0xFF);
+        writeSmile(out, SmileXContent.contentBuilder().startObject().field("field1", "value3").endObject());
+        out.writeByte((byte) 0xFF);
+
+        BulkRequest bulkRequest = new BulkRequest();
+        bulkRequest.add(out.bytes(), true, null, null);
+        assertThat(bulkRequest.numberOfActions(), equalTo(3));
+
+        IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(0);
+        assertThat(indexRequest.id(), equalTo("1"));
+        Map<String, Object> source = XContentHelper.convertToMap(indexRequest.source(), false).v2();
+        assertThat((String) source.get("field1"), equalTo("value1"));
+        assertThat((byte[]) source.get("binary"), equalTo(binary));
+
+        assertThat(bulkRequest.requests().get(1), instanceOf(DeleteRequest.class));
+        assertThat(((DeleteRequest) bulkRequest.requests().get(1)).id(), equalTo("2"));
+
+        indexRequest = (IndexRequest) bulkRequest.requests().get(2);
+        assertThat(indexRequest.id(), equalTo("3"));
+        assertThat(indexRequest.opType(), equalTo(IndexRequest.OpType.CREATE));
+        source = XContentHelper.convertToMap(indexRequest.source(), false).v2();
+        assertThat((String) source.get("field1"), equalTo("value3"));
+    }
+
+    private static void writeSmile(BytesStreamOutput out, XContentBuilder builder) throws Exception {
+        builder.bytes().writeTo(out);
+    }
 }
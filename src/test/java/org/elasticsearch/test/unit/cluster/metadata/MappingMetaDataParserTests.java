@@ -20,6 +20,7 @@
 package org.elasticsearch.test.unit.cluster.metadata;
 
 import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.compress.CompressedString;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.mapper.MapperParsingException;
@@ -345,4 +346,60 @@ public class MappingMetaDataParserTests {
         assertThat(parseContext.routing(), equalTo("bar"));
         assertThat(parseContext.timestamp(), equalTo("foo"));
     }
+
+    @Test
+    public void testParseSourceScansJson() throws Exception {
+        MappingMetaData md = new MappingMetaData("type1", new CompressedString(""),
+                new MappingMetaData.Id("obj1.id"),
+                new MappingMetaData.Routing(true, "routing"),
+                new MappingMetaData.Timestamp(true, "obj1.timestamp", "dateOptionalTime"));
+        byte[] bytes = jsonBuilder().startObject().field("field1", "value1")
+                .startArray("arr").startObject().field("routing", "wrong").endObject().value("}{").endArray()
+                .startObject("obj1").field("id", "id").field("timestamp", 1).endObject()
+                .field("routing", "routing_value")
+                .endObject().bytes().toBytes();
+        MappingMetaData.ParseContext parseContext = md.createParseContext(null, null, null);
+        md.parse(new BytesArray(bytes), parseContext);
+        assertThat(parseContext.id(), equalTo("id"));
+        assertThat(parseContext.routing(), equalTo("routing_value"));
+        assertThat(parseContext.timestamp(), equalTo("1"));
+
+        // explicit nulls are resolved to null
+        bytes = "{\"routing\" : null, \"obj1\" : {\"id\" : \"id\"}}".getBytes("UTF-8");
+        parseContext = md.createParseContext(null, null, "1");
+        md.parse(new BytesArray(bytes), parseContext);
+        assertThat(parseContext.id(), equalTo("id"));
+        assertThat(parseContext.routing(), nullValue());
+        assertThat(parseContext.routingResolved(), equalTo(true));
+    }
+
+    @Test
+    public void testParseSourceFallsBackToParser() throws Exception {
+        MappingMetaData md = new MappingMetaData("type1", new CompressedString(""),
+                new MappingMetaData.Id("id"),
+                new MappingMetaData.Routing(true, "routing"),
+                new MappingMetaData.Timestamp(true, "timestamp", "dateOptionalTime"));
+        // escaped values are unescaped by the parser
+        byte[] bytes = "{\"id\" : \"i\\\"d\", \"routing\" : \"routing_value\"}".getBytes("UTF-8");
+        MappingMetaData.ParseContext parseContext = md.createParseContext(null, null, "1");
+        md.parse(new BytesArray(bytes), parseContext);
+        assertThat(parseContext.id(), equalTo("i\"d"));
+        assertThat(parseContext.routing(), equalTo("routing_value"));
+
+        // non json sources
+        bytes = XContentFactory.smileBuilder().startObject().field("id", "id").field("routing", "routing_value").endObject().bytes().toBytes();
+        parseContext = md.createParseContext(null, null, "1");
+        md.parse(new BytesArray(bytes), parseContext);
+        assertThat(parseContext.id(), equalTo("id"));
+        assertThat(parseContext.routing(), equalTo("routing_value"));
+
+        bytes = jsonBuilder().startObject().startArray("id").value("id").endArray().endObject().bytes().toBytes();
+        parseContext = md.createParseContext(null, "routing_value", "1");
+        try {
+            md.parse(new BytesArray(bytes), parseContext);
+            assert false;
+        } catch (MapperParsingException ex) {
+            // bogus its an array
+        }
+    }
 }
@@ -20,6 +20,7 @@
 package org.elasticsearch.test.unit.common.compress;
 
 import org.elasticsearch.common.compress.CompressedString;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.testng.annotations.Test;
@@ -45,17 +46,28 @@ public class CompressedStringTests {
         simpleTests("lzf");
     }
 
+    @Test
+    public void simpleTestsLZ4() throws IOException {
+        simpleTests("lz4");
+    }
+
     public void simpleTests(String compressor) throws IOException {
+        Compressor defaultCompressor = CompressorFactory.defaultCompressor();
         CompressorFactory.configure(ImmutableSettings.settingsBuilder().put("compress.default.type", compressor).build());
-        String str = "this is a simple string";
-        CompressedString cstr = new CompressedString(str);
-        assertThat(cstr.string(), equalTo(str));
-        assertThat(new CompressedString(str), equalTo(cstr));
-
-        String str2 = "this is a simple string 2";
-        CompressedString cstr2 = new CompressedString(str2);
-        assertThat(cstr2.string(), not(equalTo(str)));
-        assertThat(new CompressedString(str2), not(equalTo(cstr)));
-        assertThat(new CompressedString(str2), equalTo(cstr2));
+        try {
+            String str = "this is a simple string";
+            CompressedString cstr = new CompressedString(str);
+            assertThat(cstr.string(), equalTo(str));
+            assertThat(new CompressedString(str), equalTo(cstr));
+
+            String str2 = "this is a simple string 2";
+            CompressedString cstr2 = new CompressedString(str2);
+            assertThat(cstr2.string(), not(equalTo(str)));
+            assertThat(new CompressedString(str2), not(equalTo(cstr)));
+            assertThat(new CompressedString(str2), equalTo(cstr2));
+        } finally {
+            // the default compressor is static, don't leak the one configured here to other tests
+            CompressorFactory.setDefaultCompressor(defaultCompressor);
+        }
     }
 }
@@ -0,0 +1,214 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.unit.common.compress;
+
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.lz4.LZ4BufferRecycler;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
+import org.elasticsearch.common.compress.lzf.LZFCompressor;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.testng.Assert.fail;
+
+/**
+ */
+public class LZ4CompressorTests {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Compressor lz4 = CompressorFactory.compressor(LZ4Compressor.TYPE);
+        assertThat(lz4, instanceOf(LZ4Compressor.class));
+
+        Random random = new Random();
+        // empty, a single chunk and several chunks
+        for (int length : new int[]{0, 1, 100, 1 << 16, (1 << 18) + 17}) {
+            byte[] data = new byte[length];
+            for (int i = 0; i < length; i++) {
+                // compressible, but not trivially so
+                data[i] = (byte) ('a' + random.nextInt(4));
+            }
+            byte[] compressed = lz4.compress(data, 0, length);
+            assertThat(lz4.isCompressed(compressed, 0, compressed.length), equalTo(true));
+            assertThat(lz4.isCompressed(new BytesArray(compressed)), equalTo(true));
+            assertThat(CompressorFactory.compressor(compressed), sameInstance(lz4));
+            if (length > 100) {
+                assertThat(compressed.length, lessThan(length));
+            }
+            assertThat(lz4.uncompress(compressed, 0, compressed.length), equalTo(data));
+            assertThat(CompressorFactory.uncompressIfNeeded(new BytesArray(compressed)).toBytes(), equalTo(data));
+
+            // streaming, with small writes
+            BytesStreamOutput bytes = new BytesStreamOutput();
+            StreamOutput out = lz4.streamOutput(bytes);
+            for (int i = 0; i < length; i += 1000) {
+                out.writeBytes(data, i, Math.min(1000, length - i));
+            }
+            out.close();
+            StreamInput in = lz4.streamInput(new BytesStreamInput(bytes.bytes()));
+            byte[] uncompressed = new byte[length];
+            in.readBytes(uncompressed, 0, length);
+            assertThat(uncompressed, equalTo(data));
+            assertThat(in.read(), equalTo(-1));
+            in.close();
+        }
+    }
+
+    @Test
+    public void testDetectMixedCompressors() throws Exception {
+        byte[] data = "{\"field\":\"value value value value\"}".getBytes("UTF-8");
+        byte[] lzf = CompressorFactory.compressor(LZFCompressor.TYPE).compress(data, 0, data.length);
+        byte[] lz4 = CompressorFactory.compressor(LZ4Compressor.TYPE).compress(data, 0, data.length);
+
+        assertThat(CompressorFactory.compressor(lzf), instanceOf(LZFCompressor.class));
+        assertThat(CompressorFactory.compressor(lz4), instanceOf(LZ4Compressor.class));
+        assertThat(CompressorFactory.compressor(data), nullValue());
+
+        assertThat(CompressorFactory.uncompressIfNeeded(new BytesArray(lzf)).toBytes(), equalTo(data));
+        assertThat(CompressorFactory.uncompressIfNeeded(new BytesArray(lz4)).toBytes(), equalTo(data));
+    }
+
+    @Test
+    public void testRecycledStreams() throws Exception {
+        Compressor lz4 = CompressorFactory.compressor(LZ4Compressor.TYPE);
+        Random random = new Random(0);
+        byte[] data1 = new byte[100000];
+        byte[] data2 = new byte[100000];
+        for (int i = 0; i < data1.length; i++) {
+            data1[i] = (byte) ('a' + random.nextInt(4));
+            data2[i] = (byte) ('e' + random.nextInt(4));
+        }
+
+        for (int iter = 0; iter < 3; iter++) {
+            // two streams open at the same time on the same thread must not share buffers
+            BytesStreamOutput bytes1 = new BytesStreamOutput();
+            BytesStreamOutput bytes2 = new BytesStreamOutput();
+            StreamOutput out1 = lz4.streamOutput(bytes1);
+            StreamOutput out2 = lz4.streamOutput(bytes2);
+            for (int i = 0; i < data1.length; i += 1000) {
+                out1.writeBytes(data1, i, 1000);
+                out2.writeBytes(data2, i, 1000);
+            }
+            out1.close();
+            out2.close();
+
+            StreamInput in1 = lz4.streamInput(new BytesStreamInput(bytes1.bytes()));
+            StreamInput in2 = lz4.streamInput(new BytesStreamInput(bytes2.bytes()));
+            byte[] uncompressed1 = new byte[data1.length];
+            byte[] uncompressed2 = new byte[data2.length];
+            for (int i = 0; i < data1.length; i += 1000) {
+                in1.readBytes(uncompressed1, i, 1000);
+                in2.readBytes(uncompressed2, i, 1000);
+            }
+            assertThat(uncompressed1, equalTo(data1));
+            assertThat(uncompressed2, equalTo(data2));
+            in1.close();
+            in2.close();
+        }
+    }
+
+    @Test
+    public void testBufferRecycler() throws Exception {
+        LZ4BufferRecycler recycler = LZ4BufferRecycler.instance();
+        assertThat(LZ4BufferRecycler.instance(), sameInstance(recycler));
+
+        byte[] buffer = recycler.allocInputBuffer(100);
+        // taken out of the recycler until released
+        byte[] other = recycler.allocInputBuffer(100);
+        assertThat(other, not(sameInstance(buffer)));
+        recycler.releaseInputBuffer(buffer);
+        assertThat(recycler.allocInputBuffer(100), sameInstance(buffer));
+        // a too small recycled buffer is not used
+        recycler.releaseInputBuffer(buffer);
+        assertThat(recycler.allocInputBuffer(buffer.length + 1).length, equalTo(buffer.length + 1));
+
+        org.apache.lucene.codecs.compressing.Decompressor decompressor = recycler.allocDecompressor();
+        recycler.releaseDecompressor(decompressor);
+        assertThat(recycler.allocDecompressor(), sameInstance(decompressor));
+    }
+
+    @Test
+    public void testNormalizeType() throws Exception {
+        Compressor lz4 = CompressorFactory.compressor(LZ4Compressor.TYPE);
+        assertThat(CompressorFactory.normalizeType("LZ4"), equalTo(LZ4Compressor.TYPE));
+        assertThat(CompressorFactory.compressorOrDefault(CompressorFactory.normalizeType("Lz4")), sameInstance(lz4));
+    }
+
+    @Test
+    public void testCorruptedChunkLengths() throws Exception {
+        Compressor lz4 = CompressorFactory.compressor(LZ4Compressor.TYPE);
+        byte[] data = "{\"field\":\"value value value value\"}".getBytes("UTF-8");
+        byte[] compressed = lz4.compress(data, 0, data.length);
+        // header (4 bytes), then the compressed length and the uncompressed length of the first chunk
+        int[][] lengths = {{Integer.MAX_VALUE, data.length}, {-1, data.length}, {10, Integer.MAX_VALUE}, {10, -5}, {10, (1 << 16) + 1}};
+        for (int[] length : lengths) {
+            byte[] corrupted = compressed.clone();
+            writeInt(corrupted, 4, length[0]);
+            writeInt(corrupted, 8, length[1]);
+            try {
+                lz4.uncompress(corrupted, 0, corrupted.length);
+                fail("expected a failure for chunk lengths " + length[0] + "/" + length[1]);
+            } catch (IOException e) {
+                assertThat(e.getMessage(), containsString("corrupted lz4 stream"));
+            }
+        }
+    }
+
+    @Test
+    public void testNotUsedForIndexFiles() throws Exception {
+        byte[] data = "{\"field\":\"value value value value\"}".getBytes("UTF-8");
+        byte[] lz4 = CompressorFactory.compressor(LZ4Compressor.TYPE).compress(data, 0, data.length);
+
+        RAMDirectory dir = new RAMDirectory();
+        IndexOutput out = dir.createOutput("test", IOContext.DEFAULT);
+        out.writeBytes(lz4, lz4.length);
+        out.close();
+
+        IndexInput in = dir.openInput("test", IOContext.DEFAULT);
+        try {
+            // index files are never read through lz4, the raw file must be handed back untouched
+            assertThat(CompressorFactory.compressor(in), nullValue());
+            assertThat(in.getFilePointer(), equalTo(0l));
+        } finally {
+            in.close();
+            dir.close();
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.lucene.docset.EliasFanoDocIdSet;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ *
+ */
+public class EliasFanoDocIdSetTests {
+
+    @Test
+    public void testIterateAndAdvance() throws Exception {
+        Random random = new Random();
+        for (int iter = 0; iter < 200; iter++) {
+            int maxDoc = 1 + random.nextInt(200000);
+            FixedBitSet bitSet = new FixedBitSet(maxDoc);
+            int numDocs = random.nextBoolean() ? random.nextInt(100) : random.nextInt(maxDoc);
+            for (int i = 0; i < numDocs; i++) {
+                bitSet.set(random.nextInt(maxDoc));
+            }
+            int cardinality = bitSet.cardinality();
+            if (cardinality == 0) {
+                continue;
+            }
+            EliasFanoDocIdSet set = EliasFanoDocIdSet.build(bitSet.iterator(), cardinality, maxDoc);
+            assertThat(set.cardinality(), equalTo(cardinality));
+
+            DocIdSetIterator expected = bitSet.iterator();
+            DocIdSetIterator actual = set.iterator();
+            int doc;
+            while ((doc = expected.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                assertThat(actual.nextDoc(), equalTo(doc));
+            }
+            assertThat(actual.nextDoc(), equalTo(DocIdSetIterator.NO_MORE_DOCS));
+
+            expected = bitSet.iterator();
+            actual = set.iterator();
+            while (true) {
+                // mix small steps with long jumps, to go through the skip entries
+                int target = actual.docID() + 1 + (random.nextBoolean() ? random.nextInt(10) : random.nextInt(Math.max(1, maxDoc / 4)));
+                if (target >= maxDoc) {
+                    break;
+                }
+                int actualDoc = actual.advance(target);
+                assertThat(actualDoc, equalTo(expected.advance(target)));
+                if (actualDoc == DocIdSetIterator.NO_MORE_DOCS) {
+                    break;
+                }
+                if (random.nextBoolean()) {
+                    assertThat(actual.nextDoc(), equalTo(expected.nextDoc()));
+                    if (actual.docID() == DocIdSetIterator.NO_MORE_DOCS) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSparseSetsAreSmallerThanBitSets() throws Exception {
+        int maxDoc = 1 << 24;
+        FixedBitSet bitSet = new FixedBitSet(maxDoc);
+        for (int doc = 0; doc < maxDoc; doc += 1000) {
+            bitSet.set(doc);
+        }
+        EliasFanoDocIdSet set = EliasFanoDocIdSet.build(bitSet.iterator(), bitSet.cardinality(), maxDoc);
+        assertThat(set.sizeInBytes() * 10, lessThan(bitSet.getBits().length * 8l));
+    }
+}
@@ -20,6 +20,8 @@
 package org.elasticsearch.test.unit.common.lucene.search;
 
 import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene42.Lucene42Codec;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
@@ -27,13 +29,20 @@ import org.apache.lucene.index.*;
 import org.apache.lucene.queries.TermsFilter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.MergeTermsFilter;
 import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.index.codec.postingsformat.BloomFilter;
+import org.elasticsearch.index.codec.postingsformat.BloomFilterPostingsFormat;
 import org.testng.annotations.Test;
 
+import java.util.Random;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.nullValue;
 
 /**
@@ -112,4 +121,85 @@ public class TermsFilterTests {
         reader.close();
         rd.close();
     }
+
+    @Test
+    public void testMergeTermsFilter() throws Exception {
+        String fieldName = "field1";
+        Directory rd = new RAMDirectory();
+        IndexWriter w = new IndexWriter(rd, new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer()));
+        addMergeTermsDocs(w, fieldName);
+        AtomicReader reader = new SlowCompositeReaderWrapper(DirectoryReader.open(w, true));
+        w.close();
+
+        MergeTermsFilter tf = new MergeTermsFilter(fieldName, new BytesRef[]{new BytesRef("19")});
+        assertThat(tf.getDocIdSet(reader.getContext(), reader.getLiveDocs()), nullValue());
+
+        assertMergeTermsFilter(reader, fieldName, new Random(1), 500);
+
+        reader.close();
+        rd.close();
+    }
+
+    @Test
+    public void testMergeTermsFilterWithBloomFilter() throws Exception {
+        final String fieldName = "field1";
+        Directory rd = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer());
+        config.setCodec(new Lucene42Codec() {
+            final PostingsFormat bloomFormat = new BloomFilterPostingsFormat(PostingsFormat.forName("Lucene41"), BloomFilter.Factory.DEFAULT);
+
+            @Override
+            public PostingsFormat getPostingsFormatForField(String field) {
+                return fieldName.equals(field) ? bloomFormat : super.getPostingsFormatForField(field);
+            }
+        });
+        IndexWriter w = new IndexWriter(rd, config);
+        addMergeTermsDocs(w, fieldName);
+        w.forceMerge(1);
+        DirectoryReader directoryReader = DirectoryReader.open(w, true);
+        w.close();
+        // a single segment, so the terms are the bloom filtered ones and not merged views of them
+        AtomicReader reader = directoryReader.leaves().get(0).reader();
+        assertThat(reader.terms(fieldName), instanceOf(BloomFilterPostingsFormat.BloomFilteredFieldsProducer.BloomFilteredTerms.class));
+
+        MergeTermsFilter tf = new MergeTermsFilter(fieldName, new BytesRef[]{new BytesRef("19")});
+        assertThat(tf.getDocIdSet(reader.getContext(), reader.getLiveDocs()), nullValue());
+
+        // few terms compared to the 1000 of the segment, so they are looked up with seeks through the bloom filter
+        assertMergeTermsFilter(reader, fieldName, new Random(2), 50);
+        // and many terms, merged with the terms of the segment
+        assertMergeTermsFilter(reader, fieldName, new Random(3), 500);
+
+        directoryReader.close();
+        rd.close();
+    }
+
+    private void addMergeTermsDocs(IndexWriter w, String fieldName) throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            Document doc = new Document();
+            int term = i * 10; //terms are units of 10;
+            doc.add(new Field(fieldName, "" + term, StringField.TYPE_NOT_STORED));
+            w.addDocument(doc);
+        }
+    }
+
+    private void assertMergeTermsFilter(AtomicReader reader, String fieldName, Random random, int maxTerms) throws Exception {
+        for (int iter = 0; iter < 50; iter++) {
+            int numTerms = 1 + random.nextInt(maxTerms);
+            BytesRef[] terms = new BytesRef[numTerms];
+            Term[] luceneTerms = new Term[numTerms];
+            for (int i = 0; i < numTerms; i++) {
+                // multiples of 5 in the range of the indexed terms, so half of them don't exist, and some are repeated
+                terms[i] = new BytesRef(Integer.toString(random.nextInt(2000) * 5));
+                luceneTerms[i] = new Term(fieldName, terms[i]);
+            }
+            FixedBitSet expected = (FixedBitSet) new TermsFilter(luceneTerms).getDocIdSet(reader.getContext(), reader.getLiveDocs());
+            FixedBitSet actual = (FixedBitSet) new MergeTermsFilter(fieldName, terms).getDocIdSet(reader.getContext(), reader.getLiveDocs());
+            if (expected == null) {
+                assertThat(actual, nullValue());
+            } else {
+                assertThat(actual, equalTo(expected));
+            }
+        }
+    }
 }
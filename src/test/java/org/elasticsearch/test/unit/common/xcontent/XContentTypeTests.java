@@ -0,0 +1,55 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.unit.common.xcontent;
+
+import org.elasticsearch.common.xcontent.XContentType;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ */
+public class XContentTypeTests {
+
+    @Test
+    public void testFromRestContentType() {
+        assertThat(XContentType.fromRestContentType("application/json"), equalTo(XContentType.JSON));
+        assertThat(XContentType.fromRestContentType(XContentType.JSON.restContentType()), equalTo(XContentType.JSON));
+        assertThat(XContentType.fromRestContentType("application/smile"), equalTo(XContentType.SMILE));
+        assertThat(XContentType.fromRestContentType("application/x-jackson-smile"), equalTo(XContentType.SMILE));
+        assertThat(XContentType.fromRestContentType("yaml"), equalTo(XContentType.YAML));
+        assertThat(XContentType.fromRestContentType("text/plain"), nullValue());
+        assertThat(XContentType.fromRestContentType(null), nullValue());
+    }
+
+    @Test
+    public void testFromAcceptHeader() {
+        assertThat(XContentType.fromAcceptHeader(null), nullValue());
+        assertThat(XContentType.fromAcceptHeader("*/*"), nullValue());
+        assertThat(XContentType.fromAcceptHeader("text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8"), nullValue());
+        assertThat(XContentType.fromAcceptHeader("application/smile"), equalTo(XContentType.SMILE));
+        assertThat(XContentType.fromAcceptHeader("application/smile, application/json"), equalTo(XContentType.SMILE));
+        assertThat(XContentType.fromAcceptHeader("application/json;q=0.5, application/smile"), equalTo(XContentType.SMILE));
+        assertThat(XContentType.fromAcceptHeader("application/smile;q=0.2, application/json;q=0.8"), equalTo(XContentType.JSON));
+        assertThat(XContentType.fromAcceptHeader("application/smile;q=0, */*"), nullValue());
+        assertThat(XContentType.fromAcceptHeader("text/plain, application/yaml; charset=UTF-8"), equalTo(XContentType.YAML));
+    }
+}
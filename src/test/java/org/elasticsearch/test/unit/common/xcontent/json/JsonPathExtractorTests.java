@@ -0,0 +1,84 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.common.xcontent.json;
+
+import org.elasticsearch.common.xcontent.json.JsonPathExtractor;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ */
+public class JsonPathExtractorTests {
+
+    private final JsonPathExtractor extractor = new JsonPathExtractor(new String[]{"a"}, new String[]{"obj", "b"}, new String[]{"c"});
+
+    private int extract(String json, int wanted, String[] values) throws Exception {
+        byte[] bytes = ("  " + json + "  ").getBytes("UTF-8");
+        return extractor.extract(bytes, 2, bytes.length - 4, wanted, values);
+    }
+
+    @Test
+    public void testExtract() throws Exception {
+        String[] values = new String[3];
+        assertThat(extract("{\"x\":{\"a\":\"no\"},\"obj\":{\"a\":1,\"b\":\"bé\"},\"a\":-1.5e3,\"c\":true}", 7, values), equalTo(7));
+        assertThat(values[0], equalTo("-1.5e3"));
+        assertThat(values[1], equalTo("bé"));
+        assertThat(values[2], equalTo("true"));
+
+        values = new String[3];
+        assertThat(extract("{ \"a\" : null , \"z\" : [ \"]\" , { } ] }", 7, values), equalTo(1));
+        assertThat(values[0], nullValue());
+
+        // only the wanted paths are looked for
+        values = new String[3];
+        assertThat(extract("{\"a\":\"1\",\"c\":\"3\"}", 4, values), equalTo(4));
+        assertThat(values[0], nullValue());
+        assertThat(values[2], equalTo("3"));
+    }
+
+    @Test
+    public void testStopsOnceFound() throws Exception {
+        String[] values = new String[3];
+        // the rest is not even looked at
+        assertThat(extract("{\"a\":\"1\", not json", 1, values), equalTo(1));
+        assertThat(values[0], equalTo("1"));
+    }
+
+    @Test
+    public void testUnsupported() throws Exception {
+        String[] values = new String[3];
+        assertThat(extract("{\"a\":\"1\\\"\"}", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        assertThat(extract("{\"\\u0061\":\"1\"}", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        assertThat(extract("{\"a\":[\"1\"]}", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        assertThat(extract("{\"a\":{}}", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        assertThat(extract("[]", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        assertThat(extract("{\"b\":\"1\"", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        // malformed literals are left to the parser to fail on
+        assertThat(extract("{\"a\":tru}", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        assertThat(extract("{\"a\":01}", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        assertThat(extract("{\"a\":1.}", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        assertThat(extract("{\"x\":nul,\"a\":1}", 1, values), equalTo(JsonPathExtractor.UNSUPPORTED));
+        // escapes outside of the paths are fine
+        assertThat(extract("{\"x\":\"\\\"}\",\"a\":\"1\"}", 1, values), equalTo(1));
+    }
+}
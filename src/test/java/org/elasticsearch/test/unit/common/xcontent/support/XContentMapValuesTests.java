@@ -22,10 +22,12 @@ package org.elasticsearch.test.unit.common.xcontent.support;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -86,6 +88,80 @@ public class XContentMapValuesTests {
         assertThat(filter.containsKey("test1"), equalTo(false));
     }
 
+    @Test
+    public void testStreamingFilter() throws Exception {
+        for (XContentType type : new XContentType[]{XContentType.JSON, XContentType.SMILE}) {
+            XContentBuilder builder = XContentFactory.contentBuilder(type).startObject()
+                    .field("test1", "value1")
+                    .field("test2", "value2")
+                    .field("something_else", "value3")
+                    .startObject("obj1")
+                    .field("field1", "value")
+                    .startObject("obj2").field("field2", "value").endObject()
+                    .startObject("obj3").endObject()
+                    .endObject()
+                    .startArray("arr1")
+                    .startObject().field("field1", "value").field("field2", "value").endObject()
+                    .startObject().field("field2", "value").endObject()
+                    .value("leaf")
+                    .startArray().value(1).value(2).endArray()
+                    .endArray()
+                    .startArray("empty").endArray()
+                    .endObject();
+
+            Map<String, Object> source = XContentHelper.convertToMap(builder.bytes(), true).v2();
+            String[][] includes = {
+                    Strings.EMPTY_ARRAY, {"test1"}, {"test*"}, {"obj1"}, {"obj1.obj2"}, {"obj1.obj3"}, {"obj1.*"},
+                    {"arr1.field1"}, {"arr1"}, {"empty"}, {"test1", "obj1.field1"}, {"missing"}
+            };
+            String[][] excludes = {
+                    Strings.EMPTY_ARRAY, {"test2"}, {"obj1.obj2"}, {"arr1.field2"}, {"*"}
+            };
+            for (String[] include : includes) {
+                for (String[] exclude : excludes) {
+                    assertThat(Arrays.toString(include) + " / " + Arrays.toString(exclude),
+                            XContentMapValues.filter(builder.bytes(), include, exclude),
+                            equalTo(XContentMapValues.filter(source, include, exclude)));
+                }
+            }
+        }
+
+        // nested arrays are kept
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject()
+                .startArray("arr").startArray().value(1).value(2).endArray().endArray()
+                .endObject();
+        Map<String, Object> filter = XContentMapValues.filter(builder.bytes(), new String[]{"arr"}, Strings.EMPTY_ARRAY);
+        assertThat(((List) filter.get("arr")).size(), equalTo(1));
+        assertThat(((List) ((List) filter.get("arr")).get(0)).size(), equalTo(2));
+        filter = XContentMapValues.filter(XContentHelper.convertToMap(builder.bytes(), false).v2(), new String[]{"arr"}, Strings.EMPTY_ARRAY);
+        assertThat(((List) ((List) filter.get("arr")).get(0)).size(), equalTo(2));
+    }
+
+    @Test
+    public void testExtractIncludes() throws Exception {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject()
+                .field("field1", "value1")
+                .startObject("obj1")
+                .field("field1", "value2")
+                .startObject("obj2").field("field2", "value3").endObject()
+                .startArray("arr1").startObject().field("field3", "value4").endObject().value("leaf").endArray()
+                .endObject()
+                .endObject();
+        Map<String, Object> source = XContentHelper.convertToMap(builder.bytes(), true).v2();
+
+        String[][] fields = {{"obj1"}, {"obj1.obj2"}, {"obj1.arr1"}, {"obj1.field1", "field1"}, {"obj1", "obj1.obj2.field2"}, {"missing"}};
+        for (String[] field : fields) {
+            String[] includes = XContentMapValues.extractIncludes(field);
+            Map<String, Object> streamed = XContentMapValues.filter(builder.bytes(), includes, Strings.EMPTY_ARRAY);
+            Map<String, Object> filtered = XContentMapValues.filter(source, includes, Strings.EMPTY_ARRAY);
+            for (String name : field) {
+                // object fields are extracted whole from the filtered source
+                assertThat(name, XContentMapValues.extractValue(name, streamed), equalTo(XContentMapValues.extractValue(name, source)));
+                assertThat(name, XContentMapValues.extractValue(name, filtered), equalTo(XContentMapValues.extractValue(name, source)));
+            }
+        }
+    }
+
     @SuppressWarnings({"unchecked"})
     @Test
     public void testExtractValue() throws Exception {
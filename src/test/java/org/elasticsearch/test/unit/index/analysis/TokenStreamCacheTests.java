@@ -0,0 +1,141 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.analysis;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.analysis.AnalysisService;
+import org.elasticsearch.index.analysis.FieldNameAnalyzer;
+import org.elasticsearch.index.analysis.NamedAnalyzer;
+import org.elasticsearch.index.analysis.TokenStreamCache;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class TokenStreamCacheTests {
+
+    @Test
+    public void testCachedTokenStream() throws Exception {
+        AnalysisService analysisService = AnalysisTestsHelper.createAnalysisServiceFromSettings(ImmutableSettings.settingsBuilder()
+                .put("index.analysis.analyzer.cached.type", "standard")
+                .put("index.analysis.analyzer.cached.token_cache.size", 2)
+                .put("index.analysis.analyzer.cached.token_cache.max_length", 20)
+                .build());
+
+        assertThat(analysisService.analyzer("standard").tokenStreamCache(), nullValue());
+        NamedAnalyzer analyzer = analysisService.analyzer("cached");
+        TokenStreamCache cache = analyzer.tokenStreamCache();
+        assertThat(cache, notNullValue());
+        assertThat(analysisService.tokenStreamCaches().get("cached"), sameInstance(cache));
+
+        // resolved through the per field analyzer as well
+        FieldNameAnalyzer fieldNameAnalyzer = new FieldNameAnalyzer(ImmutableMap.<String, Analyzer>of("field", analyzer), analysisService.defaultIndexAnalyzer());
+        assertThat(TokenStreamCache.forField(fieldNameAnalyzer, "field"), sameInstance(cache));
+        assertThat(TokenStreamCache.forField(fieldNameAnalyzer, "other"), nullValue());
+
+        List<Token> expected = tokens(analyzer.tokenStream("field", new StringReader("Mozilla/5.0 (X11)")));
+        assertThat(expected.size(), equalTo(3));
+
+        assertThat(tokens(cache.tokenStream(fieldNameAnalyzer, "field", "Mozilla/5.0 (X11)")), equalTo(expected));
+        assertThat(cache.misses(), equalTo(1l));
+        assertThat(cache.hits(), equalTo(0l));
+
+        assertThat(tokens(cache.tokenStream(fieldNameAnalyzer, "field", "Mozilla/5.0 (X11)")), equalTo(expected));
+        assertThat(cache.misses(), equalTo(1l));
+        assertThat(cache.hits(), equalTo(1l));
+        assertThat(cache.hitRate(), equalTo(0.5d));
+
+        // same value on another field is another entry
+        assertThat(tokens(cache.tokenStream(analyzer, "field2", "Mozilla/5.0 (X11)")), equalTo(expected));
+        assertThat(cache.misses(), equalTo(2l));
+
+        // too long values are not cached
+        assertThat(cache.tokenStream(analyzer, "field", "a value longer than twenty chars"), nullValue());
+
+        // bounded
+        cache.tokenStream(analyzer, "field", "foo");
+        cache.tokenStream(analyzer, "field", "bar");
+        assertThat(cache.size(), lessThanOrEqualTo(2l));
+
+        // empty values are fine too
+        assertThat(tokens(cache.tokenStream(analyzer, "field", "")).size(), equalTo(0));
+    }
+
+    private static List<Token> tokens(TokenStream stream) throws IOException {
+        TermToBytesRefAttribute termAtt = stream.getAttribute(TermToBytesRefAttribute.class);
+        OffsetAttribute offsetAtt = stream.getAttribute(OffsetAttribute.class);
+        PositionIncrementAttribute posIncAtt = stream.getAttribute(PositionIncrementAttribute.class);
+        BytesRef bytes = termAtt.getBytesRef();
+        List<Token> tokens = new ArrayList<Token>();
+        stream.reset();
+        while (stream.incrementToken()) {
+            termAtt.fillBytesRef();
+            tokens.add(new Token(bytes.utf8ToString(), offsetAtt.startOffset(), offsetAtt.endOffset(), posIncAtt.getPositionIncrement()));
+        }
+        stream.end();
+        stream.close();
+        return tokens;
+    }
+
+    static class Token {
+        final String term;
+        final int startOffset;
+        final int endOffset;
+        final int positionIncrement;
+
+        Token(String term, int startOffset, int endOffset, int positionIncrement) {
+            this.term = term;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.positionIncrement = positionIncrement;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            Token token = (Token) o;
+            return startOffset == token.startOffset && endOffset == token.endOffset && positionIncrement == token.positionIncrement
+                    && term.equals(token.term);
+        }
+
+        @Override
+        public int hashCode() {
+            return startOffset;
+        }
+
+        @Override
+        public String toString() {
+            return term + "[" + startOffset + "-" + endOffset + "/" + positionIncrement + "]";
+        }
+    }
+}
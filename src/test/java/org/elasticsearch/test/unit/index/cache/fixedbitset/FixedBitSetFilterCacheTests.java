@@ -0,0 +1,89 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.cache.fixedbitset;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.fixedbitset.FixedBitSetFilter;
+import org.elasticsearch.index.cache.fixedbitset.FixedBitSetFilterCache;
+import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
+import org.elasticsearch.index.search.nested.NonNestedDocsFilter;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class FixedBitSetFilterCacheTests {
+
+    @Test
+    public void testParentBitSetsAreCachedPerSegment() throws Exception {
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        indexWriter.addDocument(doc("__comments")); // 0
+        indexWriter.addDocument(doc("__comments")); // 1
+        indexWriter.addDocument(doc("article")); // 2
+        indexWriter.addDocument(doc("article")); // 3
+        indexWriter.deleteDocuments(new Term(TypeFieldMapper.NAME, "article"));
+        indexWriter.commit();
+
+        DirectoryReader reader = DirectoryReader.open(dir);
+        AtomicReaderContext segment = reader.leaves().get(0);
+        FixedBitSetFilterCache cache = new FixedBitSetFilterCache(new Index("test"), EMPTY_SETTINGS);
+
+        FixedBitSetFilter parentsFilter = cache.getFixedBitSetFilter(NonNestedDocsFilter.INSTANCE);
+        FixedBitSet parents = parentsFilter.getDocIdSet(segment, segment.reader().getLiveDocs());
+        // deleted docs are kept, block boundaries must not change
+        assertThat(parents.cardinality(), equalTo(2));
+        assertThat(parents.get(2), equalTo(true));
+        assertThat(parents.get(3), equalTo(true));
+        assertThat(cache.getFixedBitSetFilter(NonNestedDocsFilter.INSTANCE).getDocIdSet(segment, null), sameInstance(parents));
+        assertThat(cache.getFixedBitSetFilter(NonNestedDocsFilter.INSTANCE), equalTo(parentsFilter));
+
+        FixedBitSet nested = cache.getFixedBitSetFilter(new TermFilter(new Term(TypeFieldMapper.NAME, "__comments"))).getDocIdSet(segment, null);
+        assertThat(nested.cardinality(), equalTo(2));
+        assertThat(nested.get(0), equalTo(true));
+        assertThat(cache.sizeInBytes(), greaterThan(0l));
+
+        cache.clear(segment.reader());
+        assertThat(cache.sizeInBytes(), equalTo(0l));
+        assertThat(parentsFilter.getDocIdSet(segment, null), not(sameInstance(parents)));
+
+        cache.close();
+        reader.close();
+        indexWriter.close();
+    }
+
+    private Document doc(String type) {
+        Document doc = new Document();
+        doc.add(new StringField(TypeFieldMapper.NAME, type, Field.Store.NO));
+        return doc;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.cache.id;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.id.IdCache;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.index.cache.id.compact.CompactIdCache;
+import org.elasticsearch.index.cache.id.compact.CompactIdReaderTypeCache;
+import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class CompactIdCacheTests {
+
+    @Test
+    public void testParentChildLookups() throws Exception {
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        indexWriter.addDocument(doc("parent#1", null)); // 0
+        indexWriter.addDocument(doc("parent#2", null)); // 1
+        indexWriter.addDocument(doc("child#1", "parent#1")); // 2
+        indexWriter.addDocument(doc("child#2", "parent#1")); // 3
+        indexWriter.addDocument(doc("child#3", "parent#3")); // 4, parent not in this segment
+        indexWriter.addDocument(doc("parent#4", null)); // 5
+        indexWriter.deleteDocuments(new Term(UidFieldMapper.NAME, "parent#4"));
+        indexWriter.commit();
+
+        DirectoryReader reader = DirectoryReader.open(dir);
+        IdCache idCache = new CompactIdCache(new Index("test"), EMPTY_SETTINGS);
+        idCache.refresh(reader.leaves());
+        AtomicReader segment = reader.leaves().get(0).reader();
+
+        IdReaderTypeCache parentType = idCache.reader(segment).type("parent");
+        assertThat(parentType.docById(new HashedBytesArray("1")), equalTo(0));
+        assertThat(parentType.docById(new HashedBytesArray("2")), equalTo(1));
+        assertThat(parentType.docById(new HashedBytesArray("3")), equalTo(-1));
+        assertThat(parentType.docById(new HashedBytesArray("4")), equalTo(-1));
+        assertThat(parentType.docById(new HashedBytesArray("5")), equalTo(-1));
+        assertThat(parentType.idByDoc(1), equalTo(new HashedBytesArray("2")));
+        assertThat(parentType.idByDoc(2), nullValue());
+
+        assertThat(parentType.parentIdByDoc(0), nullValue());
+        assertThat(parentType.parentIdByDoc(2), equalTo(new HashedBytesArray("1")));
+        assertThat(parentType.parentIdByDoc(3), equalTo(new HashedBytesArray("1")));
+        assertThat(parentType.parentIdByDoc(4), equalTo(new HashedBytesArray("3")));
+        assertThat(idCache.reader(segment).parentIdByDoc("parent", 3), equalTo(new HashedBytesArray("1")));
+
+        // the ordinal based lookups, parent ids and ids of the type share the same ordinals
+        CompactIdReaderTypeCache compactParentType = (CompactIdReaderTypeCache) parentType;
+        BytesRef scratch = new BytesRef();
+        int parentOrd = compactParentType.parentOrdByDoc(2);
+        assertThat(parentOrd, not(equalTo(0)));
+        assertThat(compactParentType.parentOrdByDoc(3), equalTo(parentOrd));
+        assertThat(compactParentType.ordByDoc(0), equalTo(parentOrd));
+        assertThat(compactParentType.parentOrdByDoc(0), equalTo(0));
+        assertThat(compactParentType.ordByDoc(2), equalTo(0));
+        assertThat(compactParentType.docByOrd(parentOrd), equalTo(0));
+        assertThat(compactParentType.docByOrd(compactParentType.parentOrdByDoc(4)), equalTo(-1));
+        assertThat(compactParentType.docByOrd(0), equalTo(-1));
+        assertThat(compactParentType.idByOrd(parentOrd, scratch).utf8ToString(), equalTo("1"));
+        assertThat(compactParentType.idByOrd(0, scratch), nullValue());
+        assertThat(compactParentType.ordById(new BytesRef("1"), scratch), equalTo(parentOrd));
+        assertThat(compactParentType.ordById(new BytesRef("3"), scratch), equalTo(compactParentType.parentOrdByDoc(4)));
+        assertThat(compactParentType.ordById(new BytesRef("0"), scratch), equalTo(0));
+        assertThat(compactParentType.ordById(new BytesRef("11"), scratch), equalTo(0));
+
+        IdReaderTypeCache childType = idCache.reader(segment).type("child");
+        assertThat(childType.docById(new HashedBytesArray("3")), equalTo(4));
+        assertThat(childType.idByDoc(3), equalTo(new HashedBytesArray("2")));
+        assertThat(childType.parentIdByDoc(3), nullValue());
+
+        assertThat(idCache.sizeInBytes(), greaterThan(0l));
+
+        // a refresh only loads the new segments
+        indexWriter.addDocument(doc("parent#5", null));
+        indexWriter.commit();
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        idCache.refresh(newReader.leaves());
+        assertThat(idCache.reader(segment), sameInstance(idCache.reader(newReader.leaves().get(0).reader())));
+        assertThat(idCache.reader(newReader.leaves().get(1).reader()).docById("parent", new HashedBytesArray("5")), equalTo(0));
+
+        idCache.clear(segment);
+        assertThat(idCache.reader(segment), nullValue());
+
+        newReader.close();
+        reader.close();
+        indexWriter.close();
+    }
+
+    private Document doc(String uid, String parent) {
+        Document document = new Document();
+        document.add(new StringField(UidFieldMapper.NAME, uid, Field.Store.YES));
+        if (parent != null) {
+            document.add(new StringField(ParentFieldMapper.NAME, parent, Field.Store.NO));
+        }
+        return document;
+    }
+}
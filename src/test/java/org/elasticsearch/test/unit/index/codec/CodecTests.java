@@ -42,6 +42,7 @@ import org.elasticsearch.index.codec.CodecModule;
 import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.codec.PerFieldMappingPostingFormatCodec;
 import org.elasticsearch.index.codec.postingsformat.*;
+import org.elasticsearch.index.codec.storedfields.HighCompressionStoredFieldsCodec;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperServiceModule;
 import org.elasticsearch.index.settings.IndexSettingsModule;
@@ -63,6 +64,8 @@ public class CodecTests {
         assertThat(codecService.codec("Lucene40"), instanceOf(Lucene40Codec.class));
         assertThat(codecService.codec("Lucene41"), instanceOf(Lucene41Codec.class));
         assertThat(codecService.codec("SimpleText"), instanceOf(SimpleTextCodec.class));
+        assertThat(codecService.codec("high_compression"), instanceOf(HighCompressionStoredFieldsCodec.class));
+        assertThat(codecService.codec("XHighCompressionStoredFields"), instanceOf(HighCompressionStoredFieldsCodec.class));
     }
 
     @Test
@@ -0,0 +1,119 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.codec.storedfields;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.codec.storedfields.HighCompressionStoredFieldsCodec;
+import org.elasticsearch.index.codec.storedfields.HighCompressionStoredFieldsFormat;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class HighCompressionStoredFieldsCodecTests {
+
+    @Test
+    public void testCompressAndTrackSizes() throws Exception {
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+        config.setCodec(new HighCompressionStoredFieldsCodec());
+        config.setMergePolicy(NoMergePolicy.COMPOUND_FILES);
+        IndexWriter writer = new IndexWriter(dir, config);
+
+        // two segments of small and repetitive log like docs
+        for (int segment = 0; segment < 2; segment++) {
+            for (int i = 0; i < 1000; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(segment * 1000 + i), Field.Store.YES));
+                doc.add(new StoredField("_source", new BytesRef("{\"level\":\"INFO\",\"logger\":\"org.elasticsearch.index\",\"message\":\"log event " + i + "\"}")));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+
+        SegmentInfos infos = Lucene.readSegmentInfos(dir);
+        assertThat(infos.size(), equalTo(2));
+        for (SegmentInfoPerCommit info : infos) {
+            assertThat(info.info.getCodec().getName(), equalTo(HighCompressionStoredFieldsCodec.CODEC_NAME));
+            long rawSize = HighCompressionStoredFieldsFormat.rawSizeInBytes(info.info);
+            long size = HighCompressionStoredFieldsFormat.sizeInBytes(info.info);
+            assertThat(size, greaterThan(0l));
+            assertThat(rawSize, greaterThan(2 * size));
+        }
+
+        // the segments are read back through the codec loaded by name
+        DirectoryReader reader = DirectoryReader.open(dir);
+        assertThat(reader.numDocs(), equalTo(2000));
+        assertThat(reader.document(1500).get("id"), equalTo("1500"));
+        assertThat(reader.document(1500).getBinaryValue("_source").utf8ToString(), containsString("log event 500"));
+        reader.close();
+
+        // merging keeps tracking the sizes, without the deleted docs
+        writer.deleteDocuments(new Term("id", "0"));
+        writer.close();
+        config = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+        config.setCodec(new HighCompressionStoredFieldsCodec());
+        writer = new IndexWriter(dir, config);
+        writer.forceMerge(1);
+        writer.commit();
+
+        infos = Lucene.readSegmentInfos(dir);
+        assertThat(infos.size(), equalTo(1));
+        long rawSize = HighCompressionStoredFieldsFormat.rawSizeInBytes(infos.info(0).info);
+        long size = HighCompressionStoredFieldsFormat.sizeInBytes(infos.info(0).info);
+        assertThat(size, greaterThan(0l));
+        assertThat(rawSize, greaterThan(2 * size));
+
+        reader = DirectoryReader.open(dir);
+        assertThat(reader.numDocs(), equalTo(1999));
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    public void testRawSizeCountsUtf8Bytes() throws Exception {
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+        config.setCodec(new HighCompressionStoredFieldsCodec());
+        IndexWriter writer = new IndexWriter(dir, config);
+
+        // 2, 3 and 4 (a surrogate pair) bytes in utf8
+        String value = "\u00e9\u20ac\ud834\udd1e";
+        Document doc = new Document();
+        doc.add(new StoredField("text", value));
+        writer.addDocument(doc);
+        writer.commit();
+
+        SegmentInfos infos = Lucene.readSegmentInfos(dir);
+        assertThat(infos.size(), equalTo(1));
+        assertThat(HighCompressionStoredFieldsFormat.rawSizeInBytes(infos.info(0).info), equalTo(9l));
+        assertThat(new BytesRef(value).length, equalTo(9));
+        writer.close();
+    }
+}
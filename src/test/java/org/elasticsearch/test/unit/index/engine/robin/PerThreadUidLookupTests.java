@@ -0,0 +1,121 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.engine.robin;
+
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene42.Lucene42Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.uid.UidField;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.codec.postingsformat.BloomFilter;
+import org.elasticsearch.index.codec.postingsformat.BloomFilterPostingsFormat;
+import org.elasticsearch.index.engine.robin.PerThreadUidLookup;
+import org.elasticsearch.index.indexing.IndexingStats;
+import org.elasticsearch.index.indexing.ShardIndexingService;
+import org.elasticsearch.index.indexing.slowlog.ShardSlowLogIndexingService;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.index.shard.ShardId;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class PerThreadUidLookupTests {
+
+    @Test
+    public void testLookupAcrossSegments() throws Exception {
+        ShardId shardId = new ShardId(new Index("index"), 1);
+        IndexSettingsService indexSettingsService = new IndexSettingsService(shardId.index(), EMPTY_SETTINGS);
+        ShardIndexingService indexingService = new ShardIndexingService(shardId, EMPTY_SETTINGS, new ShardSlowLogIndexingService(shardId, EMPTY_SETTINGS, indexSettingsService));
+        PerThreadUidLookup uidLookup = new PerThreadUidLookup(indexingService);
+
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+        config.setCodec(new Lucene42Codec() {
+            final PostingsFormat bloomFormat = new BloomFilterPostingsFormat(PostingsFormat.forName("Lucene41"), BloomFilter.Factory.DEFAULT);
+
+            @Override
+            public PostingsFormat getPostingsFormatForField(String field) {
+                return UidFieldMapper.NAME.equals(field) ? bloomFormat : super.getPostingsFormatForField(field);
+            }
+        });
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), config);
+
+        // three segments, with 100 docs each
+        for (int segment = 0; segment < 3; segment++) {
+            for (int i = 0; i < 100; i++) {
+                Document doc = new Document();
+                doc.add(new UidField(UidFieldMapper.NAME, "type#" + (segment * 100 + i), segment + 1));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        assertThat(reader.leaves().size(), equalTo(3));
+
+        assertThat(uidLookup.loadVersion(reader, new Term(UidFieldMapper.NAME, "type#5")), equalTo(1l));
+        assertThat(uidLookup.loadVersion(reader, new Term(UidFieldMapper.NAME, "type#150")), equalTo(2l));
+        assertThat(uidLookup.loadVersion(reader, new Term(UidFieldMapper.NAME, "type#299")), equalTo(3l));
+        assertThat(uidLookup.loadVersion(reader, new Term(UidFieldMapper.NAME, "type#1000")), equalTo(-1l));
+
+        UidField.DocIdAndVersion docIdAndVersion = uidLookup.loadDocIdAndVersion(reader, new Term(UidFieldMapper.NAME, "type#150"));
+        assertThat(docIdAndVersion, notNullValue());
+        assertThat(docIdAndVersion.version, equalTo(2l));
+        assertThat(docIdAndVersion.docId, equalTo(50));
+        assertThat(uidLookup.loadDocIdAndVersion(reader, new Term(UidFieldMapper.NAME, "type#1000")), nullValue());
+
+        IndexingStats.Stats stats = indexingService.stats().getTotal();
+        assertThat(stats.getUidLookupCount(), equalTo(6l));
+        // every lookup skips at least one segment based on the bloom filter
+        assertThat(stats.getUidLookupBloomHits(), greaterThanOrEqualTo(4l));
+        assertThat(stats.getUidLookupBloomHits() + stats.getUidLookupBloomFalsePositives(), lessThanOrEqualTo(12l));
+
+        // update a doc living in the first segment, the cached terms enums should see the new segment and the deletes
+        Document doc = new Document();
+        doc.add(new UidField(UidFieldMapper.NAME, "type#5", 4));
+        writer.updateDocument(new Term(UidFieldMapper.NAME, "type#5"), doc);
+        writer.deleteDocuments(new Term(UidFieldMapper.NAME, "type#150"));
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader, writer, true);
+        reader.close();
+        reader = newReader;
+
+        assertThat(uidLookup.loadVersion(reader, new Term(UidFieldMapper.NAME, "type#5")), equalTo(4l));
+        assertThat(uidLookup.loadVersion(reader, new Term(UidFieldMapper.NAME, "type#150")), equalTo(-1l));
+        assertThat(uidLookup.loadDocIdAndVersion(reader, new Term(UidFieldMapper.NAME, "type#150")), nullValue());
+        assertThat(uidLookup.loadVersion(reader, new Term(UidFieldMapper.NAME, "type#299")), equalTo(3l));
+
+        uidLookup.close();
+        // lookups still work once closed, they are just not cached anymore
+        assertThat(uidLookup.loadVersion(reader, new Term(UidFieldMapper.NAME, "type#299")), equalTo(3l));
+
+        indexingService.clear();
+        assertThat(indexingService.stats().getTotal().getUidLookupCount(), equalTo(0l));
+
+        reader.close();
+        writer.close();
+    }
+}
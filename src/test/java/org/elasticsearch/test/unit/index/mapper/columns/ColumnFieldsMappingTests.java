@@ -0,0 +1,245 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.mapper.columns;
+
+import org.apache.lucene.codecs.diskdv.DiskDocValuesFormat;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SlowCompositeReaderWrapper;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.codec.PerFieldMappingPostingFormatCodec;
+import org.elasticsearch.index.fieldvisitor.CustomFieldsVisitor;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.DocumentMapperParser;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.mapper.internal.ColumnFieldsMapper;
+import org.elasticsearch.test.unit.index.mapper.MapperTests;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.elasticsearch.index.mapper.DocumentMapper.MergeFlags.mergeFlags;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.testng.Assert.fail;
+
+@Test
+public class ColumnFieldsMappingTests {
+
+    @Test
+    public void testColumnFieldsNotSet() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .endObject().endObject().string();
+        DocumentMapper docMapper = MapperTests.newParser().parse(mapping);
+        assertThat(docMapper.columnFieldsMapper().enabled(), equalTo(false));
+
+        ParsedDocument doc = docMapper.parse("type", "1", XContentFactory.jsonBuilder().startObject()
+                .field("field", "value")
+                .endObject().bytes());
+        assertThat(doc.rootDoc().getField(ColumnFieldsMapper.NAME), nullValue());
+    }
+
+    @Test
+    public void testColumnFieldsVisitedAsStoredFields() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("_columns").field("fields", Arrays.asList("field1", "field2", "field3", "obj.field4")).endObject()
+                .startObject("properties")
+                .startObject("field1").field("type", "string").field("store", "yes").endObject()
+                .startObject("field2").field("type", "integer").field("store", "yes").endObject()
+                .startObject("field3").field("type", "long").field("store", "yes").endObject()
+                .startObject("field5").field("type", "string").endObject()
+                .startObject("field6").field("type", "string").field("store", "yes").endObject()
+                .startObject("obj").startObject("properties")
+                .startObject("field4").field("type", "double").field("store", "yes").endObject()
+                .endObject().endObject()
+                .endObject()
+                .endObject().endObject().string();
+        DocumentMapperParser parser = MapperTests.newParser();
+        DocumentMapper docMapper = parser.parse(mapping);
+        assertThat(docMapper.columnFieldsMapper().fields(), equalTo((Object) new HashSet<String>(Arrays.asList("field1", "field2", "field3", "obj.field4"))));
+
+        // serialized and parsed back the same
+        DocumentMapper reparsed = parser.parse(docMapper.mappingSource().string());
+        assertThat(reparsed.columnFieldsMapper().fields(), equalTo(docMapper.columnFieldsMapper().fields()));
+
+        ParsedDocument doc = docMapper.parse("type", "1", XContentFactory.jsonBuilder().startObject()
+                .field("field1", "value1")
+                .field("field2", 2)
+                .startArray("field3").value(1).value(2).value(3).endArray()
+                .startObject("obj").field("field4", 4.5).endObject()
+                .field("field5", "not stored")
+                .field("field6", "not in the column")
+                .endObject().bytes());
+        assertThat(doc.rootDoc().getField(ColumnFieldsMapper.NAME), notNullValue());
+
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        writer.addDocument(doc.rootDoc(), doc.analyzer());
+        // a doc without any column values
+        doc = MapperTests.newParser().parse(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .endObject().endObject().string())
+                .parse("type", "2", XContentFactory.jsonBuilder().startObject().field("field1", "value1").endObject().bytes());
+        writer.addDocument(doc.rootDoc(), doc.analyzer());
+
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        AtomicReader atomicReader = SlowCompositeReaderWrapper.wrap(reader);
+        BinaryDocValues columns = atomicReader.getBinaryDocValues(ColumnFieldsMapper.NAME);
+        assertThat(columns, notNullValue());
+
+        CustomFieldsVisitor storedVisitor = new CustomFieldsVisitor(true, false);
+        atomicReader.document(0, storedVisitor);
+        storedVisitor.postProcess(docMapper);
+
+        BytesRef column = new BytesRef();
+        columns.get(0, column);
+        CustomFieldsVisitor columnVisitor = new CustomFieldsVisitor(true, false);
+        assertThat(ColumnFieldsMapper.visit(column, atomicReader.getFieldInfos(), columnVisitor), equalTo(true));
+        columnVisitor.postProcess(docMapper);
+
+        assertThat(columnVisitor.uid(), equalTo(storedVisitor.uid()));
+        assertThat(columnVisitor.fields().size(), equalTo(4));
+        assertThat(columnVisitor.fields().get("field1"), equalTo(storedVisitor.fields().get("field1")));
+        assertThat(columnVisitor.fields().get("field2"), equalTo(storedVisitor.fields().get("field2")));
+        assertThat(columnVisitor.fields().get("field3"), equalTo(storedVisitor.fields().get("field3")));
+        assertThat(columnVisitor.fields().get("field3").size(), equalTo(3));
+        assertThat(columnVisitor.fields().get("obj.field4"), equalTo(storedVisitor.fields().get("obj.field4")));
+        assertThat(columnVisitor.fields().containsKey("field6"), equalTo(false));
+
+        // only the needed fields are visited
+        columnVisitor = new CustomFieldsVisitor(new HashSet<String>(Arrays.asList("field2")), false);
+        ColumnFieldsMapper.visit(column, atomicReader.getFieldInfos(), columnVisitor);
+        assertThat(columnVisitor.uid().id(), equalTo("1"));
+        assertThat(columnVisitor.fields().size(), equalTo(1));
+        assertThat(columnVisitor.fields().get("field2").size(), equalTo(1));
+
+        columns.get(1, column);
+        assertThat(ColumnFieldsMapper.visit(column, atomicReader.getFieldInfos(), new CustomFieldsVisitor(true, false)), equalTo(false));
+
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    public void testColumnFieldsKeepParent() throws Exception {
+        // _parent is added in its own post parse, the column must still see it
+        DocumentMapper docMapper = MapperTests.newParser().parse(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("_parent").field("type", "p_type").endObject()
+                .startObject("_columns").field("fields", Arrays.asList("_parent", "field1")).endObject()
+                .startObject("properties")
+                .startObject("field1").field("type", "string").field("store", "yes").endObject()
+                .endObject()
+                .endObject().endObject().string());
+
+        ParsedDocument doc = docMapper.parse(SourceToParse.source(XContentFactory.jsonBuilder().startObject()
+                .field("field1", "value1")
+                .endObject().bytes()).type("type").id("1").parent("1122"));
+
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        writer.addDocument(doc.rootDoc(), doc.analyzer());
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        AtomicReader atomicReader = SlowCompositeReaderWrapper.wrap(reader);
+
+        BytesRef column = new BytesRef();
+        atomicReader.getBinaryDocValues(ColumnFieldsMapper.NAME).get(0, column);
+        CustomFieldsVisitor columnVisitor = new CustomFieldsVisitor(new HashSet<String>(Arrays.asList("_parent", "field1")), false);
+        assertThat(ColumnFieldsMapper.visit(column, atomicReader.getFieldInfos(), columnVisitor), equalTo(true));
+        columnVisitor.postProcess(docMapper);
+
+        CustomFieldsVisitor storedVisitor = new CustomFieldsVisitor(new HashSet<String>(Arrays.asList("_parent", "field1")), false);
+        atomicReader.document(0, storedVisitor);
+        storedVisitor.postProcess(docMapper);
+
+        assertThat(columnVisitor.fields().get("_parent"), notNullValue());
+        assertThat(columnVisitor.fields().get("_parent"), equalTo(storedVisitor.fields().get("_parent")));
+        assertThat(columnVisitor.fields().get("field1"), equalTo(storedVisitor.fields().get("field1")));
+
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    public void testColumnFieldsCantChange() throws Exception {
+        DocumentMapperParser parser = MapperTests.newParser();
+        DocumentMapper docMapper = parser.parse(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("_columns").field("fields", "field1,field2").endObject()
+                .startObject("properties")
+                .startObject("field1").field("type", "string").field("store", "yes").endObject()
+                .startObject("field2").field("type", "string").field("store", "yes").endObject()
+                .endObject()
+                .endObject().endObject().string());
+        assertThat(docMapper.columnFieldsMapper().fields().size(), equalTo(2));
+
+        DocumentMapper other = parser.parse(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .endObject().endObject().string());
+        assertThat(docMapper.merge(other, mergeFlags().simulate(true)).hasConflicts(), equalTo(false));
+
+        other = parser.parse(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("_columns").field("fields", "field1").endObject()
+                .startObject("properties")
+                .startObject("field1").field("type", "string").field("store", "yes").endObject()
+                .endObject()
+                .endObject().endObject().string());
+        assertThat(docMapper.merge(other, mergeFlags().simulate(true)).hasConflicts(), equalTo(true));
+    }
+
+    @Test
+    public void testColumnFieldsMustBeMappedAndStored() throws Exception {
+        DocumentMapperParser parser = MapperTests.newParser();
+        try {
+            parser.parse(XContentFactory.jsonBuilder().startObject().startObject("type")
+                    .startObject("_columns").field("fields", "field1,field2").endObject()
+                    .startObject("properties")
+                    .startObject("field1").field("type", "string").field("store", "yes").endObject()
+                    .endObject()
+                    .endObject().endObject().string());
+            fail("field2 is not mapped");
+        } catch (MapperParsingException e) {
+            assertThat(e.getMessage(), containsString("[field2]"));
+        }
+
+        try {
+            parser.parse(XContentFactory.jsonBuilder().startObject().startObject("type")
+                    .startObject("_columns").field("fields", "field1,field2").endObject()
+                    .startObject("properties")
+                    .startObject("field1").field("type", "string").field("store", "yes").endObject()
+                    .startObject("field2").field("type", "string").endObject()
+                    .endObject()
+                    .endObject().endObject().string());
+            fail("field2 is not stored");
+        } catch (MapperParsingException e) {
+            assertThat(e.getMessage(), containsString("[field2]"));
+        }
+    }
+
+    @Test
+    public void testColumnFieldsUseDiskDocValues() throws Exception {
+        PerFieldMappingPostingFormatCodec codec = new PerFieldMappingPostingFormatCodec(null, null);
+        assertThat(codec.getDocValuesFormatForField(ColumnFieldsMapper.NAME), instanceOf(DiskDocValuesFormat.class));
+        assertThat(codec.getDocValuesFormatForField("field1"), not(instanceOf(DiskDocValuesFormat.class)));
+    }
+}
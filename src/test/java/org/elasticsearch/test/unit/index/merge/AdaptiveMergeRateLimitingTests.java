@@ -0,0 +1,112 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.merge;
+
+import org.apache.lucene.store.StoreRateLimiting;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.merge.scheduler.AdaptiveMergeRateLimiting;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class AdaptiveMergeRateLimitingTests {
+
+    @Test
+    public void testRateFollowsBacklog() {
+        AdaptiveMergeRateLimiting rateLimiting = new AdaptiveMergeRateLimiting(Loggers.getLogger(AdaptiveMergeRateLimitingTests.class),
+                new ByteSizeValue(5, ByteSizeUnit.MB), new ByteSizeValue(100, ByteSizeUnit.MB), new ByteSizeValue(20, ByteSizeUnit.MB));
+        assertThat(rateLimiting.rateLimiting().getType(), equalTo(StoreRateLimiting.Type.MERGE));
+        assertThat(rateLimiting.targetBytesPerSec(), equalTo(new ByteSizeValue(20, ByteSizeUnit.MB).bytes()));
+
+        // backlog, rate goes up
+        long previous = rateLimiting.targetBytesPerSec();
+        rateLimiting.onMergeStart(3, 3, true);
+        assertThat(rateLimiting.targetBytesPerSec(), greaterThan(previous));
+
+        // never goes above the max rate
+        for (int i = 0; i < 100; i++) {
+            rateLimiting.onMergeStart(3, 3, true);
+        }
+        assertThat(rateLimiting.targetBytesPerSec(), equalTo(new ByteSizeValue(100, ByteSizeUnit.MB).bytes()));
+
+        // a few merges running, but no backlog, rate stays the same
+        previous = rateLimiting.targetBytesPerSec();
+        rateLimiting.onMergeStart(2, 3, false);
+        assertThat(rateLimiting.targetBytesPerSec(), equalTo(previous));
+
+        // no backlog, rate goes down, but never below the min rate
+        rateLimiting.onMergeStart(1, 3, false);
+        assertThat(rateLimiting.targetBytesPerSec(), lessThan(previous));
+        for (int i = 0; i < 100; i++) {
+            rateLimiting.onMergeStart(1, 3, false);
+        }
+        assertThat(rateLimiting.targetBytesPerSec(), equalTo(new ByteSizeValue(5, ByteSizeUnit.MB).bytes()));
+    }
+
+    @Test
+    public void testRateFollowsIndexingWhileMerging() {
+        AdaptiveMergeRateLimiting rateLimiting = new AdaptiveMergeRateLimiting(Loggers.getLogger(AdaptiveMergeRateLimitingTests.class),
+                new ByteSizeValue(5, ByteSizeUnit.MB), new ByteSizeValue(100, ByteSizeUnit.MB), new ByteSizeValue(20, ByteSizeUnit.MB));
+        long second = TimeUnit.SECONDS.toNanos(1);
+        long time = 0;
+        long ops = 0;
+
+        // the first sample only records the indexing operations so far
+        long previous = rateLimiting.targetBytesPerSec();
+        rateLimiting.onSample(ops, time, 3, 3, true);
+        assertThat(rateLimiting.targetBytesPerSec(), equalTo(previous));
+
+        // steady indexing, a merge running without backlog, rate stays the same
+        for (int i = 0; i < 5; i++) {
+            rateLimiting.onSample(ops += 100, time += second, 1, 3, false);
+        }
+        assertThat(rateLimiting.targetBytesPerSec(), equalTo(previous));
+
+        // no merge running, nothing to throttle
+        rateLimiting.onSample(ops += 1000, time += second, 0, 3, false);
+        assertThat(rateLimiting.targetBytesPerSec(), equalTo(previous));
+
+        // indexing burst while a merge runs, rate goes up
+        rateLimiting.onSample(ops += 1000, time += second, 1, 3, false);
+        assertThat(rateLimiting.targetBytesPerSec(), greaterThan(previous));
+
+        // backlog while merging, rate goes up even without a merge starting
+        previous = rateLimiting.targetBytesPerSec();
+        rateLimiting.onSample(ops += 300, time += second, 3, 3, false);
+        assertThat(rateLimiting.targetBytesPerSec(), greaterThan(previous));
+
+        // merges still running, but indexing stopped and no backlog, rate goes down to the min rate
+        previous = rateLimiting.targetBytesPerSec();
+        rateLimiting.onSample(ops, time += second, 1, 3, false);
+        assertThat(rateLimiting.targetBytesPerSec(), lessThan(previous));
+        for (int i = 0; i < 100; i++) {
+            rateLimiting.onSample(ops, time += second, 1, 3, false);
+        }
+        assertThat(rateLimiting.targetBytesPerSec(), equalTo(new ByteSizeValue(5, ByteSizeUnit.MB).bytes()));
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.snapshots;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.blobstore.BlobPath;
+import org.elasticsearch.common.blobstore.fs.FsBlobStore;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardRepository;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot;
+import org.elasticsearch.index.store.DirectoryService;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.distributor.LeastUsedDistributor;
+import org.elasticsearch.index.store.ram.RamDirectoryService;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.testng.Assert.fail;
+
+/**
+ *
+ */
+public class BlobStoreIndexShardRepositoryTests {
+
+    private final ShardId shardId = new ShardId(new Index("index"), 1);
+
+    private final File location = new File("data/snapshots-repository");
+
+    private ExecutorService executor;
+
+    private FsBlobStore blobStore;
+
+    private BlobStoreIndexShardRepository repository;
+
+    @BeforeMethod
+    public void setUp() {
+        FileSystemUtils.deleteRecursively(location, true);
+        executor = Executors.newFixedThreadPool(2);
+        blobStore = new FsBlobStore(EMPTY_SETTINGS, executor, location);
+        // small chunk size, so we also test chunked files
+        repository = new BlobStoreIndexShardRepository(EMPTY_SETTINGS, blobStore, BlobPath.cleanPath(), new ByteSizeValue(100));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        blobStore.close();
+        executor.shutdownNow();
+        FileSystemUtils.deleteRecursively(location, true);
+    }
+
+    @Test
+    public void testIncrementalSnapshotAndRestore() throws Exception {
+        Store store = createStore();
+        writeFile(store, "_1.cfs", 250);
+        writeFile(store, "_2.cfs", 10);
+
+        BlobStoreIndexShardSnapshot snapshot1 = repository.snapshot("snapshot1", store, ImmutableList.of("_1.cfs", "_2.cfs"));
+        assertThat(snapshot1.indexFiles().size(), equalTo(2));
+        assertThat(countDataBlobs(), equalTo(2));
+
+        writeFile(store, "_3.cfs", 50);
+        BlobStoreIndexShardSnapshot snapshot2 = repository.snapshot("snapshot2", store, ImmutableList.of("_1.cfs", "_2.cfs", "_3.cfs"));
+        assertThat(snapshot2.indexFiles().size(), equalTo(3));
+        // only the new file got uploaded
+        assertThat(countDataBlobs(), equalTo(3));
+        assertThat(snapshot2.findPhysicalIndexFile("_1.cfs").name(), equalTo(snapshot1.findPhysicalIndexFile("_1.cfs").name()));
+        assertThat(snapshot2.findPhysicalIndexFile("_2.cfs").name(), equalTo(snapshot1.findPhysicalIndexFile("_2.cfs").name()));
+
+        assertThat(repository.listSnapshots(shardId), contains("snapshot1", "snapshot2"));
+
+        // restore the first snapshot into an empty store
+        Store restoredStore = createStore();
+        repository.restore("snapshot1", ImmutableList.of(restoredStore));
+        assertThat(restoredStore.metaData("_1.cfs").isSame(store.metaData("_1.cfs")), equalTo(true));
+        assertThat(restoredStore.metaData("_2.cfs").isSame(store.metaData("_2.cfs")), equalTo(true));
+        assertThat(restoredStore.metaData("_3.cfs"), nullValue());
+        assertFileContent(restoredStore, "_1.cfs", 250);
+        assertFileContent(restoredStore, "_2.cfs", 10);
+
+        // restoring the second snapshot on top only brings in the missing file
+        repository.restore("snapshot2", ImmutableList.of(restoredStore));
+        assertThat(restoredStore.metaData("_3.cfs").isSame(store.metaData("_3.cfs")), equalTo(true));
+        assertFileContent(restoredStore, "_3.cfs", 50);
+
+        // deleting the first snapshot keeps the files used by the second one
+        repository.deleteSnapshot(shardId, "snapshot1");
+        assertThat(repository.listSnapshots(shardId), contains("snapshot2"));
+        assertThat(countDataBlobs(), equalTo(3));
+
+        repository.deleteSnapshot(shardId, "snapshot2");
+        assertThat(repository.listSnapshots(shardId).isEmpty(), equalTo(true));
+        assertThat(countDataBlobs(), equalTo(0));
+
+        store.close();
+        restoredStore.close();
+    }
+
+    @Test
+    public void testConcurrentSnapshots() throws Exception {
+        final Store store = createStore();
+        writeFile(store, "_1.cfs", 250);
+        writeFile(store, "_2.cfs", 10);
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final String snapshot = "snapshot" + i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        repository.snapshot(snapshot, store, ImmutableList.of("_1.cfs", "_2.cfs"));
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failures.isEmpty(), equalTo(true));
+        assertThat(repository.listSnapshots(shardId).size(), equalTo(threads.length));
+        // the files got uploaded once, and reused by the following snapshots
+        assertThat(countDataBlobs(), equalTo(2));
+
+        for (int i = 0; i < threads.length; i++) {
+            Store restoredStore = createStore();
+            repository.restore("snapshot" + i, ImmutableList.of(restoredStore));
+            assertFileContent(restoredStore, "_1.cfs", 250);
+            assertFileContent(restoredStore, "_2.cfs", 10);
+            restoredStore.close();
+        }
+        store.close();
+    }
+
+    @Test
+    public void testInvalidSnapshotNames() throws Exception {
+        Store store = createStore();
+        writeFile(store, "_1.cfs", 10);
+        for (String name : new String[]{"", "../snapshot", "a/b", "a\\b", "a b", ".snapshot"}) {
+            try {
+                repository.snapshot(name, store, ImmutableList.of("_1.cfs"));
+                fail("snapshot name [" + name + "] should be rejected");
+            } catch (ElasticSearchIllegalArgumentException e) {
+                // all is well
+            }
+            try {
+                repository.deleteSnapshot(shardId, name);
+                fail("snapshot name [" + name + "] should be rejected");
+            } catch (ElasticSearchIllegalArgumentException e) {
+                // all is well
+            }
+        }
+        assertThat(countDataBlobs(), equalTo(0));
+        store.close();
+    }
+
+    private Store createStore() throws IOException {
+        DirectoryService directoryService = new RamDirectoryService(shardId, EMPTY_SETTINGS);
+        return new Store(shardId, EMPTY_SETTINGS, null, directoryService, new LeastUsedDistributor(directoryService));
+    }
+
+    private void writeFile(Store store, String name, int length) throws IOException {
+        IndexOutput output = store.directory().createOutput(name, IOContext.DEFAULT);
+        for (int i = 0; i < length; i++) {
+            output.writeByte((byte) (i + name.hashCode()));
+        }
+        output.close();
+    }
+
+    private void assertFileContent(Store store, String name, int length) throws IOException {
+        IndexInput input = store.openInputRaw(name, IOContext.READ);
+        assertThat(input.length(), equalTo((long) length));
+        for (int i = 0; i < length; i++) {
+            assertThat(input.readByte(), equalTo((byte) (i + name.hashCode())));
+        }
+        input.close();
+    }
+
+    private int countDataBlobs() throws IOException {
+        int count = 0;
+        for (String blobName : blobStore.immutableBlobContainer(repository.shardPath(shardId)).listBlobs().keySet()) {
+            if (blobName.startsWith("__") && (!blobName.contains(".part") || blobName.endsWith(".part0"))) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.indices.cache.filter;
+
+import org.elasticsearch.indices.cache.filter.FrequencySketch;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ */
+public class FrequencySketchTests {
+
+    @Test
+    public void testIncrement() {
+        FrequencySketch sketch = new FrequencySketch(64);
+        assertThat(sketch.frequency(42), equalTo(0));
+        for (int i = 1; i <= 15; i++) {
+            assertThat(sketch.increment(42), equalTo(i));
+        }
+        // counters saturate at 15
+        assertThat(sketch.increment(42), equalTo(15));
+        assertThat(sketch.frequency(42), equalTo(15));
+        assertThat(sketch.frequency(43), lessThan(15));
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws Exception {
+        final FrequencySketch sketch = new FrequencySketch(64);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    // 3 increments per thread of a shared key, none get lost
+                    for (int j = 0; j < 3; j++) {
+                        sketch.increment(7);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(sketch.frequency(7), equalTo(12));
+    }
+
+    @Test
+    public void testReset() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(42);
+        }
+        // enough additions of other keys halve the counters
+        for (int i = 0; i < 16 * 10; i++) {
+            sketch.increment(100000 + i);
+        }
+        assertThat(sketch.frequency(42), lessThan(10));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.indices.recovery;
+
+import com.google.common.collect.Maps;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.recovery.RecoverySettings;
+import org.elasticsearch.indices.recovery.RecoveryTarget;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class RecoveryFileChunkTests {
+
+    @Test
+    public void testOutOfOrderChunks() throws Exception {
+        Random random = new Random(42);
+        byte[] data = new byte[1000];
+        random.nextBytes(data);
+
+        int chunkSize = 64;
+        int numChunks = (data.length + chunkSize - 1) / chunkSize;
+        Integer[] order = new Integer[numChunks];
+        for (int i = 0; i < numChunks; i++) {
+            order[i] = i;
+        }
+        // the first chunk is always acked before the rest are sent, shuffle the others
+        for (int i = numChunks - 1; i > 1; i--) {
+            int j = 1 + random.nextInt(i);
+            Integer tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        RAMDirectory dir = new RAMDirectory();
+        IndexOutput indexOutput = dir.createOutput("test", IOContext.DEFAULT);
+        Map<Long, BytesReference> pendingChunks = Maps.newHashMap();
+        for (int chunk : order) {
+            int offset = chunk * chunkSize;
+            int length = Math.min(chunkSize, data.length - offset);
+            // the content might not be backed by its own array, make sure a copy of it is kept
+            byte[] buffer = Arrays.copyOfRange(data, offset, offset + length);
+            RecoveryTarget.writeFileChunk(indexOutput, pendingChunks, offset, new BytesArray(buffer));
+            Arrays.fill(buffer, (byte) 0);
+        }
+        assertThat(pendingChunks.size(), equalTo(0));
+        assertThat(indexOutput.getFilePointer(), equalTo((long) data.length));
+        indexOutput.close();
+
+        IndexInput indexInput = dir.openInput("test", IOContext.DEFAULT);
+        byte[] read = new byte[data.length];
+        indexInput.readBytes(read, 0, read.length);
+        indexInput.close();
+        assertThat(Arrays.equals(read, data), equalTo(true));
+    }
+
+    @Test
+    public void testPendingChunksHeldUntilGapFilled() throws Exception {
+        RAMDirectory dir = new RAMDirectory();
+        IndexOutput indexOutput = dir.createOutput("test", IOContext.DEFAULT);
+        Map<Long, BytesReference> pendingChunks = Maps.newHashMap();
+
+        RecoveryTarget.writeFileChunk(indexOutput, pendingChunks, 0, new BytesArray(new byte[]{0, 1}));
+        RecoveryTarget.writeFileChunk(indexOutput, pendingChunks, 6, new BytesArray(new byte[]{6, 7}));
+        RecoveryTarget.writeFileChunk(indexOutput, pendingChunks, 4, new BytesArray(new byte[]{4, 5}));
+        assertThat(indexOutput.getFilePointer(), equalTo(2l));
+        assertThat(pendingChunks.size(), equalTo(2));
+
+        RecoveryTarget.writeFileChunk(indexOutput, pendingChunks, 2, new BytesArray(new byte[]{2, 3}));
+        assertThat(indexOutput.getFilePointer(), equalTo(8l));
+        assertThat(pendingChunks.size(), equalTo(0));
+        indexOutput.close();
+    }
+
+    @Test(expectedExceptions = ElasticSearchIllegalArgumentException.class)
+    public void testRejectZeroConcurrentChunks() {
+        Settings settings = ImmutableSettings.settingsBuilder().put(RecoverySettings.INDICES_RECOVERY_CONCURRENT_CHUNKS, 0).build();
+        new RecoverySettings(settings, new NodeSettingsService(settings));
+    }
+
+    @Test(expectedExceptions = ElasticSearchIllegalArgumentException.class)
+    public void testRejectUnknownCompressType() {
+        Settings settings = ImmutableSettings.settingsBuilder().put(RecoverySettings.INDICES_RECOVERY_COMPRESS_TYPE, "lz5").build();
+        new RecoverySettings(settings, new NodeSettingsService(settings));
+    }
+
+    @Test
+    public void testIgnoreDynamicZeroConcurrentChunks() {
+        final NodeSettingsService.Listener[] listener = new NodeSettingsService.Listener[1];
+        NodeSettingsService nodeSettingsService = new NodeSettingsService(ImmutableSettings.Builder.EMPTY_SETTINGS) {
+            @Override
+            public void addListener(Listener l) {
+                listener[0] = l;
+            }
+        };
+        RecoverySettings recoverySettings = new RecoverySettings(ImmutableSettings.Builder.EMPTY_SETTINGS, nodeSettingsService);
+        try {
+            listener[0].onRefreshSettings(ImmutableSettings.settingsBuilder().put(RecoverySettings.INDICES_RECOVERY_CONCURRENT_CHUNKS, 4).build());
+            assertThat(recoverySettings.concurrentChunks(), equalTo(4));
+            listener[0].onRefreshSettings(ImmutableSettings.settingsBuilder().put(RecoverySettings.INDICES_RECOVERY_CONCURRENT_CHUNKS, 0).build());
+            assertThat(recoverySettings.concurrentChunks(), equalTo(4));
+            listener[0].onRefreshSettings(ImmutableSettings.settingsBuilder().put(RecoverySettings.INDICES_RECOVERY_CONCURRENT_CHUNKS, -1).build());
+            assertThat(recoverySettings.concurrentChunks(), equalTo(4));
+        } finally {
+            recoverySettings.close();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.transport.netty;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.CachedStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.transport.FileRegionTransportRequest;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.netty.NettyHeader;
+import org.elasticsearch.transport.netty.NettyTransport;
+import org.elasticsearch.transport.support.TransportStatus;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.FileRegion;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class FileRegionMessageTests {
+
+    @Test
+    public void testSameWireBytesAsBufferedRequest() throws Exception {
+        Random random = new Random(42);
+        byte[] data = new byte[10000];
+        random.nextBytes(data);
+        File file = File.createTempFile("file_region", ".bin");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(data);
+        fos.close();
+
+        try {
+            long position = 1234;
+            int length = 5000;
+
+            // the file region path
+            TestRequest request = new TestRequest("name", new RandomAccessFile(file, "r"), position, length);
+            CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+            FileRegion fileRegion = NettyTransport.fileRegionMessage(cachedEntry, 1, Version.CURRENT, "action", request);
+            ByteArrayOutputStream regionBytes = new ByteArrayOutputStream();
+            // transfer it in small steps, like a socket with a full send buffer would
+            WritableByteChannel target = new SmallWritesChannel(Channels.newChannel(regionBytes), 333);
+            long transferred = 0;
+            while (transferred < fileRegion.getCount()) {
+                transferred += fileRegion.transferTo(target, transferred);
+            }
+            assertThat(transferred, equalTo(fileRegion.getCount()));
+            // the region does not close the file, the request is released by the transport
+            assertThat(request.file.getChannel().isOpen(), equalTo(true));
+            request.releaseFileRegion();
+            assertThat(request.file.getChannel().isOpen(), equalTo(false));
+            CachedStreamOutput.pushEntry(cachedEntry);
+
+            // the buffered path, the request is written as a whole
+            request = new TestRequest("name", new RandomAccessFile(file, "r"), position, length);
+            cachedEntry = CachedStreamOutput.popEntry();
+            StreamOutput stream = cachedEntry.handles();
+            cachedEntry.bytes().skip(NettyHeader.HEADER_SIZE);
+            stream.setVersion(Version.CURRENT);
+            stream.writeString("action");
+            request.writeTo(stream);
+            stream.close();
+            ChannelBuffer buffer = cachedEntry.bytes().bytes().toChannelBuffer();
+            NettyHeader.writeHeader(buffer, 1, TransportStatus.setRequest((byte) 0), Version.CURRENT);
+            byte[] bufferedBytes = new byte[buffer.readableBytes()];
+            buffer.getBytes(buffer.readerIndex(), bufferedBytes);
+            // writing it as a whole reads the region and releases it
+            assertThat(request.file.getChannel().isOpen(), equalTo(false));
+            CachedStreamOutput.pushEntry(cachedEntry);
+
+            assertThat(regionBytes.toByteArray(), equalTo(bufferedBytes));
+        } finally {
+            file.delete();
+        }
+    }
+
+    static class TestRequest extends TransportRequest implements FileRegionTransportRequest {
+
+        final String name;
+        final RandomAccessFile file;
+        final long position;
+        final int length;
+
+        TestRequest(String name, RandomAccessFile file, long position, int length) {
+            this.name = name;
+            this.file = file;
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        public boolean hasFileRegion() {
+            return true;
+        }
+
+        @Override
+        public FileChannel fileRegionChannel() {
+            return file.getChannel();
+        }
+
+        @Override
+        public long fileRegionPosition() {
+            return position;
+        }
+
+        @Override
+        public int fileRegionLength() {
+            return length;
+        }
+
+        @Override
+        public void writeToFileRegion(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeString(name);
+            out.writeVLong(position);
+            out.writeVInt(length);
+        }
+
+        @Override
+        public void releaseFileRegion() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            writeToFileRegion(out);
+            byte[] bytes = new byte[length];
+            try {
+                file.seek(position);
+                file.readFully(bytes);
+            } finally {
+                releaseFileRegion();
+            }
+            out.writeBytes(bytes);
+        }
+    }
+
+    /**
+     * Writes at most <tt>maxWrite</tt> bytes per call.
+     */
+    static class SmallWritesChannel implements WritableByteChannel {
+
+        private final WritableByteChannel delegate;
+        private final int maxWrite;
+
+        SmallWritesChannel(WritableByteChannel delegate, int maxWrite) {
+            this.delegate = delegate;
+            this.maxWrite = maxWrite;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (src.remaining() <= maxWrite) {
+                return delegate.write(src);
+            }
+            ByteBuffer slice = src.duplicate();
+            slice.limit(slice.position() + maxWrite);
+            int written = delegate.write(slice);
+            src.position(src.position() + written);
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
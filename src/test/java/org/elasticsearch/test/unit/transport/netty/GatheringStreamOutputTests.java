@@ -0,0 +1,83 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.unit.transport.netty;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.HandlesStreamInput;
+import org.elasticsearch.common.io.stream.HandlesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.transport.netty.ChannelBufferStreamInputFactory;
+import org.elasticsearch.transport.netty.GatheringStreamOutput;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class GatheringStreamOutputTests {
+
+    @Test
+    public void testGatheredBytesReferences() throws Exception {
+        byte[] large = new byte[GatheringStreamOutput.MIN_REFERENCED_LENGTH * 4];
+        Arrays.fill(large, (byte) 1);
+        byte[] small = new byte[]{2, 3, 4};
+        byte[] composite = new byte[GatheringStreamOutput.MIN_REFERENCED_LENGTH * 2];
+        Arrays.fill(composite, (byte) 5);
+        BytesReference compositeReference = new ChannelBufferBytesReference(ChannelBuffers.wrappedBuffer(
+                ChannelBuffers.wrappedBuffer(composite, 0, 100), ChannelBuffers.wrappedBuffer(composite, 100, composite.length - 100)));
+
+        BytesStreamOutput bytes = new BytesStreamOutput();
+        GatheringStreamOutput out = new GatheringStreamOutput(new HandlesStreamOutput(bytes), bytes);
+        out.writeString("action");
+        out.writeBytesReference(new BytesArray(large));
+        out.writeInt(42);
+        out.writeBytesReference(new BytesArray(small));
+        out.writeBytesReference(null);
+        out.writeBytesReference(compositeReference);
+        out.writeString("action");
+        out.close();
+
+        // the large ones are not copied over
+        assertThat(bytes.size() < GatheringStreamOutput.MIN_REFERENCED_LENGTH, equalTo(true));
+
+        ChannelBuffer buffer = out.toChannelBuffer();
+        // changes to the referenced bytes show up in the buffer, since they are not copied
+        large[0] = 9;
+
+        StreamInput in = new HandlesStreamInput(ChannelBufferStreamInputFactory.create(buffer));
+        assertThat(in.readString(), equalTo("action"));
+        BytesReference read = in.readBytesReference();
+        assertThat(read.length(), equalTo(large.length));
+        assertThat(read.toBytes(), equalTo(large));
+        assertThat(in.readInt(), equalTo(42));
+        assertThat(in.readBytesReference().toBytes(), equalTo(small));
+        assertThat(in.readBytesReference().length(), equalTo(0));
+        assertThat(in.readBytesReference().toBytes(), equalTo(composite));
+        assertThat(in.readString(), equalTo("action"));
+        assertThat(buffer.readable(), equalTo(false));
+    }
+}